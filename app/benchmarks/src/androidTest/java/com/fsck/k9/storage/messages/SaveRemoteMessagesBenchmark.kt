@@ -0,0 +1,202 @@
+package com.fsck.k9.storage.messages
+
+import android.database.sqlite.SQLiteDatabase
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.fsck.k9.Account
+import com.fsck.k9.mail.MessageDownloadState
+import com.fsck.k9.mail.internet.MimeMessage
+import com.fsck.k9.mail.internet.MimeMessageHelper
+import com.fsck.k9.mail.internet.TextBody
+import com.fsck.k9.mailstore.LockableDatabase
+import com.fsck.k9.mailstore.MigrationsHelper
+import com.fsck.k9.mailstore.SaveMessageData
+import com.fsck.k9.mailstore.StorageManager
+import com.fsck.k9.message.extractors.BasicPartInfoExtractor
+import com.fsck.k9.message.extractors.PreviewResult
+import com.fsck.k9.storage.K9SchemaDefinitionFactory
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+
+private const val ACCOUNT_UUID = "00000000-0000-4000-0000-000000000000"
+private const val FOLDER_ID = 1L
+private const val EXISTING_THREAD_COUNT = 2000
+private const val BATCH_SIZE = 500
+private const val MESSAGES_PER_THREAD = 5
+
+/**
+ * Compares saving a sync batch one message at a time using [K9MessageStore.saveRemoteMessage] with saving it using
+ * [K9MessageStore.saveRemoteMessages], which threads the whole batch using a [ThreadCache].
+ *
+ * The database contains [EXISTING_THREAD_COUNT] threads. The batch adds replies to some of these threads, new threads,
+ * and replies that arrive before the message they reference.
+ */
+@RunWith(AndroidJUnit4::class)
+class SaveRemoteMessagesBenchmark {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val database = createDatabase()
+    private val messageStore = K9MessageStore(
+        InMemoryLockableDatabase(database),
+        mock(StorageManager::class.java),
+        BasicPartInfoExtractor(),
+        ACCOUNT_UUID
+    )
+    private val batch = createBatch()
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun saveRemoteMessageOneByOne() {
+        measureBatch {
+            for ((messageServerId, messageData) in batch) {
+                messageStore.saveRemoteMessage(FOLDER_ID, messageServerId, messageData)
+            }
+        }
+    }
+
+    @Test
+    fun saveRemoteMessages() {
+        measureBatch {
+            messageStore.saveRemoteMessages(FOLDER_ID, batch)
+        }
+    }
+
+    private fun measureBatch(block: () -> Unit) {
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled {
+                database.beginTransaction()
+            }
+
+            block()
+
+            runWithTimingDisabled {
+                // Roll back so every iteration starts with the same database
+                database.endTransaction()
+            }
+        }
+    }
+
+    private fun createDatabase(): SQLiteDatabase {
+        val database = SQLiteDatabase.create(null)
+        K9SchemaDefinitionFactory().createSchemaDefinition(NoOpMigrationsHelper).doDbUpgrade(database)
+
+        val existingMessages = mutableMapOf<String, SaveMessageData>()
+        for (thread in 0 until EXISTING_THREAD_COUNT) {
+            var references: String? = null
+            for (reply in 0 until MESSAGES_PER_THREAD) {
+                val messageIdHeader = messageIdHeader("existing", thread, reply)
+                existingMessages[messageIdHeader] = createSaveMessageData(messageIdHeader, inReplyTo = null, references)
+                references = listOfNotNull(references, messageIdHeader).joinToString(" ")
+            }
+        }
+
+        val messageStore = K9MessageStore(
+            InMemoryLockableDatabase(database),
+            mock(StorageManager::class.java),
+            BasicPartInfoExtractor(),
+            ACCOUNT_UUID
+        )
+        database.beginTransaction()
+        try {
+            messageStore.saveRemoteMessages(FOLDER_ID, existingMessages)
+            database.setTransactionSuccessful()
+        } finally {
+            database.endTransaction()
+        }
+
+        return database
+    }
+
+    private fun createBatch(): Map<String, SaveMessageData> {
+        return (0 until BATCH_SIZE).associate { index ->
+            val thread = index * (EXISTING_THREAD_COUNT / BATCH_SIZE)
+            val messageData = when (index % 3) {
+                0 -> {
+                    // Reply to an existing thread
+                    createSaveMessageData(
+                        messageIdHeader = messageIdHeader("reply", thread, 0),
+                        inReplyTo = messageIdHeader("existing", thread, MESSAGES_PER_THREAD - 1),
+                        references = (0 until MESSAGES_PER_THREAD).joinToString(" ") {
+                            messageIdHeader("existing", thread, it)
+                        }
+                    )
+                }
+                1 -> {
+                    // Reply to a message that is only part of a later batch
+                    createSaveMessageData(
+                        messageIdHeader = messageIdHeader("new", thread, 1),
+                        inReplyTo = messageIdHeader("new", thread, 0),
+                        references = messageIdHeader("new", thread, 0)
+                    )
+                }
+                else -> {
+                    // New message that isn't a reply
+                    createSaveMessageData(
+                        messageIdHeader = messageIdHeader("new", thread, 0),
+                        inReplyTo = null,
+                        references = null
+                    )
+                }
+            }
+
+            "batch-$index" to messageData
+        }
+    }
+
+    private fun createSaveMessageData(
+        messageIdHeader: String,
+        inReplyTo: String?,
+        references: String?
+    ): SaveMessageData {
+        val message = MimeMessage().apply {
+            setHeader("Message-ID", messageIdHeader)
+            inReplyTo?.let { setHeader("In-Reply-To", it) }
+            references?.let { setHeader("References", it) }
+            setHeader("Content-Type", "text/plain; charset=utf-8")
+            MimeMessageHelper.setBody(this, TextBody("Text"))
+        }
+
+        return SaveMessageData(
+            message = message,
+            subject = "Subject",
+            date = 0L,
+            internalDate = 0L,
+            downloadState = MessageDownloadState.FULL,
+            attachmentCount = 0,
+            previewResult = PreviewResult.none(),
+            textForSearchIndex = null,
+            encryptionType = null
+        )
+    }
+
+    private fun messageIdHeader(prefix: String, thread: Int, message: Int): String {
+        return "<$prefix.$thread.$message@domain.example>"
+    }
+
+    /**
+     * Runs database operations on [database] directly, so the benchmark controls the transaction.
+     */
+    private class InMemoryLockableDatabase(
+        private val database: SQLiteDatabase
+    ) : LockableDatabase(InstrumentationRegistry.getInstrumentation().targetContext, ACCOUNT_UUID, null) {
+        override fun <T : Any?> execute(transactional: Boolean, callback: DbCallback<T>): T {
+            return callback.doDbWork(database)
+        }
+    }
+
+    private object NoOpMigrationsHelper : MigrationsHelper {
+        override fun getAccount(): Account = throw UnsupportedOperationException()
+
+        override fun saveAccount() = Unit
+    }
+}
@@ -151,6 +151,7 @@ public class Account implements BaseAccount {
     private boolean isSignatureBeforeQuotedText;
     private Expunge expungePolicy = Expunge.EXPUNGE_IMMEDIATELY;
     private int maxPushFolders;
+    private int maxParallelFolderSyncs;
     private int idleRefreshMinutes;
     private final Map<NetworkType, Boolean> compressionMap = new ConcurrentHashMap<>();
     private Searchable searchableFolders;
@@ -698,6 +699,14 @@ public class Account implements BaseAccount {
         return oldMaxPushFolders != maxPushFolders;
     }
 
+    public synchronized int getMaxParallelFolderSyncs() {
+        return maxParallelFolderSyncs;
+    }
+
+    public synchronized void setMaxParallelFolderSyncs(int maxParallelFolderSyncs) {
+        this.maxParallelFolderSyncs = maxParallelFolderSyncs;
+    }
+
     @Override
     public synchronized String toString() {
         return description;
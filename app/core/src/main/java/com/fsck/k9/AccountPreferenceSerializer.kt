@@ -104,6 +104,10 @@ class AccountPreferenceSerializer(
             isSyncRemoteDeletions = storage.getBoolean("$accountUuid.syncRemoteDeletions", true)
 
             maxPushFolders = storage.getInt("$accountUuid.maxPushFolders", 10)
+            maxParallelFolderSyncs = storage.getInt(
+                "$accountUuid.maxParallelFolderSyncs",
+                DEFAULT_MAX_PARALLEL_FOLDER_SYNCS
+            )
             isSubscribedFoldersOnly = storage.getBoolean("$accountUuid.subscribedFoldersOnly", false)
             maximumPolledMessageAge = storage.getInt("$accountUuid.maximumPolledMessageAge", -1)
             maximumAutoDownloadMessageSize = storage.getInt("$accountUuid.maximumAutoDownloadMessageSize", 32768)
@@ -290,6 +294,7 @@ class AccountPreferenceSerializer(
             editor.putString("$accountUuid.expungePolicy", expungePolicy.name)
             editor.putBoolean("$accountUuid.syncRemoteDeletions", isSyncRemoteDeletions)
             editor.putInt("$accountUuid.maxPushFolders", maxPushFolders)
+            editor.putInt("$accountUuid.maxParallelFolderSyncs", maxParallelFolderSyncs)
             editor.putString("$accountUuid.searchableFolders", searchableFolders.name)
             editor.putInt("$accountUuid.chipColor", chipColor)
             editor.putBoolean("$accountUuid.subscribedFoldersOnly", isSubscribedFoldersOnly)
@@ -405,6 +410,7 @@ class AccountPreferenceSerializer(
         editor.remove("$accountUuid.expungePolicy")
         editor.remove("$accountUuid.syncRemoteDeletions")
         editor.remove("$accountUuid.maxPushFolders")
+        editor.remove("$accountUuid.maxParallelFolderSyncs")
         editor.remove("$accountUuid.searchableFolders")
         editor.remove("$accountUuid.chipColor")
         editor.remove("$accountUuid.led")
@@ -563,6 +569,7 @@ class AccountPreferenceSerializer(
             importedAutoExpandFolder = null
             legacyInboxFolder = null
             maxPushFolders = 10
+            maxParallelFolderSyncs = DEFAULT_MAX_PARALLEL_FOLDER_SYNCS
             isSubscribedFoldersOnly = false
             maximumPolledMessageAge = -1
             maximumAutoDownloadMessageSize = 32768
@@ -640,5 +647,6 @@ class AccountPreferenceSerializer(
         const val DEFAULT_REPLY_AFTER_QUOTE = false
         const val DEFAULT_STRIP_SIGNATURE = true
         const val DEFAULT_REMOTE_SEARCH_NUM_RESULTS = 25
+        const val DEFAULT_MAX_PARALLEL_FOLDER_SYNCS = 2
     }
 }
@@ -0,0 +1,184 @@
+package com.fsck.k9.controller;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import timber.log.Timber;
+
+
+/**
+ * Executes {@link MessagingController} commands on a bounded pool of worker threads.
+ * <p>
+ * Every account gets its own queue. Commands of one account are run one at a time in priority order (foreground
+ * before background, then in submission order), so they see the same ordering they did when all commands went through
+ * a single controller thread. Queues of different accounts are drained in parallel, but never by more than
+ * {@code maxParallelism} threads at once. After each command an account queue gives up its worker thread and goes
+ * to the back of the line, so a long sync of one account can't starve the others.
+ * <p>
+ * A command can allow other commands of the same account to run alongside it by raising
+ * {@link Command#maxParallelism}. This is used to sync several folders of an account at the same time. Commands
+ * that don't change the default are still run exclusively.
+ * <p>
+ * Commands that aren't associated with an account are run on a separate queue that follows the same rules.
+ */
+class AccountCommandExecutor {
+    static final int DEFAULT_MAX_PARALLELISM = 4;
+
+    private static final String NO_ACCOUNT_KEY = "";
+
+    private static final AtomicInteger sequencing = new AtomicInteger(0);
+
+
+    private final CommandRunner commandRunner;
+    private final ExecutorService workerPool;
+    private final Map<String, CommandQueue> commandQueues = new HashMap<>();
+
+
+    AccountCommandExecutor(int maxParallelism, CommandRunner commandRunner) {
+        this.commandRunner = commandRunner;
+
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        workerPool = Executors.newFixedThreadPool(maxParallelism, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            });
+            thread.setName("MessagingController-" + threadCounter.getAndIncrement());
+            return thread;
+        });
+    }
+
+    void execute(Command command) {
+        getCommandQueue(command.accountUuid).add(command);
+    }
+
+    void shutdown(long timeoutMillis) throws InterruptedException {
+        workerPool.shutdownNow();
+        workerPool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private CommandQueue getCommandQueue(@Nullable String accountUuid) {
+        String key = accountUuid != null ? accountUuid : NO_ACCOUNT_KEY;
+        synchronized (commandQueues) {
+            CommandQueue commandQueue = commandQueues.get(key);
+            if (commandQueue == null) {
+                commandQueue = new CommandQueue();
+                commandQueues.put(key, commandQueue);
+            }
+            return commandQueue;
+        }
+    }
+
+
+    private class CommandQueue {
+        private final PriorityQueue<Command> commands = new PriorityQueue<>();
+        private final List<Command> runningCommands = new ArrayList<>();
+
+        void add(Command command) {
+            synchronized (this) {
+                commands.add(command);
+            }
+
+            scheduleCommands();
+        }
+
+        private void scheduleCommands() {
+            List<Command> commandsToRun = new ArrayList<>();
+            synchronized (this) {
+                Command command;
+                while ((command = commands.peek()) != null && canRun(command)) {
+                    commands.poll();
+                    runningCommands.add(command);
+                    commandsToRun.add(command);
+                }
+            }
+
+            for (Command command : commandsToRun) {
+                schedule(command);
+            }
+        }
+
+        /**
+         * A command may only start if neither it nor any of the commands already running would exceed its
+         * {@link Command#maxParallelism} limit. So a command with the default limit of 1 waits for all running commands
+         * to finish, and no other command is started while it is running.
+         */
+        private boolean canRun(Command command) {
+            int runningCount = runningCommands.size();
+            if (runningCount == 0) {
+                return true;
+            } else if (runningCount >= command.maxParallelism) {
+                return false;
+            }
+
+            for (Command runningCommand : runningCommands) {
+                if (runningCount >= runningCommand.maxParallelism) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void schedule(Command command) {
+            if (workerPool.isShutdown()) {
+                return;
+            }
+
+            workerPool.execute(() -> run(command));
+        }
+
+        private void run(Command command) {
+            try {
+                commandRunner.runCommand(command);
+            } catch (Exception e) {
+                Timber.e(e, "Error running command '%s'", command.description);
+            }
+
+            synchronized (this) {
+                runningCommands.remove(command);
+            }
+
+            // Starting the next command(s) from a new task moves this account to the back of the line
+            scheduleCommands();
+        }
+    }
+
+    interface CommandRunner {
+        void runCommand(Command command);
+    }
+
+    static class Command implements Comparable<Command> {
+        public Runnable runnable;
+        public MessagingListener listener;
+        public String description;
+        public String accountUuid;
+        boolean isForegroundPriority;
+        int maxParallelism = 1;
+
+        int sequence = sequencing.getAndIncrement();
+
+        @Override
+        public int compareTo(@NonNull Command other) {
+            if (other.isForegroundPriority && !isForegroundPriority) {
+                return 1;
+            } else if (!other.isForegroundPriority && isForegroundPriority) {
+                return -1;
+            } else {
+                return (sequence - other.sequence);
+            }
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.fsck.k9.controller
 
+import com.fsck.k9.Account
 import com.fsck.k9.backend.BackendManager
 
 interface ControllerExtension {
     fun init(controller: MessagingController, backendManager: BackendManager, controllerInternals: ControllerInternals)
 
     interface ControllerInternals {
-        fun put(description: String, listener: MessagingListener?, runnable: Runnable)
-        fun putBackground(description: String, listener: MessagingListener?, runnable: Runnable)
+        fun put(description: String, account: Account?, listener: MessagingListener?, runnable: Runnable)
+        fun putBackground(description: String, account: Account?, listener: MessagingListener?, runnable: Runnable)
     }
 }
@@ -4,8 +4,10 @@ import android.content.Context
 import com.fsck.k9.Preferences
 import com.fsck.k9.backend.BackendManager
 import com.fsck.k9.mailstore.LocalStoreProvider
+import com.fsck.k9.mailstore.MessageCryptoResultCache
 import com.fsck.k9.mailstore.MessageStoreManager
 import com.fsck.k9.mailstore.SaveMessageDataCreator
+import com.fsck.k9.message.html.HtmlRenderCache
 import com.fsck.k9.notification.NotificationController
 import com.fsck.k9.notification.NotificationStrategy
 import org.koin.core.qualifier.named
@@ -23,6 +25,8 @@ val controllerModule = module {
             get<Preferences>(),
             get<MessageStoreManager>(),
             get<SaveMessageDataCreator>(),
+            get<HtmlRenderCache>(),
+            get<MessageCryptoResultCache>(),
             get(named("controllerExtensions"))
         )
     }
@@ -12,20 +12,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.os.PowerManager;
-import android.os.Process;
-import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -41,6 +37,7 @@ import com.fsck.k9.backend.api.BuildConfig;
 import com.fsck.k9.backend.api.SyncConfig;
 import com.fsck.k9.backend.api.SyncListener;
 import com.fsck.k9.cache.EmailProviderCache;
+import com.fsck.k9.controller.AccountCommandExecutor.Command;
 import com.fsck.k9.controller.ControllerExtension.ControllerInternals;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingAppend;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
@@ -52,6 +49,7 @@ import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveAndMarkAsRe
 import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveOrCopy;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingReplace;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.controller.PendingCommandCoalescer.CoalescedCommand;
 import com.fsck.k9.controller.ProgressBodyFactory.ProgressListener;
 import com.fsck.k9.helper.MutableBoolean;
 import com.fsck.k9.mail.AuthenticationFailedException;
@@ -68,6 +66,7 @@ import com.fsck.k9.mailstore.LocalFolder;
 import com.fsck.k9.mailstore.LocalMessage;
 import com.fsck.k9.mailstore.LocalStore;
 import com.fsck.k9.mailstore.LocalStoreProvider;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import com.fsck.k9.mailstore.MessageStore;
 import com.fsck.k9.mailstore.MessageStoreManager;
 import com.fsck.k9.mailstore.OutboxState;
@@ -76,6 +75,7 @@ import com.fsck.k9.mailstore.SaveMessageData;
 import com.fsck.k9.mailstore.SaveMessageDataCreator;
 import com.fsck.k9.mailstore.SendState;
 import com.fsck.k9.mailstore.UnavailableStorageException;
+import com.fsck.k9.message.html.HtmlRenderCache;
 import com.fsck.k9.notification.NotificationController;
 import com.fsck.k9.notification.NotificationStrategy;
 import com.fsck.k9.power.TracingPowerManager;
@@ -94,9 +94,10 @@ import static com.fsck.k9.search.LocalSearchExtensions.getAccountsFromLocalSearc
 
 
 /**
- * Starts a long running (application) Thread that will run through commands
- * that require remote mailbox access. This class is used to serialize and
- * prioritize these commands. Each method that will submit a command requires a
+ * Runs commands that require remote mailbox access on a small pool of long
+ * running (application) threads. This class is used to serialize and
+ * prioritize these commands per account, while commands of different accounts
+ * can run in parallel (see {@link AccountCommandExecutor}). Each method that will submit a command requires a
  * MessagingListener instance to be provided. It is expected that that listener
  * has also been added as a registered listener using addListener(). When a
  * command is to be executed, if the listener that was provided with the command
@@ -118,12 +119,15 @@ public class MessagingController {
     private final Preferences preferences;
     private final MessageStoreManager messageStoreManager;
     private final SaveMessageDataCreator saveMessageDataCreator;
+    private final HtmlRenderCache htmlRenderCache;
+    private final MessageCryptoResultCache cryptoResultCache;
 
-    private final Thread controllerThread;
+    private final AccountCommandExecutor commandExecutor;
 
-    private final BlockingQueue<Command> queuedCommands = new PriorityBlockingQueue<>();
     private final Set<MessagingListener> listeners = new CopyOnWriteArraySet<>();
     private final ExecutorService threadPool = Executors.newCachedThreadPool();
+    private final Map<String, Object> accountSyncLocks = new HashMap<>();
+    private final Map<String, Integer> activeFolderSyncCounts = new HashMap<>();
     private final MemorizingMessagingListener memorizingMessagingListener = new MemorizingMessagingListener();
     private final UnreadMessageCountProvider unreadMessageCountProvider;
     private final DraftOperations draftOperations;
@@ -142,7 +146,8 @@ public class MessagingController {
             NotificationStrategy notificationStrategy, LocalStoreProvider localStoreProvider,
             UnreadMessageCountProvider unreadMessageCountProvider, BackendManager backendManager,
             Preferences preferences, MessageStoreManager messageStoreManager,
-            SaveMessageDataCreator saveMessageDataCreator, List<ControllerExtension> controllerExtensions) {
+            SaveMessageDataCreator saveMessageDataCreator, HtmlRenderCache htmlRenderCache,
+            MessageCryptoResultCache cryptoResultCache, List<ControllerExtension> controllerExtensions) {
         this.context = context;
         this.notificationController = notificationController;
         this.notificationStrategy = notificationStrategy;
@@ -152,15 +157,11 @@ public class MessagingController {
         this.preferences = preferences;
         this.messageStoreManager = messageStoreManager;
         this.saveMessageDataCreator = saveMessageDataCreator;
+        this.htmlRenderCache = htmlRenderCache;
+        this.cryptoResultCache = cryptoResultCache;
 
-        controllerThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                runInBackground();
-            }
-        });
-        controllerThread.setName("MessagingController");
-        controllerThread.start();
+        commandExecutor = new AccountCommandExecutor(AccountCommandExecutor.DEFAULT_MAX_PARALLELISM,
+                this::runCommand);
         addListener(memorizingMessagingListener);
 
         initializeControllerExtensions(controllerExtensions);
@@ -175,15 +176,15 @@ public class MessagingController {
 
         ControllerInternals internals = new ControllerInternals() {
             @Override
-            public void put(@NotNull String description, @Nullable MessagingListener listener,
-                    @NotNull Runnable runnable) {
-                MessagingController.this.put(description, listener, runnable);
+            public void put(@NotNull String description, @Nullable Account account,
+                    @Nullable MessagingListener listener, @NotNull Runnable runnable) {
+                MessagingController.this.put(description, account, listener, runnable);
             }
 
             @Override
-            public void putBackground(@NotNull String description, @Nullable MessagingListener listener,
-                    @NotNull Runnable runnable) {
-                MessagingController.this.putBackground(description, listener, runnable);
+            public void putBackground(@NotNull String description, @Nullable Account account,
+                    @Nullable MessagingListener listener, @NotNull Runnable runnable) {
+                MessagingController.this.putBackground(description, account, listener, runnable);
             }
         };
 
@@ -195,78 +196,73 @@ public class MessagingController {
     @VisibleForTesting
     void stop() throws InterruptedException {
         stopped = true;
-        controllerThread.interrupt();
-        controllerThread.join(1000L);
+        commandExecutor.shutdown(1000L);
     }
 
-    private void runInBackground() {
-        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
-        while (!stopped) {
-            String commandDescription = null;
-            try {
-                final Command command = queuedCommands.take();
-
-                if (command != null) {
-                    commandDescription = command.description;
+    private void runCommand(final Command command) {
+        if (stopped) {
+            return;
+        }
 
-                    Timber.i("Running command '%s', seq = %s (%s priority)",
-                            command.description,
-                            command.sequence,
-                            command.isForegroundPriority ? "foreground" : "background");
+        Timber.i("Running command '%s', seq = %s (%s priority)",
+                command.description,
+                command.sequence,
+                command.isForegroundPriority ? "foreground" : "background");
 
+        try {
+            command.runnable.run();
+        } catch (UnavailableAccountException e) {
+            // retry later
+            new Thread() {
+                @Override
+                public void run() {
                     try {
-                        command.runnable.run();
-                    } catch (UnavailableAccountException e) {
-                        // retry later
-                        new Thread() {
-                            @Override
-                            public void run() {
-                                try {
-                                    sleep(30 * 1000);
-                                    queuedCommands.put(command);
-                                } catch (InterruptedException e) {
-                                    Timber.e("Interrupted while putting a pending command for an unavailable account " +
-                                            "back into the queue. THIS SHOULD NEVER HAPPEN.");
-                                }
-                            }
-                        }.start();
+                        sleep(30 * 1000);
+                        commandExecutor.execute(command);
+                    } catch (InterruptedException e) {
+                        Timber.e("Interrupted while putting a pending command for an unavailable account " +
+                                "back into the queue. THIS SHOULD NEVER HAPPEN.");
                     }
-
-                    Timber.i(" Command '%s' completed", command.description);
                 }
-            } catch (Exception e) {
-                Timber.e(e, "Error running command '%s'", commandDescription);
-            }
+            }.start();
         }
+
+        Timber.i(" Command '%s' completed", command.description);
     }
 
-    private void put(String description, MessagingListener listener, Runnable runnable) {
-        putCommand(queuedCommands, description, listener, runnable, true);
+    private void put(String description, Account account, MessagingListener listener, Runnable runnable) {
+        putCommand(description, account, listener, runnable, true);
     }
 
-    private void putBackground(String description, MessagingListener listener, Runnable runnable) {
-        putCommand(queuedCommands, description, listener, runnable, false);
+    private void putBackground(String description, Account account, MessagingListener listener,
+            Runnable runnable) {
+        putCommand(description, account, listener, runnable, false);
     }
 
-    private void putCommand(BlockingQueue<Command> queue, String description, MessagingListener listener,
-            Runnable runnable, boolean isForeground) {
-        int retries = 10;
-        Exception e = null;
-        while (retries-- > 0) {
-            try {
-                Command command = new Command();
-                command.listener = listener;
-                command.runnable = runnable;
-                command.description = description;
-                command.isForegroundPriority = isForeground;
-                queue.put(command);
-                return;
-            } catch (InterruptedException ie) {
-                SystemClock.sleep(200);
-                e = ie;
-            }
-        }
-        throw new Error(e);
+    /**
+     * Like {@link #putBackground(String, Account, MessagingListener, Runnable)}, but allows up to
+     * {@code maxParallelism} such commands of the same account to run at the same time.
+     */
+    private void putParallelBackground(String description, Account account, MessagingListener listener,
+            int maxParallelism, Runnable runnable) {
+        putCommand(description, account, listener, runnable, false, maxParallelism);
+    }
+
+    private void putCommand(String description, Account account, MessagingListener listener, Runnable runnable,
+            boolean isForeground) {
+        putCommand(description, account, listener, runnable, isForeground, 1);
+    }
+
+    private void putCommand(String description, Account account, MessagingListener listener, Runnable runnable,
+            boolean isForeground, int maxParallelism) {
+        Command command = new Command();
+        command.listener = listener;
+        command.runnable = runnable;
+        command.description = description;
+        command.accountUuid = account != null ? account.getUuid() : null;
+        command.isForegroundPriority = isForeground;
+        command.maxParallelism = maxParallelism;
+        commandExecutor.execute(command);
     }
 
     Backend getBackend(Account account) {
@@ -385,7 +381,7 @@ public class MessagingController {
     }
 
     public void refreshFolderList(final Account account) {
-        put("refreshFolderList", null, () -> refreshFolderListSynchronous(account));
+        put("refreshFolderList", account, null, () -> refreshFolderListSynchronous(account));
     }
 
     public void refreshFolderListSynchronous(Account account) {
@@ -590,7 +586,7 @@ public class MessagingController {
      * Start background synchronization of the specified folder.
      */
     public void synchronizeMailbox(Account account, long folderId, MessagingListener listener) {
-        putBackground("synchronizeMailbox", listener, () ->
+        putBackground("synchronizeMailbox", account, listener, () ->
                 synchronizeMailboxSynchronous(account, folderId, listener)
         );
     }
@@ -599,7 +595,7 @@ public class MessagingController {
         long folderId = getFolderId(account, folderServerId);
 
         final CountDownLatch latch = new CountDownLatch(1);
-        putBackground("synchronizeMailbox", null, () -> {
+        putBackground("synchronizeMailbox", account, null, () -> {
             try {
                 synchronizeMailboxSynchronous(account, folderId, null);
             } finally {
@@ -629,14 +625,31 @@ public class MessagingController {
     }
 
     private void refreshFolderListIfStale(Account account) {
-        long lastFolderListRefresh = account.getLastFolderListRefreshTime();
-        long now = System.currentTimeMillis();
+        synchronized (getAccountSyncLock(account)) {
+            long lastFolderListRefresh = account.getLastFolderListRefreshTime();
+            long now = System.currentTimeMillis();
 
-        if (lastFolderListRefresh > now || lastFolderListRefresh + FOLDER_LIST_STALENESS_THRESHOLD <= now) {
-            Timber.d("Last folder list refresh @ %tc. Refreshing now…", lastFolderListRefresh);
-            refreshFolderListSynchronous(account);
-        } else {
-            Timber.d("Last folder list refresh @ %tc. Not refreshing now.", lastFolderListRefresh);
+            if (lastFolderListRefresh > now || lastFolderListRefresh + FOLDER_LIST_STALENESS_THRESHOLD <= now) {
+                Timber.d("Last folder list refresh @ %tc. Refreshing now…", lastFolderListRefresh);
+                refreshFolderListSynchronous(account);
+            } else {
+                Timber.d("Last folder list refresh @ %tc. Not refreshing now.", lastFolderListRefresh);
+            }
+        }
+    }
+
+    /**
+     * Returns the lock that folder syncs running in parallel use to make sure shared per-account work, like
+     * processing pending commands, is only done by one of them at a time.
+     */
+    private Object getAccountSyncLock(Account account) {
+        synchronized (accountSyncLocks) {
+            Object lock = accountSyncLocks.get(account.getUuid());
+            if (lock == null) {
+                lock = new Object();
+                accountSyncLocks.put(account.getUuid(), lock);
+            }
+            return lock;
         }
     }
 
@@ -720,7 +733,7 @@ public class MessagingController {
     }
 
     void processPendingCommands(final Account account) {
-        putBackground("processPendingCommands", null, new Runnable() {
+        putBackground("processPendingCommands", account, null, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -742,37 +755,55 @@ public class MessagingController {
     }
 
     public void processPendingCommandsSynchronous(Account account) throws MessagingException {
+        synchronized (getAccountSyncLock(account)) {
+            processPendingCommandsLocked(account);
+        }
+    }
+
+    private void processPendingCommandsLocked(Account account) throws MessagingException {
         LocalStore localStore = localStoreProvider.getInstance(account);
         List<PendingCommand> commands = localStore.getPendingCommands();
+        List<CoalescedCommand> coalescedCommands = PendingCommandCoalescer.coalesce(commands);
+        if (coalescedCommands.size() < commands.size()) {
+            Timber.d("Coalesced %d pending commands into %d", commands.size(), coalescedCommands.size());
+        }
 
         PendingCommand processingCommand = null;
         try {
-            for (PendingCommand command : commands) {
-                processingCommand = command;
-                String commandName = command.getCommandName();
-                Timber.d("Processing pending command '%s'", commandName);
-
-                /*
-                 * We specifically do not catch any exceptions here. If a command fails it is
-                 * most likely due to a server or IO error and it must be retried before any
-                 * other command processes. This maintains the order of the commands.
-                 */
+            for (CoalescedCommand coalescedCommand : coalescedCommands) {
+                List<PendingCommand> originalCommands = coalescedCommand.originalCommands;
                 try {
-                    command.execute(this, account);
+                    /*
+                     * We specifically do not catch any exceptions here. If a command fails it is
+                     * most likely due to a server or IO error and it must be retried before any
+                     * other command processes. This maintains the order of the commands.
+                     */
+                    for (PendingCommand command : coalescedCommand.commands) {
+                        processingCommand = command;
+                        Timber.d("Processing pending command '%s'", command.getCommandName());
+
+                        if (coalescedCommand.isMerged()) {
+                            executeMergedPendingCommand(command, account);
+                        } else {
+                            command.execute(this, account);
+                        }
+                    }
 
-                    localStore.removePendingCommand(command);
+                    localStore.removePendingCommands(originalCommands);
 
-                    Timber.d("Done processing pending command '%s'", commandName);
+                    Timber.d("Done processing pending command '%s'", processingCommand.getCommandName());
                 } catch (MessagingException me) {
                     if (me.isPermanentFailure()) {
-                        Timber.e(me, "Failure of command '%s' was permanent, removing command from queue", commandName);
-                        localStore.removePendingCommand(processingCommand);
+                        Timber.e(me, "Failure of command '%s' was permanent, removing command from queue",
+                                processingCommand.getCommandName());
+                        localStore.removePendingCommands(originalCommands);
                     } else {
                         throw me;
                     }
                 } catch (Exception e) {
-                    Timber.e(e, "Unexpected exception with command '%s', removing command from queue", commandName);
-                    localStore.removePendingCommand(processingCommand);
+                    Timber.e(e, "Unexpected exception with command '%s', removing command from queue",
+                            processingCommand.getCommandName());
+                    localStore.removePendingCommands(originalCommands);
 
                     if (K9.DEVELOPER_MODE) {
                         throw new AssertionError("Unexpected exception while processing pending command", e);
@@ -790,6 +821,47 @@ public class MessagingController {
         }
     }
 
+    /**
+     * Executes a command created by merging multiple pending commands.
+     * <p>
+     * If the merged command fails permanently, it is split into one command per message and each of those is executed
+     * separately. Only the changes to messages whose command fails permanently again are dropped. A transient failure
+     * is passed on, so all original commands stay in the queue and are retried later.
+     */
+    private void executeMergedPendingCommand(PendingCommand command, Account account) throws MessagingException {
+        try {
+            command.execute(this, account);
+            return;
+        } catch (MessagingException me) {
+            if (!me.isPermanentFailure()) {
+                throw me;
+            }
+            Timber.w(me, "Merged command '%s' failed, retrying one message at a time", command.getCommandName());
+        } catch (Exception e) {
+            Timber.w(e, "Unexpected exception with merged command '%s', retrying one message at a time",
+                    command.getCommandName());
+        }
+
+        for (PendingCommand singleMessageCommand : PendingCommandCoalescer.split(command)) {
+            try {
+                singleMessageCommand.execute(this, account);
+            } catch (MessagingException me) {
+                if (!me.isPermanentFailure()) {
+                    throw me;
+                }
+                Timber.e(me, "Failure of command '%s' was permanent, dropping change",
+                        singleMessageCommand.getCommandName());
+            } catch (Exception e) {
+                Timber.e(e, "Unexpected exception with command '%s', dropping change",
+                        singleMessageCommand.getCommandName());
+
+                if (K9.DEVELOPER_MODE) {
+                    throw new AssertionError("Unexpected exception while processing pending command", e);
+                }
+            }
+        }
+    }
+
     /**
      * Process a pending append message command. This command uploads a local message to the
      * server, first checking to be sure that the server message is not newer than
@@ -1004,7 +1076,7 @@ public class MessagingController {
     }
 
     private void queueSetFlag(Account account, long folderId, boolean newState, Flag flag, List<String> uids) {
-        putBackground("queueSetFlag", null, () -> {
+        putBackground("queueSetFlag", account, null, () -> {
             PendingCommand command = PendingSetFlag.create(folderId, newState, flag, uids);
             queuePendingCommand(account, command);
             processPendingCommands(account);
@@ -1021,7 +1093,7 @@ public class MessagingController {
     }
 
     private void queueDelete(Account account, long folderId, List<String> uids) {
-        putBackground("queueDelete", null, () -> {
+        putBackground("queueDelete", account, null, () -> {
             PendingCommand command = PendingDelete.create(folderId, uids);
             queuePendingCommand(account, command);
             processPendingCommands(account);
@@ -1240,14 +1312,14 @@ public class MessagingController {
     }
 
     public void loadMessageRemotePartial(Account account, long folderId, String uid, MessagingListener listener) {
-        put("loadMessageRemotePartial", listener, () ->
+        put("loadMessageRemotePartial", account, listener, () ->
             loadMessageRemoteSynchronous(account, folderId, uid, listener, true)
         );
     }
 
     //TODO: Fix the callback mess. See GH-782
     public void loadMessageRemote(Account account, long folderId, String uid, MessagingListener listener) {
-        put("loadMessageRemote", listener, () ->
+        put("loadMessageRemote", account, listener, () ->
             loadMessageRemoteSynchronous(account, folderId, uid, listener, false)
         );
     }
@@ -1355,7 +1427,7 @@ public class MessagingController {
     public void loadAttachment(final Account account, final LocalMessage message, final Part part,
             final MessagingListener listener) {
 
-        put("loadAttachment", listener, new Runnable() {
+        put("loadAttachment", account, listener, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1438,7 +1510,7 @@ public class MessagingController {
      */
     public void sendPendingMessages(final Account account,
             MessagingListener listener) {
-        putBackground("sendPendingMessages", listener, new Runnable() {
+        putBackground("sendPendingMessages", account, listener, new Runnable() {
             @Override
             public void run() {
                 if (!account.isAvailable(context)) {
@@ -1526,89 +1598,95 @@ public class MessagingController {
 
             Backend backend = getBackend(account);
 
-            for (LocalMessage message : localMessages) {
-                if (message.isSet(Flag.DELETED)) {
-                    //FIXME: When uploading a message to the remote Sent folder the move code creates a placeholder
-                    // message in the Outbox. This code gets rid of these messages. It'd be preferable if the
-                    // placeholder message was never created, though.
-                    message.destroy();
-                    continue;
-                }
-                try {
-                    long messageId = message.getDatabaseId();
-                    OutboxState outboxState = outboxStateRepository.getOutboxState(messageId);
-
-                    if (outboxState.getSendState() != SendState.READY) {
-                        Timber.v("Skipping sending message " + message.getUid());
-                        notificationController.showSendFailedNotification(account,
-                                new MessagingException(message.getSubject()));
+            // Use one connection to send all messages
+            backend.startSendSession();
+            try {
+                for (LocalMessage message : localMessages) {
+                    if (message.isSet(Flag.DELETED)) {
+                        //FIXME: When uploading a message to the remote Sent folder the move code creates a placeholder
+                        // message in the Outbox. This code gets rid of these messages. It'd be preferable if the
+                        // placeholder message was never created, though.
+                        message.destroy();
                         continue;
                     }
-
-                    Timber.i("Send count for message %s is %d", message.getUid(),
-                            outboxState.getNumberOfSendAttempts());
-
-                    localFolder.fetch(Collections.singletonList(message), fp, null);
                     try {
-                        if (message.getHeader(K9.IDENTITY_HEADER).length > 0 || message.isSet(Flag.DRAFT)) {
-                            Timber.v("The user has set the Outbox and Drafts folder to the same thing. " +
-                                    "This message appears to be a draft, so K-9 will not send it");
+                        long messageId = message.getDatabaseId();
+                        OutboxState outboxState = outboxStateRepository.getOutboxState(messageId);
+
+                        if (outboxState.getSendState() != SendState.READY) {
+                            Timber.v("Skipping sending message " + message.getUid());
+                            notificationController.showSendFailedNotification(account,
+                                    new MessagingException(message.getSubject()));
                             continue;
                         }
 
-                        outboxStateRepository.incrementSendAttempts(messageId);
-                        message.setFlag(Flag.X_SEND_IN_PROGRESS, true);
+                        Timber.i("Send count for message %s is %d", message.getUid(),
+                                outboxState.getNumberOfSendAttempts());
 
-                        Timber.i("Sending message with UID %s", message.getUid());
-                        backend.sendMessage(message);
+                        localFolder.fetch(Collections.singletonList(message), fp, null);
+                        try {
+                            if (message.getHeader(K9.IDENTITY_HEADER).length > 0 || message.isSet(Flag.DRAFT)) {
+                                Timber.v("The user has set the Outbox and Drafts folder to the same thing. " +
+                                        "This message appears to be a draft, so K-9 will not send it");
+                                continue;
+                            }
 
-                        message.setFlag(Flag.X_SEND_IN_PROGRESS, false);
-                        message.setFlag(Flag.SEEN, true);
-                        progress++;
-                        for (MessagingListener l : getListeners()) {
-                            l.synchronizeMailboxProgress(account, outboxFolderId, progress, todo);
-                        }
-                        moveOrDeleteSentMessage(account, localStore, message);
+                            outboxStateRepository.incrementSendAttempts(messageId);
+                            message.setFlag(Flag.X_SEND_IN_PROGRESS, true);
 
-                        outboxStateRepository.removeOutboxState(messageId);
-                    } catch (AuthenticationFailedException e) {
-                        outboxStateRepository.decrementSendAttempts(messageId);
-                        lastFailure = e;
-                        wasPermanentFailure = false;
+                            Timber.i("Sending message with UID %s", message.getUid());
+                            backend.sendMessage(message);
 
-                        handleAuthenticationFailure(account, false);
-                        handleSendFailure(account, localFolder, message, e);
-                    } catch (CertificateValidationException e) {
-                        outboxStateRepository.decrementSendAttempts(messageId);
-                        lastFailure = e;
-                        wasPermanentFailure = false;
+                            message.setFlag(Flag.X_SEND_IN_PROGRESS, false);
+                            message.setFlag(Flag.SEEN, true);
+                            progress++;
+                            for (MessagingListener l : getListeners()) {
+                                l.synchronizeMailboxProgress(account, outboxFolderId, progress, todo);
+                            }
+                            moveOrDeleteSentMessage(account, localStore, message);
+
+                            outboxStateRepository.removeOutboxState(messageId);
+                        } catch (AuthenticationFailedException e) {
+                            outboxStateRepository.decrementSendAttempts(messageId);
+                            lastFailure = e;
+                            wasPermanentFailure = false;
+
+                            handleAuthenticationFailure(account, false);
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (CertificateValidationException e) {
+                            outboxStateRepository.decrementSendAttempts(messageId);
+                            lastFailure = e;
+                            wasPermanentFailure = false;
+
+                            notifyUserIfCertificateProblem(account, e, false);
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (MessagingException e) {
+                            lastFailure = e;
+                            wasPermanentFailure = e.isPermanentFailure();
+
+                            if (wasPermanentFailure) {
+                                String errorMessage = e.getMessage();
+                                outboxStateRepository.setSendAttemptError(messageId, errorMessage);
+                            } else if (outboxState.getNumberOfSendAttempts() + 1 >= MAX_SEND_ATTEMPTS) {
+                                outboxStateRepository.setSendAttemptsExceeded(messageId);
+                            }
 
-                        notifyUserIfCertificateProblem(account, e, false);
-                        handleSendFailure(account, localFolder, message, e);
-                    } catch (MessagingException e) {
-                        lastFailure = e;
-                        wasPermanentFailure = e.isPermanentFailure();
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (Exception e) {
+                            lastFailure = e;
+                            wasPermanentFailure = true;
 
-                        if (wasPermanentFailure) {
-                            String errorMessage = e.getMessage();
-                            outboxStateRepository.setSendAttemptError(messageId, errorMessage);
-                        } else if (outboxState.getNumberOfSendAttempts() + 1 >= MAX_SEND_ATTEMPTS) {
-                            outboxStateRepository.setSendAttemptsExceeded(messageId);
+                            handleSendFailure(account, localFolder, message, e);
                         }
-
-                        handleSendFailure(account, localFolder, message, e);
                     } catch (Exception e) {
                         lastFailure = e;
-                        wasPermanentFailure = true;
-
-                        handleSendFailure(account, localFolder, message, e);
+                        wasPermanentFailure = false;
+                        Timber.e(e, "Failed to fetch message for sending");
+                        notifySynchronizeMailboxFailed(account, localFolder, e);
                     }
-                } catch (Exception e) {
-                    lastFailure = e;
-                    wasPermanentFailure = false;
-                    Timber.e(e, "Failed to fetch message for sending");
-                    notifySynchronizeMailboxFailed(account, localFolder, e);
                 }
+            } finally {
+                backend.endSendSession();
             }
 
             if (lastFailure != null) {
@@ -1719,6 +1797,10 @@ public class MessagingController {
         return getBackend(account).getSupportsSearchByDate();
     }
 
+    public boolean supportsParallelSync(Account account) {
+        return getBackend(account).getSupportsParallelSync();
+    }
+
     public boolean supportsUpload(Account account) {
         return getBackend(account).getSupportsUpload();
     }
@@ -1736,7 +1818,7 @@ public class MessagingController {
         actOnMessageGroup(srcAccount, srcFolderId, messageReferences, (account, messageFolder, messages) -> {
             suppressMessages(account, messages);
 
-            putBackground("moveMessages", null, () ->
+            putBackground("moveMessages", account, null, () ->
                     moveOrCopyMessageSynchronous(account, srcFolderId, messages, destFolderId, MoveOrCopyFlavor.MOVE)
             );
         });
@@ -1747,7 +1829,7 @@ public class MessagingController {
         actOnMessageGroup(srcAccount, srcFolderId, messageReferences, (account, messageFolder, messages) -> {
             suppressMessages(account, messages);
 
-            putBackground("moveMessagesInThread", null, () -> {
+            putBackground("moveMessagesInThread", account, null, () -> {
                 try {
                     List<LocalMessage> messagesInThreads = collectMessagesInThreads(account, messages);
                     moveOrCopyMessageSynchronous(account, srcFolderId, messagesInThreads, destFolderId,
@@ -1766,7 +1848,7 @@ public class MessagingController {
     public void copyMessages(Account srcAccount, long srcFolderId,
             List<MessageReference> messageReferences, long destFolderId) {
         actOnMessageGroup(srcAccount, srcFolderId, messageReferences, (account, messageFolder, messages) -> {
-            putBackground("copyMessages", null, () ->
+            putBackground("copyMessages", account, null, () ->
                     moveOrCopyMessageSynchronous(srcAccount, srcFolderId, messages, destFolderId, MoveOrCopyFlavor.COPY)
             );
         });
@@ -1775,7 +1857,7 @@ public class MessagingController {
     public void copyMessagesInThread(Account srcAccount, long srcFolderId,
             final List<MessageReference> messageReferences, long destFolderId) {
         actOnMessageGroup(srcAccount, srcFolderId, messageReferences, (account, messageFolder, messages) -> {
-            putBackground("copyMessagesInThread", null, () -> {
+            putBackground("copyMessagesInThread", account, null, () -> {
                 try {
                     List<LocalMessage> messagesInThreads = collectMessagesInThreads(account, messages);
                     moveOrCopyMessageSynchronous(account, srcFolderId, messagesInThreads, destFolderId,
@@ -1807,6 +1889,10 @@ public class MessagingController {
                 return;
             }
 
+            if (operation == MoveOrCopyFlavor.MOVE) {
+                invalidateCryptoResults(inMessages);
+            }
+
             LocalFolder localSrcFolder = localStore.getFolder(srcFolderId);
             localSrcFolder.open();
 
@@ -1893,7 +1979,7 @@ public class MessagingController {
     }
 
     public void moveToDraftsFolder(Account account, long folderId, List<MessageReference> messages){
-        putBackground("moveToDrafts", null, () -> moveToDraftsFolderInBackground(account, folderId, messages));
+        putBackground("moveToDrafts", account, null, () -> moveToDraftsFolderInBackground(account, folderId, messages));
     }
 
     private void moveToDraftsFolderInBackground(Account account, long folderId, List<MessageReference> messages) {
@@ -1917,7 +2003,8 @@ public class MessagingController {
     }
 
     public void expunge(Account account, long folderId) {
-        putBackground("expunge", null, () -> {
+        putBackground("expunge", account, null, () -> {
+            cryptoResultCache.invalidateFolder(account.getUuid(), folderId);
             queueExpunge(account, folderId);
             processPendingCommands(account);
         });
@@ -1947,7 +2034,7 @@ public class MessagingController {
     public void deleteThreads(final List<MessageReference> messages) {
         actOnMessagesGroupedByAccountAndFolder(messages, (account, messageFolder, accountMessages) -> {
             suppressMessages(account, accountMessages);
-            putBackground("deleteThreads", null, () ->
+            putBackground("deleteThreads", account, null, () ->
                     deleteThreadsSynchronous(account, messageFolder.getDatabaseId(), accountMessages)
             );
         });
@@ -1980,6 +2067,12 @@ public class MessagingController {
         return messagesInThreads;
     }
 
+    private void invalidateCryptoResults(List<LocalMessage> messages) {
+        for (LocalMessage message : messages) {
+            cryptoResultCache.invalidate(message.makeMessageReference());
+        }
+    }
+
     public void deleteMessage(MessageReference message) {
         deleteMessages(Collections.singletonList(message));
     }
@@ -1987,7 +2080,7 @@ public class MessagingController {
     public void deleteMessages(List<MessageReference> messages) {
         actOnMessagesGroupedByAccountAndFolder(messages, (account, messageFolder, accountMessages) -> {
             suppressMessages(account, accountMessages);
-            putBackground("deleteMessages", null, () ->
+            putBackground("deleteMessages", account, null, () ->
                     deleteMessagesSynchronous(account, messageFolder.getDatabaseId(), accountMessages)
             );
         });
@@ -2005,7 +2098,7 @@ public class MessagingController {
             public void act(final Account account, final LocalFolder messageFolder,
                     final List<LocalMessage> accountMessages) {
 
-                putBackground("debugClearLocalMessages", null, new Runnable() {
+                putBackground("debugClearLocalMessages", account, null, new Runnable() {
                     @Override
                     public void run() {
                         for (LocalMessage message : accountMessages) {
@@ -2023,6 +2116,9 @@ public class MessagingController {
     }
 
     private void deleteMessagesSynchronous(Account account, long folderId, List<LocalMessage> messages) {
+        htmlRenderCache.clear();
+        invalidateCryptoResults(messages);
+
         try {
             List<LocalMessage> localOnlyMessages = new ArrayList<>();
             List<LocalMessage> syncedMessages = new ArrayList<>();
@@ -2172,7 +2268,7 @@ public class MessagingController {
     }
 
     public void emptyTrash(final Account account, MessagingListener listener) {
-        putBackground("emptyTrash", listener, new Runnable() {
+        putBackground("emptyTrash", account, listener, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -2182,6 +2278,9 @@ public class MessagingController {
                         return;
                     }
 
+                    htmlRenderCache.clear();
+                    cryptoResultCache.invalidateFolder(account.getUuid(), trashFolderId);
+
                     LocalStore localStore = localStoreProvider.getInstance(account);
                     LocalFolder localFolder = localStore.getFolder(trashFolderId);
                     localFolder.open();
@@ -2214,13 +2313,16 @@ public class MessagingController {
     }
 
     public void clearFolder(Account account, long folderId) {
-        putBackground("clearFolder", null, () ->
+        putBackground("clearFolder", account, null, () ->
                 clearFolderSynchronous(account, folderId)
         );
     }
 
     @VisibleForTesting
     protected void clearFolderSynchronous(Account account, long folderId) {
+        htmlRenderCache.clear();
+        cryptoResultCache.invalidateFolder(account.getUuid(), folderId);
+
         try {
             LocalFolder localFolder = localStoreProvider.getInstance(account).getFolder(folderId);
             localFolder.open();
@@ -2307,44 +2409,58 @@ public class MessagingController {
         for (MessagingListener l : getListeners(listener)) {
             l.checkMailStarted(context, account);
         }
-        putBackground("checkMail", listener, new Runnable() {
+        Runnable finalizeSync = new Runnable() {
             @Override
             public void run() {
 
-                try {
-                    Timber.i("Starting mail check");
+                Timber.i("Finished mail sync");
 
-                    Collection<Account> accounts;
-                    if (account != null) {
-                        accounts = new ArrayList<>(1);
-                        accounts.add(account);
-                    } else {
-                        accounts = preferences.getAvailableAccounts();
-                    }
+                if (wakeLock != null) {
+                    wakeLock.release();
+                }
+                for (MessagingListener l : getListeners(listener)) {
+                    l.checkMailFinished(context, account);
+                }
 
-                    for (final Account account : accounts) {
-                        checkMailForAccount(context, account, ignoreLastCheckedTime, listener);
-                    }
+            }
+        };
 
-                } catch (Exception e) {
-                    Timber.e(e, "Unable to synchronize mail");
+        putBackground("checkMail", account, listener, new Runnable() {
+            @Override
+            public void run() {
+                Timber.i("Starting mail check");
+
+                Collection<Account> accounts;
+                if (account != null) {
+                    accounts = new ArrayList<>(1);
+                    accounts.add(account);
+                } else {
+                    accounts = preferences.getAvailableAccounts();
                 }
-                putBackground("finalize sync", null, new Runnable() {
-                            @Override
-                            public void run() {
 
-                                Timber.i("Finished mail sync");
+                if (accounts.isEmpty()) {
+                    putBackground("finalize sync", account, null, finalizeSync);
+                    return;
+                }
 
-                                if (wakeLock != null) {
-                                    wakeLock.release();
-                                }
-                                for (MessagingListener l : getListeners(listener)) {
-                                    l.checkMailFinished(context, account);
+                // Every account is checked on its own command queue. The last account to finish runs the
+                // finalizer, so listeners still see exactly one checkMailFinished() per checkMail().
+                final AtomicInteger remainingAccounts = new AtomicInteger(accounts.size());
+                for (final Account account : accounts) {
+                    putBackground("checkMail:" + account.getDescription(), account, listener, () -> {
+                        try {
+                            checkMailForAccount(context, account, ignoreLastCheckedTime, listener);
+                        } catch (Exception e) {
+                            Timber.e(e, "Unable to synchronize mail");
+                        } finally {
+                            putBackground("finish checkMail:" + account.getDescription(), account, null, () -> {
+                                if (remainingAccounts.decrementAndGet() == 0) {
+                                    finalizeSync.run();
                                 }
-
-                            }
+                            });
                         }
-                );
+                    });
+                }
             }
         });
     }
@@ -2405,7 +2521,7 @@ public class MessagingController {
         } catch (MessagingException e) {
             Timber.e(e, "Unable to synchronize account %s", account.getName());
         } finally {
-            putBackground("clear notification flag for " + account.getDescription(), null, new Runnable() {
+            putBackground("clear notification flag for " + account.getDescription(), account, null, new Runnable() {
                         @Override
                         public void run() {
                             Timber.v("Clearing notification flag for %s", account.getDescription());
@@ -2424,7 +2540,8 @@ public class MessagingController {
 
     private void synchronizeFolder(Account account, LocalFolder folder, boolean ignoreLastCheckedTime,
             MessagingListener listener) {
-        putBackground("sync" + folder.getServerId(), null, () -> {
+        int maxParallelism = supportsParallelSync(account) ? account.getMaxParallelFolderSyncs() : 1;
+        putParallelBackground("sync" + folder.getServerId(), account, null, maxParallelism, () -> {
             synchronizeFolderInBackground(account, folder, ignoreLastCheckedTime, listener);
         });
     }
@@ -2466,25 +2583,44 @@ public class MessagingController {
     }
 
     private void showFetchingMailNotificationIfNecessary(Account account, LocalFolder folder) {
-        if (account.isNotifySync()) {
-            notificationController.showFetchingMailNotification(account, folder);
+        synchronized (activeFolderSyncCounts) {
+            Integer activeFolderSyncs = activeFolderSyncCounts.get(account.getUuid());
+            activeFolderSyncCounts.put(account.getUuid(), activeFolderSyncs == null ? 1 : activeFolderSyncs + 1);
+
+            if (account.isNotifySync()) {
+                notificationController.showFetchingMailNotification(account, folder);
+            }
         }
     }
 
+    /**
+     * Clears the "fetching mail" notification once the last of the account's folders that are synced in parallel has
+     * finished syncing.
+     */
     private void clearFetchingMailNotificationIfNecessary(Account account) {
-        if (account.isNotifySync()) {
-            notificationController.clearFetchingMailNotification(account);
+        synchronized (activeFolderSyncCounts) {
+            Integer activeFolderSyncs = activeFolderSyncCounts.get(account.getUuid());
+            if (activeFolderSyncs != null && activeFolderSyncs > 1) {
+                activeFolderSyncCounts.put(account.getUuid(), activeFolderSyncs - 1);
+                return;
+            }
+
+            activeFolderSyncCounts.remove(account.getUuid());
+            if (account.isNotifySync()) {
+                notificationController.clearFetchingMailNotification(account);
+            }
         }
     }
 
 
     public void compact(final Account account, final MessagingListener ml) {
-        putBackground("compact:" + account.getDescription(), ml, new Runnable() {
+        putBackground("compact:" + account.getDescription(), account, ml, new Runnable() {
             @Override
             public void run() {
                 try {
                     LocalStore localStore = localStoreProvider.getInstance(account);
                     long oldSize = localStore.getSize();
+                    messageStoreManager.getMessageStore(account).rebuildFolderCounts();
                     localStore.compact();
                     long newSize = localStore.getSize();
                     for (MessagingListener l : getListeners(ml)) {
@@ -2501,7 +2637,7 @@ public class MessagingController {
     }
 
     public void clear(final Account account, final MessagingListener ml) {
-        putBackground("clear:" + account.getDescription(), ml, new Runnable() {
+        putBackground("clear:" + account.getDescription(), account, ml, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -2524,7 +2660,7 @@ public class MessagingController {
     }
 
     public void recreate(final Account account, final MessagingListener ml) {
-        putBackground("recreate:" + account.getDescription(), ml, new Runnable() {
+        putBackground("recreate:" + account.getDescription(), account, ml, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -2549,6 +2685,8 @@ public class MessagingController {
     public void deleteAccount(Account account) {
         notificationController.clearNewMailNotifications(account);
         memorizingMessagingListener.removeAccount(account);
+        htmlRenderCache.clear();
+        cryptoResultCache.invalidateAccount(account.getUuid());
     }
 
     /**
@@ -2567,28 +2705,6 @@ public class MessagingController {
         }
     }
 
-    private static AtomicInteger sequencing = new AtomicInteger(0);
-
-    private static class Command implements Comparable<Command> {
-        public Runnable runnable;
-        public MessagingListener listener;
-        public String description;
-        boolean isForegroundPriority;
-
-        int sequence = sequencing.getAndIncrement();
-
-        @Override
-        public int compareTo(@NonNull Command other) {
-            if (other.isForegroundPriority && !isForegroundPriority) {
-                return 1;
-            } else if (!other.isForegroundPriority && isForegroundPriority) {
-                return -1;
-            } else {
-                return (sequence - other.sequence);
-            }
-        }
-    }
-
     public MessagingListener getCheckMailListener() {
         return checkMailListener;
     }
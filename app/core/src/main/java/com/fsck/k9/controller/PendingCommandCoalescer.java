@@ -0,0 +1,238 @@
+package com.fsck.k9.controller;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveAndMarkAsRead;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveOrCopy;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.mail.Flag;
+
+
+/**
+ * Merges adjacent pending commands so they can be sent to the server using fewer round trips.
+ * <p>
+ * Only commands that directly follow each other in the queue are merged, so the order of operations as seen by the
+ * server doesn't change.
+ * <ul>
+ * <li>A run of {@link PendingSetFlag} commands is reduced to one command per folder, flag, and state. If the same
+ * flag is changed multiple times on a message, only the last change is kept.</li>
+ * <li>Consecutive {@link PendingMoveOrCopy} or {@link PendingMoveAndMarkAsRead} commands with the same source and
+ * destination folder are merged into one command.</li>
+ * </ul>
+ * The server-specific limits on the length of the resulting commands are taken care of by the backend.
+ * <p>
+ * If the server rejects a merged command, {@link #split(PendingCommand)} turns it into one command per message. That
+ * way a single problematic message doesn't cause the changes to all other messages of the merged command to be lost.
+ */
+class PendingCommandCoalescer {
+    private PendingCommandCoalescer() { }
+
+    static List<CoalescedCommand> coalesce(List<PendingCommand> commands) {
+        List<CoalescedCommand> result = new ArrayList<>();
+
+        int index = 0;
+        while (index < commands.size()) {
+            PendingCommand command = commands.get(index);
+
+            int end = index + 1;
+            while (end < commands.size() && canMerge(command, commands.get(end))) {
+                end++;
+            }
+
+            List<PendingCommand> originalCommands = commands.subList(index, end);
+            if (originalCommands.size() == 1) {
+                result.add(new CoalescedCommand(Collections.singletonList(command), originalCommands));
+            } else if (command instanceof PendingSetFlag) {
+                result.add(new CoalescedCommand(mergeSetFlagCommands(originalCommands), originalCommands));
+            } else if (command instanceof PendingMoveOrCopy) {
+                result.add(new CoalescedCommand(mergeMoveOrCopyCommands(originalCommands), originalCommands));
+            } else {
+                result.add(new CoalescedCommand(mergeMoveAndMarkAsReadCommands(originalCommands), originalCommands));
+            }
+
+            index = end;
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits a command into commands that each affect a single message.
+     * <p>
+     * Commands that can't be split are returned unchanged.
+     */
+    static List<PendingCommand> split(PendingCommand command) {
+        List<PendingCommand> commands = new ArrayList<>();
+        if (command instanceof PendingSetFlag) {
+            PendingSetFlag setFlag = (PendingSetFlag) command;
+            for (String uid : setFlag.uids) {
+                commands.add(PendingSetFlag.create(setFlag.folderId, setFlag.newState, setFlag.flag,
+                        Collections.singletonList(uid)));
+            }
+        } else if (command instanceof PendingMoveOrCopy && ((PendingMoveOrCopy) command).newUidMap != null) {
+            PendingMoveOrCopy move = (PendingMoveOrCopy) command;
+            for (Map.Entry<String, String> entry : move.newUidMap.entrySet()) {
+                commands.add(PendingMoveOrCopy.create(move.srcFolderId, move.destFolderId, move.isCopy,
+                        Collections.singletonMap(entry.getKey(), entry.getValue())));
+            }
+        } else if (command instanceof PendingMoveAndMarkAsRead) {
+            PendingMoveAndMarkAsRead move = (PendingMoveAndMarkAsRead) command;
+            for (Map.Entry<String, String> entry : move.newUidMap.entrySet()) {
+                commands.add(PendingMoveAndMarkAsRead.create(move.srcFolderId, move.destFolderId,
+                        Collections.singletonMap(entry.getKey(), entry.getValue())));
+            }
+        } else {
+            commands.add(command);
+        }
+
+        return commands;
+    }
+
+    private static boolean canMerge(PendingCommand first, PendingCommand other) {
+        if (first instanceof PendingSetFlag) {
+            // Flag changes on different folders, flags, or messages don't affect each other
+            return other instanceof PendingSetFlag;
+        } else if (first instanceof PendingMoveOrCopy && other instanceof PendingMoveOrCopy) {
+            PendingMoveOrCopy firstMove = (PendingMoveOrCopy) first;
+            PendingMoveOrCopy otherMove = (PendingMoveOrCopy) other;
+            return firstMove.newUidMap != null && otherMove.newUidMap != null &&
+                    firstMove.srcFolderId == otherMove.srcFolderId &&
+                    firstMove.destFolderId == otherMove.destFolderId &&
+                    firstMove.isCopy == otherMove.isCopy &&
+                    Collections.disjoint(firstMove.newUidMap.keySet(), otherMove.newUidMap.keySet());
+        } else if (first instanceof PendingMoveAndMarkAsRead && other instanceof PendingMoveAndMarkAsRead) {
+            PendingMoveAndMarkAsRead firstMove = (PendingMoveAndMarkAsRead) first;
+            PendingMoveAndMarkAsRead otherMove = (PendingMoveAndMarkAsRead) other;
+            return firstMove.srcFolderId == otherMove.srcFolderId &&
+                    firstMove.destFolderId == otherMove.destFolderId &&
+                    Collections.disjoint(firstMove.newUidMap.keySet(), otherMove.newUidMap.keySet());
+        }
+
+        return false;
+    }
+
+    private static List<PendingCommand> mergeSetFlagCommands(List<PendingCommand> commands) {
+        Map<FolderAndFlag, Map<String, Boolean>> flagStates = new LinkedHashMap<>();
+        for (PendingCommand command : commands) {
+            PendingSetFlag setFlag = (PendingSetFlag) command;
+            FolderAndFlag key = new FolderAndFlag(setFlag.folderId, setFlag.flag);
+
+            Map<String, Boolean> states = flagStates.get(key);
+            if (states == null) {
+                states = new LinkedHashMap<>();
+                flagStates.put(key, states);
+            }
+
+            for (String uid : setFlag.uids) {
+                // Remove first so the message ends up in the position of its last change
+                states.remove(uid);
+                states.put(uid, setFlag.newState);
+            }
+        }
+
+        List<PendingCommand> mergedCommands = new ArrayList<>();
+        for (Map.Entry<FolderAndFlag, Map<String, Boolean>> entry : flagStates.entrySet()) {
+            FolderAndFlag key = entry.getKey();
+
+            List<String> setUids = new ArrayList<>();
+            List<String> clearUids = new ArrayList<>();
+            for (Map.Entry<String, Boolean> state : entry.getValue().entrySet()) {
+                if (state.getValue()) {
+                    setUids.add(state.getKey());
+                } else {
+                    clearUids.add(state.getKey());
+                }
+            }
+
+            if (!setUids.isEmpty()) {
+                mergedCommands.add(PendingSetFlag.create(key.folderId, true, key.flag, setUids));
+            }
+            if (!clearUids.isEmpty()) {
+                mergedCommands.add(PendingSetFlag.create(key.folderId, false, key.flag, clearUids));
+            }
+        }
+
+        return mergedCommands;
+    }
+
+    private static List<PendingCommand> mergeMoveOrCopyCommands(List<PendingCommand> commands) {
+        PendingMoveOrCopy first = (PendingMoveOrCopy) commands.get(0);
+
+        Map<String, String> uidMap = new LinkedHashMap<>();
+        for (PendingCommand command : commands) {
+            uidMap.putAll(((PendingMoveOrCopy) command).newUidMap);
+        }
+
+        PendingCommand mergedCommand = PendingMoveOrCopy.create(first.srcFolderId, first.destFolderId, first.isCopy,
+                uidMap);
+        return Collections.singletonList(mergedCommand);
+    }
+
+    private static List<PendingCommand> mergeMoveAndMarkAsReadCommands(List<PendingCommand> commands) {
+        PendingMoveAndMarkAsRead first = (PendingMoveAndMarkAsRead) commands.get(0);
+
+        Map<String, String> uidMap = new LinkedHashMap<>();
+        for (PendingCommand command : commands) {
+            uidMap.putAll(((PendingMoveAndMarkAsRead) command).newUidMap);
+        }
+
+        PendingCommand mergedCommand = PendingMoveAndMarkAsRead.create(first.srcFolderId, first.destFolderId, uidMap);
+        return Collections.singletonList(mergedCommand);
+    }
+
+
+    /**
+     * One or more commands to execute in place of {@link #originalCommands}.
+     * <p>
+     * The original commands may only be removed from the queue after all of {@link #commands} have been executed.
+     */
+    static class CoalescedCommand {
+        final List<PendingCommand> commands;
+        final List<PendingCommand> originalCommands;
+
+        CoalescedCommand(List<PendingCommand> commands, List<PendingCommand> originalCommands) {
+            this.commands = commands;
+            this.originalCommands = originalCommands;
+        }
+
+        boolean isMerged() {
+            return originalCommands.size() > 1;
+        }
+    }
+
+    private static class FolderAndFlag {
+        final long folderId;
+        final Flag flag;
+
+        FolderAndFlag(long folderId, Flag flag) {
+            this.folderId = folderId;
+            this.flag = flag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            FolderAndFlag that = (FolderAndFlag) o;
+            return folderId == that.folderId && flag == that.flag;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (folderId ^ (folderId >>> 32));
+            result = 31 * result + flag.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.fsck.k9.mailstore;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import android.database.Cursor;
+
+import com.fsck.k9.mail.Body;
+import com.fsck.k9.mail.MessagingException;
+import com.fsck.k9.mail.internet.RawDataBody;
+import com.fsck.k9.mail.internet.SizeAware;
+
+
+/**
+ * Body of a message part whose data is stored in the {@code message_parts} table.
+ * <p>
+ * The data is only read from the database when {@link #getInputStream()} or {@link #writeTo(OutputStream)} is called.
+ * That way loading a message doesn't pull the contents of all of its parts into memory.
+ */
+public class DatabaseBackedBody implements Body, SizeAware, RawDataBody {
+    private final LockableDatabase database;
+    private final long partId;
+    private final String encoding;
+    private final long size;
+
+
+    public DatabaseBackedBody(LockableDatabase database, long partId, String encoding, long size) {
+        this.database = database;
+        this.partId = partId;
+        this.encoding = encoding;
+        this.size = size;
+    }
+
+    @Override
+    public InputStream getInputStream() throws MessagingException {
+        return new ByteArrayInputStream(loadData());
+    }
+
+    @Override
+    public void setEncoding(String encoding) throws MessagingException {
+        throw new RuntimeException("not supported");
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException, MessagingException {
+        out.write(loadData());
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String getEncoding() {
+        return encoding;
+    }
+
+    private byte[] loadData() throws MessagingException {
+        byte[] data = database.execute(false, db -> {
+            Cursor cursor = db.query("message_parts", new String[] { "data" }, "id = ?",
+                    new String[] { Long.toString(partId) }, null, null, null);
+            try {
+                return cursor.moveToFirst() ? cursor.getBlob(0) : null;
+            } finally {
+                cursor.close();
+            }
+        });
+
+        if (data == null) {
+            throw new MessagingException("Data of message part " + partId + " not found");
+        }
+
+        return data;
+    }
+}
@@ -93,6 +93,31 @@ class K9BackendFolder(
         messageStore.saveRemoteMessage(folderId, message.uid, messageData)
     }
 
+    override fun areMessagesPresent(messageServerIds: Collection<String>): Set<String> {
+        return messageStore.areMessagesPresent(folderId, messageServerIds)
+    }
+
+    override fun getMessageFlags(messageServerIds: Collection<String>): Map<String, Set<Flag>> {
+        return messageStore.getMessageFlags(folderId, messageServerIds)
+    }
+
+    override fun setMessageFlags(flagChanges: Map<String, Map<Flag, Boolean>>) {
+        if (flagChanges.isEmpty()) return
+
+        messageStore.setMessageFlags(folderId, flagChanges)
+    }
+
+    override fun saveMessages(messages: List<Message>, downloadState: MessageDownloadState) {
+        if (messages.isEmpty()) return
+
+        messages.forEach { requireMessageServerId(it) }
+
+        val messageData = messages.associate { message ->
+            message.uid to saveMessageDataCreator.createSaveMessageData(message, downloadState)
+        }
+        messageStore.saveRemoteMessages(folderId, messageData)
+    }
+
     override fun getOldestMessageDate(): Date? {
         return messageStore.getOldestMessageDate(folderId)
     }
@@ -10,6 +10,7 @@ val mailStoreModule = module {
     single { MessageViewInfoExtractorFactory(get(), get(), get()) }
     single { StorageManager.getInstance(get()) }
     single { SearchStatusManager() }
+    single { MessageCryptoResultCache() }
     single { SpecialFolderSelectionStrategy() }
     single {
         K9BackendStorageFactory(
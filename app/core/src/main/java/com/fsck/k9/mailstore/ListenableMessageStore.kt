@@ -5,6 +5,23 @@ import java.util.concurrent.CopyOnWriteArraySet
 
 class ListenableMessageStore(private val messageStore: MessageStore) : MessageStore by messageStore {
     private val folderSettingsListener = CopyOnWriteArraySet<FolderSettingsChangedListener>()
+    private val messageRemovedListeners = CopyOnWriteArraySet<MessageRemovedListener>()
+
+    override fun moveMessage(messageId: Long, destinationFolderId: Long): Long {
+        return messageStore.moveMessage(messageId, destinationFolderId).also {
+            for (listener in messageRemovedListeners) {
+                listener.onMessagesRemoved(listOf(messageId))
+            }
+        }
+    }
+
+    override fun destroyMessages(folderId: Long, messageServerIds: Collection<String>) {
+        messageStore.destroyMessages(folderId, messageServerIds)
+
+        for (listener in messageRemovedListeners) {
+            listener.onMessagesRemoved(folderId, messageServerIds)
+        }
+    }
 
     override fun createFolders(folders: List<CreateFolderInfo>) {
         messageStore.createFolders(folders)
@@ -54,6 +71,14 @@ class ListenableMessageStore(private val messageStore: MessageStore) : MessageSt
         folderSettingsListener.remove(listener)
     }
 
+    fun addMessageRemovedListener(listener: MessageRemovedListener) {
+        messageRemovedListeners.add(listener)
+    }
+
+    fun removeMessageRemovedListener(listener: MessageRemovedListener) {
+        messageRemovedListeners.remove(listener)
+    }
+
     private fun notifyFolderSettingsChanged() {
         for (listener in folderSettingsListener) {
             listener.onFolderSettingsChanged()
@@ -64,3 +89,15 @@ class ListenableMessageStore(private val messageStore: MessageStore) : MessageSt
 fun interface FolderSettingsChangedListener {
     fun onFolderSettingsChanged()
 }
+
+interface MessageRemovedListener {
+    /**
+     * Called after the messages with the given database IDs were moved to another folder.
+     */
+    fun onMessagesRemoved(messageIds: Collection<Long>)
+
+    /**
+     * Called after the messages with the given server IDs were removed from the folder with ID [folderId].
+     */
+    fun onMessagesRemoved(folderId: Long, messageServerIds: Collection<String>)
+}
@@ -270,9 +270,7 @@ public class LocalFolder {
                     }
                     Cursor cursor = null;
                     try {
-                        cursor = db.rawQuery(
-                                "SELECT COUNT(id) FROM messages " +
-                                "WHERE empty = 0 AND deleted = 0 and folder_id = ?",
+                        cursor = db.rawQuery("SELECT message_count FROM folders WHERE id = ?",
                                 new String[] { Long.toString(databaseId) });
                         cursor.moveToFirst();
                         return cursor.getInt(0);   //messagecount
@@ -296,8 +294,7 @@ public class LocalFolder {
                 @Override
                 public Integer doDbWork(final SQLiteDatabase db) throws WrappedException {
                     int unreadMessageCount = 0;
-                    Cursor cursor = db.query("messages", new String[] { "COUNT(id)" },
-                            "folder_id = ? AND empty = 0 AND deleted = 0 AND read=0",
+                    Cursor cursor = db.query("folders", new String[] { "unread_count" }, "id = ?",
                             new String[] { Long.toString(databaseId) }, null, null, null);
 
                     try {
@@ -458,7 +455,11 @@ public class LocalFolder {
                         open();
                         if (fp.contains(FetchProfile.Item.BODY)) {
                             for (LocalMessage message : messages) {
-                                loadMessageParts(db, message);
+                                loadMessageParts(db, message, true);
+                            }
+                        } else if (fp.contains(FetchProfile.Item.STRUCTURE)) {
+                            for (LocalMessage message : messages) {
+                                loadMessageParts(db, message, false);
                             }
                         }
                     } catch (MessagingException e) {
@@ -472,7 +473,14 @@ public class LocalFolder {
         }
     }
 
-    private void loadMessageParts(SQLiteDatabase db, LocalMessage message) throws MessagingException {
+    /**
+     * Recreates the MIME structure of a message from the {@code message_parts} table.
+     * <p>
+     * Part data is never read here. Bodies of leaf parts are only created if {@code loadBodies} is {@code true}, and
+     * they read their data when it is first accessed.
+     */
+    private void loadMessageParts(SQLiteDatabase db, LocalMessage message, boolean loadBodies)
+            throws MessagingException {
         Map<Long, Part> partById = new HashMap<>();
 
         String[] columns = {
@@ -486,7 +494,7 @@ public class LocalFolder {
                 "encoding",             // 7
                 "charset",              // 8
                 "data_location",        // 9
-                "data",                 // 10
+                "length(data)",         // 10
                 "preamble",             // 11
                 "epilogue",             // 12
                 "boundary",             // 13
@@ -497,14 +505,14 @@ public class LocalFolder {
                 new String[] { String.valueOf(message.getMessagePartId()) }, null, null, "seq");
         try {
             while (cursor.moveToNext()) {
-                loadMessagePart(message, partById, cursor);
+                loadMessagePart(message, partById, cursor, loadBodies);
             }
         } finally {
             cursor.close();
         }
     }
 
-    private void loadMessagePart(LocalMessage message, Map<Long, Part> partById, Cursor cursor)
+    private void loadMessagePart(LocalMessage message, Map<Long, Part> partById, Cursor cursor, boolean loadBodies)
             throws MessagingException {
 
         long id = cursor.getLong(0);
@@ -556,13 +564,13 @@ public class LocalFolder {
             part.setBody(multipart);
             multipart.setPreamble(preamble);
             multipart.setEpilogue(epilogue);
-        } else if (dataLocation == DataLocation.IN_DATABASE) {
+        } else if (loadBodies && dataLocation == DataLocation.IN_DATABASE) {
             String encoding = cursor.getString(7);
-            byte[] data = cursor.getBlob(10);
+            long dataSize = cursor.getLong(10);
 
-            Body body = new BinaryMemoryBody(data, encoding);
+            Body body = new DatabaseBackedBody(localStore.getDatabase(), id, encoding, dataSize);
             part.setBody(body);
-        } else if (dataLocation == DataLocation.ON_DISK) {
+        } else if (loadBodies && dataLocation == DataLocation.ON_DISK) {
             String encoding = cursor.getString(7);
 
             File file = localStore.getAttachmentFile(Long.toString(id));
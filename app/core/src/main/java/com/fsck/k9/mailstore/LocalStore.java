@@ -16,6 +16,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import android.content.ContentResolver;
@@ -58,6 +59,7 @@ import com.fsck.k9.message.extractors.MessageFulltextCreator;
 import com.fsck.k9.message.extractors.MessagePreviewCreator;
 import com.fsck.k9.provider.EmailProvider;
 import com.fsck.k9.provider.EmailProvider.MessageColumns;
+import com.fsck.k9.search.ConditionsTreeNode;
 import com.fsck.k9.search.LocalSearch;
 import com.fsck.k9.search.SearchSpecification.Attribute;
 import com.fsck.k9.search.SearchSpecification.SearchField;
@@ -515,6 +517,18 @@ public class LocalStore {
         });
     }
 
+    public void removePendingCommands(final List<PendingCommand> commands) throws MessagingException {
+        database.execute(true, new DbCallback<Void>() {
+            @Override
+            public Void doDbWork(final SQLiteDatabase db) throws WrappedException {
+                for (PendingCommand command : commands) {
+                    db.delete("pending_commands", "id = ?", new String[] { Long.toString(command.databaseId) });
+                }
+                return null;
+            }
+        });
+    }
+
     public void removePendingCommands() throws MessagingException {
         database.execute(false, new DbCallback<Void>() {
             @Override
@@ -905,6 +919,8 @@ public class LocalStore {
             values.put("visible_limit", 0);
             values.put("more_messages", MoreMessages.FALSE.getDatabaseName());
             values.put("display_class", FolderClass.FIRST_CLASS.name());
+            values.put("unread_count", 0);
+            values.put("flagged_count", 0);
 
             return db.insert("folders", null, values);
         });
@@ -1252,11 +1268,22 @@ public class LocalStore {
         String where = whereBuilder.toString();
         final String[] selectionArgs = queryArgs.toArray(new String[queryArgs.size()]);
 
-        final String sqlQuery = "SELECT SUM(read=0) " +
-                "FROM messages " +
-                "JOIN folders ON (folders.id = messages.folder_id) " +
-                "WHERE (messages.empty = 0 AND messages.deleted = 0)" +
-                (!TextUtils.isEmpty(where) ? " AND (" + where + ")" : "");
+        final String sqlQuery;
+        if (isFolderLevelSearch(search)) {
+            // Use the unread counts maintained in the 'folders' table instead of counting messages
+            sqlQuery = "SELECT SUM(unread_count) " +
+                    "FROM (SELECT folders.id AS folder_id, folders.* FROM folders)" +
+                    (!TextUtils.isEmpty(where) ? " WHERE (" + where + ")" : "");
+        } else {
+            // Avoid "ambiguous column name" error by prefixing "id" with the message table name
+            String messageWhere = SqlQueryBuilder.addPrefixToSelection(new String[] { "id" }, "messages.", where);
+
+            sqlQuery = "SELECT SUM(read=0) " +
+                    "FROM messages " +
+                    "JOIN folders ON (folders.id = messages.folder_id) " +
+                    "WHERE (messages.empty = 0 AND messages.deleted = 0)" +
+                    (!TextUtils.isEmpty(messageWhere) ? " AND (" + messageWhere + ")" : "");
+        }
 
         return database.execute(false, new DbCallback<Integer>() {
             @Override
@@ -1276,6 +1303,33 @@ public class LocalStore {
     }
 
 
+    private static boolean isFolderLevelSearch(LocalSearch search) {
+        Set<ConditionsTreeNode> leafSet = search.getLeafSet();
+        if (leafSet == null) {
+            return true;
+        }
+
+        for (ConditionsTreeNode node : leafSet) {
+            if (node.mCondition == null) {
+                continue;
+            }
+
+            switch (node.mCondition.field) {
+                case FOLDER:
+                case INTEGRATE:
+                case DISPLAY_CLASS:
+                case SEARCHABLE: {
+                    break;
+                }
+                default: {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
     public static String getColumnNameForFlag(Flag flag) {
         switch (flag) {
             case SEEN: {
@@ -19,6 +19,12 @@ import static java.lang.System.currentTimeMillis;
 
 
 public class LockableDatabase {
+    /**
+     * Reads taking longer than this (including the time spent waiting for a connection) are logged when debug
+     * logging is enabled. Compare these log entries while a large sync is writing to the database to see how much
+     * readers are held up by writers.
+     */
+    private static final long SLOW_READ_THRESHOLD_MILLIS = 50;
 
     /**
      * Callback interface for DB operations. Concept is similar to Spring
@@ -261,13 +267,16 @@ public class LockableDatabase {
      * @throws UnavailableStorageException
      */
     public <T> T execute(final boolean transactional, final DbCallback<T> callback) throws MessagingException {
+        final boolean debug = K9.isDebugLoggingEnabled();
+        final long start = debug ? System.currentTimeMillis() : 0L;
         lockRead();
         final boolean doTransaction = transactional && inTransaction.get() == null;
         try {
-            final boolean debug = K9.isDebugLoggingEnabled();
             if (doTransaction) {
                 inTransaction.set(Boolean.TRUE);
-                mDb.beginTransaction();
+                // With write-ahead logging this only blocks other writers. Readers on other threads keep using
+                // the read-only connections of the connection pool.
+                mDb.beginTransactionNonExclusive();
             }
             try {
                 final T result = callback.doDbWork(mDb);
@@ -290,6 +299,14 @@ public class LockableDatabase {
                                 currentTimeMillis() - begin,
                                 new Exception().getStackTrace()[1]);
                     }
+                } else if (debug && inTransaction.get() == null) {
+                    long duration = currentTimeMillis() - start;
+                    if (duration >= SLOW_READ_THRESHOLD_MILLIS) {
+                        Timber.v("LockableDatabase: Slow read (WAL %s), took %d ms / %s",
+                                mDb.isWriteAheadLoggingEnabled() ? "enabled" : "disabled",
+                                duration,
+                                new Exception().getStackTrace()[1]);
+                    }
                 }
             }
         } finally {
@@ -380,6 +397,8 @@ public class LockableDatabase {
                 doOpenOrCreateDb(databaseFile);
             }
 
+            enableWriteAheadLogging();
+
             mDb.execSQL("PRAGMA foreign_keys = ON;");
 
             if (mDb.getVersion() != mSchemaDefinition.getVersion()) {
@@ -401,6 +420,22 @@ public class LockableDatabase {
         }
     }
 
+    /**
+     * Switch the database to write-ahead logging.
+     *
+     * <p>
+     * Apart from not blocking readers while a (possibly long) write transaction is active, this makes
+     * {@link SQLiteDatabase} maintain a small pool of read-only connections. Queries that are run outside of a
+     * transaction, e.g. from {@code EmailProvider} or when counting unread messages, use those connections and no
+     * longer have to wait for a sync to finish writing a batch of messages.
+     * </p>
+     */
+    private void enableWriteAheadLogging() {
+        if (!mDb.isWriteAheadLoggingEnabled() && !mDb.enableWriteAheadLogging()) {
+            Timber.w("LockableDatabase: Unable to enable write-ahead logging for DB %s", uUid);
+        }
+    }
+
     /**
      * @param providerId
      *            Never <code>null</code>.
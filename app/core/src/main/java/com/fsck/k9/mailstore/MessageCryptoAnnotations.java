@@ -2,6 +2,8 @@ package com.fsck.k9.mailstore;
 
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import com.fsck.k9.mail.Part;
 
@@ -25,6 +27,10 @@ public class MessageCryptoAnnotations {
         return annotations.isEmpty();
     }
 
+    Set<Map.Entry<Part, CryptoResultAnnotation>> entrySet() {
+        return annotations.entrySet();
+    }
+
     public Part findKeyForAnnotationWithReplacementPart(Part part) {
         for (HashMap.Entry<Part, CryptoResultAnnotation> entry : annotations.entrySet()) {
             if (part == entry.getValue().getReplacementData()) {
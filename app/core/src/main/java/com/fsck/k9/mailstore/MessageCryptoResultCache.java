@@ -0,0 +1,213 @@
+package com.fsck.k9.mailstore;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.util.LruCache;
+
+import com.fsck.k9.controller.MessageReference;
+import com.fsck.k9.mail.Body;
+import com.fsck.k9.mail.Multipart;
+import com.fsck.k9.mail.Part;
+import com.fsck.k9.mailstore.CryptoResultAnnotation.CryptoError;
+
+
+/**
+ * Keeps the results of decrypting and verifying the most recently viewed messages in memory.
+ * <p>
+ * Without this every time an encrypted message is displayed it has to be sent to the OpenPGP provider again. Only
+ * successful results are cached. These include signature results like "key missing" that can change without the
+ * message changing, so explicitly restarting the crypto operation has to bypass the cache.
+ * <p>
+ * Annotated parts are remembered by their position in the MIME structure, so a cached result can be applied to a
+ * freshly loaded instance of the same message.
+ * <p>
+ * Decrypted parts are backed by files managed by {@link com.fsck.k9.provider.DecryptedFileProvider}. The cache has to
+ * be cleared whenever those files are deleted. Entries of messages that are deleted or moved have to be invalidated
+ * by the caller.
+ */
+public class MessageCryptoResultCache {
+    private static final int MAX_CACHED_MESSAGES = 20;
+
+
+    private final LruCache<CacheKey, CachedResult> cache = new LruCache<>(MAX_CACHED_MESSAGES);
+
+
+    public void put(MessageReference messageReference, String openPgpProvider, boolean processSignedOnly, Part message,
+            MessageCryptoAnnotations annotations) {
+        if (annotations.isEmpty()) {
+            return;
+        }
+
+        Map<Part, List<Integer>> partPaths = new HashMap<>();
+        collectPartPaths(message, new ArrayList<>(), partPaths);
+
+        List<CachedAnnotation> cachedAnnotations = new ArrayList<>();
+        for (Map.Entry<Part, CryptoResultAnnotation> entry : annotations.entrySet()) {
+            CryptoResultAnnotation annotation = entry.getValue();
+            if (annotation.getErrorType() != CryptoError.OPENPGP_OK) {
+                // Errors might be temporary, e.g. when the user canceled the operation or the provider was unavailable
+                return;
+            }
+
+            Part part = entry.getKey();
+            List<Integer> path = partPaths.get(part);
+
+            // Parts not found in the message are part of decrypted data. These are cached as they are.
+            cachedAnnotations.add(new CachedAnnotation(path, path == null ? part : null, annotation));
+        }
+
+        CacheKey cacheKey = new CacheKey(messageReference, openPgpProvider, processSignedOnly);
+        cache.put(cacheKey, new CachedResult(cachedAnnotations));
+    }
+
+    /**
+     * Returns the cached annotations mapped to the parts of {@code message}, or {@code null} if there's no usable
+     * cached result.
+     */
+    public MessageCryptoAnnotations get(MessageReference messageReference, String openPgpProvider,
+            boolean processSignedOnly, Part message) {
+        CacheKey cacheKey = new CacheKey(messageReference, openPgpProvider, processSignedOnly);
+        CachedResult cachedResult = cache.get(cacheKey);
+        if (cachedResult == null) {
+            return null;
+        }
+
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        for (CachedAnnotation cachedAnnotation : cachedResult.annotations) {
+            Part part = cachedAnnotation.part != null ?
+                    cachedAnnotation.part : findPart(message, cachedAnnotation.path);
+            if (part == null) {
+                // The structure of the message changed, e.g. because more of it was downloaded
+                cache.remove(cacheKey);
+                return null;
+            }
+
+            annotations.put(part, cachedAnnotation.annotation);
+        }
+
+        return annotations;
+    }
+
+    public void invalidate(MessageReference messageReference) {
+        for (CacheKey cacheKey : cache.snapshot().keySet()) {
+            if (cacheKey.messageReference.equals(messageReference)) {
+                cache.remove(cacheKey);
+            }
+        }
+    }
+
+    public void invalidateFolder(String accountUuid, long folderId) {
+        for (CacheKey cacheKey : cache.snapshot().keySet()) {
+            MessageReference messageReference = cacheKey.messageReference;
+            if (messageReference.getAccountUuid().equals(accountUuid) && messageReference.getFolderId() == folderId) {
+                cache.remove(cacheKey);
+            }
+        }
+    }
+
+    public void invalidateAccount(String accountUuid) {
+        for (CacheKey cacheKey : cache.snapshot().keySet()) {
+            if (cacheKey.messageReference.getAccountUuid().equals(accountUuid)) {
+                cache.remove(cacheKey);
+            }
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    private static void collectPartPaths(Part part, List<Integer> path, Map<Part, List<Integer>> partPaths) {
+        partPaths.put(part, Collections.unmodifiableList(new ArrayList<>(path)));
+
+        Body body = part.getBody();
+        if (body instanceof Multipart) {
+            Multipart multipart = (Multipart) body;
+            for (int i = 0, count = multipart.getCount(); i < count; i++) {
+                path.add(i);
+                collectPartPaths(multipart.getBodyPart(i), path, partPaths);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static Part findPart(Part message, List<Integer> path) {
+        Part part = message;
+        for (int index : path) {
+            Body body = part.getBody();
+            if (!(body instanceof Multipart)) {
+                return null;
+            }
+
+            Multipart multipart = (Multipart) body;
+            if (index >= multipart.getCount()) {
+                return null;
+            }
+
+            part = multipart.getBodyPart(index);
+        }
+
+        return part;
+    }
+
+
+    private static class CacheKey {
+        final MessageReference messageReference;
+        final String openPgpProvider;
+        final boolean processSignedOnly;
+
+        CacheKey(MessageReference messageReference, String openPgpProvider, boolean processSignedOnly) {
+            this.messageReference = messageReference;
+            this.openPgpProvider = openPgpProvider;
+            this.processSignedOnly = processSignedOnly;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            CacheKey cacheKey = (CacheKey) o;
+            return processSignedOnly == cacheKey.processSignedOnly &&
+                    messageReference.equals(cacheKey.messageReference) &&
+                    openPgpProvider.equals(cacheKey.openPgpProvider);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = messageReference.hashCode();
+            result = 31 * result + openPgpProvider.hashCode();
+            result = 31 * result + (processSignedOnly ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static class CachedResult {
+        final List<CachedAnnotation> annotations;
+
+        CachedResult(List<CachedAnnotation> annotations) {
+            this.annotations = annotations;
+        }
+    }
+
+    private static class CachedAnnotation {
+        final List<Integer> path;
+        final Part part;
+        final CryptoResultAnnotation annotation;
+
+        CachedAnnotation(List<Integer> path, Part part, CryptoResultAnnotation annotation) {
+            this.path = path;
+            this.part = part;
+            this.annotation = annotation;
+        }
+    }
+}
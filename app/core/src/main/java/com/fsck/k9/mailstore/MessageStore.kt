@@ -19,6 +19,13 @@ interface MessageStore {
      */
     fun saveRemoteMessage(folderId: Long, messageServerId: String, messageData: SaveMessageData)
 
+    /**
+     * Save multiple remote messages in this store using a single database transaction.
+     *
+     * @param messages A mapping of message server ID to the data of the message to save.
+     */
+    fun saveRemoteMessages(folderId: Long, messages: Map<String, SaveMessageData>)
+
     /**
      * Save a local message in this store.
      *
@@ -78,6 +85,13 @@ interface MessageStore {
      */
     fun setMessageFlag(folderId: Long, messageServerId: String, flag: Flag, set: Boolean)
 
+    /**
+     * Set or remove flags on multiple messages using a single database transaction.
+     *
+     * @param flagChanges A mapping of message server ID to the flags that should be set (`true`) or removed (`false`).
+     */
+    fun setMessageFlags(folderId: Long, flagChanges: Map<String, Map<Flag, Boolean>>)
+
     /**
      * Retrieve the server ID for a given message.
      */
@@ -105,6 +119,21 @@ interface MessageStore {
      */
     fun getMessageFlags(folderId: Long, messageServerId: String): Set<Flag>
 
+    /**
+     * Check which of the given messages are present in the store.
+     *
+     * @return The subset of [messageServerIds] that is present in the store.
+     */
+    fun areMessagesPresent(folderId: Long, messageServerIds: Collection<String>): Set<String>
+
+    /**
+     * Get the flags associated with the given messages.
+     *
+     * @return A mapping of message server ID to the message's flags. Messages that aren't present in the store are
+     *   not included.
+     */
+    fun getMessageFlags(folderId: Long, messageServerIds: Collection<String>): Map<String, Set<Flag>>
+
     /**
      * Retrieve server IDs and dates for all remote messages in the given folder.
      */
@@ -226,6 +255,14 @@ interface MessageStore {
      */
     fun deleteFolders(folderServerIds: List<String>)
 
+    /**
+     * Recalculate the message, unread, and flagged counts stored with each folder.
+     *
+     * These counts are kept up to date by the database. This is a consistency check that returns the number of folders
+     * whose counts needed to be corrected.
+     */
+    fun rebuildFolderCounts(): Int
+
     /**
      * Retrieve a string property by name.
      *
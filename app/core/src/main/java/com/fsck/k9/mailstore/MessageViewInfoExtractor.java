@@ -68,7 +68,7 @@ public class MessageViewInfoExtractor {
             if (cryptoAnnotations != null && !cryptoAnnotations.isEmpty()) {
                 Timber.e("Got crypto message cryptoContentAnnotations but no crypto root part!");
             }
-            MessageViewInfo messageViewInfo = extractSimpleMessageForView(message, message);
+            MessageViewInfo messageViewInfo = extractSimpleMessageForView(message, message, true);
             return messageViewInfo.withSubject(message.getSubject(), false);
         }
 
@@ -121,7 +121,7 @@ public class MessageViewInfoExtractor {
             return extractCryptoMessageForView(message, extraParts, cryptoContentPart, cryptoContentPartAnnotation);
         }
 
-        return extractSimpleMessageForView(message, message);
+        return extractSimpleMessageForView(message, message, true);
     }
 
     private MessageViewInfo extractCryptoMessageForView(Message message,
@@ -131,17 +131,19 @@ public class MessageViewInfoExtractor {
             cryptoContentPart = cryptoContentPartAnnotation.getReplacementData();
         }
 
+        // Decrypted content must never end up in the disk cache of HtmlProcessor
         List<AttachmentViewInfo> extraAttachmentInfos = new ArrayList<>();
-        ViewableExtractedText extraViewable = extractViewableAndAttachments(extraParts, extraAttachmentInfos);
+        ViewableExtractedText extraViewable = extractViewableAndAttachments(extraParts, extraAttachmentInfos, false);
 
-        MessageViewInfo messageViewInfo = extractSimpleMessageForView(message, cryptoContentPart);
+        MessageViewInfo messageViewInfo = extractSimpleMessageForView(message, cryptoContentPart, false);
         return messageViewInfo.withCryptoData(cryptoContentPartAnnotation, extraViewable.text, extraAttachmentInfos);
     }
 
-    private MessageViewInfo extractSimpleMessageForView(Message message, Part contentPart) throws MessagingException {
+    private MessageViewInfo extractSimpleMessageForView(Message message, Part contentPart, boolean cacheable)
+            throws MessagingException {
         List<AttachmentViewInfo> attachmentInfos = new ArrayList<>();
         ViewableExtractedText viewable = extractViewableAndAttachments(
-                Collections.singletonList(contentPart), attachmentInfos);
+                Collections.singletonList(contentPart), attachmentInfos, cacheable);
         AttachmentResolver attachmentResolver = AttachmentResolver.createFromPart(contentPart);
         boolean isMessageIncomplete =
                 !message.isSet(Flag.X_DOWNLOADED_FULL) || MessageExtractor.hasMissingParts(message);
@@ -151,7 +153,7 @@ public class MessageViewInfoExtractor {
     }
 
     private ViewableExtractedText extractViewableAndAttachments(List<Part> parts,
-            List<AttachmentViewInfo> attachmentInfos) throws MessagingException {
+            List<AttachmentViewInfo> attachmentInfos, boolean cacheable) throws MessagingException {
         ArrayList<Viewable> viewableParts = new ArrayList<>();
         ArrayList<Part> attachments = new ArrayList<>();
 
@@ -160,12 +162,15 @@ public class MessageViewInfoExtractor {
         }
 
         attachmentInfos.addAll(attachmentInfoExtractor.extractAttachmentInfoForView(attachments));
-        return extractTextFromViewables(viewableParts);
+        return extractTextFromViewables(viewableParts, cacheable);
     }
 
     /**
      * Extract the viewable textual parts of a message and return the rest as attachments.
      *
+     * @param cacheable
+     *         {@code false} if the HTML must not be written to the disk cache, e.g. because it was decrypted.
+     *
      * @return A {@link ViewableExtractedText} instance containing the textual parts of the message as
      *         plain text and HTML, and a list of message parts considered attachments.
      *
@@ -173,7 +178,7 @@ public class MessageViewInfoExtractor {
      *          In case of an error.
      */
     @VisibleForTesting
-    ViewableExtractedText extractTextFromViewables(List<Viewable> viewables)
+    ViewableExtractedText extractTextFromViewables(List<Viewable> viewables, boolean cacheable)
             throws MessagingException {
         try {
             // Collect all viewable parts
@@ -238,7 +243,7 @@ public class MessageViewInfoExtractor {
                 }
             }
 
-            String sanitizedHtml = htmlProcessor.processForDisplay(html.toString());
+            String sanitizedHtml = htmlProcessor.processForDisplay(html.toString(), cacheable);
 
             return new ViewableExtractedText(text.toString(), sanitizedHtml);
         } catch (Exception e) {
@@ -15,6 +15,11 @@ class NotifierMessageStore(
         notifyChange()
     }
 
+    override fun saveRemoteMessages(folderId: Long, messages: Map<String, SaveMessageData>) {
+        messageStore.saveRemoteMessages(folderId, messages)
+        notifyChange()
+    }
+
     override fun saveLocalMessage(folderId: Long, messageData: SaveMessageData, existingMessageId: Long?): Long {
         return messageStore.saveLocalMessage(folderId, messageData, existingMessageId).also {
             notifyChange()
@@ -43,6 +48,11 @@ class NotifierMessageStore(
         notifyChange()
     }
 
+    override fun setMessageFlags(folderId: Long, flagChanges: Map<String, Map<Flag, Boolean>>) {
+        messageStore.setMessageFlags(folderId, flagChanges)
+        notifyChange()
+    }
+
     override fun destroyMessages(folderId: Long, messageServerIds: Collection<String>) {
         messageStore.destroyMessages(folderId, messageServerIds)
         notifyChange()
@@ -0,0 +1,357 @@
+package com.fsck.k9.message.extractors;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.nodes.Entities;
+
+
+/**
+ * Converts the text of a message part to the text stored in the full-text search index.
+ * <p>
+ * The input is processed in small chunks. HTML tags are stripped as they are encountered, the contents of
+ * {@code <script>}, {@code <style>}, and {@code <title>} elements are skipped, and character references are decoded.
+ * Runs of whitespace are collapsed to a single space. No DOM or other intermediate representation of the document is
+ * created.
+ */
+class FulltextNormalizer {
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_TAG_LENGTH = 2048;
+    private static final int MAX_ENTITY_LENGTH = 32;
+    private static final char NBSP_CHARACTER = '\u00A0';
+    private static final char OBJECT_REPLACEMENT_CHARACTER = '\uFFFC';
+
+    /**
+     * Elements that don't separate words, i.e. {@code foo<b>bar</b>} is indexed as "foobar".
+     */
+    private static final Set<String> INLINE_ELEMENTS = new HashSet<>(Arrays.asList(
+            "a", "abbr", "b", "bdi", "bdo", "big", "cite", "code", "em", "font", "i", "kbd", "mark", "q", "s", "samp",
+            "small", "span", "strike", "strong", "sub", "sup", "tt", "u", "var"
+    ));
+    private static final Set<String> SKIPPED_ELEMENTS = new HashSet<>(Arrays.asList("script", "style", "title"));
+
+    private enum State {
+        TEXT, TAG, COMMENT, ENTITY
+    }
+
+
+    private final StringBuilder output = new StringBuilder();
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder entity = new StringBuilder();
+    private final int[] codePoints = new int[2];
+    private final boolean html;
+    private State state = State.TEXT;
+    private char quote;
+    private String skippedElement;
+    private boolean pendingSpace;
+
+
+    private FulltextNormalizer(boolean html) {
+        this.html = html;
+    }
+
+    /**
+     * Reads all of {@code reader} and returns the normalized text.
+     *
+     * @param html {@code true} if the input is HTML, {@code false} if it's plain text.
+     */
+    static String normalize(Reader reader, boolean html) throws IOException {
+        FulltextNormalizer normalizer = new FulltextNormalizer(html);
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            for (int i = 0; i < count; i++) {
+                normalizer.process(buffer[i]);
+            }
+        }
+
+        return normalizer.finish();
+    }
+
+    private void process(char c) {
+        if (!html) {
+            appendText(c);
+            return;
+        }
+
+        switch (state) {
+            case TEXT: {
+                if (c == '<') {
+                    tag.setLength(0);
+                    quote = 0;
+                    state = State.TAG;
+                } else if (skippedElement != null) {
+                    // Ignore contents of <script>, <style>, and <title>
+                } else if (c == '&') {
+                    entity.setLength(0);
+                    state = State.ENTITY;
+                } else {
+                    appendText(c);
+                }
+                break;
+            }
+            case TAG: {
+                processTag(c);
+                break;
+            }
+            case COMMENT: {
+                processComment(c);
+                break;
+            }
+            case ENTITY: {
+                processEntity(c);
+                break;
+            }
+        }
+    }
+
+    private void processTag(char c) {
+        if (tag.length() == 0 && !isTagStartCharacter(c)) {
+            // Not a tag, e.g. "a < b"
+            state = State.TEXT;
+            if (skippedElement == null) {
+                appendText('<');
+            }
+            process(c);
+            return;
+        }
+
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+        } else if (c == '>') {
+            endTag();
+            state = State.TEXT;
+            return;
+        } else if (c == '<') {
+            // Unterminated tag, e.g. "if (a<b)" in a script. Start over with the new tag.
+            tag.setLength(0);
+            return;
+        } else if ((c == '"' || c == '\'') && tag.indexOf("=") != -1) {
+            quote = c;
+        }
+
+        if (tag.length() < MAX_TAG_LENGTH) {
+            tag.append(c);
+        }
+
+        if (skippedElement == null && tag.length() == 3 && tag.charAt(0) == '!' && tag.charAt(1) == '-' &&
+                tag.charAt(2) == '-') {
+            tag.setLength(0);
+            state = State.COMMENT;
+        }
+    }
+
+    private void processComment(char c) {
+        if (c == '>' && tag.length() == 2) {
+            state = State.TEXT;
+            return;
+        }
+
+        if (c == '-') {
+            if (tag.length() < 2) {
+                tag.append(c);
+            }
+        } else {
+            tag.setLength(0);
+        }
+    }
+
+    private void endTag() {
+        boolean closingTag = tag.length() > 0 && tag.charAt(0) == '/';
+        int start = closingTag ? 1 : 0;
+        int end = start;
+        while (end < tag.length() && isTagNameCharacter(tag.charAt(end))) {
+            end++;
+        }
+        String name = tag.substring(start, end).toLowerCase(Locale.ROOT);
+
+        if (skippedElement != null) {
+            if (closingTag && name.equals(skippedElement)) {
+                skippedElement = null;
+                pendingSpace = true;
+            }
+            return;
+        }
+
+        if (!closingTag && SKIPPED_ELEMENTS.contains(name) && tag.charAt(tag.length() - 1) != '/') {
+            skippedElement = name;
+        }
+
+        if (!INLINE_ELEMENTS.contains(name)) {
+            pendingSpace = true;
+        } else if (!closingTag && name.equals("a")) {
+            appendLinkTarget();
+        }
+    }
+
+    /**
+     * Links are included in the index, so searching for a URL finds messages linking to it.
+     */
+    private void appendLinkTarget() {
+        int index = indexOfAttribute("href");
+        if (index == -1) {
+            return;
+        }
+
+        char delimiter = tag.charAt(index);
+        if (delimiter == '"' || delimiter == '\'') {
+            index++;
+        } else {
+            delimiter = ' ';
+        }
+
+        int end = index;
+        while (end < tag.length() && (delimiter == ' ' ? !Character.isWhitespace(tag.charAt(end)) :
+                tag.charAt(end) != delimiter)) {
+            end++;
+        }
+
+        // Only absolute URLs are useful search terms
+        int colonIndex = tag.indexOf(":", index);
+        if (colonIndex != -1 && colonIndex < end) {
+            pendingSpace = true;
+            for (int i = index; i < end; i++) {
+                appendText(tag.charAt(i));
+            }
+            pendingSpace = true;
+        }
+    }
+
+    private int indexOfAttribute(String attributeName) {
+        int length = tag.length();
+        int nameLength = attributeName.length();
+        for (int i = 1; i + nameLength < length; i++) {
+            if (Character.isWhitespace(tag.charAt(i - 1)) && regionMatches(i, attributeName)) {
+                int index = i + nameLength;
+                while (index < length && Character.isWhitespace(tag.charAt(index))) {
+                    index++;
+                }
+                if (index < length && tag.charAt(index) == '=') {
+                    index++;
+                    while (index < length && Character.isWhitespace(tag.charAt(index))) {
+                        index++;
+                    }
+                    return index < length ? index : -1;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean regionMatches(int offset, String lowerCaseText) {
+        for (int i = 0, length = lowerCaseText.length(); i < length; i++) {
+            if (Character.toLowerCase(tag.charAt(offset + i)) != lowerCaseText.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void processEntity(char c) {
+        if (c == ';' && entity.length() > 0) {
+            appendEntity();
+            state = State.TEXT;
+        } else if (entity.length() < MAX_ENTITY_LENGTH && (Character.isLetterOrDigit(c) || c == '#')) {
+            entity.append(c);
+        } else {
+            appendUnknownEntity();
+            state = State.TEXT;
+            process(c);
+        }
+    }
+
+    private void appendEntity() {
+        if (entity.charAt(0) == '#') {
+            int codePoint = parseNumericCharacterReference();
+            if (Character.isValidCodePoint(codePoint) && codePoint != 0) {
+                appendCodePoint(codePoint);
+                return;
+            }
+        } else {
+            int count = Entities.codepointsForName(entity.toString(), codePoints);
+            if (count > 0) {
+                for (int i = 0; i < count; i++) {
+                    appendCodePoint(codePoints[i]);
+                }
+                return;
+            }
+        }
+
+        appendUnknownEntity();
+        appendText(';');
+    }
+
+    private int parseNumericCharacterReference() {
+        boolean hex = entity.length() > 1 && (entity.charAt(1) == 'x' || entity.charAt(1) == 'X');
+        int radix = hex ? 16 : 10;
+        int start = hex ? 2 : 1;
+        if (start == entity.length()) {
+            return -1;
+        }
+
+        int codePoint = 0;
+        for (int i = start; i < entity.length(); i++) {
+            int digit = Character.digit(entity.charAt(i), radix);
+            if (digit == -1 || codePoint > Character.MAX_CODE_POINT) {
+                return -1;
+            }
+            codePoint = codePoint * radix + digit;
+        }
+
+        return codePoint;
+    }
+
+    private void appendUnknownEntity() {
+        appendText('&');
+        for (int i = 0; i < entity.length(); i++) {
+            appendText(entity.charAt(i));
+        }
+    }
+
+    private void appendCodePoint(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) {
+            appendText((char) codePoint);
+        } else {
+            appendText(Character.highSurrogate(codePoint));
+            appendText(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private void appendText(char c) {
+        if (Character.isWhitespace(c) || c == NBSP_CHARACTER || c == OBJECT_REPLACEMENT_CHARACTER) {
+            pendingSpace = true;
+            return;
+        }
+
+        if (pendingSpace && output.length() > 0) {
+            output.append(' ');
+        }
+        pendingSpace = false;
+        output.append(c);
+    }
+
+    private String finish() {
+        if (state == State.ENTITY) {
+            appendUnknownEntity();
+        }
+
+        return output.toString();
+    }
+
+    private static boolean isTagStartCharacter(char c) {
+        return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+    }
+
+    private static boolean isTagNameCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == ':';
+    }
+}
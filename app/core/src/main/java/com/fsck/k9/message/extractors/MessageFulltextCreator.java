@@ -1,13 +1,17 @@
 package com.fsck.k9.message.extractors;
 
 
+import java.io.IOException;
+import java.io.Reader;
+
 import androidx.annotation.NonNull;
 
-import com.fsck.k9.message.html.HtmlConverter;
 import com.fsck.k9.mail.Message;
+import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.Part;
 import com.fsck.k9.mail.internet.MessageExtractor;
 import com.fsck.k9.mail.internet.MimeUtility;
+import timber.log.Timber;
 
 
 public class MessageFulltextCreator {
@@ -32,13 +36,22 @@ public class MessageFulltextCreator {
             return null;
         }
 
-        String text = MessageExtractor.getTextFromPart(textPart, MAX_CHARACTERS_CHECKED_FOR_FTS);
-        String mimeType = textPart.getMimeType();
-        if (!MimeUtility.isSameMimeType(mimeType, "text/html")) {
-            return text;
+        boolean html = MimeUtility.isSameMimeType(textPart.getMimeType(), "text/html");
+        try {
+            Reader reader = MessageExtractor.getTextReaderFromPart(textPart, MAX_CHARACTERS_CHECKED_FOR_FTS);
+            if (reader == null) {
+                return null;
+            }
+
+            try {
+                return FulltextNormalizer.normalize(reader, html);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | MessagingException e) {
+            Timber.e(e, "Unable to extract text for full-text index");
+            return null;
         }
-
-        return HtmlConverter.htmlToText(text);
     }
 
     private boolean hasEmptyBody(Part textPart) {
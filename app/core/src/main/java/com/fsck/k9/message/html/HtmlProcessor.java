@@ -5,27 +5,59 @@ import org.jsoup.nodes.Document;
 
 
 public class HtmlProcessor {
+    /**
+     * Processing short messages is cheap. Don't bother writing them to the cache.
+     */
+    private static final int MIN_CACHED_HTML_LENGTH = 16 * 1024;
+
+
     private final HtmlSanitizer htmlSanitizer;
     private final DisplayHtml displayHtml;
+    private final HtmlRenderCache renderCache;
 
 
-    HtmlProcessor(HtmlSanitizer htmlSanitizer, DisplayHtml displayHtml) {
+    HtmlProcessor(HtmlSanitizer htmlSanitizer, DisplayHtml displayHtml, HtmlRenderCache renderCache) {
         this.htmlSanitizer = htmlSanitizer;
         this.displayHtml = displayHtml;
+        this.renderCache = renderCache;
+    }
+
+    /**
+     * Sanitizes the HTML and adds the styles used for display.
+     *
+     * @param cacheable
+     *         {@code false} if the HTML must not be written to the disk cache, e.g. because it was decrypted.
+     */
+    public String processForDisplay(String html, boolean cacheable) {
+        String headContents = getCustomHeadContents();
+        if (!cacheable || html.length() < MIN_CACHED_HTML_LENGTH) {
+            return process(html, headContents);
+        }
+
+        String cacheKey = renderCache.createKey(headContents, html);
+        String cachedHtml = renderCache.get(cacheKey);
+        if (cachedHtml != null) {
+            return cachedHtml;
+        }
+
+        String processedHtml = process(html, headContents);
+        renderCache.put(cacheKey, processedHtml);
+
+        return processedHtml;
     }
 
-    public String processForDisplay(String html) {
+    private String process(String html, String headContents) {
         Document document = htmlSanitizer.sanitize(html);
-        addCustomHeadContents(document);
+        document.head().append(headContents);
 
         return toCompactString(document);
     }
 
-    private void addCustomHeadContents(Document document) {
-        document.head().append("<meta name=\"viewport\" content=\"width=device-width\"/>" +
+    private String getCustomHeadContents() {
+        return "<meta name=\"viewport\" content=\"width=device-width\"/>" +
                 displayHtml.cssStyleTheme() +
                 displayHtml.cssStylePre() +
-                displayHtml.cssStyleSignature());
+                displayHtml.cssStyleSignature();
     }
 
     public static String toCompactString(Document document) {
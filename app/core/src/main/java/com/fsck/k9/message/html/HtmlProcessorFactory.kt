@@ -2,10 +2,11 @@ package com.fsck.k9.message.html
 
 class HtmlProcessorFactory(
     private val htmlSanitizer: HtmlSanitizer,
-    private val displayHtmlFactory: DisplayHtmlFactory
+    private val displayHtmlFactory: DisplayHtmlFactory,
+    private val htmlRenderCache: HtmlRenderCache
 ) {
     fun create(settings: HtmlSettings): HtmlProcessor {
         val displayHtml = displayHtmlFactory.create(settings)
-        return HtmlProcessor(htmlSanitizer, displayHtml)
+        return HtmlProcessor(htmlSanitizer, displayHtml, htmlRenderCache)
     }
 }
@@ -0,0 +1,107 @@
+package com.fsck.k9.message.html
+
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import timber.log.Timber
+
+/**
+ * Disk cache for HTML that has already been processed for display.
+ *
+ * Entries are keyed by a digest of the unprocessed HTML and everything that is added to it during processing, e.g. the
+ * CSS of the current theme. So changing the display settings or the content of a message automatically results in a
+ * different key. Bump [CACHE_VERSION] whenever the output of [HtmlSanitizer] changes.
+ *
+ * The least recently used entries are removed once the total size of the cache exceeds [maxSize] bytes.
+ *
+ * Entries are written to disk unencrypted. So HTML of decrypted messages must never be added to this cache. Since
+ * entries can't be mapped back to messages, the whole cache is cleared whenever messages or accounts are deleted.
+ */
+class HtmlRenderCache(
+    private val cacheDirectory: File,
+    private val maxSize: Long = DEFAULT_MAX_SIZE
+) {
+    private var currentSize = -1L
+
+    fun createKey(headContents: String, html: String): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(CACHE_VERSION.toByteArray())
+        digest.update(headContents.toByteArray())
+        digest.update(0)
+        digest.update(html.toByteArray())
+
+        return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+    }
+
+    @Synchronized
+    fun get(key: String): String? {
+        val file = File(cacheDirectory, key)
+        if (!file.exists()) return null
+
+        return try {
+            file.readText().also {
+                file.setLastModified(System.currentTimeMillis())
+            }
+        } catch (e: IOException) {
+            Timber.w(e, "Error reading cached HTML")
+            null
+        }
+    }
+
+    @Synchronized
+    fun put(key: String, html: String) {
+        ensureSizeIsKnown()
+
+        val file = File(cacheDirectory, key)
+        val tempFile = File(cacheDirectory, "$key.tmp")
+        try {
+            cacheDirectory.mkdirs()
+            tempFile.writeText(html)
+
+            val previousLength = file.length()
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete()
+                return
+            }
+
+            currentSize += file.length() - previousLength
+        } catch (e: IOException) {
+            Timber.w(e, "Error writing HTML to cache")
+            tempFile.delete()
+            return
+        }
+
+        if (currentSize > maxSize) {
+            trimToSize()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        cacheDirectory.listFiles()?.forEach { it.delete() }
+        currentSize = 0
+    }
+
+    private fun ensureSizeIsKnown() {
+        if (currentSize < 0) {
+            currentSize = cacheDirectory.listFiles()?.sumOf { it.length() } ?: 0L
+        }
+    }
+
+    private fun trimToSize() {
+        val files = cacheDirectory.listFiles()?.sortedBy { it.lastModified() } ?: return
+        for (file in files) {
+            if (currentSize <= maxSize) break
+
+            val length = file.length()
+            if (file.delete()) {
+                currentSize -= length
+            }
+        }
+    }
+
+    companion object {
+        private const val CACHE_VERSION = "1"
+        private const val DEFAULT_MAX_SIZE = 10L * 1024 * 1024
+    }
+}
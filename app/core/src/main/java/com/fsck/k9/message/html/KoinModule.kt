@@ -1,9 +1,12 @@
 package com.fsck.k9.message.html
 
+import android.content.Context
+import java.io.File
 import org.koin.dsl.module
 
 val htmlModule = module {
-    single { HtmlProcessorFactory(get(), get()) }
+    single { HtmlProcessorFactory(get(), get(), get()) }
     single { HtmlSanitizer() }
     single { DisplayHtmlFactory() }
+    single { HtmlRenderCache(cacheDirectory = File(get<Context>().cacheDir, "html")) }
 }
@@ -119,6 +119,10 @@ public class AccountSettingsDescriptions {
         s.put("markMessageAsReadOnDelete", Settings.versions(
                 new V(63, new BooleanSetting(true))
         ));
+        s.put("maxParallelFolderSyncs", Settings.versions(
+                new V(75, new IntegerResourceSetting(AccountPreferenceSerializer.DEFAULT_MAX_PARALLEL_FOLDER_SYNCS,
+                        R.array.max_parallel_folder_syncs_values))
+        ));
         s.put("maxPushFolders", Settings.versions(
                 new V(1, new IntegerRangeSetting(0, 100, 10))
         ));
@@ -21,7 +21,9 @@ import androidx.core.content.FileProvider;
 import android.text.TextUtils;
 import timber.log.Timber;
 
+import com.fsck.k9.DI;
 import com.fsck.k9.K9;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import com.fsck.k9.mailstore.util.FileFactory;
 import org.apache.james.mime4j.codec.Base64InputStream;
 import org.apache.james.mime4j.codec.QuotedPrintableInputStream;
@@ -78,12 +80,15 @@ public class DecryptedFileProvider extends FileProvider {
     public static boolean deleteOldTemporaryFiles(Context context) {
         File tempDirectory = getDecryptedTempDirectory(context);
         boolean allFilesDeleted = true;
+        boolean anyFileDeleted = false;
         long deletionThreshold = System.currentTimeMillis() - FILE_DELETE_THRESHOLD_MILLISECONDS;
         for (File tempFile : tempDirectory.listFiles()) {
             long lastModified = tempFile.lastModified();
             if (lastModified < deletionThreshold) {
                 boolean fileDeleted = tempFile.delete();
-                if (!fileDeleted) {
+                if (fileDeleted) {
+                    anyFileDeleted = true;
+                } else {
                     Timber.e("Failed to delete temporary file");
                     // TODO really do this? might cause our service to stay up indefinitely if a file can't be deleted
                     allFilesDeleted = false;
@@ -98,6 +103,11 @@ public class DecryptedFileProvider extends FileProvider {
             }
         }
 
+        if (anyFileDeleted) {
+            // Cached decryption results might refer to deleted files
+            DI.get(MessageCryptoResultCache.class).clear();
+        }
+
         return allFilesDeleted;
     }
 
@@ -48,6 +48,17 @@ public class EmailProvider extends ContentProvider {
     public static String AUTHORITY;
     public static Uri CONTENT_URI;
 
+    /**
+     * Optional URI query parameter that limits the number of rows returned by message queries.
+     */
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    /**
+     * Optional URI query parameter of threaded message queries. If present, the threaded message list of the folder
+     * with this ID is returned. The selection has to be empty in that case.
+     */
+    public static final String QUERY_PARAMETER_FOLDER_ID = "folder_id";
+
     public static Uri getNotificationUri(String accountUuid) {
         return Uri.withAppendedPath(CONTENT_URI, "account/" + accountUuid + "/messages");
     }
@@ -113,6 +124,8 @@ public class EmailProvider extends ContentProvider {
 
     private static final String THREADS_TABLE = "threads";
 
+    private static final String THREAD_SUMMARY_TABLE = "thread_summary";
+
     public interface SpecialColumns {
         String ACCOUNT_UUID = "account_uuid";
 
@@ -230,14 +243,17 @@ public class EmailProvider extends ContentProvider {
                 }
 
                 String[] dbProjection = dbColumnNames.toArray(new String[0]);
+                String limit = getLimit(uri);
 
                 if (match == MESSAGES) {
-                    cursor = getMessages(accountUuid, dbProjection, selection, selectionArgs, sortOrder);
+                    cursor = getMessages(accountUuid, dbProjection, selection, selectionArgs, sortOrder, limit);
                 } else if (match == MESSAGES_THREADED) {
-                    cursor = getThreadedMessages(accountUuid, dbProjection, selection, selectionArgs, sortOrder);
+                    String folderId = getFolderId(uri, selection);
+                    cursor = getThreadedMessages(accountUuid, dbProjection, selection, selectionArgs, sortOrder,
+                            limit, folderId);
                 } else if (match == MESSAGES_THREAD) {
                     String threadId = segments.get(3);
-                    cursor = getThread(accountUuid, dbProjection, threadId, sortOrder);
+                    cursor = getThread(accountUuid, dbProjection, threadId, sortOrder, limit);
                 } else {
                     throw new RuntimeException("Not implemented");
                 }
@@ -253,6 +269,49 @@ public class EmailProvider extends ContentProvider {
         return cursor;
     }
 
+    private static String getLimit(Uri uri) {
+        String limit = uri.getQueryParameter(QUERY_PARAMETER_LIMIT);
+        if (limit == null) {
+            return null;
+        }
+
+        try {
+            if (Integer.parseInt(limit) < 1) {
+                throw new IllegalArgumentException("Invalid limit: " + limit);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + limit, e);
+        }
+
+        return limit;
+    }
+
+    private static String getFolderId(Uri uri, String selection) {
+        String folderId = uri.getQueryParameter(QUERY_PARAMETER_FOLDER_ID);
+        if (folderId == null) {
+            return null;
+        }
+
+        if (!TextUtils.isEmpty(selection)) {
+            throw new IllegalArgumentException("Selection can't be combined with " + QUERY_PARAMETER_FOLDER_ID);
+        }
+
+        try {
+            Long.parseLong(folderId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid folder ID: " + folderId, e);
+        }
+
+        return folderId;
+    }
+
+    private static void appendLimit(StringBuilder query, String limit) {
+        if (limit != null) {
+            query.append(" LIMIT ");
+            query.append(limit);
+        }
+    }
+
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
         throw new RuntimeException("not implemented yet");
@@ -269,7 +328,7 @@ public class EmailProvider extends ContentProvider {
     }
 
     protected Cursor getMessages(String accountUuid, final String[] projection, final String selection,
-            final String[] selectionArgs, final String sortOrder) {
+            final String[] selectionArgs, final String sortOrder, final String limit) {
 
         Account account = getAccount(accountUuid);
         LockableDatabase database = getDatabase(account);
@@ -317,10 +376,12 @@ public class EmailProvider extends ContentProvider {
                         query.append(SqlQueryBuilder.addPrefixToSelection(FIXUP_MESSAGES_COLUMNS, "m.", where));
                         query.append(" ORDER BY ");
                         query.append(SqlQueryBuilder.addPrefixToSelection(FIXUP_MESSAGES_COLUMNS, "m.", sortOrder));
+                        appendLimit(query, limit);
 
                         cursor = db.rawQuery(query.toString(), selectionArgs);
                     } else {
-                        cursor = db.query(MESSAGES_TABLE, projection, where, selectionArgs, null, null, sortOrder);
+                        cursor = db.query(MESSAGES_TABLE, projection, where, selectionArgs, null, null, sortOrder,
+                                limit);
                     }
 
                     return cursor;
@@ -334,7 +395,7 @@ public class EmailProvider extends ContentProvider {
     }
 
     protected Cursor getThreadedMessages(String accountUuid, final String[] projection, final String selection,
-            final String[] selectionArgs, final String sortOrder) {
+            final String[] selectionArgs, final String sortOrder, final String limit, final String folderId) {
 
         Account account = getAccount(accountUuid);
         LockableDatabase database = getDatabase(account);
@@ -345,6 +406,10 @@ public class EmailProvider extends ContentProvider {
                 public Cursor doDbWork(SQLiteDatabase db) throws WrappedException,
                         UnavailableStorageException {
 
+                    if (folderId != null) {
+                        return getThreadSummaries(db, projection, folderId, sortOrder, limit);
+                    }
+
                     StringBuilder query = new StringBuilder();
 
                     query.append("SELECT ");
@@ -397,6 +462,7 @@ public class EmailProvider extends ContentProvider {
                         query.append(SqlQueryBuilder.addPrefixToSelection(
                                 FIXUP_AGGREGATED_MESSAGES_COLUMNS, "a.", sortOrder));
                     }
+                    appendLimit(query, limit);
 
                     return db.rawQuery(query.toString(), selectionArgs);
                 }
@@ -408,6 +474,69 @@ public class EmailProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Reads the threaded message list of a single folder from the {@code thread_summary} table.
+     *
+     * <p>
+     * The table contains one row per thread and folder. It is kept up to date by database triggers, so there's no
+     * need to aggregate all messages of the folder on every query.
+     * </p>
+     */
+    private Cursor getThreadSummaries(SQLiteDatabase db, String[] projection, String folderId, String sortOrder,
+            String limit) {
+        StringBuilder query = new StringBuilder();
+
+        query.append("SELECT ");
+        boolean first = true;
+        for (String columnName : projection) {
+            if (!first) {
+                query.append(",");
+            } else {
+                first = false;
+            }
+
+            if (MessageColumns.ID.equals(columnName)) {
+                query.append("m." + MessageColumns.ID + " AS " + MessageColumns.ID);
+            } else if (SpecialColumns.THREAD_COUNT.equals(columnName)) {
+                query.append("s.message_count AS " + SpecialColumns.THREAD_COUNT);
+            } else if (ThreadColumns.ROOT.equals(columnName) || THREAD_AGGREGATION_FUNCS.containsKey(columnName)) {
+                query.append("s.");
+                query.append(columnName);
+                query.append(" AS ");
+                query.append(columnName);
+            } else if (Utility.arrayContains(FOLDERS_COLUMNS, columnName)) {
+                query.append("f.");
+                query.append(columnName);
+                query.append(" AS ");
+                query.append(columnName);
+            } else {
+                query.append("m.");
+                query.append(columnName);
+                query.append(" AS ");
+                query.append(columnName);
+            }
+        }
+
+        query.append(" FROM " + THREAD_SUMMARY_TABLE + " s " +
+                "JOIN " + MESSAGES_TABLE + " m ON (m." + MessageColumns.ID + " = s.newest_message_id) ");
+
+        if (Utility.arrayContainsAny(projection, (Object[]) FOLDERS_COLUMNS)) {
+            query.append("JOIN " + FOLDERS_TABLE + " f " +
+                    "ON (m." + MessageColumns.FOLDER_ID + " = f." + FolderColumns.ID + ") ");
+        }
+
+        query.append("WHERE s." + MessageColumns.FOLDER_ID + " = ?");
+
+        if (!TextUtils.isEmpty(sortOrder)) {
+            String order = SqlQueryBuilder.addPrefixToSelection(FIXUP_AGGREGATED_MESSAGES_COLUMNS, "s.", sortOrder);
+            query.append(" ORDER BY ");
+            query.append(SqlQueryBuilder.addPrefixToSelection(FIXUP_MESSAGES_COLUMNS, "m.", order));
+        }
+        appendLimit(query, limit);
+
+        return db.rawQuery(query.toString(), new String[] { folderId });
+    }
+
     private void createThreadedSubQuery(String[] projection, String selection, StringBuilder query) {
         query.append("SELECT t." + ThreadColumns.ROOT + " AS thread_root");
         for (String columnName : projection) {
@@ -449,7 +578,7 @@ public class EmailProvider extends ContentProvider {
 
         if (!TextUtils.isEmpty(selection)) {
             query.append(" AND (");
-            query.append(selection);
+            query.append(SqlQueryBuilder.addPrefixToSelection(FIXUP_MESSAGES_COLUMNS, "m.", selection));
             query.append(")");
         }
 
@@ -461,7 +590,7 @@ public class EmailProvider extends ContentProvider {
     }
 
     protected Cursor getThread(String accountUuid, final String[] projection, final String threadId,
-            final String sortOrder) {
+            final String sortOrder, final String limit) {
 
         Account account = getAccount(accountUuid);
         LockableDatabase database = getDatabase(account);
@@ -503,6 +632,7 @@ public class EmailProvider extends ContentProvider {
 
                     query.append(" ORDER BY ");
                     query.append(SqlQueryBuilder.addPrefixToSelection(FIXUP_MESSAGES_COLUMNS, "m.", sortOrder));
+                    appendLimit(query, limit);
 
                     return db.rawQuery(query.toString(), new String[] { threadId });
                 }
@@ -70,6 +70,15 @@ public class SqlQueryBuilder {
                     selectionArgs.add(fulltextQueryString);
                     break;
                 }
+                case SUBJECT:
+                case SENDER: {
+                    if (condition.attribute == Attribute.CONTAINS) {
+                        appendFulltextColumnCondition(condition, query, selectionArgs);
+                    } else {
+                        appendCondition(condition, query, selectionArgs);
+                    }
+                    break;
+                }
                 default: {
                     appendCondition(condition, query, selectionArgs);
                 }
@@ -85,6 +94,49 @@ public class SqlQueryBuilder {
         }
     }
 
+    /**
+     * Uses the full-text index instead of a {@code LIKE} expression that would require a full table scan.
+     * <p>
+     * Note: This matches words starting with any of the words in the search string, not arbitrary substrings.
+     * <p>
+     * Like the conditions created by {@link #appendCondition(SearchCondition, StringBuilder, List)} this refers to the
+     * unqualified {@code id} column. Queries joining other tables have to use
+     * {@link #addPrefixToSelection(String[], String, String)} to avoid an "ambiguous column name" error.
+     */
+    private static void appendFulltextColumnCondition(SearchCondition condition, StringBuilder query,
+            List<String> selectionArgs) {
+        String fulltextColumnName = condition.field == SearchField.SUBJECT ? "subject" : "sender";
+        String matchExpression = buildPrefixMatchExpression(condition.value);
+        if (matchExpression.isEmpty()) {
+            // Nothing to search for; same result as LIKE '%%'
+            query.append("1");
+            return;
+        }
+
+        query.append("id IN (SELECT docid FROM messages_fulltext WHERE ");
+        query.append(fulltextColumnName);
+        query.append(" MATCH ?)");
+        selectionArgs.add(matchExpression);
+    }
+
+    static String buildPrefixMatchExpression(String value) {
+        StringBuilder expression = new StringBuilder();
+        // Double quotes and asterisks would change the meaning of the full-text query. Every word is wrapped in
+        // double quotes, so everything else (e.g. '-' or operator words like OR) is matched literally.
+        for (String word : value.replaceAll("[\"*]", " ").trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append('"').append(word).append("*\"");
+        }
+
+        return expression.toString();
+    }
+
     private static void appendCondition(SearchCondition condition, StringBuilder query,
             List<String> selectionArgs) {
         query.append(getColumnName(condition));
@@ -0,0 +1,160 @@
+package com.fsck.k9.controller;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.fsck.k9.RobolectricTest;
+import com.fsck.k9.controller.AccountCommandExecutor.Command;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class AccountCommandExecutorTest extends RobolectricTest {
+    private static final String ACCOUNT_UUID_1 = "account1";
+    private static final String ACCOUNT_UUID_2 = "account2";
+
+    private final AccountCommandExecutor executor = new AccountCommandExecutor(2, command -> command.runnable.run());
+
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown(1000L);
+    }
+
+    @Test
+    public void execute_withCommandsForSameAccount_shouldRunInSubmissionOrder() throws Exception {
+        List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(4);
+
+        executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> {
+            await(blockLatch);
+            executionOrder.add(0);
+            doneLatch.countDown();
+        }));
+        for (int i = 1; i < 4; i++) {
+            int number = i;
+            executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> {
+                executionOrder.add(number);
+                doneLatch.countDown();
+            }));
+        }
+        blockLatch.countDown();
+
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3), executionOrder);
+    }
+
+    @Test
+    public void execute_withForegroundCommand_shouldRunBeforeQueuedBackgroundCommands() throws Exception {
+        List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(3);
+
+        executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> {
+            await(blockLatch);
+            executionOrder.add("first");
+            doneLatch.countDown();
+        }));
+        executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> {
+            executionOrder.add("background");
+            doneLatch.countDown();
+        }));
+        executor.execute(createCommand(ACCOUNT_UUID_1, true, () -> {
+            executionOrder.add("foreground");
+            doneLatch.countDown();
+        }));
+        blockLatch.countDown();
+
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "foreground", "background"), executionOrder);
+    }
+
+    @Test
+    public void execute_withBlockedAccount_shouldStillRunCommandsOfOtherAccount() throws Exception {
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch otherAccountLatch = new CountDownLatch(1);
+
+        executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> await(blockLatch)));
+        executor.execute(createCommand(ACCOUNT_UUID_2, false, otherAccountLatch::countDown));
+
+        try {
+            assertTrue(otherAccountLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            blockLatch.countDown();
+        }
+    }
+
+    @Test
+    public void execute_withParallelCommandsForSameAccount_shouldRunThemAtTheSameTime() throws Exception {
+        CountDownLatch bothRunningLatch = new CountDownLatch(2);
+
+        executor.execute(createParallelCommand(ACCOUNT_UUID_1, 2, () -> {
+            bothRunningLatch.countDown();
+            await(bothRunningLatch);
+        }));
+        executor.execute(createParallelCommand(ACCOUNT_UUID_1, 2, () -> {
+            bothRunningLatch.countDown();
+            await(bothRunningLatch);
+        }));
+
+        assertTrue(bothRunningLatch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void execute_withExclusiveCommandAfterParallelCommands_shouldWaitForParallelCommandsToFinish()
+            throws Exception {
+        List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(3);
+
+        executor.execute(createParallelCommand(ACCOUNT_UUID_1, 2, () -> {
+            await(blockLatch);
+            executionOrder.add("parallel");
+            doneLatch.countDown();
+        }));
+        executor.execute(createCommand(ACCOUNT_UUID_1, false, () -> {
+            executionOrder.add("exclusive");
+            doneLatch.countDown();
+        }));
+        executor.execute(createParallelCommand(ACCOUNT_UUID_1, 2, () -> {
+            executionOrder.add("parallel");
+            doneLatch.countDown();
+        }));
+        blockLatch.countDown();
+
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("parallel", "exclusive", "parallel"), executionOrder);
+    }
+
+    private Command createCommand(String accountUuid, boolean isForeground, Runnable runnable) {
+        Command command = new Command();
+        command.accountUuid = accountUuid;
+        command.description = "test";
+        command.isForegroundPriority = isForeground;
+        command.runnable = runnable;
+        return command;
+    }
+
+    private Command createParallelCommand(String accountUuid, int maxParallelism, Runnable runnable) {
+        Command command = createCommand(accountUuid, false, runnable);
+        command.maxParallelism = maxParallelism;
+        return command;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.fsck.k9.controller;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -14,6 +15,8 @@ import com.fsck.k9.K9RobolectricTest;
 import com.fsck.k9.Preferences;
 import com.fsck.k9.backend.BackendManager;
 import com.fsck.k9.backend.api.Backend;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
 import com.fsck.k9.mail.AuthenticationFailedException;
 import com.fsck.k9.mail.CertificateValidationException;
 import com.fsck.k9.mail.Flag;
@@ -23,12 +26,14 @@ import com.fsck.k9.mailstore.LocalFolder;
 import com.fsck.k9.mailstore.LocalMessage;
 import com.fsck.k9.mailstore.LocalStore;
 import com.fsck.k9.mailstore.LocalStoreProvider;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import com.fsck.k9.mailstore.MessageStoreManager;
 import com.fsck.k9.mailstore.OutboxState;
 import com.fsck.k9.mailstore.OutboxStateRepository;
 import com.fsck.k9.mailstore.SaveMessageDataCreator;
 import com.fsck.k9.mailstore.SendState;
 import com.fsck.k9.mailstore.UnavailableStorageException;
+import com.fsck.k9.message.html.HtmlRenderCache;
 import com.fsck.k9.notification.NotificationController;
 import com.fsck.k9.notification.NotificationStrategy;
 import com.fsck.k9.search.LocalSearch;
@@ -48,6 +53,7 @@ import org.mockito.stubbing.Answer;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.shadows.ShadowLog;
 
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Matchers.eq;
@@ -81,6 +87,10 @@ public class MessagingControllerTest extends K9RobolectricTest {
     @Mock
     private SaveMessageDataCreator saveMessageDataCreator;
     @Mock
+    private HtmlRenderCache htmlRenderCache;
+    @Mock
+    private MessageCryptoResultCache cryptoResultCache;
+    @Mock
     private SimpleMessagingListener listener;
     @Mock
     private LocalSearch search;
@@ -136,7 +146,8 @@ public class MessagingControllerTest extends K9RobolectricTest {
 
         controller = new MessagingController(appContext, notificationController, notificationStrategy,
                 localStoreProvider, unreadMessageCountProvider, backendManager, preferences, messageStoreManager,
-                saveMessageDataCreator, Collections.<ControllerExtension>emptyList());
+                saveMessageDataCreator, htmlRenderCache, cryptoResultCache,
+                Collections.<ControllerExtension>emptyList());
 
         configureAccount();
         configureBackendManager();
@@ -164,6 +175,34 @@ public class MessagingControllerTest extends K9RobolectricTest {
         verify(localFolder).clearAllMessages();
     }
 
+    @Test
+    public void clearFolderSynchronous_shouldClearHtmlRenderCache() throws MessagingException {
+        controller.clearFolderSynchronous(account, FOLDER_ID);
+
+        verify(htmlRenderCache).clear();
+    }
+
+    @Test
+    public void deleteAccount_shouldClearHtmlRenderCache() {
+        controller.deleteAccount(account);
+
+        verify(htmlRenderCache).clear();
+    }
+
+    @Test
+    public void clearFolderSynchronous_shouldInvalidateCryptoResultsOfFolder() throws MessagingException {
+        controller.clearFolderSynchronous(account, FOLDER_ID);
+
+        verify(cryptoResultCache).invalidateFolder(account.getUuid(), FOLDER_ID);
+    }
+
+    @Test
+    public void deleteAccount_shouldInvalidateCryptoResultsOfAccount() {
+        controller.deleteAccount(account);
+
+        verify(cryptoResultCache).invalidateAccount(account.getUuid());
+    }
+
     @Test(expected = UnavailableAccountException.class)
     public void clearFolderSynchronous_whenStorageUnavailable_shouldThrowUnavailableAccountException() throws MessagingException {
         doThrow(new UnavailableStorageException("Test")).when(localFolder).open();
@@ -171,6 +210,47 @@ public class MessagingControllerTest extends K9RobolectricTest {
         controller.clearFolderSynchronous(account, FOLDER_ID);
     }
 
+    @Test
+    public void processPendingCommandsSynchronous_withMergedSetFlagCommandFailingForOneMessage_shouldApplyOthers()
+            throws MessagingException {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("2")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("3")));
+        when(localStore.getPendingCommands()).thenReturn(commands);
+        when(localStore.getFolderServerId(FOLDER_ID)).thenReturn(FOLDER_NAME);
+        MessagingException permanentFailure = new MessagingException("Rejected", true);
+        doThrow(permanentFailure).when(backend).setFlag(FOLDER_NAME, Arrays.asList("1", "2", "3"), Flag.SEEN, true);
+        doThrow(permanentFailure).when(backend).setFlag(FOLDER_NAME, Collections.singletonList("2"), Flag.SEEN, true);
+
+        controller.processPendingCommandsSynchronous(account);
+
+        verify(backend).setFlag(FOLDER_NAME, Collections.singletonList("1"), Flag.SEEN, true);
+        verify(backend).setFlag(FOLDER_NAME, Collections.singletonList("3"), Flag.SEEN, true);
+        verify(localStore).removePendingCommands(commands);
+    }
+
+    @Test
+    public void processPendingCommandsSynchronous_withMergedSetFlagCommandFailingTemporarily_shouldKeepCommands()
+            throws MessagingException {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("2")));
+        when(localStore.getPendingCommands()).thenReturn(commands);
+        when(localStore.getFolderServerId(FOLDER_ID)).thenReturn(FOLDER_NAME);
+        doThrow(new MessagingException("Connection lost"))
+                .when(backend).setFlag(FOLDER_NAME, Arrays.asList("1", "2"), Flag.SEEN, true);
+
+        try {
+            controller.processPendingCommandsSynchronous(account);
+            fail("Expected exception");
+        } catch (MessagingException expected) {
+        }
+
+        verify(backend, never()).setFlag(FOLDER_NAME, Collections.singletonList("1"), Flag.SEEN, true);
+        verify(localStore, never()).removePendingCommands(ArgumentMatchers.<PendingCommand>anyList());
+    }
+
     @Test
     public void refreshRemoteSynchronous_shouldCallBackend() throws MessagingException {
         controller.refreshFolderListSynchronous(account);
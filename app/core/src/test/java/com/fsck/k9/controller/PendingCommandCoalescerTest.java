@@ -0,0 +1,160 @@
+package com.fsck.k9.controller;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingDelete;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveOrCopy;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.controller.PendingCommandCoalescer.CoalescedCommand;
+import com.fsck.k9.mail.Flag;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class PendingCommandCoalescerTest {
+    private static final long FOLDER_ID = 1;
+    private static final long OTHER_FOLDER_ID = 2;
+
+
+    @Test
+    public void coalesce_withSingleCommand_shouldReturnCommandUnchanged() {
+        PendingCommand command = PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(Collections.singletonList(command));
+
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).commands.size());
+        assertSame(command, result.get(0).commands.get(0));
+        assertEquals(Collections.singletonList(command), result.get(0).originalCommands);
+    }
+
+    @Test
+    public void coalesce_withSetFlagCommandsForSameFolderAndFlag_shouldMergeUids() {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Arrays.asList("2", "3")));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(commands);
+
+        assertEquals(1, result.size());
+        assertEquals(commands, result.get(0).originalCommands);
+        assertEquals(1, result.get(0).commands.size());
+        PendingSetFlag mergedCommand = (PendingSetFlag) result.get(0).commands.get(0);
+        assertEquals(FOLDER_ID, mergedCommand.folderId);
+        assertEquals(Flag.SEEN, mergedCommand.flag);
+        assertTrue(mergedCommand.newState);
+        assertEquals(Arrays.asList("1", "2", "3"), mergedCommand.uids);
+    }
+
+    @Test
+    public void coalesce_withContradictingSetFlagCommands_shouldKeepLastState() {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.FLAGGED, Arrays.asList("1", "2")),
+                PendingSetFlag.create(FOLDER_ID, false, Flag.FLAGGED, Collections.singletonList("1")));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(commands);
+
+        assertEquals(1, result.size());
+        List<PendingCommand> mergedCommands = result.get(0).commands;
+        assertEquals(2, mergedCommands.size());
+        PendingSetFlag setCommand = (PendingSetFlag) mergedCommands.get(0);
+        assertTrue(setCommand.newState);
+        assertEquals(Collections.singletonList("2"), setCommand.uids);
+        PendingSetFlag clearCommand = (PendingSetFlag) mergedCommands.get(1);
+        assertFalse(clearCommand.newState);
+        assertEquals(Collections.singletonList("1"), clearCommand.uids);
+    }
+
+    @Test
+    public void coalesce_withSetFlagCommandsForDifferentFolders_shouldCreateOneCommandPerFolder() {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingSetFlag.create(OTHER_FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("2")));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(commands);
+
+        assertEquals(1, result.size());
+        List<PendingCommand> mergedCommands = result.get(0).commands;
+        assertEquals(2, mergedCommands.size());
+        assertEquals(FOLDER_ID, ((PendingSetFlag) mergedCommands.get(0)).folderId);
+        assertEquals(Arrays.asList("1", "2"), ((PendingSetFlag) mergedCommands.get(0)).uids);
+        assertEquals(OTHER_FOLDER_ID, ((PendingSetFlag) mergedCommands.get(1)).folderId);
+    }
+
+    @Test
+    public void coalesce_withMoveCommandsForSameFolders_shouldMergeUidMaps() {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingMoveOrCopy.create(FOLDER_ID, OTHER_FOLDER_ID, false,
+                        Collections.singletonMap("1", "K9LOCAL:1")),
+                PendingMoveOrCopy.create(FOLDER_ID, OTHER_FOLDER_ID, false,
+                        Collections.singletonMap("2", "K9LOCAL:2")));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(commands);
+
+        assertEquals(1, result.size());
+        PendingMoveOrCopy mergedCommand = (PendingMoveOrCopy) result.get(0).commands.get(0);
+        assertEquals(Arrays.asList("1", "2"), Arrays.asList(mergedCommand.newUidMap.keySet().toArray()));
+        assertEquals("K9LOCAL:2", mergedCommand.newUidMap.get("2"));
+    }
+
+    @Test
+    public void coalesce_withCommandInBetween_shouldNotMergeAcrossIt() {
+        List<PendingCommand> commands = Arrays.<PendingCommand>asList(
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("1")),
+                PendingDelete.create(FOLDER_ID, Collections.singletonList("1")),
+                PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Collections.singletonList("2")));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(commands);
+
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void split_withSetFlagCommand_shouldCreateOneCommandPerMessage() {
+        PendingCommand command = PendingSetFlag.create(FOLDER_ID, true, Flag.SEEN, Arrays.asList("1", "2"));
+
+        List<PendingCommand> result = PendingCommandCoalescer.split(command);
+
+        assertEquals(2, result.size());
+        assertEquals(Collections.singletonList("1"), ((PendingSetFlag) result.get(0)).uids);
+        assertEquals(Collections.singletonList("2"), ((PendingSetFlag) result.get(1)).uids);
+        assertTrue(((PendingSetFlag) result.get(1)).newState);
+        assertEquals(Flag.SEEN, ((PendingSetFlag) result.get(1)).flag);
+    }
+
+    @Test
+    public void split_withMoveCommand_shouldCreateOneCommandPerMessage() {
+        Map<String, String> uidMap = new LinkedHashMap<>();
+        uidMap.put("1", "K9LOCAL:1");
+        uidMap.put("2", "K9LOCAL:2");
+        PendingCommand command = PendingMoveOrCopy.create(FOLDER_ID, OTHER_FOLDER_ID, false, uidMap);
+
+        List<PendingCommand> result = PendingCommandCoalescer.split(command);
+
+        assertEquals(2, result.size());
+        PendingMoveOrCopy secondCommand = (PendingMoveOrCopy) result.get(1);
+        assertEquals(Collections.singletonMap("2", "K9LOCAL:2"), secondCommand.newUidMap);
+        assertEquals(FOLDER_ID, secondCommand.srcFolderId);
+        assertEquals(OTHER_FOLDER_ID, secondCommand.destFolderId);
+    }
+
+    @Test
+    public void split_withOtherCommand_shouldReturnCommandUnchanged() {
+        PendingCommand command = PendingDelete.create(FOLDER_ID, Arrays.asList("1", "2"));
+
+        List<PendingCommand> result = PendingCommandCoalescer.split(command);
+
+        assertEquals(Collections.singletonList(command), result);
+    }
+}
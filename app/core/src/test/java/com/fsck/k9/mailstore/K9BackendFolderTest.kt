@@ -78,6 +78,41 @@ class K9BackendFolderTest : K9RobolectricTest() {
         assertEquals(flags, messageFlags)
     }
 
+    @Test
+    fun saveMessages_shouldSaveAllMessages() {
+        val messages = listOf(
+            createMessage("uid1", setOf(Flag.SEEN)),
+            createMessage("uid2", setOf(Flag.FLAGGED))
+        )
+
+        backendFolder.saveMessages(messages, MessageDownloadState.FULL)
+
+        assertEquals(setOf("uid1", "uid2"), backendFolder.areMessagesPresent(listOf("uid1", "uid2", "uid3")))
+        assertEquals(
+            mapOf(
+                "uid1" to setOf(Flag.SEEN, Flag.X_DOWNLOADED_FULL),
+                "uid2" to setOf(Flag.FLAGGED, Flag.X_DOWNLOADED_FULL)
+            ),
+            backendFolder.getMessageFlags(listOf("uid1", "uid2", "uid3"))
+        )
+    }
+
+    @Test
+    fun setMessageFlags() {
+        createMessageInBackendFolder("uid1", setOf(Flag.SEEN))
+        createMessageInBackendFolder("uid2")
+
+        backendFolder.setMessageFlags(
+            mapOf(
+                "uid1" to mapOf(Flag.SEEN to false, Flag.DRAFT to true),
+                "uid2" to mapOf(Flag.FLAGGED to true)
+            )
+        )
+
+        assertEquals(setOf(Flag.DRAFT, Flag.X_DOWNLOADED_FULL), backendFolder.getMessageFlags("uid1"))
+        assertEquals(setOf(Flag.FLAGGED, Flag.X_DOWNLOADED_FULL), backendFolder.getMessageFlags("uid2"))
+    }
+
     @Test
     fun getLastUid() {
         createMessageInBackendFolder("200")
@@ -0,0 +1,164 @@
+package com.fsck.k9.mailstore;
+
+
+import com.fsck.k9.RobolectricTest;
+import com.fsck.k9.controller.MessageReference;
+import com.fsck.k9.mail.BodyPart;
+import com.fsck.k9.mail.Multipart;
+import com.fsck.k9.mail.Part;
+import com.fsck.k9.mail.internet.MimeBodyPart;
+import com.fsck.k9.mail.internet.MimeMultipart;
+import com.fsck.k9.mailstore.CryptoResultAnnotation.CryptoError;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+public class MessageCryptoResultCacheTest extends RobolectricTest {
+    private static final MessageReference MESSAGE_REFERENCE = new MessageReference("account", 1, "uid", null);
+    private static final String OPENPGP_PROVIDER = "org.example.provider";
+
+
+    private final MessageCryptoResultCache cache = new MessageCryptoResultCache();
+
+
+    @Test
+    public void get_withPreviouslyCachedResult_shouldMapAnnotationToPartOfNewMessageInstance() throws Exception {
+        Part message = createMessageWithTwoParts();
+        MimeBodyPart replacementPart = new MimeBodyPart();
+        CryptoResultAnnotation annotation = createSuccessAnnotation(replacementPart);
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        annotations.put(getBodyPart(message, 1), annotation);
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, annotations);
+
+        Part reloadedMessage = createMessageWithTwoParts();
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, reloadedMessage);
+
+        assertNotNull(result);
+        assertSame(annotation, result.get(getBodyPart(reloadedMessage, 1)));
+        assertSame(replacementPart, result.get(getBodyPart(reloadedMessage, 1)).getReplacementData());
+    }
+
+    @Test
+    public void get_withPartInsideDecryptedData_shouldReturnSamePart() throws Exception {
+        Part message = createMessageWithTwoParts();
+        MimeBodyPart decryptedPart = new MimeBodyPart();
+        CryptoResultAnnotation annotation = createSuccessAnnotation(null);
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        annotations.put(decryptedPart, annotation);
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, annotations);
+
+        Part reloadedMessage = createMessageWithTwoParts();
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, reloadedMessage);
+
+        assertNotNull(result);
+        assertSame(annotation, result.get(decryptedPart));
+    }
+
+    @Test
+    public void get_withDifferentProcessSignedOnlyValue_shouldReturnNull() throws Exception {
+        Part message = createMessageWithTwoParts();
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, createAnnotationsForRootPart(message));
+
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, true, message);
+
+        assertNull(result);
+    }
+
+    @Test
+    public void get_withDifferentOpenPgpProvider_shouldReturnNull() throws Exception {
+        Part message = createMessageWithTwoParts();
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, createAnnotationsForRootPart(message));
+
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, "org.example.other", false, message);
+
+        assertNull(result);
+    }
+
+    @Test
+    public void get_withChangedMessageStructure_shouldReturnNull() throws Exception {
+        Part message = createMessageWithTwoParts();
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        annotations.put(getBodyPart(message, 1), createSuccessAnnotation(null));
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, annotations);
+
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, new MimeBodyPart());
+
+        assertNull(result);
+    }
+
+    @Test
+    public void put_withErrorAnnotation_shouldNotCacheResult() throws Exception {
+        Part message = createMessageWithTwoParts();
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        annotations.put(message, CryptoResultAnnotation.createErrorAnnotation(CryptoError.OPENPGP_UI_CANCELED, null));
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, annotations);
+
+        MessageCryptoAnnotations result = cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message);
+
+        assertNull(result);
+    }
+
+    @Test
+    public void invalidate_shouldRemoveCachedResults() throws Exception {
+        Part message = createMessageWithTwoParts();
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, createAnnotationsForRootPart(message));
+        cache.put(MESSAGE_REFERENCE, "org.example.other", true, message, createAnnotationsForRootPart(message));
+
+        cache.invalidate(new MessageReference("account", 1, "uid", null));
+
+        assertNull(cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message));
+        assertNull(cache.get(MESSAGE_REFERENCE, "org.example.other", true, message));
+    }
+
+    @Test
+    public void invalidateFolder_shouldOnlyRemoveCachedResultsOfMessagesInFolder() throws Exception {
+        MessageReference otherFolderMessageReference = new MessageReference("account", 2, "uid", null);
+        Part message = createMessageWithTwoParts();
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, createAnnotationsForRootPart(message));
+        cache.put(otherFolderMessageReference, OPENPGP_PROVIDER, false, message,
+                createAnnotationsForRootPart(message));
+
+        cache.invalidateFolder("account", 1);
+
+        assertNull(cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message));
+        assertNotNull(cache.get(otherFolderMessageReference, OPENPGP_PROVIDER, false, message));
+    }
+
+    @Test
+    public void invalidateAccount_shouldOnlyRemoveCachedResultsOfMessagesInAccount() throws Exception {
+        MessageReference otherAccountMessageReference = new MessageReference("other", 1, "uid", null);
+        Part message = createMessageWithTwoParts();
+        cache.put(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message, createAnnotationsForRootPart(message));
+        cache.put(otherAccountMessageReference, OPENPGP_PROVIDER, false, message,
+                createAnnotationsForRootPart(message));
+
+        cache.invalidateAccount("account");
+
+        assertNull(cache.get(MESSAGE_REFERENCE, OPENPGP_PROVIDER, false, message));
+        assertNotNull(cache.get(otherAccountMessageReference, OPENPGP_PROVIDER, false, message));
+    }
+
+    private MessageCryptoAnnotations createAnnotationsForRootPart(Part message) {
+        MessageCryptoAnnotations annotations = new MessageCryptoAnnotations();
+        annotations.put(message, createSuccessAnnotation(null));
+        return annotations;
+    }
+
+    private CryptoResultAnnotation createSuccessAnnotation(MimeBodyPart replacementPart) {
+        return CryptoResultAnnotation.createOpenPgpResultAnnotation(null, null, null, null, replacementPart, false);
+    }
+
+    private Part createMessageWithTwoParts() throws Exception {
+        Multipart multipart = MimeMultipart.newInstance();
+        multipart.addBodyPart(new MimeBodyPart());
+        multipart.addBodyPart(new MimeBodyPart());
+        return new MimeBodyPart(multipart);
+    }
+
+    private BodyPart getBodyPart(Part message, int index) {
+        return ((Multipart) message.getBody()).getBodyPart(index);
+    }
+}
@@ -48,10 +48,15 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -95,14 +100,14 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
                 new MessageViewInfoExtractor(null, htmlProcessor,
                         new TestCoreResourceProvider());
         String value = "--sanitized html--";
-        when(htmlProcessor.processForDisplay(anyString())).thenReturn(value);
+        when(htmlProcessor.processForDisplay(anyString(), anyBoolean())).thenReturn(value);
 
         // Extract text
         List<Part> outputNonViewableParts = new ArrayList<>();
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, outputNonViewableParts);
         ViewableExtractedText viewableExtractedText =
-                messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+                messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         assertSame(value, viewableExtractedText.html);
     }
@@ -121,7 +126,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         List<Part> outputNonViewableParts = new ArrayList<>();
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, outputNonViewableParts);
-        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         String expectedHtml =
                 "<pre dir=\"auto\" class=\"k9mail\">" +
@@ -146,7 +151,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         List<Part> outputNonViewableParts = new ArrayList<>();
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, outputNonViewableParts);
-        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         String expectedText = "K-9 Mail rocks :> flowed line\r\n" +
                 "not flowed line";
@@ -175,7 +180,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, null);
         assertEquals(outputViewableParts.size(), 1);
-        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         assertEquals(BODY_TEXT, container.text);
         assertEquals(bodyText, container.html);
@@ -205,7 +210,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         List<Part> outputNonViewableParts = new ArrayList<>();
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, outputNonViewableParts);
-        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         String expectedText =
                 bodyText1 + "\r\n\r\n" +
@@ -264,7 +269,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         List<Part> outputNonViewableParts = new ArrayList<>();
         ArrayList<Viewable> outputViewableParts = new ArrayList<>();
         MessageExtractor.findViewablesAndAttachments(message, outputViewableParts, outputNonViewableParts);
-        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+        ViewableExtractedText container = messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
 
         String expectedText =
                 BODY_TEXT +
@@ -366,7 +371,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         assertEquals("subject of second message", ((MessageHeader) outputViewableParts.get(2)).getMessage().getSubject());
 
         ViewableExtractedText firstMessageExtractedText =
-                messageViewInfoExtractor.extractTextFromViewables(outputViewableParts);
+                messageViewInfoExtractor.extractTextFromViewables(outputViewableParts, true);
         assertEquals(expectedExtractedText, firstMessageExtractedText.text);
         assertEquals(expectedHtmlText, firstMessageExtractedText.html);
     }
@@ -418,6 +423,27 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
         assertTrue(messageViewInfo.extraAttachments.isEmpty());
     }
 
+    @Test
+    public void extractMessage_withCryptoAnnotation_shouldNotCacheHtml() throws Exception {
+        Message message = messageFromBody(SUBJECT, multipart("signed", "protocol=\"application/pgp-signature\"",
+                bodypart("text/plain", "text"),
+                bodypart("application/pgp-signature")
+        ));
+        CryptoResultAnnotation annotation = CryptoResultAnnotation.createOpenPgpResultAnnotation(
+                null, null, null, null, null, false);
+        MessageCryptoAnnotations messageCryptoAnnotations = createAnnotations(message, annotation);
+        HtmlProcessor htmlProcessor = createFakeHtmlProcessor();
+        MessageViewInfoExtractor messageViewInfoExtractor = new MessageViewInfoExtractor(attachmentInfoExtractor,
+                htmlProcessor, new TestCoreResourceProvider());
+
+
+        messageViewInfoExtractor.extractMessageForView(message, messageCryptoAnnotations, false);
+
+
+        verify(htmlProcessor, atLeastOnce()).processForDisplay(anyString(), eq(false));
+        verify(htmlProcessor, never()).processForDisplay(anyString(), eq(true));
+    }
+
     @Test
     public void extractMessage_withCryptoAnnotation_andReplacementPart() throws Exception {
         Message message = messageFromBody(multipart("signed", "protocol=\"application/pgp-signature\"",
@@ -623,7 +649,7 @@ public class MessageViewInfoExtractorTest extends K9RobolectricTest {
     HtmlProcessor createFakeHtmlProcessor() {
         HtmlProcessor htmlProcessor = mock(HtmlProcessor.class);
 
-        when(htmlProcessor.processForDisplay(anyString())).thenAnswer(new Answer<String>() {
+        when(htmlProcessor.processForDisplay(anyString(), anyBoolean())).thenAnswer(new Answer<String>() {
             @Override
             public String answer(InvocationOnMock invocation) throws Throwable {
                 return (String) invocation.getArguments()[0];
@@ -0,0 +1,102 @@
+package com.fsck.k9.message.extractors
+
+import com.google.common.truth.Truth.assertThat
+import java.io.StringReader
+import org.junit.Test
+
+class FulltextNormalizerTest {
+    @Test
+    fun normalize_withPlainText_shouldCollapseWhitespace() {
+        val text = "The quick  brown\r\n\r\nfox\tjumps "
+
+        val result = normalizeText(text)
+
+        assertThat(result).isEqualTo("The quick brown fox jumps")
+    }
+
+    @Test
+    fun normalize_withPlainText_shouldKeepMarkup() {
+        val text = "if a < b && b > c then <b>"
+
+        val result = normalizeText(text)
+
+        assertThat(result).isEqualTo(text)
+    }
+
+    @Test
+    fun normalize_withHtml_shouldStripTags() {
+        val html = "<html><body><p>The quick</p><p>brown <b>f</b>ox</p><br/>jumps</body></html>"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("The quick brown fox jumps")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldSkipScriptStyleAndTitle() {
+        val html = "<html><head><title>Title</title><style>p { color: red; }</style></head>" +
+            "<body><script>if (a<b) { alert('x'); }</script>Text</body></html>"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("Text")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldSkipComments() {
+        val html = "Before<!-- <p>comment</p> -- still comment -->After"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("BeforeAfter")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldDecodeCharacterReferences() {
+        val html = "Fish&nbsp;&amp;&#160;chips &lt;3 &#x20AC;5 &eacute;t&eacute; &unknown; AT&T"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("Fish & chips <3 €5 été &unknown; AT&T")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldIgnoreGreaterThanInQuotedAttribute() {
+        val html = "<img alt=\"a > b\" src=\"image.png\">Text"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("Text")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldKeepLessThanNotStartingTag() {
+        val html = "1 < 2"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("1 < 2")
+    }
+
+    @Test
+    fun normalize_withHtml_shouldIncludeAbsoluteLinkTargets() {
+        val html = "<a href=\"https://k9mail.app/\">Website</a> <a href='#top'>Top</a>"
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo("https://k9mail.app/ Website Top")
+    }
+
+    @Test
+    fun normalize_withHtmlLongerThanBuffer_shouldProcessAllInput() {
+        val html = "<p>word</p>".repeat(1000)
+
+        val result = normalizeHtml(html)
+
+        assertThat(result).isEqualTo(List(1000) { "word" }.joinToString(" "))
+    }
+
+    private fun normalizeText(text: String) = FulltextNormalizer.normalize(StringReader(text), false)
+
+    private fun normalizeHtml(html: String) = FulltextNormalizer.normalize(StringReader(html), true)
+}
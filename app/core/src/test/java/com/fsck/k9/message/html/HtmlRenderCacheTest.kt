@@ -0,0 +1,71 @@
+package com.fsck.k9.message.html
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class HtmlRenderCacheTest {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    @Test
+    fun get_withPreviouslyStoredEntry_shouldReturnHtml() {
+        val cache = createCache()
+        val key = cache.createKey("<style></style>", "<p>Hello</p>")
+
+        cache.put(key, "<html><p>Hello</p></html>")
+
+        assertThat(cache.get(key)).isEqualTo("<html><p>Hello</p></html>")
+    }
+
+    @Test
+    fun get_withUnknownKey_shouldReturnNull() {
+        val cache = createCache()
+
+        assertThat(cache.get(cache.createKey("", "<p>Hello</p>"))).isNull()
+    }
+
+    @Test
+    fun createKey_withDifferentHeadContents_shouldReturnDifferentKey() {
+        val cache = createCache()
+
+        val lightThemeKey = cache.createKey("<style>light</style>", "<p>Hello</p>")
+        val darkThemeKey = cache.createKey("<style>dark</style>", "<p>Hello</p>")
+
+        assertThat(lightThemeKey).isNotEqualTo(darkThemeKey)
+    }
+
+    @Test
+    fun put_exceedingMaxSize_shouldRemoveLeastRecentlyUsedEntries() {
+        val cache = createCache(maxSize = 25)
+        val firstKey = cache.createKey("", "first")
+        val secondKey = cache.createKey("", "second")
+        val thirdKey = cache.createKey("", "third")
+        cache.put(firstKey, "x".repeat(10))
+        cache.put(secondKey, "x".repeat(10))
+        temporaryFolder.root.resolve(secondKey).setLastModified(1000L)
+        temporaryFolder.root.resolve(firstKey).setLastModified(2000L)
+
+        cache.put(thirdKey, "x".repeat(10))
+
+        assertThat(cache.get(firstKey)).isNotNull()
+        assertThat(cache.get(secondKey)).isNull()
+        assertThat(cache.get(thirdKey)).isNotNull()
+    }
+
+    @Test
+    fun clear_shouldRemoveAllEntries() {
+        val cache = createCache()
+        val key = cache.createKey("", "<p>Hello</p>")
+        cache.put(key, "<html><p>Hello</p></html>")
+
+        cache.clear()
+
+        assertThat(cache.get(key)).isNull()
+    }
+
+    private fun createCache(maxSize: Long = 1024): HtmlRenderCache {
+        return HtmlRenderCache(temporaryFolder.root, maxSize)
+    }
+}
@@ -0,0 +1,62 @@
+package com.fsck.k9.search
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class SqlQueryBuilderTest {
+    @Test
+    fun `buildPrefixMatchExpression() with single word`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("meeting")
+
+        assertThat(result).isEqualTo("\"meeting*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() with multiple words separated by whitespace`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("  team\tmeeting \n notes ")
+
+        assertThat(result).isEqualTo("\"team*\" \"meeting*\" \"notes*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() should remove double quotes`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("say \"hello\"world\"")
+
+        assertThat(result).isEqualTo("\"say*\" \"hello*\" \"world*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() should remove asterisks`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("meet* no*tes *")
+
+        assertThat(result).isEqualTo("\"meet*\" \"no*\" \"tes*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() should quote words starting with minus sign`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("-spam")
+
+        assertThat(result).isEqualTo("\"-spam*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() should quote operator words`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("cats OR dogs AND NOT NEAR birds")
+
+        assertThat(result).isEqualTo("\"cats*\" \"OR*\" \"dogs*\" \"AND*\" \"NOT*\" \"NEAR*\" \"birds*\"")
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() with empty input`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression("")
+
+        assertThat(result).isEmpty()
+    }
+
+    @Test
+    fun `buildPrefixMatchExpression() with only whitespace, quotes and asterisks`() {
+        val result = SqlQueryBuilder.buildPrefixMatchExpression(" \"*\" ")
+
+        assertThat(result).isEmpty()
+    }
+}
@@ -12,7 +12,7 @@ import timber.log.Timber;
 
 
 class StoreSchemaDefinition implements SchemaDefinition {
-    static final int DB_VERSION = 79;
+    static final int DB_VERSION = 83;
 
     private final MigrationsHelper migrationsHelper;
 
@@ -98,7 +98,8 @@ class StoreSchemaDefinition implements SchemaDefinition {
                 "more_messages TEXT default \"unknown\", " +
                 "server_id TEXT, " +
                 "local_only INTEGER, " +
-                "type TEXT DEFAULT \"regular\"" +
+                "type TEXT DEFAULT \"regular\", " +
+                "message_count INTEGER DEFAULT 0" +
                 ")");
 
         db.execSQL("DROP INDEX IF EXISTS folder_server_id");
@@ -188,6 +189,9 @@ class StoreSchemaDefinition implements SchemaDefinition {
         db.execSQL("DROP INDEX IF EXISTS msg_composite");
         db.execSQL("CREATE INDEX IF NOT EXISTS msg_composite ON messages (deleted, empty,folder_id,flagged,read)");
 
+        db.execSQL("DROP INDEX IF EXISTS msg_folder_id_message_id");
+        db.execSQL("CREATE INDEX msg_folder_id_message_id ON messages (folder_id, message_id, empty)");
+
         db.execSQL("DROP INDEX IF EXISTS message_parts_root");
         db.execSQL("CREATE INDEX IF NOT EXISTS message_parts_root ON message_parts (root)");
 
@@ -215,6 +219,63 @@ class StoreSchemaDefinition implements SchemaDefinition {
                 "UPDATE threads SET root=id WHERE root IS NULL AND ROWID = NEW.ROWID; " +
                 "END");
 
+        db.execSQL("DROP TABLE IF EXISTS thread_summary");
+        db.execSQL("CREATE TABLE thread_summary (" +
+                "root INTEGER NOT NULL, " +
+                "folder_id INTEGER, " +
+                "newest_message_id INTEGER, " +
+                "message_count INTEGER, " +
+                "unread_count INTEGER, " +
+                "flagged_count INTEGER, " +
+                "date INTEGER, " +
+                "internal_date INTEGER, " +
+                "attachment_count INTEGER, " +
+                "read INTEGER, " +
+                "flagged INTEGER, " +
+                "answered INTEGER, " +
+                "forwarded INTEGER, " +
+                "PRIMARY KEY (root, folder_id)" +
+                ")");
+
+        db.execSQL("DROP INDEX IF EXISTS thread_summary_folder_id_date");
+        db.execSQL("CREATE INDEX thread_summary_folder_id_date ON thread_summary (folder_id, date)");
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_inserted");
+        db.execSQL("CREATE TRIGGER thread_summary_thread_inserted " +
+                "AFTER INSERT ON threads " +
+                "WHEN NEW.root IS NOT NULL " +
+                "BEGIN " +
+                updateThreadSummary("= NEW.root") +
+                "END");
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_updated");
+        db.execSQL("CREATE TRIGGER thread_summary_thread_updated " +
+                "AFTER UPDATE OF root, message_id ON threads " +
+                "WHEN OLD.root IS NOT NEW.root OR OLD.message_id IS NOT NEW.message_id " +
+                "BEGIN " +
+                updateThreadSummary("IN (OLD.root, NEW.root)") +
+                "END");
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_deleted");
+        db.execSQL("CREATE TRIGGER thread_summary_thread_deleted " +
+                "AFTER DELETE ON threads " +
+                "BEGIN " +
+                updateThreadSummary("= OLD.root") +
+                "END");
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_message_updated");
+        db.execSQL("CREATE TRIGGER thread_summary_message_updated " +
+                "AFTER UPDATE OF folder_id, empty, deleted, date, internal_date, attachment_count, read, flagged, " +
+                "answered, forwarded ON messages " +
+                "WHEN OLD.folder_id IS NOT NEW.folder_id OR OLD.empty IS NOT NEW.empty OR " +
+                "OLD.deleted IS NOT NEW.deleted OR OLD.date IS NOT NEW.date OR " +
+                "OLD.internal_date IS NOT NEW.internal_date OR OLD.attachment_count IS NOT NEW.attachment_count OR " +
+                "OLD.read IS NOT NEW.read OR OLD.flagged IS NOT NEW.flagged OR " +
+                "OLD.answered IS NOT NEW.answered OR OLD.forwarded IS NOT NEW.forwarded " +
+                "BEGIN " +
+                updateThreadSummary("IN (SELECT root FROM threads WHERE message_id = NEW.id)") +
+                "END");
+
         db.execSQL("DROP TABLE IF EXISTS outbox_state");
         db.execSQL("CREATE TABLE outbox_state (" +
                 "message_id INTEGER PRIMARY KEY NOT NULL REFERENCES messages(id) ON DELETE CASCADE," +
@@ -246,7 +307,61 @@ class StoreSchemaDefinition implements SchemaDefinition {
                 "DELETE FROM threads WHERE message_id = OLD.id; " +
                 "END");
 
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_inserted");
+        db.execSQL("CREATE TRIGGER folder_counts_message_inserted " +
+                "AFTER INSERT ON messages " +
+                "WHEN NEW.empty = 0 AND NEW.deleted = 0 " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count + 1, " +
+                "unread_count = unread_count + (NEW.read = 0), " +
+                "flagged_count = flagged_count + (NEW.flagged = 1) " +
+                "WHERE id = NEW.folder_id; " +
+                "END");
+
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_deleted");
+        db.execSQL("CREATE TRIGGER folder_counts_message_deleted " +
+                "AFTER DELETE ON messages " +
+                "WHEN OLD.empty = 0 AND OLD.deleted = 0 " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count - 1, " +
+                "unread_count = unread_count - (OLD.read = 0), " +
+                "flagged_count = flagged_count - (OLD.flagged = 1) " +
+                "WHERE id = OLD.folder_id; " +
+                "END");
+
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_updated");
+        db.execSQL("CREATE TRIGGER folder_counts_message_updated " +
+                "AFTER UPDATE OF folder_id, empty, deleted, read, flagged ON messages " +
+                "WHEN OLD.folder_id IS NOT NEW.folder_id OR OLD.empty IS NOT NEW.empty OR " +
+                "OLD.deleted IS NOT NEW.deleted OR OLD.read IS NOT NEW.read OR OLD.flagged IS NOT NEW.flagged " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count - 1, " +
+                "unread_count = unread_count - (OLD.read = 0), " +
+                "flagged_count = flagged_count - (OLD.flagged = 1) " +
+                "WHERE id = OLD.folder_id AND OLD.empty = 0 AND OLD.deleted = 0; " +
+                "UPDATE folders SET message_count = message_count + 1, " +
+                "unread_count = unread_count + (NEW.read = 0), " +
+                "flagged_count = flagged_count + (NEW.flagged = 1) " +
+                "WHERE id = NEW.folder_id AND NEW.empty = 0 AND NEW.deleted = 0; " +
+                "END");
+
         db.execSQL("DROP TABLE IF EXISTS messages_fulltext");
-        db.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext)");
+        db.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 " +
+                "(subject, sender, recipients, fulltext, prefix=\"2,3\")");
+    }
+
+    private static String updateThreadSummary(String rootCondition) {
+        return "DELETE FROM thread_summary WHERE root " + rootCondition + "; " +
+                "INSERT INTO thread_summary (root, folder_id, newest_message_id, message_count, unread_count, " +
+                "flagged_count, date, internal_date, attachment_count, read, flagged, answered, forwarded) " +
+                "SELECT t.root, m.folder_id, " +
+                "(SELECT newest.id FROM threads nt JOIN messages newest ON (newest.id = nt.message_id) " +
+                "WHERE nt.root = t.root AND newest.folder_id = m.folder_id AND newest.empty = 0 AND " +
+                "newest.deleted = 0 ORDER BY newest.date DESC, newest.id DESC LIMIT 1), " +
+                "COUNT(*), SUM(m.read = 0), SUM(m.flagged = 1), MAX(m.date), MAX(m.internal_date), " +
+                "SUM(m.attachment_count), MIN(m.read), MAX(m.flagged), MIN(m.answered), MIN(m.forwarded) " +
+                "FROM threads t JOIN messages m ON (m.id = t.message_id) " +
+                "WHERE t.root " + rootCondition + " AND m.empty = 0 AND m.deleted = 0 " +
+                "GROUP BY t.root, m.folder_id; ";
     }
 }
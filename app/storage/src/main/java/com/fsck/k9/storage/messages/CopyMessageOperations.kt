@@ -202,8 +202,8 @@ internal class CopyMessageOperations(
     private fun copyFulltextEntry(database: SQLiteDatabase, newMessageId: Long, messageId: Long) {
         database.execSQL(
             """
-            INSERT OR REPLACE INTO messages_fulltext (docid, fulltext)
-              SELECT ?, fulltext FROM messages_fulltext WHERE docid = ?
+            INSERT OR REPLACE INTO messages_fulltext (docid, subject, sender, recipients, fulltext)
+              SELECT ?, subject, sender, recipients, fulltext FROM messages_fulltext WHERE docid = ?
             """.trimIndent(),
             arrayOf(newMessageId.toString(), messageId.toString())
         )
@@ -22,6 +22,8 @@ internal class CreateFolderOperations(private val lockableDatabase: LockableData
                     put("server_id", folder.serverId)
                     put("local_only", false)
                     put("type", folder.type.toDatabaseFolderType())
+                    put("unread_count", 0)
+                    put("flagged_count", 0)
                 }
 
                 db.insert("folders", null, values)
@@ -20,16 +20,73 @@ internal class FlagMessageOperations(private val lockableDatabase: LockableDatab
     }
 
     fun setMessageFlag(folderId: Long, messageServerId: String, flag: Flag, set: Boolean) {
-        when (flag) {
-            Flag.DELETED -> setBoolean(folderId, messageServerId, "deleted", set)
-            Flag.SEEN -> setBoolean(folderId, messageServerId, "read", set)
-            Flag.FLAGGED -> setBoolean(folderId, messageServerId, "flagged", set)
-            Flag.ANSWERED -> setBoolean(folderId, messageServerId, "answered", set)
-            Flag.FORWARDED -> setBoolean(folderId, messageServerId, "forwarded", set)
-            else -> rebuildFlagsColumnValue(folderId, messageServerId, flag, set)
+        val columnName = getFlagColumnName(flag)
+        if (columnName != null) {
+            setBoolean(folderId, messageServerId, columnName, set)
+        } else {
+            rebuildFlagsColumnValue(folderId, messageServerId, flag, set)
         }
     }
 
+    fun setMessageFlags(folderId: Long, flagChanges: Map<String, Map<Flag, Boolean>>) {
+        if (flagChanges.isEmpty()) return
+
+        val columnChanges = mutableMapOf<Pair<String, Boolean>, MutableList<String>>()
+        val flagsColumnChanges = mutableMapOf<String, Map<Flag, Boolean>>()
+        for ((messageServerId, messageFlagChanges) in flagChanges) {
+            for ((flag, set) in messageFlagChanges) {
+                val columnName = getFlagColumnName(flag)
+                if (columnName != null) {
+                    columnChanges.getOrPut(columnName to set) { mutableListOf() }.add(messageServerId)
+                }
+            }
+
+            val otherFlagChanges = messageFlagChanges.filterKeys { getFlagColumnName(it) == null }
+            if (otherFlagChanges.isNotEmpty()) {
+                flagsColumnChanges[messageServerId] = otherFlagChanges
+            }
+        }
+
+        lockableDatabase.execute(true) { database ->
+            for ((columnChange, messageServerIds) in columnChanges) {
+                val (columnName, set) = columnChange
+                val values = ContentValues().apply {
+                    put(columnName, if (set) 1 else 0)
+                }
+
+                performChunkedOperation(
+                    arguments = messageServerIds,
+                    argumentTransformation = { it }
+                ) { selectionSet, selectionArguments ->
+                    database.update(
+                        "messages",
+                        values,
+                        "folder_id = ? AND uid $selectionSet",
+                        arrayOf(folderId.toString()) + selectionArguments
+                    )
+                }
+            }
+
+            for ((messageServerId, otherFlagChanges) in flagsColumnChanges) {
+                val oldFlags = database.readFlagsColumn(folderId, messageServerId)
+                val newFlags = oldFlags +
+                    otherFlagChanges.filterValues { set -> set }.keys -
+                    otherFlagChanges.filterValues { set -> !set }.keys
+
+                database.writeFlagsColumn(folderId, messageServerId, newFlags)
+            }
+        }
+    }
+
+    private fun getFlagColumnName(flag: Flag): String? = when (flag) {
+        Flag.DELETED -> "deleted"
+        Flag.SEEN -> "read"
+        Flag.FLAGGED -> "flagged"
+        Flag.ANSWERED -> "answered"
+        Flag.FORWARDED -> "forwarded"
+        else -> null
+    }
+
     private fun setSpecialFlags(messageIds: Collection<Long>, flag: Flag, set: Boolean) {
         val columnName = when (flag) {
             Flag.SEEN -> "read"
@@ -63,19 +120,22 @@ internal class FlagMessageOperations(private val lockableDatabase: LockableDatab
             val oldFlags = database.readFlagsColumn(folderId, messageServerId)
 
             val newFlags = if (set) oldFlags + flag else oldFlags - flag
-            val newFlagsString = newFlags.joinToString(separator = ",")
 
-            val values = ContentValues().apply {
-                put("flags", newFlagsString)
-            }
+            database.writeFlagsColumn(folderId, messageServerId, newFlags)
+        }
+    }
 
-            database.update(
-                "messages",
-                values,
-                "folder_id = ? AND uid = ?",
-                arrayOf(folderId.toString(), messageServerId)
-            )
+    private fun SQLiteDatabase.writeFlagsColumn(folderId: Long, messageServerId: String, flags: Set<Flag>) {
+        val values = ContentValues().apply {
+            put("flags", flags.joinToString(separator = ","))
         }
+
+        update(
+            "messages",
+            values,
+            "folder_id = ? AND uid = ?",
+            arrayOf(folderId.toString(), messageServerId)
+        )
     }
 
     private fun SQLiteDatabase.readFlagsColumn(folderId: Long, messageServerId: String): Set<Flag> {
@@ -0,0 +1,73 @@
+package com.fsck.k9.storage.messages
+
+import android.content.ContentValues
+import com.fsck.k9.helper.getIntOrNull
+import com.fsck.k9.helper.map
+import com.fsck.k9.mailstore.LockableDatabase
+import timber.log.Timber
+
+internal class FolderCountOperations(private val lockableDatabase: LockableDatabase) {
+    /**
+     * Recalculates the message counts stored in the 'folders' table from the 'messages' table.
+     *
+     * The counts are maintained by database triggers, so they should never be off. Returns the number of folders whose
+     * counts had to be corrected.
+     */
+    fun rebuildFolderCounts(): Int {
+        return lockableDatabase.execute(true) { db ->
+            val query =
+                """
+                SELECT
+                  folders.id AS folder_id,
+                  folders.message_count AS stored_message_count,
+                  folders.unread_count AS stored_unread_count,
+                  folders.flagged_count AS stored_flagged_count,
+                  COUNT(messages.id) AS message_count,
+                  IFNULL(SUM(messages.read = 0), 0) AS unread_count,
+                  IFNULL(SUM(messages.flagged = 1), 0) AS flagged_count
+                FROM folders
+                LEFT JOIN messages ON (
+                  messages.folder_id = folders.id AND messages.empty = 0 AND messages.deleted = 0
+                )
+                GROUP BY folders.id
+                """.trimIndent()
+
+            val wrongCounts = db.rawQuery(query, null).use { cursor ->
+                cursor.map {
+                    val folderId = cursor.getLong(cursor.getColumnIndex("folder_id"))
+                    val storedCounts = FolderCounts(
+                        messageCount = cursor.getIntOrNull("stored_message_count"),
+                        unreadCount = cursor.getIntOrNull("stored_unread_count"),
+                        flaggedCount = cursor.getIntOrNull("stored_flagged_count")
+                    )
+                    val actualCounts = FolderCounts(
+                        messageCount = cursor.getIntOrNull("message_count"),
+                        unreadCount = cursor.getIntOrNull("unread_count"),
+                        flaggedCount = cursor.getIntOrNull("flagged_count")
+                    )
+
+                    if (storedCounts != actualCounts) {
+                        Timber.w("Counts of folder %d were %s instead of %s", folderId, storedCounts, actualCounts)
+                        folderId to actualCounts
+                    } else {
+                        null
+                    }
+                }.filterNotNull()
+            }
+
+            for ((folderId, counts) in wrongCounts) {
+                val values = ContentValues().apply {
+                    put("message_count", counts.messageCount)
+                    put("unread_count", counts.unreadCount)
+                    put("flagged_count", counts.flaggedCount)
+                }
+
+                db.update("folders", values, "id = ?", arrayOf(folderId.toString()))
+            }
+
+            wrongCounts.size
+        }
+    }
+}
+
+private data class FolderCounts(val messageCount: Int?, val unreadCount: Int?, val flaggedCount: Int?)
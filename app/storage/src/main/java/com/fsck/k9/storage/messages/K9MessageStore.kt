@@ -39,12 +39,17 @@ class K9MessageStore(
     private val retrieveFolderOperations = RetrieveFolderOperations(database)
     private val updateFolderOperations = UpdateFolderOperations(database)
     private val deleteFolderOperations = DeleteFolderOperations(database, attachmentFileManager)
+    private val folderCountOperations = FolderCountOperations(database)
     private val keyValueStoreOperations = KeyValueStoreOperations(database)
 
     override fun saveRemoteMessage(folderId: Long, messageServerId: String, messageData: SaveMessageData) {
         saveMessageOperations.saveRemoteMessage(folderId, messageServerId, messageData)
     }
 
+    override fun saveRemoteMessages(folderId: Long, messages: Map<String, SaveMessageData>) {
+        saveMessageOperations.saveRemoteMessages(folderId, messages)
+    }
+
     override fun saveLocalMessage(folderId: Long, messageData: SaveMessageData, existingMessageId: Long?): Long {
         return saveMessageOperations.saveLocalMessage(folderId, messageData, existingMessageId)
     }
@@ -65,6 +70,10 @@ class K9MessageStore(
         flagMessageOperations.setMessageFlag(folderId, messageServerId, flag, set)
     }
 
+    override fun setMessageFlags(folderId: Long, flagChanges: Map<String, Map<Flag, Boolean>>) {
+        flagMessageOperations.setMessageFlags(folderId, flagChanges)
+    }
+
     override fun getMessageServerId(messageId: Long): String {
         return retrieveMessageOperations.getMessageServerId(messageId)
     }
@@ -85,6 +94,14 @@ class K9MessageStore(
         return retrieveMessageOperations.getMessageFlags(folderId, messageServerId)
     }
 
+    override fun areMessagesPresent(folderId: Long, messageServerIds: Collection<String>): Set<String> {
+        return retrieveMessageOperations.areMessagesPresent(folderId, messageServerIds)
+    }
+
+    override fun getMessageFlags(folderId: Long, messageServerIds: Collection<String>): Map<String, Set<Flag>> {
+        return retrieveMessageOperations.getMessageFlags(folderId, messageServerIds)
+    }
+
     override fun getAllMessagesAndEffectiveDates(folderId: Long): Map<String, Long?> {
         return retrieveMessageOperations.getAllMessagesAndEffectiveDates(folderId)
     }
@@ -177,6 +194,10 @@ class K9MessageStore(
         deleteFolderOperations.deleteFolders(folderServerIds)
     }
 
+    override fun rebuildFolderCounts(): Int {
+        return folderCountOperations.rebuildFolderCounts()
+    }
+
     override fun getExtraString(name: String): String? {
         return keyValueStoreOperations.getExtraString(name)
     }
@@ -68,13 +68,7 @@ internal class RetrieveFolderOperations(private val lockableDatabase: LockableDa
 
             val query =
                 """
-                SELECT ${FOLDER_COLUMNS.joinToString()}, (
-                    SELECT COUNT(messages.id) 
-                    FROM messages 
-                    WHERE messages.folder_id = folders.id 
-                      AND messages.empty = 0 AND messages.deleted = 0 
-                      AND (messages.read = 0 OR folders.id = ?)
-                )
+                SELECT ${FOLDER_COLUMNS.joinToString()}, CASE WHEN id = ? THEN message_count ELSE unread_count END
                 FROM folders
                 $displayModeSelection
                 """.trimIndent()
@@ -1,5 +1,6 @@
 package com.fsck.k9.storage.messages
 
+import android.database.Cursor
 import androidx.core.database.getLongOrNull
 import com.fsck.k9.K9
 import com.fsck.k9.mail.Flag
@@ -95,11 +96,39 @@ internal class RetrieveMessageOperations(private val lockableDatabase: LockableD
         }
     }
 
+    fun areMessagesPresent(folderId: Long, messageServerIds: Collection<String>): Set<String> {
+        if (messageServerIds.isEmpty()) return emptySet()
+
+        return lockableDatabase.execute(false) { database ->
+            val presentMessageServerIds = mutableSetOf<String>()
+            performChunkedOperation(
+                arguments = messageServerIds,
+                argumentTransformation = { it }
+            ) { selectionSet, selectionArguments ->
+                database.query(
+                    "messages",
+                    arrayOf("uid"),
+                    "folder_id = ? AND uid $selectionSet",
+                    arrayOf(folderId.toString()) + selectionArguments,
+                    null,
+                    null,
+                    null
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        presentMessageServerIds.add(cursor.getString(0))
+                    }
+                }
+            }
+
+            presentMessageServerIds
+        }
+    }
+
     fun getMessageFlags(folderId: Long, messageServerId: String): Set<Flag> {
         return lockableDatabase.execute(false) { db ->
             db.query(
                 "messages",
-                arrayOf("deleted", "read", "flagged", "answered", "forwarded", "flags"),
+                FLAGS_COLUMNS,
                 "folder_id = ? AND uid = ?",
                 arrayOf(folderId.toString(), messageServerId),
                 null,
@@ -108,30 +137,63 @@ internal class RetrieveMessageOperations(private val lockableDatabase: LockableD
             ).use { cursor ->
                 if (!cursor.moveToFirst()) error("Couldn't read flags for $folderId:$messageServerId")
 
-                val deleted = cursor.getInt(0) == 1
-                val read = cursor.getInt(1) == 1
-                val flagged = cursor.getInt(2) == 1
-                val answered = cursor.getInt(3) == 1
-                val forwarded = cursor.getInt(4) == 1
-                val flagsColumnValue = cursor.getString(5)
+                cursor.readFlags(columnOffset = 0)
+            }
+        }
+    }
 
-                val otherFlags = if (flagsColumnValue.isNullOrBlank()) {
-                    emptySet()
-                } else {
-                    flagsColumnValue.split(',').map { Flag.valueOf(it) }
-                }
+    fun getMessageFlags(folderId: Long, messageServerIds: Collection<String>): Map<String, Set<Flag>> {
+        if (messageServerIds.isEmpty()) return emptyMap()
 
-                otherFlags
-                    .toMutableSet()
-                    .apply {
-                        if (deleted) add(Flag.DELETED)
-                        if (read) add(Flag.SEEN)
-                        if (flagged) add(Flag.FLAGGED)
-                        if (answered) add(Flag.ANSWERED)
-                        if (forwarded) add(Flag.FORWARDED)
+        return lockableDatabase.execute(false) { database ->
+            val messageFlags = mutableMapOf<String, Set<Flag>>()
+            performChunkedOperation(
+                arguments = messageServerIds,
+                argumentTransformation = { it }
+            ) { selectionSet, selectionArguments ->
+                database.query(
+                    "messages",
+                    arrayOf("uid") + FLAGS_COLUMNS,
+                    "folder_id = ? AND uid $selectionSet",
+                    arrayOf(folderId.toString()) + selectionArguments,
+                    null,
+                    null,
+                    null
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val messageServerId = cursor.getString(0)
+                        messageFlags[messageServerId] = cursor.readFlags(columnOffset = 1)
                     }
+                }
             }
+
+            messageFlags
+        }
+    }
+
+    private fun Cursor.readFlags(columnOffset: Int): Set<Flag> {
+        val deleted = getInt(columnOffset) == 1
+        val read = getInt(columnOffset + 1) == 1
+        val flagged = getInt(columnOffset + 2) == 1
+        val answered = getInt(columnOffset + 3) == 1
+        val forwarded = getInt(columnOffset + 4) == 1
+        val flagsColumnValue = getString(columnOffset + 5)
+
+        val otherFlags = if (flagsColumnValue.isNullOrBlank()) {
+            emptySet()
+        } else {
+            flagsColumnValue.split(',').map { Flag.valueOf(it) }
         }
+
+        return otherFlags
+            .toMutableSet()
+            .apply {
+                if (deleted) add(Flag.DELETED)
+                if (read) add(Flag.SEEN)
+                if (flagged) add(Flag.FLAGGED)
+                if (answered) add(Flag.ANSWERED)
+                if (forwarded) add(Flag.FORWARDED)
+            }
     }
 
     fun getAllMessagesAndEffectiveDates(folderId: Long): Map<String, Long?> {
@@ -205,3 +267,5 @@ internal class RetrieveMessageOperations(private val lockableDatabase: LockableD
         }
     }
 }
+
+private val FLAGS_COLUMNS = arrayOf("deleted", "read", "flagged", "answered", "forwarded", "flags")
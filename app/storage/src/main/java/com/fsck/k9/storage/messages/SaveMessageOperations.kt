@@ -48,6 +48,19 @@ internal class SaveMessageOperations(
         saveMessage(folderId, messageServerId, messageData)
     }
 
+    fun saveRemoteMessages(folderId: Long, messages: Map<String, SaveMessageData>) {
+        if (messages.isEmpty()) return
+
+        lockableDatabase.execute(true) { database ->
+            val threadHeaders = messages.values.map { it.message.toThreadHeaders() }
+            val threadCache = threadMessageOperations.createThreadCache(database, folderId, threadHeaders)
+
+            for ((messageServerId, messageData) in messages) {
+                saveMessage(folderId, messageServerId, messageData, threadCache)
+            }
+        }
+    }
+
     fun saveLocalMessage(folderId: Long, messageData: SaveMessageData, existingMessageId: Long?): Long {
         return if (existingMessageId == null) {
             saveLocalMessage(folderId, messageData)
@@ -78,7 +91,12 @@ internal class SaveMessageOperations(
         }
     }
 
-    private fun saveMessage(folderId: Long, messageServerId: String, messageData: SaveMessageData): Long {
+    private fun saveMessage(
+        folderId: Long,
+        messageServerId: String,
+        messageData: SaveMessageData,
+        threadCache: ThreadCache? = null
+    ): Long {
         return lockableDatabase.execute(true) { database ->
             val message = messageData.message
 
@@ -96,7 +114,7 @@ internal class SaveMessageOperations(
 
                 existingMessageId
             } else {
-                insertMessage(database, folderId, messageServerId, message, messageData)
+                insertMessage(database, folderId, messageServerId, message, messageData, threadCache)
             }
         }
     }
@@ -106,9 +124,11 @@ internal class SaveMessageOperations(
         folderId: Long,
         messageServerId: String,
         message: Message,
-        messageData: SaveMessageData
+        messageData: SaveMessageData,
+        threadCache: ThreadCache?
     ): Long {
-        val threadInfo = threadMessageOperations.doMessageThreading(database, folderId, message.toThreadHeaders())
+        val threadHeaders = message.toThreadHeaders()
+        val threadInfo = threadMessageOperations.doMessageThreading(database, folderId, threadHeaders, threadCache)
 
         val rootMessagePartId = saveMessageParts(database, message)
         val messageId = saveMessage(
@@ -121,7 +141,21 @@ internal class SaveMessageOperations(
         )
 
         if (threadInfo?.threadId == null) {
-            threadMessageOperations.createThreadEntry(database, messageId, threadInfo?.rootId, threadInfo?.parentId)
+            val threadId = threadMessageOperations.createThreadEntry(
+                database,
+                messageId,
+                threadInfo?.rootId,
+                threadInfo?.parentId
+            )
+            threadCache?.addMessage(
+                threadHeaders.messageIdHeader,
+                messageId,
+                threadId,
+                rootId = threadInfo?.rootId ?: threadId,
+                parentId = threadInfo?.parentId
+            )
+        } else {
+            threadCache?.replaceEmptyMessage(messageId)
         }
 
         createOrReplaceFulltextEntry(database, messageId, messageData)
@@ -431,16 +465,27 @@ internal class SaveMessageOperations(
     }
 
     private fun createOrReplaceFulltextEntry(database: SQLiteDatabase, messageId: Long, messageData: SaveMessageData) {
-        val fulltext = messageData.textForSearchIndex ?: return
+        val message = messageData.message
+        val recipients = listOfNotNull(
+            message.getRecipients(RecipientType.TO).toSearchText(),
+            message.getRecipients(RecipientType.CC).toSearchText(),
+            message.getRecipients(RecipientType.BCC).toSearchText()
+        ).joinToString(separator = " ")
 
         val values = ContentValues().apply {
             put("docid", messageId)
-            put("fulltext", fulltext)
+            put("subject", messageData.subject)
+            put("sender", message.from.toSearchText())
+            put("recipients", recipients)
+            put("fulltext", messageData.textForSearchIndex)
         }
 
         database.replace("messages_fulltext", null, values)
     }
 
+    // Same format as the packed address list in the 'messages' table, but without the NUL separators
+    private fun Array<Address>?.toSearchText(): String? = Address.pack(this)?.replace('\u0000', ' ')
+
     private fun getMessage(folderId: Long, messageServerId: String): Pair<Long, Long?>? {
         return lockableDatabase.execute(false) { db ->
             db.query(
@@ -0,0 +1,107 @@
+package com.fsck.k9.storage.messages
+
+import android.database.sqlite.SQLiteDatabase
+
+/**
+ * In-memory view of the thread entries of a folder, used when threading a batch of messages.
+ *
+ * The cache is loaded with a single (chunked) query for all Message-ID values referenced by the batch. Afterwards
+ * [ThreadMessageOperations] resolves references against the cache instead of running one query per Message-ID, and
+ * reports the changes it makes to the `threads` table so the cache stays in sync with the database.
+ */
+internal class ThreadCache private constructor() {
+    private val entriesByMessageIdHeader = mutableMapOf<String, MutableList<Entry>>()
+    private val entriesByMessageId = mutableMapOf<Long, Entry>()
+    private val entriesByThreadId = mutableMapOf<Long, Entry>()
+    private val rootRedirects = mutableMapOf<Long, Long>()
+
+    fun getThreadInfo(messageIdHeader: String?, onlyEmpty: Boolean): ThreadInfo? {
+        if (messageIdHeader == null) return null
+
+        val entries = entriesByMessageIdHeader[messageIdHeader] ?: return null
+        val entry = entries.firstOrNull { !onlyEmpty || it.empty } ?: return null
+
+        return ThreadInfo(entry.threadId, entry.threadMessageId, getCurrentRoot(entry.rootId), entry.parentId)
+    }
+
+    fun getCurrentRoot(rootId: Long): Long {
+        var currentRootId = rootId
+        while (true) {
+            currentRootId = rootRedirects[currentRootId] ?: return currentRootId
+        }
+    }
+
+    fun addMessage(messageIdHeader: String?, messageId: Long, threadId: Long, rootId: Long, parentId: Long?) {
+        addEntry(messageIdHeader, Entry(messageId, threadId, messageId, rootId, parentId, empty = false))
+    }
+
+    fun addEmptyMessage(messageIdHeader: String, messageId: Long, threadId: Long, rootId: Long, parentId: Long?) {
+        addEntry(messageIdHeader, Entry(messageId, threadId, messageId, rootId, parentId, empty = true))
+    }
+
+    fun replaceEmptyMessage(messageId: Long) {
+        entriesByMessageId[messageId]?.empty = false
+    }
+
+    fun updateThreadToNewRoot(oldRootId: Long, rootId: Long, parentId: Long?) {
+        if (oldRootId != rootId) {
+            rootRedirects[oldRootId] = rootId
+        }
+
+        entriesByThreadId[oldRootId]?.parentId = parentId
+    }
+
+    private fun addEntry(messageIdHeader: String?, entry: Entry) {
+        if (messageIdHeader != null) {
+            entriesByMessageIdHeader.getOrPut(messageIdHeader) { mutableListOf() }.add(entry)
+        }
+        entriesByMessageId[entry.messageId] = entry
+        entriesByThreadId[entry.threadId] = entry
+    }
+
+    private class Entry(
+        val messageId: Long,
+        val threadId: Long,
+        val threadMessageId: Long,
+        val rootId: Long,
+        var parentId: Long?,
+        var empty: Boolean
+    )
+
+    companion object {
+        fun load(database: SQLiteDatabase, folderId: Long, messageIdHeaders: Set<String>): ThreadCache {
+            val threadCache = ThreadCache()
+            if (messageIdHeaders.isEmpty()) return threadCache
+
+            performChunkedOperation(
+                arguments = messageIdHeaders,
+                argumentTransformation = { it }
+            ) { selectionSet, selectionArguments ->
+                database.rawQuery(
+                    """
+                    SELECT m.message_id, m.id, m.empty, t.id, t.message_id, t.root, t.parent
+                    FROM messages m
+                    LEFT JOIN threads t ON (t.message_id = m.id)
+                    WHERE m.folder_id = ? AND m.message_id $selectionSet
+                    ORDER BY m.id
+                    """.trimIndent(),
+                    arrayOf(folderId.toString()) + selectionArguments
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val entry = Entry(
+                            messageId = cursor.getLong(1),
+                            threadId = cursor.getLong(3),
+                            threadMessageId = cursor.getLong(4),
+                            rootId = cursor.getLong(5),
+                            parentId = if (cursor.isNull(6)) null else cursor.getLong(6),
+                            empty = cursor.getInt(2) == 1
+                        )
+                        threadCache.addEntry(cursor.getString(0), entry)
+                    }
+                }
+            }
+
+            return threadCache
+        }
+    }
+}
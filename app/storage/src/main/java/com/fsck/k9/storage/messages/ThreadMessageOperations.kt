@@ -54,6 +54,25 @@ internal class ThreadMessageOperations {
         }
     }
 
+    /**
+     * Loads the thread entries referenced by [threadHeaders] so a batch of messages can be threaded without running
+     * a query per Message-ID. Pass the returned [ThreadCache] to [doMessageThreading].
+     */
+    fun createThreadCache(
+        database: SQLiteDatabase,
+        folderId: Long,
+        threadHeaders: Collection<ThreadHeaders>
+    ): ThreadCache {
+        val messageIdHeaders = mutableSetOf<String>()
+        for (headers in threadHeaders) {
+            headers.messageIdHeader?.let { messageIdHeaders.add(it) }
+            messageIdHeaders.addAll(headers.referencesHeader.extractMessageIdValues())
+            headers.inReplyToHeader.extractMessageIdValue()?.let { messageIdHeaders.add(it) }
+        }
+
+        return ThreadCache.load(database, folderId, messageIdHeaders)
+    }
+
     fun createThreadEntry(database: SQLiteDatabase, messageId: Long, rootId: Long?, parentId: Long?): Long {
         val values = ContentValues().apply {
             put("message_id", messageId)
@@ -65,9 +84,14 @@ internal class ThreadMessageOperations {
     }
 
     // TODO: Use MessageIdParser
-    fun doMessageThreading(database: SQLiteDatabase, folderId: Long, threadHeaders: ThreadHeaders): ThreadInfo? {
+    fun doMessageThreading(
+        database: SQLiteDatabase,
+        folderId: Long,
+        threadHeaders: ThreadHeaders,
+        threadCache: ThreadCache? = null
+    ): ThreadInfo? {
         val messageIdHeader = threadHeaders.messageIdHeader
-        val msgThreadInfo = getThreadInfo(database, folderId, messageIdHeader, onlyEmpty = true)
+        val msgThreadInfo = getThreadInfo(database, threadCache, folderId, messageIdHeader, onlyEmpty = true)
 
         val references = threadHeaders.referencesHeader.extractMessageIdValues()
         val inReplyTo = threadHeaders.inReplyToHeader.extractMessageIdValue()
@@ -86,9 +110,9 @@ internal class ThreadMessageOperations {
         var rootId: Long? = null
         var parentId: Long? = null
         for (reference in messageIdValues) {
-            val threadInfo = getThreadInfo(database, folderId, reference, onlyEmpty = false)
+            val threadInfo = getThreadInfo(database, threadCache, folderId, reference, onlyEmpty = false)
             if (threadInfo == null) {
-                parentId = createEmptyMessage(database, folderId, reference, rootId, parentId)
+                parentId = createEmptyMessage(database, threadCache, folderId, reference, rootId, parentId)
                 if (rootId == null) {
                     rootId = parentId
                 }
@@ -97,7 +121,7 @@ internal class ThreadMessageOperations {
                     rootId = threadInfo.rootId
                 } else if (threadInfo.rootId != rootId) {
                     // Merge this thread into our thread
-                    updateThreadToNewRoot(database, threadInfo.rootId, rootId, parentId)
+                    updateThreadToNewRoot(database, threadCache, threadInfo.rootId, rootId, parentId)
                 }
                 parentId = threadInfo.threadId
             }
@@ -105,17 +129,23 @@ internal class ThreadMessageOperations {
 
         msgThreadInfo?.threadId?.let { threadId ->
             // msgThreadInfo.rootId might be outdated. Fetch current value.
-            val oldRootId = getThreadRoot(database, threadId)
+            val oldRootId = threadCache?.getCurrentRoot(msgThreadInfo.rootId) ?: getThreadRoot(database, threadId)
             if (oldRootId != rootId) {
                 // Connect the existing thread to the newly created thread
-                updateThreadToNewRoot(database, oldRootId, rootId!!, parentId)
+                updateThreadToNewRoot(database, threadCache, oldRootId, rootId!!, parentId)
             }
         }
 
         return ThreadInfo(msgThreadInfo?.threadId, msgThreadInfo?.messageId, rootId!!, parentId)
     }
 
-    private fun updateThreadToNewRoot(database: SQLiteDatabase, oldRootId: Long, rootId: Long, parentId: Long?) {
+    private fun updateThreadToNewRoot(
+        database: SQLiteDatabase,
+        threadCache: ThreadCache?,
+        oldRootId: Long,
+        rootId: Long,
+        parentId: Long?
+    ) {
         // Let all children know who's the new root
         val values = ContentValues()
         values.put("root", rootId)
@@ -124,10 +154,13 @@ internal class ThreadMessageOperations {
         // Connect the message to the current parent
         values.put("parent", parentId)
         database.update("threads", values, "id = ?", arrayOf(oldRootId.toString()))
+
+        threadCache?.updateThreadToNewRoot(oldRootId, rootId, parentId)
     }
 
     private fun createEmptyMessage(
         database: SQLiteDatabase,
+        threadCache: ThreadCache?,
         folderId: Long,
         messageIdHeader: String,
         rootId: Long?,
@@ -145,16 +178,22 @@ internal class ThreadMessageOperations {
             put("root", rootId)
             put("parent", parentId)
         }
-        return database.insert("threads", null, threadValues)
+        val threadId = database.insert("threads", null, threadValues)
+
+        threadCache?.addEmptyMessage(messageIdHeader, messageId, threadId, rootId ?: threadId, parentId)
+
+        return threadId
     }
 
     private fun getThreadInfo(
         db: SQLiteDatabase,
+        threadCache: ThreadCache?,
         folderId: Long,
         messageIdHeader: String?,
         onlyEmpty: Boolean
     ): ThreadInfo? {
         if (messageIdHeader == null) return null
+        if (threadCache != null) return threadCache.getThreadInfo(messageIdHeader, onlyEmpty)
 
         return db.rawQuery(
             """
@@ -0,0 +1,43 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+/**
+ * Add 'subject', 'sender', and 'recipients' columns to the 'messages_fulltext' index so searching these fields no
+ * longer requires a full table scan.
+ */
+internal class MigrationTo80(private val db: SQLiteDatabase) {
+    fun addColumnsToFulltextIndex() {
+        db.execSQL("DROP TABLE IF EXISTS fulltext_backup")
+        db.execSQL("CREATE TEMP TABLE fulltext_backup AS SELECT docid, fulltext FROM messages_fulltext")
+
+        db.execSQL("DROP TABLE messages_fulltext")
+        db.execSQL(
+            "CREATE VIRTUAL TABLE messages_fulltext USING fts4 " +
+                "(subject, sender, recipients, fulltext, prefix=\"2,3\")"
+        )
+
+        // Address lists are stored with NUL separators. Replace them so the tokenizer sees proper word boundaries.
+        db.execSQL(
+            """
+            INSERT INTO messages_fulltext (docid, subject, sender, recipients, fulltext)
+            SELECT
+              messages.id,
+              messages.subject,
+              replace(messages.sender_list, char(0), ' '),
+              replace(
+                coalesce(messages.to_list, '') || ' ' || coalesce(messages.cc_list, '') || ' ' ||
+                  coalesce(messages.bcc_list, ''),
+                char(0),
+                ' '
+              ),
+              fulltext_backup.fulltext
+            FROM messages
+            LEFT JOIN fulltext_backup ON (fulltext_backup.docid = messages.id)
+            WHERE messages.empty = 0 AND messages.deleted = 0
+            """.trimIndent()
+        )
+
+        db.execSQL("DROP TABLE fulltext_backup")
+    }
+}
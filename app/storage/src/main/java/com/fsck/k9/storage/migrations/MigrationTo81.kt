@@ -0,0 +1,74 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+/**
+ * Add 'message_count' column to 'folders' and keep it, 'unread_count', and 'flagged_count' up to date using triggers
+ */
+internal class MigrationTo81(private val db: SQLiteDatabase) {
+    fun addFolderCountTriggers() {
+        db.execSQL("ALTER TABLE folders ADD message_count INTEGER DEFAULT 0")
+
+        db.execSQL(
+            """
+            UPDATE folders SET
+              message_count = (
+                SELECT COUNT(id) FROM messages
+                WHERE folder_id = folders.id AND empty = 0 AND deleted = 0
+              ),
+              unread_count = (
+                SELECT COUNT(id) FROM messages
+                WHERE folder_id = folders.id AND empty = 0 AND deleted = 0 AND read = 0
+              ),
+              flagged_count = (
+                SELECT COUNT(id) FROM messages
+                WHERE folder_id = folders.id AND empty = 0 AND deleted = 0 AND flagged = 1
+              )
+            """.trimIndent()
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_inserted")
+        db.execSQL(
+            "CREATE TRIGGER folder_counts_message_inserted " +
+                "AFTER INSERT ON messages " +
+                "WHEN NEW.empty = 0 AND NEW.deleted = 0 " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count + 1, " +
+                "unread_count = unread_count + (NEW.read = 0), " +
+                "flagged_count = flagged_count + (NEW.flagged = 1) " +
+                "WHERE id = NEW.folder_id; " +
+                "END"
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_deleted")
+        db.execSQL(
+            "CREATE TRIGGER folder_counts_message_deleted " +
+                "AFTER DELETE ON messages " +
+                "WHEN OLD.empty = 0 AND OLD.deleted = 0 " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count - 1, " +
+                "unread_count = unread_count - (OLD.read = 0), " +
+                "flagged_count = flagged_count - (OLD.flagged = 1) " +
+                "WHERE id = OLD.folder_id; " +
+                "END"
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS folder_counts_message_updated")
+        db.execSQL(
+            "CREATE TRIGGER folder_counts_message_updated " +
+                "AFTER UPDATE OF folder_id, empty, deleted, read, flagged ON messages " +
+                "WHEN OLD.folder_id IS NOT NEW.folder_id OR OLD.empty IS NOT NEW.empty OR " +
+                "OLD.deleted IS NOT NEW.deleted OR OLD.read IS NOT NEW.read OR OLD.flagged IS NOT NEW.flagged " +
+                "BEGIN " +
+                "UPDATE folders SET message_count = message_count - 1, " +
+                "unread_count = unread_count - (OLD.read = 0), " +
+                "flagged_count = flagged_count - (OLD.flagged = 1) " +
+                "WHERE id = OLD.folder_id AND OLD.empty = 0 AND OLD.deleted = 0; " +
+                "UPDATE folders SET message_count = message_count + 1, " +
+                "unread_count = unread_count + (NEW.read = 0), " +
+                "flagged_count = flagged_count + (NEW.flagged = 1) " +
+                "WHERE id = NEW.folder_id AND NEW.empty = 0 AND NEW.deleted = 0; " +
+                "END"
+        )
+    }
+}
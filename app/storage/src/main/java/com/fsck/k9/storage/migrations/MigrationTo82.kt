@@ -0,0 +1,103 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+/**
+ * Add 'thread_summary' table that stores the aggregated values of each thread per folder and keep it up to date
+ * using triggers
+ */
+internal class MigrationTo82(private val db: SQLiteDatabase) {
+    fun addThreadSummaryTable() {
+        db.execSQL("DROP TABLE IF EXISTS thread_summary")
+        db.execSQL(
+            "CREATE TABLE thread_summary (" +
+                "root INTEGER NOT NULL, " +
+                "folder_id INTEGER, " +
+                "newest_message_id INTEGER, " +
+                "message_count INTEGER, " +
+                "unread_count INTEGER, " +
+                "flagged_count INTEGER, " +
+                "date INTEGER, " +
+                "internal_date INTEGER, " +
+                "attachment_count INTEGER, " +
+                "read INTEGER, " +
+                "flagged INTEGER, " +
+                "answered INTEGER, " +
+                "forwarded INTEGER, " +
+                "PRIMARY KEY (root, folder_id)" +
+                ")"
+        )
+
+        db.execSQL("DROP INDEX IF EXISTS thread_summary_folder_id_date")
+        db.execSQL("CREATE INDEX thread_summary_folder_id_date ON thread_summary (folder_id, date)")
+
+        db.execSQL(insertThreadSummary(rootCondition = null))
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_inserted")
+        db.execSQL(
+            "CREATE TRIGGER thread_summary_thread_inserted " +
+                "AFTER INSERT ON threads " +
+                "WHEN NEW.root IS NOT NULL " +
+                "BEGIN " +
+                updateThreadSummary("= NEW.root") +
+                "END"
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_updated")
+        db.execSQL(
+            "CREATE TRIGGER thread_summary_thread_updated " +
+                "AFTER UPDATE OF root, message_id ON threads " +
+                "WHEN OLD.root IS NOT NEW.root OR OLD.message_id IS NOT NEW.message_id " +
+                "BEGIN " +
+                updateThreadSummary("IN (OLD.root, NEW.root)") +
+                "END"
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_thread_deleted")
+        db.execSQL(
+            "CREATE TRIGGER thread_summary_thread_deleted " +
+                "AFTER DELETE ON threads " +
+                "BEGIN " +
+                updateThreadSummary("= OLD.root") +
+                "END"
+        )
+
+        db.execSQL("DROP TRIGGER IF EXISTS thread_summary_message_updated")
+        db.execSQL(
+            "CREATE TRIGGER thread_summary_message_updated " +
+                "AFTER UPDATE OF folder_id, empty, deleted, date, internal_date, attachment_count, read, flagged, " +
+                "answered, forwarded ON messages " +
+                "WHEN OLD.folder_id IS NOT NEW.folder_id OR OLD.empty IS NOT NEW.empty OR " +
+                "OLD.deleted IS NOT NEW.deleted OR OLD.date IS NOT NEW.date OR " +
+                "OLD.internal_date IS NOT NEW.internal_date OR OLD.attachment_count IS NOT NEW.attachment_count OR " +
+                "OLD.read IS NOT NEW.read OR OLD.flagged IS NOT NEW.flagged OR " +
+                "OLD.answered IS NOT NEW.answered OR OLD.forwarded IS NOT NEW.forwarded " +
+                "BEGIN " +
+                updateThreadSummary("IN (SELECT root FROM threads WHERE message_id = NEW.id)") +
+                "END"
+        )
+    }
+
+    // Copy of StoreSchemaDefinition.updateThreadSummary(). Migrations don't use the schema code, so later schema
+    // changes can't alter this migration. MigrationTo82Test checks that the backfill matches the triggers.
+    private fun updateThreadSummary(rootCondition: String): String {
+        return "DELETE FROM thread_summary WHERE root $rootCondition; " +
+            insertThreadSummary(rootCondition) + "; "
+    }
+
+    private fun insertThreadSummary(rootCondition: String?): String {
+        val whereRoot = if (rootCondition != null) "t.root $rootCondition AND " else ""
+
+        return "INSERT INTO thread_summary (root, folder_id, newest_message_id, message_count, unread_count, " +
+            "flagged_count, date, internal_date, attachment_count, read, flagged, answered, forwarded) " +
+            "SELECT t.root, m.folder_id, " +
+            "(SELECT newest.id FROM threads nt JOIN messages newest ON (newest.id = nt.message_id) " +
+            "WHERE nt.root = t.root AND newest.folder_id = m.folder_id AND newest.empty = 0 AND " +
+            "newest.deleted = 0 ORDER BY newest.date DESC, newest.id DESC LIMIT 1), " +
+            "COUNT(*), SUM(m.read = 0), SUM(m.flagged = 1), MAX(m.date), MAX(m.internal_date), " +
+            "SUM(m.attachment_count), MIN(m.read), MAX(m.flagged), MIN(m.answered), MIN(m.forwarded) " +
+            "FROM threads t JOIN messages m ON (m.id = t.message_id) " +
+            "WHERE ${whereRoot}m.empty = 0 AND m.deleted = 0 " +
+            "GROUP BY t.root, m.folder_id"
+    }
+}
@@ -0,0 +1,13 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+/**
+ * Add index on 'messages.message_id' used when looking up messages referenced by a thread
+ */
+internal class MigrationTo83(private val db: SQLiteDatabase) {
+    fun addMessageIdIndex() {
+        db.execSQL("DROP INDEX IF EXISTS msg_folder_id_message_id")
+        db.execSQL("CREATE INDEX msg_folder_id_message_id ON messages (folder_id, message_id, empty)")
+    }
+}
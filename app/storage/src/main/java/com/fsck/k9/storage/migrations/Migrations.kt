@@ -25,5 +25,9 @@ object Migrations {
         // 77: No longer necessary
         if (oldVersion < 78) MigrationTo78(db).removeServerIdFromLocalFolders()
         if (oldVersion < 79) MigrationTo79(db).updateDeleteMessageTrigger()
+        if (oldVersion < 80) MigrationTo80(db).addColumnsToFulltextIndex()
+        if (oldVersion < 81) MigrationTo81(db).addFolderCountTriggers()
+        if (oldVersion < 82) MigrationTo82(db).addThreadSummaryTable()
+        if (oldVersion < 83) MigrationTo83(db).addMessageIdIndex()
     }
 }
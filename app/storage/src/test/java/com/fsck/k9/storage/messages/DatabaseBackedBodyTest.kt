@@ -0,0 +1,61 @@
+package com.fsck.k9.storage.messages
+
+import com.fsck.k9.mail.MessagingException
+import com.fsck.k9.mailstore.DatabaseBackedBody
+import com.fsck.k9.storage.RobolectricTest
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayOutputStream
+import org.junit.Test
+
+class DatabaseBackedBodyTest : RobolectricTest() {
+    private val sqliteDatabase = createDatabase()
+    private val lockableDatabase = createLockableDatabaseMock(sqliteDatabase)
+
+    @Test
+    fun `read data from database`() {
+        val partId = sqliteDatabase.createMessagePart(
+            dataLocation = DataLocation.IN_DATABASE,
+            data = "Hello".toByteArray()
+        )
+        val body = DatabaseBackedBody(lockableDatabase, partId, "7bit", 5)
+
+        val data = body.inputStream.use { it.readBytes() }
+
+        assertThat(String(data)).isEqualTo("Hello")
+    }
+
+    @Test
+    fun `write data to output stream`() {
+        val partId = sqliteDatabase.createMessagePart(
+            dataLocation = DataLocation.IN_DATABASE,
+            data = "Hello".toByteArray()
+        )
+        val body = DatabaseBackedBody(lockableDatabase, partId, "7bit", 5)
+        val outputStream = ByteArrayOutputStream()
+
+        body.writeTo(outputStream)
+
+        assertThat(outputStream.toString()).isEqualTo("Hello")
+    }
+
+    @Test
+    fun `data is only read when accessed`() {
+        val partId = sqliteDatabase.createMessagePart(
+            dataLocation = DataLocation.IN_DATABASE,
+            data = "Hello".toByteArray()
+        )
+        val body = DatabaseBackedBody(lockableDatabase, partId, "7bit", 5)
+        sqliteDatabase.execSQL("UPDATE message_parts SET data = ? WHERE id = ?", arrayOf("World".toByteArray(), partId))
+
+        val data = body.inputStream.use { it.readBytes() }
+
+        assertThat(String(data)).isEqualTo("World")
+    }
+
+    @Test(expected = MessagingException::class)
+    fun `read data of deleted part`() {
+        val body = DatabaseBackedBody(lockableDatabase, 42, "7bit", 5)
+
+        body.inputStream
+    }
+}
@@ -94,4 +94,30 @@ class FlagMessageOperationsTest : RobolectricTest() {
         val message = sqliteDatabase.readMessages().first()
         assertThat(message.flags).isEqualTo("")
     }
+
+    @Test
+    fun `set flags of multiple messages`() {
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid1", read = false, flags = "X_SUBJECT_DECRYPTED")
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid2", read = false, flagged = true)
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid3", read = false)
+        sqliteDatabase.createMessage(folderId = 2, uid = "uid1", read = false)
+
+        flagMessageOperations.setMessageFlags(
+            folderId = 1,
+            flagChanges = mapOf(
+                "uid1" to mapOf(Flag.SEEN to true, Flag.X_DOWNLOADED_FULL to true),
+                "uid2" to mapOf(Flag.SEEN to true, Flag.FLAGGED to false)
+            )
+        )
+
+        val messages = sqliteDatabase.readMessages().associateBy { it.folderId to it.uid }
+        val message1 = messages[1L to "uid1"] ?: error("Message uid1 not found")
+        assertThat(message1.read).isEqualTo(1)
+        assertThat(message1.flags!!.split(',').toSet()).isEqualTo(setOf("X_SUBJECT_DECRYPTED", "X_DOWNLOADED_FULL"))
+        val message2 = messages[1L to "uid2"] ?: error("Message uid2 not found")
+        assertThat(message2.read).isEqualTo(1)
+        assertThat(message2.flagged).isEqualTo(0)
+        assertThat(messages[1L to "uid3"]?.read).isEqualTo(0)
+        assertThat(messages[2L to "uid1"]?.read).isEqualTo(0)
+    }
 }
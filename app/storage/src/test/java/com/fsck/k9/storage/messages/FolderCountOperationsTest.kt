@@ -0,0 +1,100 @@
+package com.fsck.k9.storage.messages
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.storage.RobolectricTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class FolderCountOperationsTest : RobolectricTest() {
+    private val sqliteDatabase = createDatabase()
+    private val lockableDatabase = createLockableDatabaseMock(sqliteDatabase)
+    private val folderCountOperations = FolderCountOperations(lockableDatabase)
+
+    @Test
+    fun `inserting messages should update folder counts`() {
+        val folderId = sqliteDatabase.createFolder()
+        sqliteDatabase.createMessage(folderId = folderId, read = true)
+        sqliteDatabase.createMessage(folderId = folderId, read = false, flagged = true)
+        sqliteDatabase.createMessage(folderId = folderId, empty = true)
+        sqliteDatabase.createMessage(folderId = folderId, deleted = true)
+
+        assertThat(sqliteDatabase.readFolderCounts(folderId)).isEqualTo(Triple(2, 1, 1))
+    }
+
+    @Test
+    fun `changing flags should update folder counts`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId = sqliteDatabase.createMessage(folderId = folderId, read = false)
+
+        sqliteDatabase.updateMessage(messageId, "read" to 1L, "flagged" to 1L)
+
+        assertThat(sqliteDatabase.readFolderCounts(folderId)).isEqualTo(Triple(1, 0, 1))
+    }
+
+    @Test
+    fun `moving message should update counts of both folders`() {
+        val sourceFolderId = sqliteDatabase.createFolder(name = "source")
+        val destinationFolderId = sqliteDatabase.createFolder(name = "destination")
+        val messageId = sqliteDatabase.createMessage(folderId = sourceFolderId, read = false, flagged = true)
+
+        sqliteDatabase.updateMessage(messageId, "folder_id" to destinationFolderId)
+
+        assertThat(sqliteDatabase.readFolderCounts(sourceFolderId)).isEqualTo(Triple(0, 0, 0))
+        assertThat(sqliteDatabase.readFolderCounts(destinationFolderId)).isEqualTo(Triple(1, 1, 1))
+    }
+
+    @Test
+    fun `marking message as deleted should update folder counts`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId = sqliteDatabase.createMessage(folderId = folderId, read = false)
+
+        sqliteDatabase.updateMessage(messageId, "deleted" to 1L)
+
+        assertThat(sqliteDatabase.readFolderCounts(folderId)).isEqualTo(Triple(0, 0, 0))
+    }
+
+    @Test
+    fun `removing message should update folder counts`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId = sqliteDatabase.createMessage(folderId = folderId, read = false)
+
+        sqliteDatabase.delete("messages", "id = ?", arrayOf(messageId.toString()))
+
+        assertThat(sqliteDatabase.readFolderCounts(folderId)).isEqualTo(Triple(0, 0, 0))
+    }
+
+    @Test
+    fun `rebuildFolderCounts() should correct wrong counts`() {
+        val folderId = sqliteDatabase.createFolder()
+        val otherFolderId = sqliteDatabase.createFolder()
+        sqliteDatabase.createMessage(folderId = folderId, read = false, flagged = true)
+        sqliteDatabase.createMessage(folderId = otherFolderId, read = true)
+        sqliteDatabase.execSQL("UPDATE folders SET message_count = 5, unread_count = 3 WHERE id = $folderId")
+
+        val correctedFolders = folderCountOperations.rebuildFolderCounts()
+
+        assertThat(correctedFolders).isEqualTo(1)
+        assertThat(sqliteDatabase.readFolderCounts(folderId)).isEqualTo(Triple(1, 1, 1))
+        assertThat(sqliteDatabase.readFolderCounts(otherFolderId)).isEqualTo(Triple(1, 0, 0))
+    }
+
+    private fun SQLiteDatabase.updateMessage(messageId: Long, vararg values: Pair<String, Long>) {
+        val contentValues = ContentValues().apply {
+            for ((key, value) in values) {
+                put(key, value)
+            }
+        }
+        update("messages", contentValues, "id = ?", arrayOf(messageId.toString()))
+    }
+
+    private fun SQLiteDatabase.readFolderCounts(folderId: Long): Triple<Int, Int, Int> {
+        return rawQuery(
+            "SELECT message_count, unread_count, flagged_count FROM folders WHERE id = ?",
+            arrayOf(folderId.toString())
+        ).use { cursor ->
+            cursor.moveToFirst()
+            Triple(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2))
+        }
+    }
+}
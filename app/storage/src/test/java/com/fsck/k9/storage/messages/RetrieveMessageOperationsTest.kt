@@ -126,6 +126,39 @@ class RetrieveMessageOperationsTest : RobolectricTest() {
         assertThat(flags).isEmpty()
     }
 
+    @Test
+    fun `check which messages are present`() {
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid1")
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid2")
+        sqliteDatabase.createMessage(folderId = 2, uid = "uid3")
+
+        val result = retrieveMessageOperations.areMessagesPresent(
+            folderId = 1,
+            messageServerIds = listOf("uid1", "uid3", "uid4")
+        )
+
+        assertThat(result).isEqualTo(setOf("uid1"))
+    }
+
+    @Test
+    fun `get flags of multiple messages`() {
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid1", flags = "X_DOWNLOADED_FULL", read = true)
+        sqliteDatabase.createMessage(folderId = 1, uid = "uid2", flags = "", flagged = true)
+        sqliteDatabase.createMessage(folderId = 2, uid = "uid3", read = true)
+
+        val flags = retrieveMessageOperations.getMessageFlags(
+            folderId = 1,
+            messageServerIds = listOf("uid1", "uid2", "uid3")
+        )
+
+        assertThat(flags).isEqualTo(
+            mapOf(
+                "uid1" to setOf(Flag.SEEN, Flag.X_DOWNLOADED_FULL),
+                "uid2" to setOf(Flag.FLAGGED)
+            )
+        )
+    }
+
     @Test
     fun `get all message server ids and dates`() {
         sqliteDatabase.createMessage(folderId = 1, uid = "uid1", date = 23)
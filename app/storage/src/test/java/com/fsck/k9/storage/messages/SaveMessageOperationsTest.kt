@@ -305,6 +305,37 @@ class SaveMessageOperationsTest : RobolectricTest() {
         assertThat(message3.uid).isEqualTo("uid1")
     }
 
+    @Test
+    fun `save batch of messages should create same threads as saving messages one by one`() {
+        val messages = linkedMapOf(
+            "uid1" to buildThreadedMessage("<msg0001@domain.example>"),
+            "uid3" to buildThreadedMessage(
+                "<msg0003@domain.example>",
+                references = "<msg0001@domain.example> <msg0002@domain.example>"
+            ),
+            "uid2" to buildThreadedMessage("<msg0002@domain.example>", references = "<msg0001@domain.example>"),
+            "uid5" to buildThreadedMessage("<msg0005@domain.example>", references = "<msg0004@domain.example>"),
+            "uid4" to buildThreadedMessage("<msg0004@domain.example>", references = "<msg0001@domain.example>")
+        )
+        val singleSqliteDatabase = createDatabase()
+        val singleSaveMessageOperations = SaveMessageOperations(
+            createLockableDatabaseMock(singleSqliteDatabase),
+            attachmentFileManager,
+            basicPartInfoExtractor,
+            threadMessageOperations
+        )
+        for ((messageServerId, messageData) in messages) {
+            singleSaveMessageOperations.saveRemoteMessage(folderId = 1, messageServerId, messageData)
+        }
+
+        saveMessageOperations.saveRemoteMessages(folderId = 1, messages)
+
+        assertThat(sqliteDatabase.readThreads()).isEqualTo(singleSqliteDatabase.readThreads())
+        assertThat(sqliteDatabase.readMessages().map { Triple(it.id, it.messageId, it.empty) })
+            .isEqualTo(singleSqliteDatabase.readMessages().map { Triple(it.id, it.messageId, it.empty) })
+        assertThat(sqliteDatabase.readThreads().map { it.root }.distinct()).hasSize(1)
+    }
+
     @Test
     fun `save message with server ID already existing in MessageStore should replace that message`() {
         val existingMessageData = buildMessage {
@@ -497,6 +528,17 @@ class SaveMessageOperationsTest : RobolectricTest() {
         assertThat(thread.messageId).isEqualTo(message.id)
     }
 
+    private fun buildThreadedMessage(messageIdHeader: String, references: String? = null): SaveMessageData {
+        return buildMessage {
+            header("Message-ID", messageIdHeader)
+            if (references != null) {
+                header("References", references)
+            }
+
+            textBody()
+        }.toSaveMessageData(date = 0L)
+    }
+
     private fun Message.toSaveMessageData(
         subject: String? = getSubject(),
         date: Long = sentDate?.time ?: System.currentTimeMillis(),
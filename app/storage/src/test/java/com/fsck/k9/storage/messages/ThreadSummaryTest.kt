@@ -0,0 +1,165 @@
+package com.fsck.k9.storage.messages
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.storage.RobolectricTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class ThreadSummaryTest : RobolectricTest() {
+    private val sqliteDatabase = createDatabase()
+
+    @Test
+    fun `adding messages to thread should update thread summary`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId1 = sqliteDatabase.createMessage(folderId = folderId, date = 1000L, read = true)
+        val messageId2 = sqliteDatabase.createMessage(folderId = folderId, date = 2000L, flagged = true)
+        val threadId = sqliteDatabase.createThread(messageId1)
+        sqliteDatabase.createThread(messageId2, root = threadId, parent = threadId)
+
+        val summaries = sqliteDatabase.readThreadSummaries()
+
+        assertThat(summaries).containsExactly(
+            ThreadSummary(
+                root = threadId,
+                folderId = folderId,
+                newestMessageId = messageId2,
+                messageCount = 2,
+                unreadCount = 1,
+                flaggedCount = 1,
+                date = 2000L
+            )
+        )
+    }
+
+    @Test
+    fun `empty and deleted messages should not be part of thread summary`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId1 = sqliteDatabase.createMessage(folderId = folderId, date = 1000L)
+        val messageId2 = sqliteDatabase.createMessage(folderId = folderId, date = 2000L, empty = true)
+        val messageId3 = sqliteDatabase.createMessage(folderId = folderId, date = 3000L, deleted = true)
+        val threadId = sqliteDatabase.createThread(messageId2)
+        sqliteDatabase.createThread(messageId1, root = threadId, parent = threadId)
+        sqliteDatabase.createThread(messageId3, root = threadId, parent = threadId)
+
+        val summaries = sqliteDatabase.readThreadSummaries()
+
+        assertThat(summaries.single().newestMessageId).isEqualTo(messageId1)
+        assertThat(summaries.single().messageCount).isEqualTo(1)
+    }
+
+    @Test
+    fun `changing flags should update thread summary`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId = sqliteDatabase.createMessage(folderId = folderId, read = false)
+        sqliteDatabase.createThread(messageId)
+
+        sqliteDatabase.updateMessage(messageId, "read" to 1L, "flagged" to 1L)
+
+        val summary = sqliteDatabase.readThreadSummaries().single()
+        assertThat(summary.unreadCount).isEqualTo(0)
+        assertThat(summary.flaggedCount).isEqualTo(1)
+    }
+
+    @Test
+    fun `moving message should split thread summary by folder`() {
+        val sourceFolderId = sqliteDatabase.createFolder(name = "source")
+        val destinationFolderId = sqliteDatabase.createFolder(name = "destination")
+        val messageId1 = sqliteDatabase.createMessage(folderId = sourceFolderId, date = 1000L)
+        val messageId2 = sqliteDatabase.createMessage(folderId = sourceFolderId, date = 2000L)
+        val threadId = sqliteDatabase.createThread(messageId1)
+        sqliteDatabase.createThread(messageId2, root = threadId, parent = threadId)
+
+        sqliteDatabase.updateMessage(messageId2, "folder_id" to destinationFolderId)
+
+        val summaries = sqliteDatabase.readThreadSummaries().associateBy { it.folderId }
+        assertThat(summaries.keys).containsExactly(sourceFolderId, destinationFolderId)
+        assertThat(summaries[sourceFolderId]!!.newestMessageId).isEqualTo(messageId1)
+        assertThat(summaries[destinationFolderId]!!.newestMessageId).isEqualTo(messageId2)
+    }
+
+    @Test
+    fun `removing newest message should update thread summary`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId1 = sqliteDatabase.createMessage(folderId = folderId, date = 1000L)
+        val messageId2 = sqliteDatabase.createMessage(folderId = folderId, date = 2000L)
+        val threadId = sqliteDatabase.createThread(messageId1)
+        sqliteDatabase.createThread(messageId2, root = threadId, parent = threadId)
+
+        sqliteDatabase.delete("messages", "id = ?", arrayOf(messageId2.toString()))
+
+        val summary = sqliteDatabase.readThreadSummaries().single()
+        assertThat(summary.newestMessageId).isEqualTo(messageId1)
+        assertThat(summary.messageCount).isEqualTo(1)
+    }
+
+    @Test
+    fun `removing last message should remove thread summary`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId = sqliteDatabase.createMessage(folderId = folderId)
+        sqliteDatabase.createThread(messageId)
+
+        sqliteDatabase.delete("messages", "id = ?", arrayOf(messageId.toString()))
+
+        assertThat(sqliteDatabase.readThreadSummaries()).isEmpty()
+    }
+
+    @Test
+    fun `merging threads should combine thread summaries`() {
+        val folderId = sqliteDatabase.createFolder()
+        val messageId1 = sqliteDatabase.createMessage(folderId = folderId, date = 1000L)
+        val messageId2 = sqliteDatabase.createMessage(folderId = folderId, date = 2000L)
+        val threadId1 = sqliteDatabase.createThread(messageId1)
+        val threadId2 = sqliteDatabase.createThread(messageId2)
+
+        sqliteDatabase.execSQL("UPDATE threads SET root = ? WHERE root = ?", arrayOf(threadId1, threadId2))
+
+        val summary = sqliteDatabase.readThreadSummaries().single()
+        assertThat(summary.root).isEqualTo(threadId1)
+        assertThat(summary.newestMessageId).isEqualTo(messageId2)
+        assertThat(summary.messageCount).isEqualTo(2)
+    }
+
+    private fun SQLiteDatabase.updateMessage(messageId: Long, vararg values: Pair<String, Long>) {
+        val contentValues = ContentValues().apply {
+            for ((key, value) in values) {
+                put(key, value)
+            }
+        }
+        update("messages", contentValues, "id = ?", arrayOf(messageId.toString()))
+    }
+
+    private fun SQLiteDatabase.readThreadSummaries(): List<ThreadSummary> {
+        return rawQuery(
+            "SELECT root, folder_id, newest_message_id, message_count, unread_count, flagged_count, date " +
+                "FROM thread_summary",
+            null
+        ).use { cursor ->
+            val summaries = mutableListOf<ThreadSummary>()
+            while (cursor.moveToNext()) {
+                summaries.add(
+                    ThreadSummary(
+                        root = cursor.getLong(0),
+                        folderId = cursor.getLong(1),
+                        newestMessageId = cursor.getLong(2),
+                        messageCount = cursor.getInt(3),
+                        unreadCount = cursor.getInt(4),
+                        flaggedCount = cursor.getInt(5),
+                        date = cursor.getLong(6)
+                    )
+                )
+            }
+            summaries
+        }
+    }
+
+    private data class ThreadSummary(
+        val root: Long,
+        val folderId: Long,
+        val newestMessageId: Long,
+        val messageCount: Int,
+        val unreadCount: Int,
+        val flaggedCount: Int,
+        val date: Long
+    )
+}
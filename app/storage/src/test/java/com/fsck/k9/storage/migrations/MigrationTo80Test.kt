@@ -0,0 +1,76 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.storage.RobolectricTest
+import com.fsck.k9.storage.messages.createDatabase
+import com.fsck.k9.storage.messages.createFolder
+import com.fsck.k9.storage.messages.createMessage
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+
+class MigrationTo80Test : RobolectricTest() {
+    private val database = createDatabase()
+    private val folderId = database.createFolder()
+
+    @Before
+    fun setUp() {
+        // Recreate the full-text table as it was before version 80
+        database.execSQL("DROP TABLE messages_fulltext")
+        database.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext)")
+    }
+
+    @Test
+    fun `subject, sender, and recipients should be searchable after migration`() {
+        val messageId = database.createMessage(
+            folderId = folderId,
+            subject = "Quarterly report",
+            senderList = "Alice <alice@domain.example>",
+            toList = "Bob <bob@domain.example>\u0000Carol <carol@domain.example>",
+            ccList = "Dave <dave@domain.example>",
+            bccList = ""
+        )
+
+        MigrationTo80(database).addColumnsToFulltextIndex()
+
+        assertThat(database.match("subject", "quarter*")).containsExactly(messageId)
+        assertThat(database.match("sender", "alice")).containsExactly(messageId)
+        assertThat(database.match("recipients", "carol")).containsExactly(messageId)
+        assertThat(database.match("recipients", "dave")).containsExactly(messageId)
+    }
+
+    @Test
+    fun `existing body text should be kept`() {
+        val messageId = database.createMessage(folderId = folderId, subject = "Subject")
+        database.insertFulltext(messageId, "body text")
+
+        MigrationTo80(database).addColumnsToFulltextIndex()
+
+        assertThat(database.match("fulltext", "body")).containsExactly(messageId)
+    }
+
+    @Test
+    fun `empty and deleted messages should not be indexed`() {
+        database.createMessage(folderId = folderId, subject = "empty", empty = true)
+        database.createMessage(folderId = folderId, subject = "deleted", deleted = true)
+
+        MigrationTo80(database).addColumnsToFulltextIndex()
+
+        assertThat(database.match("subject", "empty OR deleted")).isEmpty()
+    }
+
+    private fun SQLiteDatabase.insertFulltext(messageId: Long, text: String) {
+        execSQL("INSERT INTO messages_fulltext (docid, fulltext) VALUES (?, ?)", arrayOf(messageId, text))
+    }
+
+    private fun SQLiteDatabase.match(column: String, expression: String): List<Long> {
+        val query = "SELECT docid FROM messages_fulltext WHERE $column MATCH ?"
+        return rawQuery(query, arrayOf(expression)).use { cursor ->
+            val messageIds = mutableListOf<Long>()
+            while (cursor.moveToNext()) {
+                messageIds.add(cursor.getLong(0))
+            }
+            messageIds
+        }
+    }
+}
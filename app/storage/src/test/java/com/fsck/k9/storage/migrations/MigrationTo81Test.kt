@@ -0,0 +1,92 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.storage.RobolectricTest
+import com.fsck.k9.storage.messages.createDatabase
+import com.fsck.k9.storage.messages.createFolder
+import com.fsck.k9.storage.messages.createMessage
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+
+class MigrationTo81Test : RobolectricTest() {
+    private val database = createDatabase()
+
+    @Before
+    fun setUp() {
+        // Recreate the 'folders' table as it was before version 81, i.e. without 'message_count' and without the
+        // triggers that keep the counts up to date
+        database.execSQL("DROP TRIGGER folder_counts_message_inserted")
+        database.execSQL("DROP TRIGGER folder_counts_message_deleted")
+        database.execSQL("DROP TRIGGER folder_counts_message_updated")
+        database.execSQL("DROP TABLE folders")
+        database.execSQL(
+            "CREATE TABLE folders (" +
+                "id INTEGER PRIMARY KEY," +
+                "name TEXT, " +
+                "last_updated INTEGER, " +
+                "unread_count INTEGER, " +
+                "visible_limit INTEGER, " +
+                "status TEXT, " +
+                "flagged_count INTEGER default 0, " +
+                "integrate INTEGER, " +
+                "top_group INTEGER, " +
+                "poll_class TEXT, " +
+                "push_class TEXT, " +
+                "display_class TEXT, " +
+                "notify_class TEXT default 'INHERITED', " +
+                "more_messages TEXT default \"unknown\", " +
+                "server_id TEXT, " +
+                "local_only INTEGER, " +
+                "type TEXT DEFAULT \"regular\"" +
+                ")"
+        )
+    }
+
+    @Test
+    fun `folder counts should be computed from existing messages`() {
+        val folderId = database.createFolder(name = "Inbox", unreadCount = 7, flaggedCount = 3)
+        val otherFolderId = database.createFolder(name = "Archive", unreadCount = 1)
+        database.createMessage(folderId = folderId, read = true)
+        database.createMessage(folderId = folderId, read = false, flagged = true)
+        database.createMessage(folderId = folderId, read = false)
+        database.createMessage(folderId = folderId, read = false, flagged = true, empty = true)
+        database.createMessage(folderId = folderId, read = false, flagged = true, deleted = true)
+        database.createMessage(folderId = otherFolderId, read = true, flagged = true)
+
+        MigrationTo81(database).addFolderCountTriggers()
+
+        assertThat(database.readFolderCounts(folderId)).isEqualTo(Triple(3, 2, 1))
+        assertThat(database.readFolderCounts(otherFolderId)).isEqualTo(Triple(1, 0, 1))
+    }
+
+    @Test
+    fun `folder without messages should have zero counts`() {
+        val folderId = database.createFolder(unreadCount = 5, flaggedCount = 2)
+
+        MigrationTo81(database).addFolderCountTriggers()
+
+        assertThat(database.readFolderCounts(folderId)).isEqualTo(Triple(0, 0, 0))
+    }
+
+    @Test
+    fun `folder counts should be kept up to date after migration`() {
+        val folderId = database.createFolder()
+        database.createMessage(folderId = folderId, read = true)
+
+        MigrationTo81(database).addFolderCountTriggers()
+        database.createMessage(folderId = folderId, read = false, flagged = true)
+
+        assertThat(database.readFolderCounts(folderId)).isEqualTo(Triple(2, 1, 1))
+    }
+
+    private fun SQLiteDatabase.readFolderCounts(folderId: Long): Triple<Int, Int, Int> {
+        return rawQuery(
+            "SELECT message_count, unread_count, flagged_count FROM folders WHERE id = ?",
+            arrayOf(folderId.toString())
+        ).use { cursor ->
+            cursor.moveToFirst()
+            Triple(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2))
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.helper.getLongOrNull
+import com.fsck.k9.helper.map
+import com.fsck.k9.storage.RobolectricTest
+import com.fsck.k9.storage.messages.createDatabase
+import com.fsck.k9.storage.messages.createFolder
+import com.fsck.k9.storage.messages.createMessage
+import com.fsck.k9.storage.messages.createThread
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+
+class MigrationTo82Test : RobolectricTest() {
+    private val database = createDatabase()
+
+    @Before
+    fun setUp() {
+        // Remove the thread summary table and its triggers as they didn't exist before version 82
+        database.execSQL("DROP TRIGGER thread_summary_thread_inserted")
+        database.execSQL("DROP TRIGGER thread_summary_thread_updated")
+        database.execSQL("DROP TRIGGER thread_summary_thread_deleted")
+        database.execSQL("DROP TRIGGER thread_summary_message_updated")
+        database.execSQL("DROP TABLE thread_summary")
+    }
+
+    @Test
+    fun `thread summaries of existing threads should match those maintained by the triggers`() {
+        database.createThreadsAndMessages()
+        val expectedDatabase = createDatabase().apply { createThreadsAndMessages() }
+
+        MigrationTo82(database).addThreadSummaryTable()
+
+        val expectedSummaries = expectedDatabase.readThreadSummaries()
+        assertThat(expectedSummaries).hasSize(4)
+        assertThat(database.readThreadSummaries()).containsExactlyElementsIn(expectedSummaries)
+    }
+
+    @Test
+    fun `thread summaries should be kept up to date after migration`() {
+        val folderId = database.createFolder()
+        val messageId1 = database.createMessage(folderId = folderId, date = 1000L, read = true)
+        val threadId = database.createThread(messageId1)
+
+        MigrationTo82(database).addThreadSummaryTable()
+        val messageId2 = database.createMessage(folderId = folderId, date = 2000L, read = false)
+        database.createThread(messageId2, root = threadId, parent = threadId)
+
+        val summary = database.readThreadSummaries().single()
+        assertThat(summary.root).isEqualTo(threadId)
+        assertThat(summary.newestMessageId).isEqualTo(messageId2)
+        assertThat(summary.messageCount).isEqualTo(2L)
+        assertThat(summary.unreadCount).isEqualTo(1L)
+    }
+
+    private fun SQLiteDatabase.createThreadsAndMessages() {
+        val inboxFolderId = createFolder(name = "Inbox")
+        val archiveFolderId = createFolder(name = "Archive")
+
+        // Thread with messages in two folders
+        val messageId1 = createMessage(folderId = inboxFolderId, date = 1000L, internalDate = 1100L, read = true)
+        val messageId2 = createMessage(folderId = inboxFolderId, date = 3000L, flagged = true, attachmentCount = 2)
+        val messageId3 = createMessage(folderId = archiveFolderId, date = 2000L, read = true, answered = true)
+        val threadId1 = createThread(messageId1)
+        createThread(messageId2, root = threadId1, parent = threadId1)
+        createThread(messageId3, root = threadId1, parent = threadId1)
+
+        // Thread with an empty placeholder message as root and a deleted message
+        val messageId4 = createMessage(folderId = inboxFolderId, empty = true)
+        val messageId5 = createMessage(folderId = inboxFolderId, date = 4000L, forwarded = true)
+        val messageId6 = createMessage(folderId = inboxFolderId, date = 5000L, deleted = true)
+        val threadId2 = createThread(messageId4)
+        createThread(messageId5, root = threadId2, parent = threadId2)
+        createThread(messageId6, root = threadId2, parent = threadId2)
+
+        // Thread without any visible messages
+        val messageId7 = createMessage(folderId = inboxFolderId, deleted = true)
+        createThread(messageId7)
+
+        // Messages with the same date
+        val messageId8 = createMessage(folderId = archiveFolderId, date = 6000L, read = true)
+        val messageId9 = createMessage(folderId = archiveFolderId, date = 6000L, read = true, flagged = true)
+        val threadId3 = createThread(messageId8)
+        createThread(messageId9, root = threadId3, parent = threadId3)
+    }
+
+    private fun SQLiteDatabase.readThreadSummaries(): List<ThreadSummaryEntry> {
+        return rawQuery("SELECT * FROM thread_summary", null).use { cursor ->
+            cursor.map {
+                ThreadSummaryEntry(
+                    root = cursor.getLongOrNull("root"),
+                    folderId = cursor.getLongOrNull("folder_id"),
+                    newestMessageId = cursor.getLongOrNull("newest_message_id"),
+                    messageCount = cursor.getLongOrNull("message_count"),
+                    unreadCount = cursor.getLongOrNull("unread_count"),
+                    flaggedCount = cursor.getLongOrNull("flagged_count"),
+                    date = cursor.getLongOrNull("date"),
+                    internalDate = cursor.getLongOrNull("internal_date"),
+                    attachmentCount = cursor.getLongOrNull("attachment_count"),
+                    read = cursor.getLongOrNull("read"),
+                    flagged = cursor.getLongOrNull("flagged"),
+                    answered = cursor.getLongOrNull("answered"),
+                    forwarded = cursor.getLongOrNull("forwarded")
+                )
+            }
+        }
+    }
+
+    private data class ThreadSummaryEntry(
+        val root: Long?,
+        val folderId: Long?,
+        val newestMessageId: Long?,
+        val messageCount: Long?,
+        val unreadCount: Long?,
+        val flaggedCount: Long?,
+        val date: Long?,
+        val internalDate: Long?,
+        val attachmentCount: Long?,
+        val read: Long?,
+        val flagged: Long?,
+        val answered: Long?,
+        val forwarded: Long?
+    )
+}
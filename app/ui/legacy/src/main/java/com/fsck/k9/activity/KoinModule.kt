@@ -3,5 +3,5 @@ package com.fsck.k9.activity
 import org.koin.dsl.module
 
 val activityModule = module {
-    single { MessageLoaderHelperFactory(get(), get()) }
+    single { MessageLoaderHelperFactory(get(), get(), get()) }
 }
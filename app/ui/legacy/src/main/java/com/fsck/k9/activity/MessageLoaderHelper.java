@@ -28,6 +28,7 @@ import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mailstore.LocalMessage;
 import com.fsck.k9.mailstore.MessageCryptoAnnotations;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import com.fsck.k9.mailstore.MessageViewInfo;
 import com.fsck.k9.mailstore.MessageViewInfoExtractor;
 import com.fsck.k9.ui.crypto.MessageCryptoCallback;
@@ -85,6 +86,7 @@ public class MessageLoaderHelper {
     @Nullable // make this explicitly nullable, make sure to cancel/ignore any operation if this is null
     private MessageLoaderCallbacks callback;
     private final MessageViewInfoExtractor messageViewInfoExtractor;
+    private final MessageCryptoResultCache messageCryptoResultCache;
     private Handler handler = new Handler(Looper.getMainLooper());
 
     // transient state
@@ -100,12 +102,14 @@ public class MessageLoaderHelper {
 
 
     public MessageLoaderHelper(Context context, LoaderManager loaderManager, FragmentManager fragmentManager,
-            @NonNull MessageLoaderCallbacks callback, MessageViewInfoExtractor messageViewInfoExtractor) {
+            @NonNull MessageLoaderCallbacks callback, MessageViewInfoExtractor messageViewInfoExtractor,
+            MessageCryptoResultCache messageCryptoResultCache) {
         this.context = context;
         this.loaderManager = loaderManager;
         this.fragmentManager = fragmentManager;
         this.callback = callback;
         this.messageViewInfoExtractor = messageViewInfoExtractor;
+        this.messageCryptoResultCache = messageCryptoResultCache;
     }
 
 
@@ -149,7 +153,7 @@ public class MessageLoaderHelper {
 
         String openPgpProvider = account.getOpenPgpProvider();
         if (openPgpProvider != null) {
-            startOrResumeCryptoOperation(openPgpProvider);
+            startOrResumeCryptoOperation(openPgpProvider, true);
         } else {
             startOrResumeDecodeMessage();
         }
@@ -237,7 +241,7 @@ public class MessageLoaderHelper {
 
         String openPgpProvider = account.getOpenPgpProvider();
         if (openPgpProvider != null) {
-            startOrResumeCryptoOperation(openPgpProvider);
+            startOrResumeCryptoOperation(openPgpProvider, false);
             return;
         }
 
@@ -296,18 +300,26 @@ public class MessageLoaderHelper {
 
     // process with crypto helper
 
-    private void startOrResumeCryptoOperation(String openPgpProvider) {
+    private void startOrResumeCryptoOperation(String openPgpProvider, boolean restart) {
         RetainFragment<MessageCryptoHelper> retainCryptoHelperFragment = getMessageCryptoHelperRetainFragment(true);
         if (retainCryptoHelperFragment.hasData()) {
             messageCryptoHelper = retainCryptoHelperFragment.getData();
         }
-        if (messageCryptoHelper == null || !messageCryptoHelper.isConfiguredForOpenPgpProvider(openPgpProvider)) {
+        if (restart || messageCryptoHelper == null ||
+                !messageCryptoHelper.isConfiguredForOpenPgpProvider(openPgpProvider)) {
             messageCryptoHelper = new MessageCryptoHelper(
-                    context, new OpenPgpApiFactory(), AutocryptOperations.getInstance(), openPgpProvider);
+                    context, new OpenPgpApiFactory(), AutocryptOperations.getInstance(), messageCryptoResultCache,
+                    openPgpProvider);
             retainCryptoHelperFragment.setData(messageCryptoHelper);
         }
-        messageCryptoHelper.asyncStartOrResumeProcessingMessage(
-                localMessage, messageCryptoCallback, cachedDecryptionResult, !account.isOpenPgpHideSignOnly());
+        boolean processSignedOnly = !account.isOpenPgpHideSignOnly();
+        if (restart) {
+            messageCryptoHelper.asyncRestartProcessingMessage(
+                    localMessage, messageCryptoCallback, cachedDecryptionResult, processSignedOnly);
+        } else {
+            messageCryptoHelper.asyncStartOrResumeProcessingMessage(
+                    localMessage, messageCryptoCallback, cachedDecryptionResult, processSignedOnly);
+        }
     }
 
     private void cancelAndClearCryptoOperation() {
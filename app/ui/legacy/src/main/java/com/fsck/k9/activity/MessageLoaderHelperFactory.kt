@@ -4,12 +4,14 @@ import android.content.Context
 import androidx.fragment.app.FragmentManager
 import androidx.loader.app.LoaderManager
 import com.fsck.k9.activity.MessageLoaderHelper.MessageLoaderCallbacks
+import com.fsck.k9.mailstore.MessageCryptoResultCache
 import com.fsck.k9.mailstore.MessageViewInfoExtractorFactory
 import com.fsck.k9.ui.helper.HtmlSettingsProvider
 
 class MessageLoaderHelperFactory(
     private val messageViewInfoExtractorFactory: MessageViewInfoExtractorFactory,
-    private val htmlSettingsProvider: HtmlSettingsProvider
+    private val htmlSettingsProvider: HtmlSettingsProvider,
+    private val messageCryptoResultCache: MessageCryptoResultCache
 ) {
     fun createForMessageView(
         context: Context,
@@ -19,7 +21,14 @@ class MessageLoaderHelperFactory(
     ): MessageLoaderHelper {
         val htmlSettings = htmlSettingsProvider.createForMessageView()
         val messageViewInfoExtractor = messageViewInfoExtractorFactory.create(htmlSettings)
-        return MessageLoaderHelper(context, loaderManager, fragmentManager, callback, messageViewInfoExtractor)
+        return MessageLoaderHelper(
+            context,
+            loaderManager,
+            fragmentManager,
+            callback,
+            messageViewInfoExtractor,
+            messageCryptoResultCache
+        )
     }
 
     fun createForMessageCompose(
@@ -30,6 +39,13 @@ class MessageLoaderHelperFactory(
     ): MessageLoaderHelper {
         val htmlSettings = htmlSettingsProvider.createForMessageCompose()
         val messageViewInfoExtractor = messageViewInfoExtractorFactory.create(htmlSettings)
-        return MessageLoaderHelper(context, loaderManager, fragmentManager, callback, messageViewInfoExtractor)
+        return MessageLoaderHelper(
+            context,
+            loaderManager,
+            fragmentManager,
+            callback,
+            messageViewInfoExtractor,
+            messageCryptoResultCache
+        )
     }
 }
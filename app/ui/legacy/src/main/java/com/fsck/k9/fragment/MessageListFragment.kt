@@ -10,6 +10,7 @@ import android.view.Menu
 import android.view.MenuItem
 import android.view.View
 import android.view.ViewGroup
+import android.widget.AbsListView
 import android.widget.AdapterView
 import android.widget.AdapterView.OnItemClickListener
 import android.widget.AdapterView.OnItemLongClickListener
@@ -230,6 +231,21 @@ class MessageListFragment :
             isScrollingCacheEnabled = false
             onItemClickListener = this@MessageListFragment
             onItemLongClickListener = this@MessageListFragment
+            setOnScrollListener(object : AbsListView.OnScrollListener {
+                override fun onScrollStateChanged(view: AbsListView, scrollState: Int) = Unit
+
+                override fun onScroll(
+                    view: AbsListView,
+                    firstVisibleItem: Int,
+                    visibleItemCount: Int,
+                    totalItemCount: Int
+                ) {
+                    val lastVisibleItem = firstVisibleItem + visibleItemCount
+                    if (totalItemCount > 0 && lastVisibleItem >= totalItemCount - LOAD_MORE_THRESHOLD) {
+                        viewModel.loadMoreMessages()
+                    }
+                }
+            })
         }
     }
 
@@ -1901,6 +1917,11 @@ class MessageListFragment :
         private const val STATE_REMOTE_SEARCH_PERFORMED = "remoteSearchPerformed"
         private const val STATE_MESSAGE_LIST = "listState"
 
+        /**
+         * Load more messages when the list is scrolled to within this many items of its end.
+         */
+        private const val LOAD_MORE_THRESHOLD = 20
+
         fun newInstance(search: LocalSearch, isThreadDisplay: Boolean, threadedList: Boolean): MessageListFragment {
             return MessageListFragment().apply {
                 arguments = bundleOf(
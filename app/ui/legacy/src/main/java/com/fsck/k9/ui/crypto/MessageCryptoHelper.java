@@ -18,6 +18,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.fsck.k9.autocrypt.AutocryptOperations;
+import com.fsck.k9.controller.MessageReference;
 import com.fsck.k9.crypto.MessageCryptoStructureDetector;
 import com.fsck.k9.mail.Address;
 import com.fsck.k9.mail.Body;
@@ -34,7 +35,9 @@ import com.fsck.k9.mail.internet.SizeAware;
 import com.fsck.k9.mail.internet.TextBody;
 import com.fsck.k9.mailstore.CryptoResultAnnotation;
 import com.fsck.k9.mailstore.CryptoResultAnnotation.CryptoError;
+import com.fsck.k9.mailstore.LocalMessage;
 import com.fsck.k9.mailstore.MessageCryptoAnnotations;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import com.fsck.k9.mailstore.MessageHelper;
 import com.fsck.k9.mailstore.MimePartStreamParser;
 import com.fsck.k9.mailstore.util.FileFactory;
@@ -66,6 +69,7 @@ public class MessageCryptoHelper {
     private final AutocryptOperations autocryptOperations;
     private final Object callbackLock = new Object();
     private final Deque<CryptoPart> partsToProcess = new ArrayDeque<>();
+    private final MessageCryptoResultCache resultCache;
 
     @Nullable
     private MessageCryptoCallback callback;
@@ -91,10 +95,12 @@ public class MessageCryptoHelper {
 
 
     public MessageCryptoHelper(Context context, OpenPgpApiFactory openPgpApiFactory,
-            AutocryptOperations autocryptOperations, @NonNull String openPgpProvider) {
+            AutocryptOperations autocryptOperations, MessageCryptoResultCache resultCache,
+            @NonNull String openPgpProvider) {
         this.context = context.getApplicationContext();
 
         this.autocryptOperations = autocryptOperations;
+        this.resultCache = resultCache;
         this.openPgpApiFactory = openPgpApiFactory;
         this.openPgpProvider = openPgpProvider;
     }
@@ -110,6 +116,25 @@ public class MessageCryptoHelper {
             return;
         }
 
+        startProcessingMessage(message, callback, cachedDecryptionResult, processSignedOnly, false);
+    }
+
+    /**
+     * Processes the message without using a cached result, e.g. after the user imported a missing key.
+     * <p>
+     * The cached result is discarded even if processing the message fails.
+     */
+    public void asyncRestartProcessingMessage(Message message, MessageCryptoCallback callback,
+            OpenPgpDecryptionResult cachedDecryptionResult, boolean processSignedOnly) {
+        if (this.currentMessage != null) {
+            throw new IllegalStateException("Can't restart a crypto helper that's already in use");
+        }
+
+        startProcessingMessage(message, callback, cachedDecryptionResult, processSignedOnly, true);
+    }
+
+    private void startProcessingMessage(Message message, MessageCryptoCallback callback,
+            OpenPgpDecryptionResult cachedDecryptionResult, boolean processSignedOnly, boolean restart) {
         this.messageAnnotations = new MessageCryptoAnnotations();
         this.state = State.START;
         this.currentMessage = message;
@@ -117,9 +142,44 @@ public class MessageCryptoHelper {
         this.callback = callback;
         this.processSignedOnly = processSignedOnly;
 
+        if (restart) {
+            invalidateCachedResult();
+        }
+
+        MessageCryptoAnnotations cachedAnnotations = getCachedAnnotations();
+        if (cachedAnnotations != null) {
+            Timber.d("Using cached crypto result");
+            messageAnnotations = cachedAnnotations;
+            state = State.FINISHED;
+            callbackReturnResult();
+            return;
+        }
+
         nextStep();
     }
 
+    private MessageCryptoAnnotations getCachedAnnotations() {
+        if (!(currentMessage instanceof LocalMessage)) {
+            return null;
+        }
+
+        MessageReference messageReference = ((LocalMessage) currentMessage).makeMessageReference();
+        return resultCache.get(messageReference, openPgpProvider, processSignedOnly, currentMessage);
+    }
+
+    private void invalidateCachedResult() {
+        if (currentMessage instanceof LocalMessage) {
+            resultCache.invalidate(((LocalMessage) currentMessage).makeMessageReference());
+        }
+    }
+
+    private void addResultToCache() {
+        if (currentMessage instanceof LocalMessage) {
+            MessageReference messageReference = ((LocalMessage) currentMessage).makeMessageReference();
+            resultCache.put(messageReference, openPgpProvider, processSignedOnly, currentMessage, messageAnnotations);
+        }
+    }
+
     private void findPartsForMultipartEncryptionPass() {
         List<Part> encryptedParts = MessageCryptoStructureDetector.findMultipartEncryptedParts(currentMessage);
         for (Part part : encryptedParts) {
@@ -736,6 +796,7 @@ public class MessageCryptoHelper {
     private void callbackReturnResult() {
         synchronized (callbackLock) {
             cleanupAfterProcessingFinished();
+            addResultToCache();
 
             queuedResult = messageAnnotations;
             messageAnnotations = null;
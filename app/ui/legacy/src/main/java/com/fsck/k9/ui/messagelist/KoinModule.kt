@@ -6,7 +6,8 @@ import org.koin.dsl.module
 val messageListUiModule = module {
     viewModel { MessageListViewModel(get()) }
     factory { DefaultFolderProvider() }
-    factory { MessageListExtractor(get(), get()) }
+    single { MessageListItemCache(get(), get()) }
+    factory { MessageListExtractor(get(), get(), get()) }
     factory { MessageListLoader(get(), get(), get(), get()) }
-    factory { MessageListLiveDataFactory(get(), get(), get()) }
+    factory { MessageListLiveDataFactory(get(), get(), get(), get()) }
 }
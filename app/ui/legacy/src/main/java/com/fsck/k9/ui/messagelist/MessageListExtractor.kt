@@ -4,17 +4,51 @@ import android.database.Cursor
 import com.fsck.k9.Preferences
 import com.fsck.k9.fragment.MLFProjectionInfo
 import com.fsck.k9.helper.MessageHelper
-import com.fsck.k9.helper.map
 import com.fsck.k9.mail.Address
 import com.fsck.k9.mailstore.DatabasePreviewType
 import com.fsck.k9.ui.helper.DisplayAddressHelper
 
 class MessageListExtractor(
     private val preferences: Preferences,
-    private val messageHelper: MessageHelper
+    private val messageHelper: MessageHelper,
+    private val messageListItemCache: MessageListItemCache
 ) {
-    fun extractMessageList(cursor: Cursor, uniqueIdColumn: Int, threadCountIncluded: Boolean): List<MessageListItem> {
-        return cursor.map { extractMessageListItem(it, uniqueIdColumn, threadCountIncluded) }
+    fun extractMessageList(
+        cursor: Cursor,
+        uniqueIdColumn: Int,
+        threadCountIncluded: Boolean,
+        limit: Int
+    ): List<MessageListItem> {
+        val messageListItems = mutableListOf<MessageListItem>()
+        while (messageListItems.size < limit && cursor.moveToNext()) {
+            messageListItems.add(getMessageListItem(cursor, uniqueIdColumn, threadCountIncluded))
+        }
+
+        return messageListItems
+    }
+
+    private fun getMessageListItem(
+        cursor: Cursor,
+        uniqueIdColumn: Int,
+        threadCountIncluded: Boolean
+    ): MessageListItem {
+        val accountUuid = cursor.getString(MLFProjectionInfo.ACCOUNT_UUID_COLUMN)
+        val databaseId = cursor.getLong(MLFProjectionInfo.ID_COLUMN)
+        val columnCount = if (threadCountIncluded) {
+            MLFProjectionInfo.THREAD_COUNT_COLUMN + 1
+        } else {
+            MLFProjectionInfo.THREAD_COUNT_COLUMN
+        }
+        val columnValues = Array(columnCount) { columnIndex -> cursor.getString(columnIndex) }
+
+        val cachedMessageListItem = messageListItemCache.get(accountUuid, databaseId, columnValues)
+        if (cachedMessageListItem != null) {
+            return cachedMessageListItem.copy(position = cursor.position, uniqueId = cursor.getLong(uniqueIdColumn))
+        }
+
+        return extractMessageListItem(cursor, uniqueIdColumn, threadCountIncluded).also { messageListItem ->
+            messageListItemCache.put(accountUuid, databaseId, columnValues, messageListItem)
+        }
     }
 
     private fun extractMessageListItem(
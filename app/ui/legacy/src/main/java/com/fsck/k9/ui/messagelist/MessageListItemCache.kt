@@ -0,0 +1,91 @@
+package com.fsck.k9.ui.messagelist
+
+import android.util.LruCache
+import com.fsck.k9.mailstore.MessageRemovedListener
+import com.fsck.k9.mailstore.MessageStoreManager
+import com.fsck.k9.preferences.AccountManager
+
+/**
+ * Size-bounded cache of [MessageListItem]s, shared by all message lists.
+ *
+ * Extracting a [MessageListItem] from a cursor row parses the address lists and resolves display names, which may
+ * require a contacts lookup. Cache entries are keyed by account and database ID and remember the raw column values
+ * they were created from. When a message list is reloaded, rows whose column values didn't change reuse the cached
+ * item. So a reload only extracts the rows that were added or changed.
+ *
+ * Entries of messages that were moved or removed are dropped when the account's message store reports the removal.
+ * Display names also depend on settings and contacts that aren't part of the row. So [MessageListLiveData] clears the
+ * cache whenever a message list becomes active.
+ */
+class MessageListItemCache(
+    accountManager: AccountManager,
+    private val messageStoreManager: MessageStoreManager
+) {
+    private val accountCaches = mutableMapOf<String, AccountCache>()
+
+    init {
+        accountManager.addAccountRemovedListener { account ->
+            removeAccountCache(account.uuid)
+        }
+    }
+
+    /**
+     * Returns the cached item for the message with ID [databaseId] if it was created from the same [columnValues].
+     */
+    fun get(accountUuid: String, databaseId: Long, columnValues: Array<String?>): MessageListItem? {
+        val accountCache = synchronized(accountCaches) { accountCaches[accountUuid] } ?: return null
+        val entry = accountCache.get(databaseId) ?: return null
+
+        return if (entry.columnValues.contentEquals(columnValues)) entry.item else null
+    }
+
+    fun put(accountUuid: String, databaseId: Long, columnValues: Array<String?>, item: MessageListItem) {
+        getAccountCache(accountUuid).put(databaseId, Entry(columnValues, item))
+    }
+
+    fun clear() {
+        val caches = synchronized(accountCaches) { accountCaches.values.toList() }
+        for (accountCache in caches) {
+            accountCache.evictAll()
+        }
+    }
+
+    private fun getAccountCache(accountUuid: String): AccountCache {
+        return synchronized(accountCaches) {
+            accountCaches.getOrPut(accountUuid) {
+                AccountCache().also { accountCache ->
+                    messageStoreManager.getMessageStore(accountUuid).addMessageRemovedListener(accountCache)
+                }
+            }
+        }
+    }
+
+    private fun removeAccountCache(accountUuid: String) {
+        synchronized(accountCaches) {
+            accountCaches.remove(accountUuid)
+        }?.evictAll()
+    }
+
+    private class Entry(val columnValues: Array<String?>, val item: MessageListItem)
+
+    private class AccountCache : LruCache<Long, Entry>(MAX_ENTRIES_PER_ACCOUNT), MessageRemovedListener {
+        override fun onMessagesRemoved(messageIds: Collection<Long>) {
+            for (messageId in messageIds) {
+                remove(messageId)
+            }
+        }
+
+        override fun onMessagesRemoved(folderId: Long, messageServerIds: Collection<String>) {
+            val messageServerIdSet = messageServerIds.toSet()
+            for ((messageId, entry) in snapshot()) {
+                if (entry.item.folderId == folderId && entry.item.messageUid in messageServerIdSet) {
+                    remove(messageId)
+                }
+            }
+        }
+    }
+
+    companion object {
+        private const val MAX_ENTRIES_PER_ACCOUNT = 1000
+    }
+}
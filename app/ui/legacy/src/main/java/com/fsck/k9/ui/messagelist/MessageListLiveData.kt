@@ -10,11 +10,13 @@ import com.fsck.k9.provider.EmailProvider
 import com.fsck.k9.search.getAccountUuids
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
 class MessageListLiveData(
     private val messageListLoader: MessageListLoader,
+    private val messageListItemCache: MessageListItemCache,
     private val preferences: Preferences,
     private val contentResolver: ContentResolver,
     private val coroutineScope: CoroutineScope,
@@ -27,17 +29,38 @@ class MessageListLiveData(
         }
     }
 
+    private var limit = PAGE_SIZE
+    private var loadJob: Job? = null
+
     private fun loadMessageListAsync() {
-        coroutineScope.launch(Dispatchers.Main) {
+        val limit = this.limit
+
+        loadJob?.cancel()
+        loadJob = coroutineScope.launch(Dispatchers.Main) {
             value = withContext(Dispatchers.IO) {
-                messageListLoader.getMessageList(config)
+                messageListLoader.getMessageList(config, limit)
             }
         }
     }
 
+    /**
+     * Extend the message list by another page if the currently loaded message list was truncated.
+     *
+     * Calling this again before the extended message list has been loaded doesn't have any effect.
+     */
+    fun loadMoreMessages() {
+        if (!canLoadMoreMessages(value, limit)) return
+
+        limit += PAGE_SIZE
+        loadMessageListAsync()
+    }
+
     override fun onActive() {
         super.onActive()
 
+        // Display names depend on settings and contacts that might have changed while the list wasn't visible
+        messageListItemCache.clear()
+
         registerContentObserverAsync()
         loadMessageListAsync()
     }
@@ -65,4 +88,20 @@ class MessageListLiveData(
             EmailProvider.getNotificationUri(accountUuid)
         }
     }
+
+    companion object {
+        private const val PAGE_SIZE = 100
+
+        /**
+         * Returns `true` if [messageListInfo] was truncated and was loaded using the current [limit].
+         *
+         * If fewer than [limit] items were loaded, either there are no more messages or the message list for the
+         * current limit hasn't been loaded yet.
+         */
+        internal fun canLoadMoreMessages(messageListInfo: MessageListInfo?, limit: Int): Boolean {
+            return messageListInfo != null &&
+                messageListInfo.isTruncated &&
+                messageListInfo.messageListItems.size >= limit
+        }
+    }
 }
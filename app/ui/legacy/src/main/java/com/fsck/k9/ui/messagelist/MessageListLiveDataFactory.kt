@@ -6,10 +6,18 @@ import kotlinx.coroutines.CoroutineScope
 
 class MessageListLiveDataFactory(
     private val messageListLoader: MessageListLoader,
+    private val messageListItemCache: MessageListItemCache,
     private val preferences: Preferences,
     private val contentResolver: ContentResolver
 ) {
     fun create(coroutineScope: CoroutineScope, config: MessageListConfig): MessageListLiveData {
-        return MessageListLiveData(messageListLoader, preferences, contentResolver, coroutineScope, config)
+        return MessageListLiveData(
+            messageListLoader,
+            messageListItemCache,
+            preferences,
+            contentResolver,
+            coroutineScope,
+            config
+        )
     }
 }
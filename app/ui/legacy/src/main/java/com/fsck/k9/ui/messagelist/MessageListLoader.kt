@@ -25,6 +25,7 @@ import com.fsck.k9.helper.MergeCursorWithUniqueId
 import com.fsck.k9.mailstore.LocalStoreProvider
 import com.fsck.k9.provider.EmailProvider
 import com.fsck.k9.search.LocalSearch
+import com.fsck.k9.search.SearchSpecification.Attribute
 import com.fsck.k9.search.SearchSpecification.SearchField
 import com.fsck.k9.search.SqlQueryBuilder
 import com.fsck.k9.search.getAccounts
@@ -39,15 +40,24 @@ class MessageListLoader(
     private val messageListExtractor: MessageListExtractor
 ) {
 
-    fun getMessageList(config: MessageListConfig): MessageListInfo {
+    /**
+     * Loads the first [limit] entries of the message list.
+     *
+     * Every account query is limited to `limit + 1` rows. So the cost of loading the message list only depends on
+     * [limit] and the number of accounts, not on the number of messages matching the search. The extra row is used to
+     * find out whether there are more entries than were returned (see [MessageListInfo.isTruncated]).
+     */
+    fun getMessageList(config: MessageListConfig, limit: Int): MessageListInfo {
+        require(limit > 0) { "'limit' must be positive" }
+
         val accounts = config.search.getAccounts(preferences)
         val cursors = accounts
-            .mapNotNull { loadMessageListForAccount(it, config) }
+            .mapNotNull { loadMessageListForAccount(it, config, limit + 1) }
             .toTypedArray()
 
         if (cursors.isEmpty()) {
             Timber.w("Couldn't get message list")
-            return MessageListInfo(messageListItems = emptyList(), hasMoreMessages = false)
+            return MessageListInfo(messageListItems = emptyList(), hasMoreMessages = false, isTruncated = false)
         }
 
         val cursor: Cursor
@@ -60,26 +70,30 @@ class MessageListLoader(
             uniqueIdColumn = cursor.getColumnIndex("_id")
         }
 
+        var isTruncated = false
         val messageListItems = cursor.use {
+            isTruncated = cursor.count > limit
             messageListExtractor.extractMessageList(
                 cursor,
                 uniqueIdColumn,
-                threadCountIncluded = config.showingThreadedList
+                threadCountIncluded = config.showingThreadedList,
+                limit
             )
         }
         val hasMoreMessages = loadHasMoreMessages(accounts, config.search.folderIds)
 
-        return MessageListInfo(messageListItems, hasMoreMessages)
+        return MessageListInfo(messageListItems, hasMoreMessages, isTruncated)
     }
 
     @SuppressLint("Recycle")
-    private fun loadMessageListForAccount(account: Account, config: MessageListConfig): Cursor? {
+    private fun loadMessageListForAccount(account: Account, config: MessageListConfig, limit: Int): Cursor? {
         val accountUuid = account.uuid
         val threadId: String? = getThreadId(config.search)
 
         val uri: Uri
         val projection: Array<String>
         val needConditions: Boolean
+        var threadedListFolderId: Long? = null
         when {
             threadId != null -> {
                 uri = Uri.withAppendedPath(EmailProvider.CONTENT_URI, "account/$accountUuid/thread/$threadId")
@@ -89,7 +103,8 @@ class MessageListLoader(
             config.showingThreadedList -> {
                 uri = Uri.withAppendedPath(EmailProvider.CONTENT_URI, "account/$accountUuid/messages/threaded")
                 projection = MLFProjectionInfo.THREADED_PROJECTION
-                needConditions = true
+                threadedListFolderId = getSingleFolderId(config, accountUuid)
+                needConditions = threadedListFolderId == null
             }
             else -> {
                 uri = Uri.withAppendedPath(EmailProvider.CONTENT_URI, "account/$accountUuid/messages")
@@ -120,9 +135,17 @@ class MessageListLoader(
         val selectionArgs = queryArgs.toTypedArray()
 
         val sortOrder: String = buildSortOrder(config)
+        val limitedUri = uri.buildUpon()
+            .appendQueryParameter(EmailProvider.QUERY_PARAMETER_LIMIT, limit.toString())
+            .apply {
+                if (threadedListFolderId != null) {
+                    appendQueryParameter(EmailProvider.QUERY_PARAMETER_FOLDER_ID, threadedListFolderId.toString())
+                }
+            }
+            .build()
 
         return try {
-            contentResolver.query(uri, projection, selection, selectionArgs, sortOrder)
+            contentResolver.query(limitedUri, projection, selection, selectionArgs, sortOrder)
         } catch (e: SQLiteException) {
             Timber.e(e, "Error querying EmailProvider")
 
@@ -134,6 +157,26 @@ class MessageListLoader(
         }
     }
 
+    /**
+     * Returns the folder ID if the search consists of a single folder condition, so the threaded list can be read from
+     * the thread summaries of that folder.
+     *
+     * The active message is selected in addition to the search results so it stays in the list. If it's located in the
+     * same folder, its thread is already part of the folder's threaded list. Otherwise the generic query is used.
+     */
+    private fun getSingleFolderId(config: MessageListConfig, accountUuid: String): Long? {
+        val condition = config.search.leafSet?.singleOrNull()?.condition ?: return null
+        if (condition.field != SearchField.FOLDER || condition.attribute != Attribute.EQUALS) return null
+
+        val folderId = condition.value.toLongOrNull() ?: return null
+        val activeMessage = config.activeMessage
+        if (activeMessage != null && activeMessage.accountUuid == accountUuid && activeMessage.folderId != folderId) {
+            return null
+        }
+
+        return folderId
+    }
+
     private fun getThreadId(search: LocalSearch): String? {
         return search.leafSet.firstOrNull { it.condition.field == SearchField.THREAD_ID }?.condition?.value
     }
@@ -218,4 +261,12 @@ class MessageListLoader(
     }
 }
 
-data class MessageListInfo(val messageListItems: List<MessageListItem>, val hasMoreMessages: Boolean)
+/**
+ * @param hasMoreMessages `true` if the server has more messages that haven't been downloaded yet.
+ * @param isTruncated `true` if more messages are available locally than were loaded into [messageListItems].
+ */
+data class MessageListInfo(
+    val messageListItems: List<MessageListItem>,
+    val hasMoreMessages: Boolean,
+    val isTruncated: Boolean
+)
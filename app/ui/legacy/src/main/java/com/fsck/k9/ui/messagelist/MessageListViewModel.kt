@@ -26,6 +26,10 @@ class MessageListViewModel(private val messageListLiveDataFactory: MessageListLi
         }
     }
 
+    fun loadMoreMessages() {
+        currentMessageListLiveData?.loadMoreMessages()
+    }
+
     private fun removeCurrentMessageListLiveData() {
         currentMessageListLiveData?.let {
             currentMessageListLiveData = null
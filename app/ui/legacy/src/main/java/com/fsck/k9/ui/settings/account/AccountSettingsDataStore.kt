@@ -122,6 +122,7 @@ class AccountSettingsDataStore(
             "delete_policy" -> account.deletePolicy.name
             "expunge_policy" -> account.expungePolicy.name
             "max_push_folders" -> account.maxPushFolders.toString()
+            "max_parallel_folder_syncs" -> account.maxParallelFolderSyncs.toString()
             "idle_refresh_period" -> account.idleRefreshMinutes.toString()
             "message_format" -> account.messageFormat.name
             "quote_style" -> account.quoteStyle.name
@@ -169,6 +170,7 @@ class AccountSettingsDataStore(
             "delete_policy" -> account.deletePolicy = Account.DeletePolicy.valueOf(value)
             "expunge_policy" -> account.expungePolicy = Account.Expunge.valueOf(value)
             "max_push_folders" -> account.maxPushFolders = value.toInt()
+            "max_parallel_folder_syncs" -> account.maxParallelFolderSyncs = value.toInt()
             "idle_refresh_period" -> account.idleRefreshMinutes = value.toInt()
             "message_format" -> account.messageFormat = Account.MessageFormat.valueOf(value)
             "quote_style" -> account.quoteStyle = Account.QuoteStyle.valueOf(value)
@@ -68,6 +68,7 @@ class AccountSettingsFragment : PreferenceFragmentCompat(), ConfirmationDialogFr
         initializeDeletePolicy(account)
         initializeExpungePolicy(account)
         initializeMessageAge(account)
+        initializeMaxParallelFolderSyncs(account)
         initializeAdvancedPushSettings(account)
         initializeCryptoSettings(account)
         initializeFolderSettings(account)
@@ -168,6 +169,14 @@ class AccountSettingsFragment : PreferenceFragmentCompat(), ConfirmationDialogFr
         }
     }
 
+    private fun initializeMaxParallelFolderSyncs(account: Account) {
+        findPreference<Preference>(PREFERENCE_MAX_PARALLEL_FOLDER_SYNCS)?.apply {
+            if (!messagingController.supportsParallelSync(account)) {
+                remove()
+            }
+        }
+    }
+
     private fun initializeAdvancedPushSettings(account: Account) {
         if (!messagingController.isPushCapable(account)) {
             findPreference<Preference>(PREFERENCE_PUSH_MODE)?.remove()
@@ -360,6 +369,7 @@ class AccountSettingsFragment : PreferenceFragmentCompat(), ConfirmationDialogFr
         private const val PREFERENCE_DELETE_POLICY = "delete_policy"
         private const val PREFERENCE_EXPUNGE_POLICY = "expunge_policy"
         private const val PREFERENCE_MESSAGE_AGE = "account_message_age"
+        private const val PREFERENCE_MAX_PARALLEL_FOLDER_SYNCS = "max_parallel_folder_syncs"
         private const val PREFERENCE_PUSH_MODE = "folder_push_mode"
         private const val PREFERENCE_ADVANCED_PUSH_SETTINGS = "push_advanced"
         private const val PREFERENCE_REMOTE_SEARCH = "search"
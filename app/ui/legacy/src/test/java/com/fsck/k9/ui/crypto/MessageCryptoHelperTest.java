@@ -10,6 +10,7 @@ import android.content.Intent;
 
 import com.fsck.k9.RobolectricTest;
 import com.fsck.k9.autocrypt.AutocryptOperations;
+import com.fsck.k9.controller.MessageReference;
 import com.fsck.k9.mail.Address;
 import com.fsck.k9.mail.Body;
 import com.fsck.k9.mail.BodyPart;
@@ -19,7 +20,9 @@ import com.fsck.k9.mail.internet.MimeMessage;
 import com.fsck.k9.mail.internet.TextBody;
 import com.fsck.k9.mailstore.CryptoResultAnnotation;
 import com.fsck.k9.mailstore.CryptoResultAnnotation.CryptoError;
+import com.fsck.k9.mailstore.LocalMessage;
 import com.fsck.k9.mailstore.MessageCryptoAnnotations;
+import com.fsck.k9.mailstore.MessageCryptoResultCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -43,8 +46,10 @@ import static junit.framework.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -59,6 +64,8 @@ public class MessageCryptoHelperTest extends RobolectricTest {
     private IOpenPgpSinkResultCallback capturedCallback;
     private MessageCryptoCallback messageCryptoCallback;
     private AutocryptOperations autocryptOperations;
+    private OpenPgpApiFactory openPgpApiFactory;
+    private MessageCryptoResultCache resultCache;
 
 
     @Before
@@ -66,12 +73,12 @@ public class MessageCryptoHelperTest extends RobolectricTest {
         openPgpApi = mock(OpenPgpApi.class);
         autocryptOperations = mock(AutocryptOperations.class);
 
-        OpenPgpApiFactory openPgpApiFactory = mock(OpenPgpApiFactory.class);
+        openPgpApiFactory = mock(OpenPgpApiFactory.class);
         when(openPgpApiFactory.createOpenPgpApi(any(Context.class), nullable(IOpenPgpService2.class)))
                 .thenReturn(openPgpApi);
 
-        messageCryptoHelper = new MessageCryptoHelper(RuntimeEnvironment.application, openPgpApiFactory,
-                autocryptOperations, "org.example.dummy");
+        resultCache = new MessageCryptoResultCache();
+        messageCryptoHelper = createMessageCryptoHelper();
         messageCryptoCallback = mock(MessageCryptoCallback.class);
     }
 
@@ -275,6 +282,79 @@ public class MessageCryptoHelperTest extends RobolectricTest {
         verifyNoMoreInteractions(autocryptOperations);
     }
 
+    @Test
+    public void asyncRestartProcessingMessage_withCachedKeyMissingResult_shouldVerifySignatureAgain()
+            throws Exception {
+        LocalMessage message = createSignedLocalMessage();
+        OpenPgpSignatureResult keyMissingResult = mock(OpenPgpSignatureResult.class);
+        when(keyMissingResult.getResult()).thenReturn(OpenPgpSignatureResult.RESULT_KEY_MISSING);
+        messageCryptoHelper.asyncStartOrResumeProcessingMessage(message, messageCryptoCallback, null, true);
+        returnVerificationResult(keyMissingResult);
+
+        OpenPgpSignatureResult validResult = mock(OpenPgpSignatureResult.class);
+        when(validResult.getResult()).thenReturn(OpenPgpSignatureResult.RESULT_VALID_KEY_CONFIRMED);
+        MessageCryptoCallback restartCallback = mock(MessageCryptoCallback.class);
+        createMessageCryptoHelper().asyncRestartProcessingMessage(message, restartCallback, null, true);
+        OpenPgpDecryptionResult decryptionResult = returnVerificationResult(validResult);
+
+        assertPartAnnotationHasState(message, restartCallback, CryptoError.OPENPGP_OK, null, decryptionResult,
+                validResult, null);
+    }
+
+    @Test
+    public void asyncStartOrResumeProcessingMessage_withCachedResult_shouldNotVerifySignatureAgain()
+            throws Exception {
+        LocalMessage message = createSignedLocalMessage();
+        OpenPgpSignatureResult keyMissingResult = mock(OpenPgpSignatureResult.class);
+        when(keyMissingResult.getResult()).thenReturn(OpenPgpSignatureResult.RESULT_KEY_MISSING);
+        messageCryptoHelper.asyncStartOrResumeProcessingMessage(message, messageCryptoCallback, null, true);
+        OpenPgpDecryptionResult decryptionResult = returnVerificationResult(keyMissingResult);
+
+        MessageCryptoCallback secondCallback = mock(MessageCryptoCallback.class);
+        createMessageCryptoHelper().asyncStartOrResumeProcessingMessage(message, secondCallback, null, true);
+
+        verify(openPgpApi, times(1)).executeApiAsync(any(Intent.class), any(OpenPgpDataSource.class),
+                any(IOpenPgpSinkResultCallback.class));
+        assertPartAnnotationHasState(message, secondCallback, CryptoError.OPENPGP_OK, null, decryptionResult,
+                keyMissingResult, null);
+    }
+
+    private MessageCryptoHelper createMessageCryptoHelper() {
+        return new MessageCryptoHelper(RuntimeEnvironment.application, openPgpApiFactory, autocryptOperations,
+                resultCache, "org.example.dummy");
+    }
+
+    private LocalMessage createSignedLocalMessage() throws Exception {
+        BodyPart signedPart = multipart("signed", "protocol=\"application/pgp-signature\"",
+                bodypart("text/plain", "content"),
+                bodypart("application/pgp-signature", "content")
+        );
+
+        LocalMessage message = mock(LocalMessage.class);
+        when(message.getMimeType()).thenReturn(signedPart.getMimeType());
+        when(message.getContentType()).thenReturn(signedPart.getContentType());
+        when(message.getBody()).thenReturn(signedPart.getBody());
+        when(message.getFrom()).thenReturn(new Address[0]);
+        when(message.makeMessageReference()).thenReturn(new MessageReference("account", 1, "uid", null));
+        return message;
+    }
+
+    private OpenPgpDecryptionResult returnVerificationResult(OpenPgpSignatureResult signatureResult) {
+        ArgumentCaptor<IOpenPgpSinkResultCallback> callbackCaptor =
+                ArgumentCaptor.forClass(IOpenPgpSinkResultCallback.class);
+        verify(openPgpApi, atLeastOnce()).executeApiAsync(any(Intent.class), any(OpenPgpDataSource.class),
+                callbackCaptor.capture());
+
+        OpenPgpDecryptionResult decryptionResult = mock(OpenPgpDecryptionResult.class);
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra(OpenPgpApi.RESULT_CODE, OpenPgpApi.RESULT_CODE_SUCCESS);
+        resultIntent.putExtra(OpenPgpApi.RESULT_DECRYPTION, decryptionResult);
+        resultIntent.putExtra(OpenPgpApi.RESULT_SIGNATURE, signatureResult);
+        callbackCaptor.getValue().onReturn(resultIntent, null);
+
+        return decryptionResult;
+    }
+
     private void processEncryptedMessageAndCaptureMocks(Message message, Body encryptedBody, OutputStream outputStream)
             throws Exception {
         messageCryptoHelper.asyncStartOrResumeProcessingMessage(message, messageCryptoCallback, null, false);
@@ -0,0 +1,97 @@
+package com.fsck.k9.ui.messagelist
+
+import com.fsck.k9.Account
+import com.fsck.k9.RobolectricTest
+import com.fsck.k9.mailstore.ListenableMessageStore
+import com.fsck.k9.mailstore.MessageStoreManager
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+
+private const val ACCOUNT_UUID = "00000000-0000-4000-0000-000000000000"
+private const val FOLDER_ID = 1L
+private const val MESSAGE_ID = 23L
+
+class MessageListItemCacheTest : RobolectricTest() {
+    private val account = Account(ACCOUNT_UUID)
+    private val messageStore = ListenableMessageStore(mock())
+    private val messageStoreManager = mock<MessageStoreManager> {
+        on { getMessageStore(ACCOUNT_UUID) } doReturn messageStore
+    }
+    private val messageListItemCache = MessageListItemCache(mock(), messageStoreManager)
+
+    @Test
+    fun `get() with same column values should return cached item`() {
+        val messageListItem = createMessageListItem()
+        messageListItemCache.put(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23", "uid", "0"), messageListItem)
+
+        val result = messageListItemCache.get(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23", "uid", "0"))
+
+        assertThat(result).isSameInstanceAs(messageListItem)
+    }
+
+    @Test
+    fun `get() with changed column values should return null`() {
+        messageListItemCache.put(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23", "uid", "0"), createMessageListItem())
+
+        val result = messageListItemCache.get(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23", "uid", "1"))
+
+        assertThat(result).isNull()
+    }
+
+    @Test
+    fun `moving message should remove cached item`() {
+        messageListItemCache.put(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"), createMessageListItem())
+
+        messageStore.moveMessage(MESSAGE_ID, destinationFolderId = 2L)
+
+        assertThat(messageListItemCache.get(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"))).isNull()
+    }
+
+    @Test
+    fun `destroying messages should remove cached items of those messages`() {
+        messageListItemCache.put(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"), createMessageListItem(messageUid = "uid1"))
+        messageListItemCache.put(ACCOUNT_UUID, 42L, arrayOf("42"), createMessageListItem(messageUid = "uid2"))
+
+        messageStore.destroyMessages(FOLDER_ID, listOf("uid1"))
+
+        assertThat(messageListItemCache.get(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"))).isNull()
+        assertThat(messageListItemCache.get(ACCOUNT_UUID, 42L, arrayOf("42"))).isNotNull()
+    }
+
+    @Test
+    fun `clear() should remove all cached items`() {
+        messageListItemCache.put(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"), createMessageListItem())
+
+        messageListItemCache.clear()
+
+        assertThat(messageListItemCache.get(ACCOUNT_UUID, MESSAGE_ID, arrayOf("23"))).isNull()
+    }
+
+    private fun createMessageListItem(messageUid: String = "uid"): MessageListItem {
+        return MessageListItem(
+            position = 0,
+            account = account,
+            subject = "Subject",
+            threadCount = 0,
+            messageDate = 0L,
+            displayName = "Alice",
+            displayAddress = null,
+            toMe = false,
+            ccMe = false,
+            previewText = "",
+            isMessageEncrypted = false,
+            isRead = false,
+            isStarred = false,
+            isAnswered = false,
+            isForwarded = false,
+            hasAttachments = false,
+            uniqueId = MESSAGE_ID,
+            folderId = FOLDER_ID,
+            messageUid = messageUid,
+            databaseId = MESSAGE_ID,
+            threadRoot = MESSAGE_ID
+        )
+    }
+}
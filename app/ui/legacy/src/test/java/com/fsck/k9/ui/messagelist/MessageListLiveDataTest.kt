@@ -0,0 +1,42 @@
+package com.fsck.k9.ui.messagelist
+
+import com.fsck.k9.ui.messagelist.MessageListLiveData.Companion.canLoadMoreMessages
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.mockito.kotlin.mock
+
+class MessageListLiveDataTest {
+    @Test
+    fun `canLoadMoreMessages() without message list should return false`() {
+        assertThat(canLoadMoreMessages(messageListInfo = null, limit = 2)).isFalse()
+    }
+
+    @Test
+    fun `canLoadMoreMessages() with truncated list loaded using current limit should return true`() {
+        val messageListInfo = createMessageListInfo(itemCount = 2, isTruncated = true)
+
+        assertThat(canLoadMoreMessages(messageListInfo, limit = 2)).isTrue()
+    }
+
+    @Test
+    fun `canLoadMoreMessages() with list that isn't truncated should return false`() {
+        val messageListInfo = createMessageListInfo(itemCount = 2, isTruncated = false)
+
+        assertThat(canLoadMoreMessages(messageListInfo, limit = 2)).isFalse()
+    }
+
+    @Test
+    fun `canLoadMoreMessages() while list for increased limit is still loading should return false`() {
+        val messageListInfo = createMessageListInfo(itemCount = 2, isTruncated = true)
+
+        assertThat(canLoadMoreMessages(messageListInfo, limit = 4)).isFalse()
+    }
+
+    private fun createMessageListInfo(itemCount: Int, isTruncated: Boolean): MessageListInfo {
+        return MessageListInfo(
+            messageListItems = List(itemCount) { mock<MessageListItem>() },
+            hasMoreMessages = false,
+            isTruncated = isTruncated
+        )
+    }
+}
@@ -0,0 +1,116 @@
+package com.fsck.k9.ui.messagelist
+
+import android.content.ContentResolver
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.net.Uri
+import com.fsck.k9.Account
+import com.fsck.k9.Account.SortType
+import com.fsck.k9.Preferences
+import com.fsck.k9.RobolectricTest
+import com.fsck.k9.fragment.MLFProjectionInfo
+import com.fsck.k9.provider.EmailProvider
+import com.fsck.k9.search.LocalSearch
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+
+private const val ACCOUNT_UUID_1 = "00000000-0000-4000-0000-000000000001"
+private const val ACCOUNT_UUID_2 = "00000000-0000-4000-0000-000000000002"
+
+class MessageListLoaderTest : RobolectricTest() {
+    private val preferences = mock<Preferences> {
+        on { accounts } doReturn listOf(Account(ACCOUNT_UUID_1), Account(ACCOUNT_UUID_2))
+    }
+    private val messageListExtractor = mock<MessageListExtractor> {
+        on { extractMessageList(any(), any(), any(), any()) } doAnswer { invocation ->
+            val cursor = invocation.getArgument<Cursor>(0)
+            val limit = invocation.getArgument<Int>(3)
+            List(minOf(cursor.count, limit)) { mock<MessageListItem>() }
+        }
+    }
+    private val rowCounts = mutableMapOf<String, Int>()
+    private val contentResolver = mock<ContentResolver> {
+        on { query(any(), any(), any<String>(), any(), any<String>()) } doAnswer { invocation ->
+            val uri = invocation.getArgument<Uri>(0)
+            val accountUuid = uri.pathSegments[1]
+            createCursor(rowCount = rowCounts.getValue(accountUuid))
+        }
+    }
+    private val messageListLoader = MessageListLoader(preferences, contentResolver, mock(), messageListExtractor)
+
+    @Before
+    fun setUp() {
+        EmailProvider.CONTENT_URI = Uri.parse("content://com.fsck.k9.provider.email")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun `getMessageList() with limit of zero should throw`() {
+        messageListLoader.getMessageList(createConfig(ACCOUNT_UUID_1), limit = 0)
+    }
+
+    @Test
+    fun `getMessageList() should query each account for one more row than the limit`() {
+        rowCounts[ACCOUNT_UUID_1] = 0
+        rowCounts[ACCOUNT_UUID_2] = 0
+
+        messageListLoader.getMessageList(createConfig(ACCOUNT_UUID_1, ACCOUNT_UUID_2), limit = 3)
+
+        val uriCaptor = argumentCaptor<Uri>()
+        verify(contentResolver, times(2)).query(uriCaptor.capture(), any(), any<String>(), any(), any<String>())
+        assertThat(uriCaptor.allValues.map { it.getQueryParameter(EmailProvider.QUERY_PARAMETER_LIMIT) })
+            .containsExactly("4", "4")
+    }
+
+    @Test
+    fun `getMessageList() with more merged rows than the limit should return truncated list`() {
+        rowCounts[ACCOUNT_UUID_1] = 2
+        rowCounts[ACCOUNT_UUID_2] = 2
+
+        val messageListInfo = messageListLoader.getMessageList(createConfig(ACCOUNT_UUID_1, ACCOUNT_UUID_2), limit = 3)
+
+        assertThat(messageListInfo.isTruncated).isTrue()
+        assertThat(messageListInfo.messageListItems).hasSize(3)
+    }
+
+    @Test
+    fun `getMessageList() with as many merged rows as the limit should return list that isn't truncated`() {
+        rowCounts[ACCOUNT_UUID_1] = 2
+        rowCounts[ACCOUNT_UUID_2] = 1
+
+        val messageListInfo = messageListLoader.getMessageList(createConfig(ACCOUNT_UUID_1, ACCOUNT_UUID_2), limit = 3)
+
+        assertThat(messageListInfo.isTruncated).isFalse()
+        assertThat(messageListInfo.messageListItems).hasSize(3)
+    }
+
+    private fun createConfig(vararg accountUuids: String): MessageListConfig {
+        val search = LocalSearch().apply {
+            accountUuids.forEach { addAccountUuid(it) }
+        }
+
+        return MessageListConfig(
+            search,
+            showingThreadedList = false,
+            sortType = SortType.SORT_DATE,
+            sortAscending = false,
+            sortDateAscending = false,
+            activeMessage = null
+        )
+    }
+
+    private fun createCursor(rowCount: Int): Cursor {
+        return MatrixCursor(MLFProjectionInfo.PROJECTION).apply {
+            repeat(rowCount) {
+                addRow(arrayOfNulls<Any>(MLFProjectionInfo.PROJECTION.size))
+            }
+        }
+    }
+}
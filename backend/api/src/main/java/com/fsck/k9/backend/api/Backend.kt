@@ -14,6 +14,7 @@ interface Backend {
     val supportsUpload: Boolean
     val supportsTrashFolder: Boolean
     val supportsSearchByDate: Boolean
+    val supportsParallelSync: Boolean
     val isPushCapable: Boolean
     val isDeleteMoveToTrash: Boolean
 
@@ -92,6 +93,15 @@ interface Backend {
     @Throws(MessagingException::class)
     fun checkIncomingServerSettings()
 
+    /**
+     * Keep the connection to the outgoing server open between calls to [sendMessage].
+     *
+     * Callers sending multiple messages in a row should call this first and [endSendSession] when they're done.
+     */
+    fun startSendSession()
+
+    fun endSendSession()
+
     @Throws(MessagingException::class)
     fun sendMessage(message: Message)
 
@@ -23,6 +23,29 @@ interface BackendFolder {
     fun getMessageFlags(messageServerId: String): Set<Flag>
     fun setMessageFlag(messageServerId: String, flag: Flag, value: Boolean)
     fun saveMessage(message: Message, downloadState: MessageDownloadState)
+
+    /**
+     * Returns the subset of [messageServerIds] that is present in this folder.
+     */
+    fun areMessagesPresent(messageServerIds: Collection<String>): Set<String>
+
+    /**
+     * Returns the flags of the given messages. Messages that aren't present in this folder are not included.
+     */
+    fun getMessageFlags(messageServerIds: Collection<String>): Map<String, Set<Flag>>
+
+    /**
+     * Sets (`true`) or removes (`false`) flags on multiple messages at once.
+     *
+     * @param flagChanges A mapping of message server ID to the flag changes for that message.
+     */
+    fun setMessageFlags(flagChanges: Map<String, Map<Flag, Boolean>>)
+
+    /**
+     * Saves multiple messages at once. All messages need to have a server ID.
+     */
+    fun saveMessages(messages: List<Message>, downloadState: MessageDownloadState)
+
     fun getOldestMessageDate(): Date?
     fun getFolderExtraString(name: String): String?
     fun setFolderExtraString(name: String, value: String?)
@@ -44,6 +44,7 @@ class ImapBackend(
     override val supportsUpload = true
     override val supportsTrashFolder = true
     override val supportsSearchByDate = true
+    override val supportsParallelSync = true
     override val isPushCapable = true
     override val isDeleteMoveToTrash = true
 
@@ -149,6 +150,14 @@ class ImapBackend(
         imapStore.checkSettings()
     }
 
+    override fun startSendSession() {
+        smtpTransport.startSession()
+    }
+
+    override fun endSendSession() {
+        smtpTransport.endSession()
+    }
+
     override fun sendMessage(message: Message) {
         smtpTransport.sendMessage(message)
     }
@@ -22,7 +22,10 @@ private const val IO_ERROR_TIMEOUT = 5 * 60 * 1000L
 private const val UNEXPECTED_ERROR_TIMEOUT = 60 * 60 * 1000L
 
 /**
- * Manages [ImapFolderPusher] instances that listen for changes to individual folders.
+ * Listens for changes to the push folders of an account.
+ *
+ * If the server supports the NOTIFY extension a single [ImapNotifyPusher] watches all push folders. Otherwise this
+ * falls back to [ImapFolderPusher] instances that listen for changes to individual folders using IDLE.
  */
 internal class ImapBackendPusher(
     private val imapStore: ImapStore,
@@ -38,6 +41,8 @@ internal class ImapBackendPusher(
     private val pushFolders = mutableMapOf<String, ImapFolderPusher>()
     private var currentFolderServerIds: Collection<String> = emptySet()
     private val pushFolderSleeping = mutableMapOf<String, IdleRefreshTimer>()
+    private var notifyPusher: ImapNotifyPusher? = null
+    private var notifyRetryTimer: IdleRefreshTimer? = null
 
     private val idleRefreshTimeoutProvider = object : IdleRefreshTimeoutProvider {
         override val idleRefreshTimeoutMs
@@ -50,6 +55,9 @@ internal class ImapBackendPusher(
     @Volatile
     private var currentIdleRefreshMs = 15 * 60 * 1000L
 
+    @Volatile
+    private var isNotifySupported = true
+
     override fun start() {
         coroutineScope.launch {
             pushConfigProvider.maxPushFoldersFlow.collect { maxPushFolders ->
@@ -71,6 +79,8 @@ internal class ImapBackendPusher(
             for (pushFolder in pushFolders.values) {
                 pushFolder.refresh()
             }
+
+            notifyPusher?.refresh()
         }
     }
 
@@ -94,6 +104,11 @@ internal class ImapBackendPusher(
             folderServerIds
         }
 
+        if (isNotifySupported) {
+            updateNotifyPusher(folderServerIds, pushFolderServerIds.toSet())
+            return
+        }
+
         val stopFolderPushers: List<ImapFolderPusher>
         val startFolderPushers: List<ImapFolderPusher>
         synchronized(lock) {
@@ -131,6 +146,37 @@ internal class ImapBackendPusher(
         }
     }
 
+    private fun updateNotifyPusher(folderServerIds: Collection<String>, pushFolderServerIds: Set<String>) {
+        val stopNotifyPusher: ImapNotifyPusher?
+        val startNotifyPusher: ImapNotifyPusher?
+        synchronized(lock) {
+            currentFolderServerIds = folderServerIds
+
+            val runningNotifyPusher = notifyPusher
+            if (runningNotifyPusher != null && runningNotifyPusher.folderServerIds == pushFolderServerIds) {
+                return
+            }
+
+            stopNotifyPusher = runningNotifyPusher
+            notifyPusher = null
+
+            startNotifyPusher = when {
+                pushFolderServerIds.isEmpty() -> {
+                    cancelNotifyRetryTimer()
+                    null
+                }
+                notifyRetryTimer?.isWaiting == true -> null
+                else -> {
+                    notifyRetryTimer = null
+                    createImapNotifyPusher(pushFolderServerIds).also { notifyPusher = it }
+                }
+            }
+        }
+
+        stopNotifyPusher?.stop()
+        startNotifyPusher?.start()
+    }
+
     override fun stop() {
         Timber.v("ImapBackendPusher.stop()")
 
@@ -147,6 +193,10 @@ internal class ImapBackendPusher(
             }
             pushFolderSleeping.clear()
 
+            notifyPusher?.stop()
+            notifyPusher = null
+            cancelNotifyRetryTimer()
+
             currentFolderServerIds = emptySet()
         }
     }
@@ -164,6 +214,10 @@ internal class ImapBackendPusher(
                 retryTimer.cancel()
             }
             pushFolderSleeping.clear()
+
+            notifyPusher?.stop()
+            notifyPusher = null
+            cancelNotifyRetryTimer()
         }
 
         imapStore.closeAllConnections()
@@ -183,6 +237,18 @@ internal class ImapBackendPusher(
         )
     }
 
+    private fun createImapNotifyPusher(folderServerIds: Set<String>): ImapNotifyPusher {
+        return ImapNotifyPusher(
+            imapStore,
+            powerManager,
+            idleRefreshManager,
+            this,
+            accountName,
+            folderServerIds,
+            idleRefreshTimeoutProvider
+        )
+    }
+
     override fun onPushEvent(folderServerId: String) {
         callback.onPushEvent(folderServerId)
         idleRefreshManager.resetTimers()
@@ -192,36 +258,63 @@ internal class ImapBackendPusher(
         synchronized(lock) {
             pushFolders.remove(folderServerId)
 
-            when (exception) {
-                is AuthenticationFailedException -> {
-                    Timber.v(exception, "Authentication failure when attempting to use IDLE")
-                    // TODO: This could be happening because of too many connections to the host. Ideally we'd want to
-                    //  detect this case and use a lower timeout.
+            startRetryTimer(folderServerId, getRetryTimeout(exception))
 
-                    startRetryTimer(folderServerId, UNEXPECTED_ERROR_TIMEOUT)
-                }
-                is IOException -> {
-                    Timber.v(exception, "I/O error while trying to use IDLE")
+            if (pushFolders.isEmpty()) {
+                callback.onPushError(exception)
+            }
+        }
+    }
 
-                    startRetryTimer(folderServerId, IO_ERROR_TIMEOUT)
-                }
-                is MessagingException -> {
-                    Timber.v(exception, "MessagingException")
+    override fun onNotifyPushError(exception: Exception) {
+        synchronized(lock) {
+            notifyPusher = null
 
-                    if (exception.isPermanentFailure) {
-                        startRetryTimer(folderServerId, UNEXPECTED_ERROR_TIMEOUT)
-                    } else {
-                        startRetryTimer(folderServerId, IO_ERROR_TIMEOUT)
-                    }
-                }
-                else -> {
-                    Timber.v(exception, "Unexpected error")
-                    startRetryTimer(folderServerId, UNEXPECTED_ERROR_TIMEOUT)
-                }
+            val timeout = getRetryTimeout(exception)
+            Timber.v("ImapBackendPusher for NOTIFY connection sleeping for %d ms", timeout)
+            notifyRetryTimer = idleRefreshManager.startTimer(timeout, ::restartFolderPushers)
+
+            callback.onPushError(exception)
+        }
+    }
+
+    override fun onNotifyPushNotSupported() {
+        Timber.v("Server doesn't support NOTIFY. Falling back to IDLE.")
+
+        synchronized(lock) {
+            isNotifySupported = false
+            notifyPusher = null
+        }
+
+        updateFolders()
+    }
+
+    private fun getRetryTimeout(exception: Exception): Long {
+        return when (exception) {
+            is AuthenticationFailedException -> {
+                Timber.v(exception, "Authentication failure when attempting to use IDLE")
+                // TODO: This could be happening because of too many connections to the host. Ideally we'd want to
+                //  detect this case and use a lower timeout.
+
+                UNEXPECTED_ERROR_TIMEOUT
             }
+            is IOException -> {
+                Timber.v(exception, "I/O error while trying to use IDLE")
 
-            if (pushFolders.isEmpty()) {
-                callback.onPushError(exception)
+                IO_ERROR_TIMEOUT
+            }
+            is MessagingException -> {
+                Timber.v(exception, "MessagingException")
+
+                if (exception.isPermanentFailure) {
+                    UNEXPECTED_ERROR_TIMEOUT
+                } else {
+                    IO_ERROR_TIMEOUT
+                }
+            }
+            else -> {
+                Timber.v(exception, "Unexpected error")
+                UNEXPECTED_ERROR_TIMEOUT
             }
         }
     }
@@ -236,6 +329,11 @@ internal class ImapBackendPusher(
         pushFolderSleeping.remove(folderServerId)?.cancel()
     }
 
+    private fun cancelNotifyRetryTimer() {
+        notifyRetryTimer?.cancel()
+        notifyRetryTimer = null
+    }
+
     private fun isWaitingForRetry(folderServerId: String): Boolean {
         return pushFolderSleeping[folderServerId]?.isWaiting == true
     }
@@ -0,0 +1,109 @@
+package com.fsck.k9.backend.imap
+
+import com.fsck.k9.mail.power.PowerManager
+import com.fsck.k9.mail.store.imap.IdleRefreshManager
+import com.fsck.k9.mail.store.imap.IdleRefreshTimeoutProvider
+import com.fsck.k9.mail.store.imap.IdleResult
+import com.fsck.k9.mail.store.imap.ImapNotifyIdler
+import com.fsck.k9.mail.store.imap.ImapStore
+import kotlin.concurrent.thread
+import timber.log.Timber
+
+/**
+ * Listens for changes to multiple IMAP folders using a single connection in a dedicated thread.
+ *
+ * This requires a server that supports the NOTIFY extension. If it doesn't,
+ * [ImapPusherCallback.onNotifyPushNotSupported] is called and the caller is expected to fall back to
+ * [ImapFolderPusher].
+ */
+class ImapNotifyPusher(
+    private val imapStore: ImapStore,
+    private val powerManager: PowerManager,
+    private val idleRefreshManager: IdleRefreshManager,
+    private val callback: ImapPusherCallback,
+    private val accountName: String,
+    val folderServerIds: Set<String>,
+    private val idleRefreshTimeoutProvider: IdleRefreshTimeoutProvider
+) {
+    @Volatile
+    private var notifyIdler: ImapNotifyIdler? = null
+
+    @Volatile
+    private var stopPushing = false
+
+    fun start() {
+        Timber.v("Starting ImapNotifyPusher for %s / %s", accountName, folderServerIds)
+
+        thread(name = "ImapNotifyPusher-$accountName") {
+            Timber.v("Starting ImapNotifyPusher thread for %s", accountName)
+
+            runPushLoop()
+
+            Timber.v("Exiting ImapNotifyPusher thread for %s", accountName)
+        }
+    }
+
+    fun refresh() {
+        Timber.v("Refreshing ImapNotifyPusher for %s", accountName)
+
+        notifyIdler?.refresh()
+    }
+
+    fun stop() {
+        Timber.v("Stopping ImapNotifyPusher for %s", accountName)
+
+        stopPushing = true
+        notifyIdler?.stop()
+    }
+
+    private fun runPushLoop() {
+        val wakeLock = powerManager.newWakeLock("ImapNotifyPusher-$accountName")
+        wakeLock.acquire()
+        try {
+            performInitialSync()
+
+            val notifyIdler = ImapNotifyIdler.create(
+                idleRefreshManager,
+                wakeLock,
+                imapStore,
+                folderServerIds,
+                idleRefreshTimeoutProvider
+            ).also {
+                notifyIdler = it
+            }
+
+            while (!stopPushing) {
+                val result = notifyIdler.idle()
+
+                if (result.idleResult == IdleResult.NOT_SUPPORTED) {
+                    this.notifyIdler = null
+                    if (!stopPushing) {
+                        callback.onNotifyPushNotSupported()
+                    }
+                    break
+                }
+
+                if (result.idleResult == IdleResult.SYNC) {
+                    for (folderServerId in result.folderServerIds) {
+                        callback.onPushEvent(folderServerId)
+                    }
+                }
+            }
+        } catch (e: Exception) {
+            Timber.v(e, "Exception in ImapNotifyPusher")
+
+            this.notifyIdler = null
+            if (!stopPushing) {
+                callback.onNotifyPushError(e)
+            }
+        } finally {
+            wakeLock.release()
+        }
+    }
+
+    private fun performInitialSync() {
+        for (folderServerId in folderServerIds) {
+            callback.onPushEvent(folderServerId)
+        }
+    }
+}
@@ -90,116 +90,57 @@ internal class ImapSync(
                 Timber.d("SYNC: UIDVALIDITY for %s changed; clearing local message cache", folder)
                 backendFolder.clearAllMessages()
                 backendFolder.setFolderExtraNumber(EXTRA_UID_VALIDITY, uidValidity!!)
+                backendFolder.setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, 0L)
             }
 
-            /*
-             * Get the message list from the local store and create an index of
-             * the uids within the list.
-             */
-
             val lastUid = backendFolder.getLastUid()
-            var localUidMap: Map<String, Long?>? = backendFolder.getAllMessagesAndEffectiveDates()
-
-            /*
-             * Get the remote message count.
-             */
-            val remoteMessageCount = remoteFolder.messageCount
 
             var visibleLimit = backendFolder.visibleLimit
             if (visibleLimit < 0) {
                 visibleLimit = syncConfig.defaultVisibleLimit
             }
 
-            val remoteMessages = mutableListOf<ImapMessage>()
-            val remoteUidMap = mutableMapOf<String, ImapMessage>()
-
-            Timber.v("SYNC: Remote message count for folder %s is %d", folder, remoteMessageCount)
-
-            val earliestDate = syncConfig.earliestPollDate
-            val earliestTimestamp = earliestDate?.time ?: 0L
-
-            var remoteStart = 1
-            if (remoteMessageCount > 0) {
-                /* Message numbers start at 1.  */
-                remoteStart = if (visibleLimit > 0) {
-                    max(0, remoteMessageCount - visibleLimit) + 1
-                } else {
-                    1
-                }
-
-                Timber.v(
-                    "SYNC: About to get messages %d through %d for folder %s",
-                    remoteStart, remoteMessageCount, folder
-                )
-
-                val headerProgress = AtomicInteger(0)
-                listener.syncHeadersStarted(folder)
-
-                val remoteMessageArray = remoteFolder.getMessages(remoteStart, remoteMessageCount, earliestDate, null)
-
-                val messageCount = remoteMessageArray.size
-
-                for (thisMess in remoteMessageArray) {
-                    headerProgress.incrementAndGet()
-                    listener.syncHeadersProgress(folder, headerProgress.get(), messageCount)
-
-                    val localMessageTimestamp = localUidMap!![thisMess.uid]
-                    if (localMessageTimestamp == null || localMessageTimestamp >= earliestTimestamp) {
-                        remoteMessages.add(thisMess)
-                        remoteUidMap[thisMess.uid] = thisMess
-                    }
-                }
-
-                Timber.v("SYNC: Got %d messages for folder %s", remoteUidMap.size, folder)
-
-                listener.syncHeadersFinished(folder, headerProgress.get(), remoteUidMap.size)
-            } else if (remoteMessageCount < 0) {
-                throw Exception("Message count $remoteMessageCount for folder $folder")
-            }
-
             /*
-             * Remove any messages that are in the local store but no longer on the remote store or are too old
+             * With CONDSTORE we only need to ask the server for flag changes since the last sync. If QRESYNC is
+             * enabled, the server also tells us which messages were expunged, so we don't have to compare the list
+             * of all messages in the sync window at all.
              */
-            var moreMessages = backendFolder.getMoreMessages()
-            if (syncConfig.syncRemoteDeletions) {
-                val destroyMessageUids = mutableListOf<String>()
-                for (localMessageUid in localUidMap!!.keys) {
-                    if (remoteUidMap[localMessageUid] == null) {
-                        destroyMessageUids.add(localMessageUid)
-                    }
-                }
-
-                if (destroyMessageUids.isNotEmpty()) {
-                    moreMessages = MoreMessages.UNKNOWN
-                    backendFolder.destroyMessages(destroyMessageUids)
-                    for (uid in destroyMessageUids) {
-                        listener.syncRemovedMessage(folder, uid)
-                    }
-                }
+            val highestModSeq = remoteFolder.getHighestModSeq()?.takeIf { it > 0 }
+            val storedHighestModSeq = backendFolder.getFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ)?.takeIf { it > 0 }
+            val flagsChangedSince = if (highestModSeq != null) storedHighestModSeq else null
+
+            val newMessages = if (flagsChangedSince != null && lastUid != null &&
+                canSynchronizeChangesOnly(syncConfig, remoteFolder, backendFolder, visibleLimit)
+            ) {
+                synchronizeChanges(
+                    syncConfig,
+                    remoteFolder,
+                    backendFolder,
+                    flagsChangedSince,
+                    highestModSeq!!,
+                    lastUid,
+                    visibleLimit,
+                    listener
+                )
+            } else {
+                synchronizeMessageWindow(
+                    syncConfig,
+                    remoteFolder,
+                    backendFolder,
+                    lastUid,
+                    visibleLimit,
+                    flagsChangedSince,
+                    listener
+                )
             }
 
-            @Suppress("UNUSED_VALUE") // free memory early? (better break up the method!)
-            localUidMap = null
+            listener.folderStatusChanged(folder)
 
-            if (moreMessages === MoreMessages.UNKNOWN) {
-                updateMoreMessages(remoteFolder, backendFolder, earliestDate, remoteStart)
+            if (highestModSeq != null) {
+                backendFolder.setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, highestModSeq)
+                backendFolder.setFolderExtraNumber(EXTRA_MOD_SEQ_VISIBLE_LIMIT, visibleLimit.toLong())
             }
 
-            /*
-             * Now we download the actual content of messages.
-             */
-            val newMessages = downloadMessages(
-                syncConfig,
-                remoteFolder,
-                backendFolder,
-                remoteMessages,
-                false,
-                lastUid,
-                listener
-            )
-
-            listener.folderStatusChanged(folder)
-
             /* Notify listeners that we're finally done. */
 
             backendFolder.setLastChecked(System.currentTimeMillis())
@@ -243,6 +184,236 @@ internal class ImapSync(
         }
     }
 
+    private fun synchronizeMessageWindow(
+        syncConfig: SyncConfig,
+        remoteFolder: ImapFolder,
+        backendFolder: BackendFolder,
+        lastUid: Long?,
+        visibleLimit: Int,
+        flagsChangedSince: Long?,
+        listener: SyncListener
+    ): Int {
+        val folder = remoteFolder.serverId
+
+        /*
+         * Get the message list from the local store and create an index of
+         * the uids within the list.
+         */
+
+        var localUidMap: Map<String, Long?>? = backendFolder.getAllMessagesAndEffectiveDates()
+
+        /*
+         * Get the remote message count.
+         */
+        val remoteMessageCount = remoteFolder.messageCount
+
+        val remoteMessages = mutableListOf<ImapMessage>()
+        val remoteUidMap = mutableMapOf<String, ImapMessage>()
+
+        Timber.v("SYNC: Remote message count for folder %s is %d", folder, remoteMessageCount)
+
+        val earliestDate = syncConfig.earliestPollDate
+        val earliestTimestamp = earliestDate?.time ?: 0L
+
+        var remoteStart = 1
+        if (remoteMessageCount > 0) {
+            /* Message numbers start at 1.  */
+            remoteStart = if (visibleLimit > 0) {
+                max(0, remoteMessageCount - visibleLimit) + 1
+            } else {
+                1
+            }
+
+            Timber.v(
+                "SYNC: About to get messages %d through %d for folder %s",
+                remoteStart, remoteMessageCount, folder
+            )
+
+            val headerProgress = AtomicInteger(0)
+            listener.syncHeadersStarted(folder)
+
+            val remoteMessageArray = remoteFolder.getMessages(remoteStart, remoteMessageCount, earliestDate, null)
+
+            val messageCount = remoteMessageArray.size
+
+            for (thisMess in remoteMessageArray) {
+                headerProgress.incrementAndGet()
+                listener.syncHeadersProgress(folder, headerProgress.get(), messageCount)
+
+                val localMessageTimestamp = localUidMap!![thisMess.uid]
+                if (localMessageTimestamp == null || localMessageTimestamp >= earliestTimestamp) {
+                    remoteMessages.add(thisMess)
+                    remoteUidMap[thisMess.uid] = thisMess
+                }
+            }
+
+            Timber.v("SYNC: Got %d messages for folder %s", remoteUidMap.size, folder)
+
+            listener.syncHeadersFinished(folder, headerProgress.get(), remoteUidMap.size)
+        } else if (remoteMessageCount < 0) {
+            throw Exception("Message count $remoteMessageCount for folder $folder")
+        }
+
+        /*
+         * Remove any messages that are in the local store but no longer on the remote store or are too old
+         */
+        var moreMessages = backendFolder.getMoreMessages()
+        if (syncConfig.syncRemoteDeletions) {
+            val destroyMessageUids = mutableListOf<String>()
+            for (localMessageUid in localUidMap!!.keys) {
+                if (remoteUidMap[localMessageUid] == null) {
+                    destroyMessageUids.add(localMessageUid)
+                }
+            }
+
+            if (destroyMessageUids.isNotEmpty()) {
+                moreMessages = MoreMessages.UNKNOWN
+                backendFolder.destroyMessages(destroyMessageUids)
+                for (uid in destroyMessageUids) {
+                    listener.syncRemovedMessage(folder, uid)
+                }
+            }
+        }
+
+        @Suppress("UNUSED_VALUE") // free memory early? (better break up the method!)
+        localUidMap = null
+
+        if (moreMessages === MoreMessages.UNKNOWN) {
+            updateMoreMessages(remoteFolder, backendFolder, earliestDate, remoteStart)
+        }
+
+        /*
+         * Now we download the actual content of messages.
+         */
+        return downloadMessages(
+            syncConfig,
+            remoteFolder,
+            backendFolder,
+            remoteMessages,
+            false,
+            lastUid,
+            flagsChangedSince,
+            listener
+        )
+    }
+
+    private fun canSynchronizeChangesOnly(
+        syncConfig: SyncConfig,
+        remoteFolder: ImapFolder,
+        backendFolder: BackendFolder,
+        visibleLimit: Int
+    ): Boolean {
+        // Without VANISHED responses we can't detect expunged messages. A sync window restricted by date or a
+        // changed visible limit (e.g. "load more messages") requires a look at all messages in the window.
+        return remoteFolder.isQresyncEnabled() && syncConfig.earliestPollDate == null &&
+            backendFolder.getFolderExtraNumber(EXTRA_MOD_SEQ_VISIBLE_LIMIT) == visibleLimit.toLong()
+    }
+
+    private fun synchronizeChanges(
+        syncConfig: SyncConfig,
+        remoteFolder: ImapFolder,
+        backendFolder: BackendFolder,
+        changedSince: Long,
+        highestModSeq: Long,
+        lastUid: Long,
+        visibleLimit: Int,
+        listener: SyncListener
+    ): Int {
+        val folder = remoteFolder.serverId
+
+        if (highestModSeq == changedSince) {
+            Timber.v("SYNC: HIGHESTMODSEQ of folder %s unchanged, nothing to do", folder)
+            return 0
+        }
+
+        Timber.v("SYNC: Fetching changes since mod-sequence %d for folder %s", changedSince, folder)
+        val flagChanges = remoteFolder.fetchFlagChanges(1, changedSince)
+
+        if (syncConfig.syncRemoteDeletions && flagChanges.isVanishedAvailable) {
+            val destroyMessageUids = backendFolder.getMessageServerIds().filter { flagChanges.isVanished(it) }
+            if (destroyMessageUids.isNotEmpty()) {
+                backendFolder.destroyMessages(destroyMessageUids)
+                for (uid in destroyMessageUids) {
+                    listener.syncRemovedMessage(folder, uid)
+                }
+            }
+        }
+
+        val presentMessageServerIds = backendFolder.areMessagesPresent(flagChanges.messages.map { it.uid })
+        val (presentMessages, otherMessages) = flagChanges.messages.partition { it.uid in presentMessageServerIds }
+
+        for (messageServerId in syncFlags(syncConfig, backendFolder, presentMessages)) {
+            listener.syncFlagChanged(folder, messageServerId)
+        }
+
+        val allNewMessages = otherMessages
+            .filter { message -> !isOldMessage(message.uid, lastUid) && !message.isSet(Flag.DELETED) }
+            .sortedByDescending { it.uid.toLongOrNull() ?: 0L }
+
+        // Like the full sync, only download the newest messages that fit into the sync window
+        val newMessages = if (visibleLimit > 0) allNewMessages.take(visibleLimit) else allNewMessages
+
+        Timber.v(
+            "SYNC: Got %d changed messages, %d of them new, for folder %s",
+            flagChanges.messages.size, allNewMessages.size, folder
+        )
+
+        val newMessageCount = downloadMessages(
+            syncConfig,
+            remoteFolder,
+            backendFolder,
+            newMessages,
+            false,
+            lastUid,
+            null,
+            listener
+        )
+
+        var moreMessagesAvailable = newMessages.size < allNewMessages.size
+        if (syncConfig.syncRemoteDeletions && visibleLimit > 0) {
+            if (removeMessagesOutsideSyncWindow(backendFolder, folder, visibleLimit, listener)) {
+                moreMessagesAvailable = true
+            }
+        }
+
+        if (moreMessagesAvailable) {
+            backendFolder.setMoreMessages(MoreMessages.TRUE)
+        }
+
+        return newMessageCount
+    }
+
+    /**
+     * Removes local messages that are no longer part of the sync window, i.e. all but the newest [visibleLimit]
+     * messages.
+     *
+     * UIDs are strictly ascending, so the messages with the highest UIDs are the newest messages in the folder. This
+     * is equivalent to the message number based window used by [synchronizeMessageWindow].
+     *
+     * @return `true` if any messages were removed.
+     */
+    private fun removeMessagesOutsideSyncWindow(
+        backendFolder: BackendFolder,
+        folder: String,
+        visibleLimit: Int,
+        listener: SyncListener
+    ): Boolean {
+        val destroyMessageUids = backendFolder.getMessageServerIds()
+            .filter { it.toLongOrNull() != null }
+            .sortedByDescending { it.toLong() }
+            .drop(visibleLimit)
+
+        if (destroyMessageUids.isEmpty()) return false
+
+        Timber.v("SYNC: Removing %d messages outside the sync window of folder %s", destroyMessageUids.size, folder)
+        backendFolder.destroyMessages(destroyMessageUids)
+        for (uid in destroyMessageUids) {
+            listener.syncRemovedMessage(folder, uid)
+        }
+
+        return true
+    }
+
     fun downloadMessage(syncConfig: SyncConfig, folderServerId: String, messageServerId: String) {
         val backendFolder = backendStorage.getFolder(folderServerId)
         val remoteFolder = imapStore.getFolder(folderServerId)
@@ -257,6 +428,7 @@ internal class ImapSync(
                 listOf(remoteMessage),
                 false,
                 null,
+                null,
                 SimpleSyncListener()
             )
         } finally {
@@ -275,6 +447,8 @@ internal class ImapSync(
      * A list of messages objects that store the UIDs of which messages to download.
      * @param flagSyncOnly
      * Only flags will be fetched from the remote store if this is `true`.
+     * @param flagsChangedSince
+     * If not `null`, only flags of messages whose mod-sequence is greater than this value are fetched (CONDSTORE).
      * @return The number of downloaded messages that are not flagged as [Flag.SEEN].
      */
     private fun downloadMessages(
@@ -284,6 +458,7 @@ internal class ImapSync(
         inputMessages: List<ImapMessage>,
         flagSyncOnly: Boolean,
         lastUid: Long?,
+        flagsChangedSince: Long?,
         listener: SyncListener
     ): Int {
         val folder = remoteFolder.serverId
@@ -293,11 +468,11 @@ internal class ImapSync(
         val newMessages = AtomicInteger(0)
 
         val messages = inputMessages.toMutableList()
+        val localMessageFlags = backendFolder.getMessageFlags(messages.map { it.uid })
         for (message in messages) {
             evaluateMessageForDownload(
                 message,
-                backendFolder,
-                remoteFolder,
+                localMessageFlags[message.uid],
                 unsyncedMessages,
                 syncFlagMessages,
                 flagSyncOnly
@@ -397,17 +572,28 @@ internal class ImapSync(
          * Refresh the flags for any messages in the local store that we didn't just
          * download.
          */
-        refreshLocalMessageFlags(syncConfig, remoteFolder, backendFolder, syncFlagMessages, progress, todo, listener)
+        refreshLocalMessageFlags(
+            syncConfig,
+            remoteFolder,
+            backendFolder,
+            syncFlagMessages,
+            flagsChangedSince,
+            progress,
+            todo,
+            listener
+        )
 
         Timber.d("SYNC: Synced remote messages for folder %s, %d new messages", folder, newMessages.get())
 
         return newMessages.get()
     }
 
+    /**
+     * @param messageFlags The flags of the local copy of the message or `null` if the message isn't present locally.
+     */
     private fun evaluateMessageForDownload(
         message: ImapMessage,
-        backendFolder: BackendFolder,
-        remoteFolder: ImapFolder,
+        messageFlags: Set<Flag>?,
         unsyncedMessages: MutableList<ImapMessage>,
         syncFlagMessages: MutableList<ImapMessage>,
         flagSyncOnly: Boolean
@@ -419,8 +605,7 @@ internal class ImapSync(
             return
         }
 
-        val messagePresentLocally = backendFolder.isMessagePresent(messageServerId)
-        if (!messagePresentLocally) {
+        if (messageFlags == null) {
             if (!flagSyncOnly) {
                 Timber.v("Message with uid %s has not yet been downloaded", messageServerId)
                 unsyncedMessages.add(message)
@@ -428,7 +613,6 @@ internal class ImapSync(
             return
         }
 
-        val messageFlags = backendFolder.getMessageFlags(messageServerId)
         if (!messageFlags.contains(Flag.DELETED)) {
             Timber.v("Message with uid %s is present in the local store", messageServerId)
             if (!messageFlags.contains(Flag.X_DOWNLOADED_FULL) && !messageFlags.contains(Flag.X_DOWNLOADED_PARTIAL)) {
@@ -521,34 +705,25 @@ internal class ImapSync(
 
         Timber.d("SYNC: Fetching %d small messages for folder %s", smallMessages.size, folder)
 
+        val downloadedMessages = mutableListOf<ImapMessage>()
         remoteFolder.fetch(
             smallMessages,
             fetchProfile,
             object : MessageRetrievalListener<ImapMessage> {
                 override fun messageFinished(message: ImapMessage, number: Int, ofTotal: Int) {
-                    try {
-                        // Store the updated message locally
-                        backendFolder.saveMessage(message, MessageDownloadState.FULL)
-                        progress.incrementAndGet()
-
-                        // Increment the number of "new messages" if the newly downloaded message is not marked as read.
-                        if (!message.isSet(Flag.SEEN)) {
-                            newMessages.incrementAndGet()
-                        }
-
-                        val messageServerId = message.uid
-                        Timber.v(
-                            "About to notify listeners that we got a new small message %s:%s:%s",
-                            accountName, folder, messageServerId
+                    downloadedMessages.add(message)
+                    if (downloadedMessages.size >= SAVE_BATCH_SIZE) {
+                        saveSmallMessages(
+                            folder,
+                            backendFolder,
+                            downloadedMessages,
+                            progress,
+                            newMessages,
+                            todo,
+                            lastUid,
+                            listener
                         )
-
-                        // Update the listener with what we've found
-                        listener.syncProgress(folder, progress.get(), todo)
-
-                        val isOldMessage = isOldMessage(messageServerId, lastUid)
-                        listener.syncNewMessage(folder, messageServerId, isOldMessage)
-                    } catch (e: Exception) {
-                        Timber.e(e, "SYNC: fetch small messages")
+                        downloadedMessages.clear()
                     }
                 }
 
@@ -557,10 +732,63 @@ internal class ImapSync(
             },
             -1
         )
+        saveSmallMessages(folder, backendFolder, downloadedMessages, progress, newMessages, todo, lastUid, listener)
 
         Timber.d("SYNC: Done fetching small messages for folder %s", folder)
     }
 
+    private fun saveSmallMessages(
+        folder: String,
+        backendFolder: BackendFolder,
+        messages: List<ImapMessage>,
+        progress: AtomicInteger,
+        newMessages: AtomicInteger,
+        todo: Int,
+        lastUid: Long?,
+        listener: SyncListener
+    ) {
+        if (messages.isEmpty()) return
+
+        val savedMessages = try {
+            // Store the updated messages locally
+            backendFolder.saveMessages(messages, MessageDownloadState.FULL)
+            messages
+        } catch (e: Exception) {
+            Timber.e(e, "SYNC: Error saving small messages, retrying one by one")
+
+            messages.filter { message ->
+                try {
+                    backendFolder.saveMessage(message, MessageDownloadState.FULL)
+                    true
+                } catch (e: Exception) {
+                    Timber.e(e, "SYNC: fetch small messages")
+                    false
+                }
+            }
+        }
+
+        for (message in savedMessages) {
+            progress.incrementAndGet()
+
+            // Increment the number of "new messages" if the newly downloaded message is not marked as read.
+            if (!message.isSet(Flag.SEEN)) {
+                newMessages.incrementAndGet()
+            }
+
+            val messageServerId = message.uid
+            Timber.v(
+                "About to notify listeners that we got a new small message %s:%s:%s",
+                accountName, folder, messageServerId
+            )
+
+            // Update the listener with what we've found
+            listener.syncProgress(folder, progress.get(), todo)
+
+            val isOldMessage = isOldMessage(messageServerId, lastUid)
+            listener.syncNewMessage(folder, messageServerId, isOldMessage)
+        }
+    }
+
     private fun downloadLargeMessages(
         remoteFolder: ImapFolder,
         backendFolder: BackendFolder,
@@ -615,6 +843,7 @@ internal class ImapSync(
         remoteFolder: ImapFolder,
         backendFolder: BackendFolder,
         syncFlagMessages: List<ImapMessage>,
+        flagsChangedSince: Long?,
         progress: AtomicInteger,
         todo: Int,
         listener: SyncListener
@@ -622,6 +851,20 @@ internal class ImapSync(
         val folder = remoteFolder.serverId
         Timber.d("SYNC: About to sync flags for %d remote messages for folder %s", syncFlagMessages.size, folder)
 
+        if (flagsChangedSince != null) {
+            refreshChangedMessageFlags(
+                syncConfig,
+                remoteFolder,
+                backendFolder,
+                syncFlagMessages,
+                flagsChangedSince,
+                progress,
+                todo,
+                listener
+            )
+            return
+        }
+
         val fetchProfile = FetchProfile()
         fetchProfile.add(FetchProfile.Item.FLAGS)
 
@@ -634,14 +877,45 @@ internal class ImapSync(
 
         val maxDownloadSize = syncConfig.maximumAutoDownloadMessageSize
         remoteFolder.fetch(undeletedMessages, fetchProfile, null, maxDownloadSize)
-        for (remoteMessage in syncFlagMessages) {
-            val messageChanged = syncFlags(syncConfig, backendFolder, remoteMessage)
-            if (messageChanged) {
-                listener.syncFlagChanged(folder, remoteMessage.uid)
-            }
-            progress.incrementAndGet()
-            listener.syncProgress(folder, progress.get(), todo)
+
+        for (messageServerId in syncFlags(syncConfig, backendFolder, syncFlagMessages)) {
+            listener.syncFlagChanged(folder, messageServerId)
         }
+        progress.addAndGet(syncFlagMessages.size)
+        listener.syncProgress(folder, progress.get(), todo)
+    }
+
+    private fun refreshChangedMessageFlags(
+        syncConfig: SyncConfig,
+        remoteFolder: ImapFolder,
+        backendFolder: BackendFolder,
+        syncFlagMessages: List<ImapMessage>,
+        flagsChangedSince: Long,
+        progress: AtomicInteger,
+        todo: Int,
+        listener: SyncListener
+    ) {
+        val folder = remoteFolder.serverId
+
+        val lowestUid = syncFlagMessages.mapNotNull { it.uid.toLongOrNull() }.minOrNull()
+        val changedMessages = if (lowestUid != null) {
+            remoteFolder.fetchFlagChanges(lowestUid, flagsChangedSince).messages.associateBy { it.uid }
+        } else {
+            emptyMap()
+        }
+
+        Timber.d("SYNC: %d messages with changed flags for folder %s", changedMessages.size, folder)
+
+        // Messages without flag changes since the last sync don't need to be looked at
+        val messages = syncFlagMessages.mapNotNull { remoteMessage ->
+            changedMessages[remoteMessage.uid] ?: remoteMessage.takeIf { it.isSet(Flag.DELETED) }
+        }
+
+        for (messageServerId in syncFlags(syncConfig, backendFolder, messages)) {
+            listener.syncFlagChanged(folder, messageServerId)
+        }
+        progress.addAndGet(syncFlagMessages.size)
+        listener.syncProgress(folder, progress.get(), todo)
     }
 
     private fun downloadSaneBody(
@@ -695,29 +969,46 @@ internal class ImapSync(
         backendFolder.saveMessage(message, MessageDownloadState.PARTIAL)
     }
 
-    private fun syncFlags(syncConfig: SyncConfig, backendFolder: BackendFolder, remoteMessage: ImapMessage): Boolean {
-        val messageServerId = remoteMessage.uid
-        if (!backendFolder.isMessagePresent(messageServerId)) return false
+    /**
+     * Updates the flags of the local copies of [remoteMessages] to match the flags on the server.
+     *
+     * @return The server IDs of messages whose local flags were changed.
+     */
+    private fun syncFlags(
+        syncConfig: SyncConfig,
+        backendFolder: BackendFolder,
+        remoteMessages: List<ImapMessage>
+    ): Set<String> {
+        if (remoteMessages.isEmpty()) return emptySet()
 
-        val localMessageFlags = backendFolder.getMessageFlags(messageServerId)
-        if (localMessageFlags.contains(Flag.DELETED)) return false
+        val localMessageFlags = backendFolder.getMessageFlags(remoteMessages.map { it.uid })
 
-        var messageChanged = false
-        if (remoteMessage.isSet(Flag.DELETED)) {
-            if (syncConfig.syncRemoteDeletions) {
-                backendFolder.setMessageFlag(messageServerId, Flag.DELETED, true)
-                messageChanged = true
-            }
-        } else {
-            for (flag in syncConfig.syncFlags) {
-                if (remoteMessage.isSet(flag) != localMessageFlags.contains(flag)) {
-                    backendFolder.setMessageFlag(messageServerId, flag, remoteMessage.isSet(flag))
-                    messageChanged = true
+        val flagChanges = mutableMapOf<String, Map<Flag, Boolean>>()
+        for (remoteMessage in remoteMessages) {
+            val messageServerId = remoteMessage.uid
+            val localFlags = localMessageFlags[messageServerId] ?: continue
+            if (localFlags.contains(Flag.DELETED)) continue
+
+            if (remoteMessage.isSet(Flag.DELETED)) {
+                if (syncConfig.syncRemoteDeletions) {
+                    flagChanges[messageServerId] = mapOf(Flag.DELETED to true)
+                }
+            } else {
+                val messageFlagChanges = syncConfig.syncFlags
+                    .filter { flag -> remoteMessage.isSet(flag) != localFlags.contains(flag) }
+                    .associateWith { flag -> remoteMessage.isSet(flag) }
+
+                if (messageFlagChanges.isNotEmpty()) {
+                    flagChanges[messageServerId] = messageFlagChanges
                 }
             }
         }
 
-        return messageChanged
+        if (flagChanges.isNotEmpty()) {
+            backendFolder.setMessageFlags(flagChanges)
+        }
+
+        return flagChanges.keys
     }
 
     private fun updateMoreMessages(
@@ -737,5 +1028,12 @@ internal class ImapSync(
 
     companion object {
         private const val EXTRA_UID_VALIDITY = "imapUidValidity"
+        private const val EXTRA_HIGHEST_MOD_SEQ = "imapHighestModSeq"
+        private const val EXTRA_MOD_SEQ_VISIBLE_LIMIT = "imapModSeqVisibleLimit"
+
+        /**
+         * Number of downloaded messages that are written to the local store using a single database transaction.
+         */
+        private const val SAVE_BATCH_SIZE = 50
     }
 }
@@ -1,13 +1,16 @@
 package com.fsck.k9.backend.imap;
 
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import com.fsck.k9.backend.api.BackendFolder;
+import com.fsck.k9.backend.api.BackendFolder.MoreMessages;
 import com.fsck.k9.backend.api.BackendStorage;
 import com.fsck.k9.backend.api.SyncConfig;
 import com.fsck.k9.backend.api.SyncConfig.ExpungePolicy;
@@ -16,10 +19,12 @@ import com.fsck.k9.mail.FetchProfile;
 import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.MessageRetrievalListener;
 import com.fsck.k9.mail.MessagingException;
+import com.fsck.k9.mail.store.imap.FlagChanges;
 import com.fsck.k9.mail.store.imap.ImapFolder;
 import com.fsck.k9.mail.store.imap.ImapMessage;
 import com.fsck.k9.mail.store.imap.ImapStore;
 import com.fsck.k9.mail.store.imap.OpenMode;
+import kotlin.ranges.LongRange;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -31,6 +36,9 @@ import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Matchers.any;
@@ -47,6 +55,9 @@ import static org.mockito.Mockito.when;
 @SuppressWarnings("unchecked")
 public class ImapSyncTest {
     private static final String EXTRA_UID_VALIDITY = "imapUidValidity";
+    private static final String EXTRA_HIGHEST_MOD_SEQ = "imapHighestModSeq";
+    private static final String EXTRA_MOD_SEQ_VISIBLE_LIMIT = "imapModSeqVisibleLimit";
+    private static final long HIGHEST_MOD_SEQ = 1000L;
     private static final String ACCOUNT_NAME = "Account";
     private static final String FOLDER_NAME = "Folder";
     private static final Long FOLDER_UID_VALIDITY = 42L;
@@ -280,6 +291,122 @@ public class ImapSyncTest {
         verify(backendFolder).setFolderExtraNumber(EXTRA_UID_VALIDITY, FOLDER_UID_VALIDITY);
     }
 
+    @Test
+    public void sync_withHighestModSeq_shouldStoreHighestModSeq() {
+        messageCountInRemoteFolder(1);
+        when(remoteFolder.getHighestModSeq()).thenReturn(HIGHEST_MOD_SEQ);
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(backendFolder).setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, HIGHEST_MOD_SEQ);
+    }
+
+    @Test
+    public void sync_withQresyncAndUnchangedHighestModSeq_shouldNotSearchRemoteMessages() throws Exception {
+        messageCountInRemoteFolder(1);
+        configureQresyncSyncState(HIGHEST_MOD_SEQ);
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(remoteFolder, never()).getMessages(anyInt(), anyInt(), nullable(Date.class),
+                nullable(MessageRetrievalListener.class));
+        verify(remoteFolder, never()).fetchFlagChanges(anyLong(), anyLong());
+        verify(listener).syncFinished(FOLDER_NAME);
+    }
+
+    @Test
+    public void sync_withQresyncAndChangedHighestModSeq_shouldApplyChanges() throws Exception {
+        messageCountInRemoteFolder(1);
+        configureSyncConfigWithSyncRemoteDeletions(true);
+        configureQresyncSyncState(HIGHEST_MOD_SEQ - 10);
+        ImapMessage changedMessage = mock(ImapMessage.class);
+        when(changedMessage.getUid()).thenReturn("5");
+        when(changedMessage.isSet(Flag.SEEN)).thenReturn(true);
+        FlagChanges flagChanges = new FlagChanges(Collections.singletonList(changedMessage), true,
+                Collections.singletonList(new LongRange(3L, 4L)));
+        when(remoteFolder.fetchFlagChanges(1L, HIGHEST_MOD_SEQ - 10)).thenReturn(flagChanges);
+        when(backendFolder.getMessageServerIds()).thenReturn(new HashSet<>(Arrays.asList("3", "5")));
+        when(backendFolder.areMessagesPresent(anyCollection())).thenReturn(Collections.singleton("5"));
+        when(backendFolder.getMessageFlags(anyCollection()))
+                .thenReturn(Collections.singletonMap("5", Collections.<Flag>emptySet()));
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(backendFolder).destroyMessages(Collections.singletonList("3"));
+        verify(backendFolder).setMessageFlags(
+                Collections.singletonMap("5", Collections.singletonMap(Flag.SEEN, true)));
+        verify(remoteFolder, never()).getMessages(anyInt(), anyInt(), nullable(Date.class),
+                nullable(MessageRetrievalListener.class));
+    }
+
+    @Test
+    public void sync_withQresyncAndMoreNewMessagesThanVisibleLimit_shouldOnlyDownloadNewestMessages()
+            throws Exception {
+        messageCountInRemoteFolder(3);
+        configureQresyncSyncState(HIGHEST_MOD_SEQ - 10, 2);
+        List<ImapMessage> newMessages = Arrays.asList(messageWithUid("5"), messageWithUid("7"), messageWithUid("6"));
+        when(remoteFolder.fetchFlagChanges(1L, HIGHEST_MOD_SEQ - 10)).thenReturn(
+                new FlagChanges(newMessages, true, Collections.<LongRange>emptyList()));
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(backendFolder).getMessageFlags(Arrays.asList("7", "6"));
+        verify(backendFolder).setMoreMessages(MoreMessages.TRUE);
+    }
+
+    @Test
+    public void sync_withQresyncAndMoreLocalMessagesThanVisibleLimit_shouldRemoveOldestMessages() throws Exception {
+        messageCountInRemoteFolder(3);
+        configureQresyncSyncState(HIGHEST_MOD_SEQ - 10, 2);
+        when(remoteFolder.fetchFlagChanges(1L, HIGHEST_MOD_SEQ - 10)).thenReturn(
+                new FlagChanges(Collections.<ImapMessage>emptyList(), true, Collections.<LongRange>emptyList()));
+        when(backendFolder.getMessageServerIds()).thenReturn(new HashSet<>(Arrays.asList("2", "10", "3")));
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(backendFolder).destroyMessages(Collections.singletonList("2"));
+        verify(listener).syncRemovedMessage(FOLDER_NAME, "2");
+        verify(backendFolder).setMoreMessages(MoreMessages.TRUE);
+    }
+
+    @Test
+    public void sync_withCondstoreOnly_shouldOnlyFetchChangedFlags() throws Exception {
+        messageCountInRemoteFolder(1);
+        ImapMessage remoteMessage = messageOnServer();
+        when(remoteMessage.getUid()).thenReturn("5");
+        when(backendFolder.getMessageFlags(anyCollection()))
+                .thenReturn(Collections.<String, Set<Flag>>singletonMap("5", EnumSet.of(Flag.X_DOWNLOADED_FULL)));
+        when(remoteFolder.getHighestModSeq()).thenReturn(HIGHEST_MOD_SEQ);
+        when(backendFolder.getFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ)).thenReturn(HIGHEST_MOD_SEQ - 10);
+        when(remoteFolder.fetchFlagChanges(5L, HIGHEST_MOD_SEQ - 10)).thenReturn(
+                new FlagChanges(Collections.<ImapMessage>emptyList(), false, Collections.<LongRange>emptyList()));
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener);
+
+        verify(remoteFolder).fetchFlagChanges(5L, HIGHEST_MOD_SEQ - 10);
+        verify(backendFolder, never()).setMessageFlags(anyMap());
+    }
+
+    private void configureQresyncSyncState(long storedHighestModSeq) {
+        configureQresyncSyncState(storedHighestModSeq, DEFAULT_VISIBLE_LIMIT);
+    }
+
+    private void configureQresyncSyncState(long storedHighestModSeq, int visibleLimit) {
+        when(remoteFolder.isQresyncEnabled()).thenReturn(true);
+        when(remoteFolder.getHighestModSeq()).thenReturn(HIGHEST_MOD_SEQ);
+        when(backendFolder.getFolderExtraNumber(EXTRA_UID_VALIDITY)).thenReturn(FOLDER_UID_VALIDITY);
+        when(backendFolder.getFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ)).thenReturn(storedHighestModSeq);
+        when(backendFolder.getFolderExtraNumber(EXTRA_MOD_SEQ_VISIBLE_LIMIT)).thenReturn((long) visibleLimit);
+        when(backendFolder.getVisibleLimit()).thenReturn(visibleLimit);
+        when(backendFolder.getLastUid()).thenReturn(4L);
+    }
+
+    private ImapMessage messageWithUid(String uid) {
+        ImapMessage message = mock(ImapMessage.class);
+        when(message.getUid()).thenReturn(uid);
+        return message;
+    }
+
     private void respondToFetchEnvelopesWithMessage(final ImapMessage message) throws MessagingException {
         doAnswer(new Answer() {
             @Override
@@ -9,6 +9,11 @@ import com.fsck.k9.mail.Flag
 import com.fsck.k9.mail.MessageDownloadState
 import com.fsck.k9.mail.internet.MimeMessage
 import java.util.Date
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import okhttp3.HttpUrl
 import okhttp3.OkHttpClient
 import okhttp3.Request
@@ -33,7 +38,8 @@ class CommandSync(
     private val jmapClient: JmapClient,
     private val okHttpClient: OkHttpClient,
     private val accountId: String,
-    private val httpAuthentication: HttpAuthentication
+    private val httpAuthentication: HttpAuthentication,
+    private val maxParallelDownloads: Int = DEFAULT_MAX_PARALLEL_DOWNLOADS
 ) {
 
     fun sync(folderServerId: String, syncConfig: SyncConfig, listener: SyncListener) {
@@ -181,27 +187,70 @@ class CommandSync(
         val session = jmapClient.session.get()
         val maxObjectsInGet = session.maxObjectsInGet
         val messageInfoList = fetchMessageInfo(session, maxObjectsInGet, newServerIds)
+        if (messageInfoList.isNotEmpty()) {
+            downloadMessages(backendFolder, folderServerId, messageInfoList, listener)
+        }
+
+        backendFolder.saveQueryState(newQueryState)
+    }
 
+    private fun downloadMessages(
+        backendFolder: BackendFolder,
+        folderServerId: String,
+        messageInfoList: List<MessageInfo>,
+        listener: SyncListener
+    ) {
         val total = messageInfoList.size
-        messageInfoList.forEachIndexed { index, messageInfo ->
-            Timber.v("Downloading message %s (%s)", messageInfo.serverId, messageInfo.downloadUrl)
-            val message = downloadMessage(messageInfo.downloadUrl)
-            if (message != null) {
-                message.apply {
-                    uid = messageInfo.serverId
-                    setInternalSentDate(messageInfo.receivedAt)
-                    setFlags(messageInfo.flags, true)
+        var progress = 0
+        val messageInfoChunks = messageInfoList.chunked(SAVE_BATCH_SIZE)
+
+        val executor = Executors.newFixedThreadPool(maxParallelDownloads.coerceIn(1, total))
+        try {
+            // Downloads of the next batch are started before the current one is saved, so the connections don't idle
+            var nextDownloads = executor.startDownloads(messageInfoChunks.first())
+            messageInfoChunks.forEachIndexed { index, messageInfoChunk ->
+                val downloads = nextDownloads
+                nextDownloads = messageInfoChunks.getOrNull(index + 1)?.let { executor.startDownloads(it) }.orEmpty()
+
+                val messages = messageInfoChunk.zip(downloads).mapNotNull { (messageInfo, download) ->
+                    val message = download.getResult()
+                    if (message == null) {
+                        Timber.d("Failed to download message: %s", messageInfo.serverId)
+                    }
+
+                    listener.syncProgress(folderServerId, ++progress, total)
+
+                    message?.apply {
+                        uid = messageInfo.serverId
+                        setInternalSentDate(messageInfo.receivedAt)
+                        setFlags(messageInfo.flags, true)
+                    }
                 }
 
-                backendFolder.saveMessage(message, MessageDownloadState.FULL)
-            } else {
-                Timber.d("Failed to download message: %s", messageInfo.serverId)
+                backendFolder.saveMessages(messages, MessageDownloadState.FULL)
             }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
 
-            listener.syncProgress(folderServerId, index + 1, total)
+    private fun ExecutorService.startDownloads(messageInfoList: List<MessageInfo>): List<Future<MimeMessage?>> {
+        return messageInfoList.map { messageInfo ->
+            submit(
+                Callable {
+                    Timber.v("Downloading message %s (%s)", messageInfo.serverId, messageInfo.downloadUrl)
+                    downloadMessage(messageInfo.downloadUrl)
+                }
+            )
         }
+    }
 
-        backendFolder.saveQueryState(newQueryState)
+    private fun <T> Future<T>.getResult(): T {
+        return try {
+            get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
     }
 
     private fun fetchMessageInfo(session: Session, maxObjectsInGet: Int, emailIds: Set<String>): List<MessageInfo> {
@@ -264,23 +313,32 @@ class CommandSync(
             .chunked(maxObjectsInGet) { emailIdsChunk ->
                 getEmailPropertiesFromServer(emailIdsChunk, FLAG_PROPERTIES)
             }
-            .flatten()
-            .forEach { email ->
-                syncFlagsForMessage(backendFolder, syncConfig, email)
+            .forEach { emails ->
+                syncFlagsForMessages(backendFolder, syncConfig, emails)
             }
     }
 
-    private fun syncFlagsForMessage(backendFolder: BackendFolder, syncConfig: SyncConfig, email: Email) {
-        val messageServerId = email.id
-        val localFlags = backendFolder.getMessageFlags(messageServerId)
-        val remoteFlags = email.keywords.toFlags()
-        for (flag in syncConfig.syncFlags) {
-            val flagSetOnServer = flag in remoteFlags
-            val flagSetLocally = flag in localFlags
-            if (flagSetOnServer != flagSetLocally) {
-                backendFolder.setMessageFlag(messageServerId, flag, flagSetOnServer)
+    private fun syncFlagsForMessages(backendFolder: BackendFolder, syncConfig: SyncConfig, emails: List<Email>) {
+        val localMessageFlags = backendFolder.getMessageFlags(emails.map { it.id })
+
+        val flagChanges = mutableMapOf<String, Map<Flag, Boolean>>()
+        for (email in emails) {
+            val messageServerId = email.id
+            val localFlags = localMessageFlags[messageServerId] ?: continue
+            val remoteFlags = email.keywords.toFlags()
+
+            val messageFlagChanges = syncConfig.syncFlags
+                .filter { flag -> (flag in remoteFlags) != (flag in localFlags) }
+                .associateWith { flag -> flag in remoteFlags }
+
+            if (messageFlagChanges.isNotEmpty()) {
+                flagChanges[messageServerId] = messageFlagChanges
             }
         }
+
+        if (flagChanges.isNotEmpty()) {
+            backendFolder.setMessageFlags(flagChanges)
+        }
     }
 
     private fun Map<String, Boolean>?.toFlags(): Set<Flag> {
@@ -309,6 +367,8 @@ class CommandSync(
     companion object {
         private const val EXTRA_QUERY_STATE = "jmapQueryState"
         private const val ERROR_CANNOT_CALCULATE_CHANGES = "cannotCalculateChanges"
+        private const val SAVE_BATCH_SIZE = 20
+        private const val DEFAULT_MAX_PARALLEL_DOWNLOADS = 4
         private val INFO_PROPERTIES = arrayOf("id", "blobId", "size", "receivedAt", "keywords")
         private val FLAG_PROPERTIES = arrayOf("id", "keywords")
     }
@@ -38,6 +38,7 @@ class JmapBackend(
     override val supportsUpload = true
     override val supportsTrashFolder = true
     override val supportsSearchByDate = true
+    override val supportsParallelSync = false
     override val isPushCapable = false // FIXME
     override val isDeleteMoveToTrash = true
 
@@ -134,6 +135,10 @@ class JmapBackend(
         jmapClient.call(EchoMethodCall()).get()
     }
 
+    override fun startSendSession() = Unit
+
+    override fun endSendSession() = Unit
+
     override fun sendMessage(message: Message) {
         throw UnsupportedOperationException("not implemented")
     }
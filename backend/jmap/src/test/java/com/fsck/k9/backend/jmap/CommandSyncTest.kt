@@ -83,6 +83,35 @@ class CommandSyncTest {
         server.assertRequestUrlPath("/jmap/download/test%40example.com/B002/B002?accept=application%2Foctet-stream")
     }
 
+    @Test
+    fun fullSyncWithParallelDownloads() {
+        val server = createMockWebServer(
+            mapOf(
+                "B001" to responseBodyFromResource("/jmap_responses/blob/email/email_1.eml"),
+                "B002" to responseBodyFromResource("/jmap_responses/blob/email/email_2.eml")
+            ),
+            responseBodyFromResource("/jmap_responses/session/valid_session.json"),
+            responseBodyFromResource("/jmap_responses/email/email_query_M001_and_M002.json"),
+            responseBodyFromResource("/jmap_responses/email/email_get_ids_M001_and_M002.json")
+        )
+        val command = createCommandSync(server.url("/jmap/"), maxParallelDownloads = 2)
+
+        command.sync(FOLDER_SERVER_ID, syncConfig, syncListener)
+
+        val backendFolder = backendStorage.getFolder(FOLDER_SERVER_ID)
+        backendFolder.assertMessages(
+            "M001" to "/jmap_responses/blob/email/email_1.eml",
+            "M002" to "/jmap_responses/blob/email/email_2.eml"
+        )
+        backendFolder.assertQueryState("50:0")
+        syncListener.assertSyncEvents(
+            SyncListenerEvent.SyncStarted(FOLDER_SERVER_ID),
+            SyncListenerEvent.SyncProgress(FOLDER_SERVER_ID, completed = 1, total = 2),
+            SyncListenerEvent.SyncProgress(FOLDER_SERVER_ID, completed = 2, total = 2),
+            SyncListenerEvent.SyncFinished(FOLDER_SERVER_ID)
+        )
+    }
+
     @Test
     fun fullSyncExceedingMaxObjectsInGet() {
         val command = createCommandSync(
@@ -228,10 +257,18 @@ class CommandSyncTest {
         return createCommandSync(server.url("/jmap/"))
     }
 
-    private fun createCommandSync(baseUrl: HttpUrl): CommandSync {
+    // Downloads are performed one at a time by default, so the responses of MockWebServer arrive in a fixed order
+    private fun createCommandSync(baseUrl: HttpUrl, maxParallelDownloads: Int = 1): CommandSync {
         val httpAuthentication = BasicAuthHttpAuthentication(USERNAME, PASSWORD)
         val jmapClient = JmapClient(httpAuthentication, baseUrl)
-        return CommandSync(backendStorage, jmapClient, okHttpClient, ACCOUNT_ID, httpAuthentication)
+        return CommandSync(
+            backendStorage,
+            jmapClient,
+            okHttpClient,
+            ACCOUNT_ID,
+            httpAuthentication,
+            maxParallelDownloads
+        )
     }
 
     private fun createFolderInBackendStorage() {
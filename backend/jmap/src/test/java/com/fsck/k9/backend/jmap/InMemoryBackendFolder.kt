@@ -123,6 +123,30 @@ class InMemoryBackendFolder(override var name: String, var type: FolderType) : B
         messageFlags[messageServerId] = flags
     }
 
+    override fun areMessagesPresent(messageServerIds: Collection<String>): Set<String> {
+        return messageServerIds.filter { it in messages }.toSet()
+    }
+
+    override fun getMessageFlags(messageServerIds: Collection<String>): Map<String, Set<Flag>> {
+        return messageServerIds.mapNotNull { messageServerId ->
+            messageFlags[messageServerId]?.let { flags -> messageServerId to flags.toSet() }
+        }.toMap()
+    }
+
+    override fun setMessageFlags(flagChanges: Map<String, Map<Flag, Boolean>>) {
+        for ((messageServerId, messageFlagChanges) in flagChanges) {
+            for ((flag, value) in messageFlagChanges) {
+                setMessageFlag(messageServerId, flag, value)
+            }
+        }
+    }
+
+    override fun saveMessages(messages: List<Message>, downloadState: MessageDownloadState) {
+        for (message in messages) {
+            saveMessage(message, downloadState)
+        }
+    }
+
     override fun getOldestMessageDate(): Date? {
         throw UnsupportedOperationException("not implemented")
     }
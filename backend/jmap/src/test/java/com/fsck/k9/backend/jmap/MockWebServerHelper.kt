@@ -1,8 +1,10 @@
 package com.fsck.k9.backend.jmap
 
 import java.io.InputStream
+import okhttp3.mockwebserver.Dispatcher
 import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
 import okio.buffer
 import okio.source
 
@@ -15,6 +17,32 @@ fun createMockWebServer(vararg mockResponses: MockResponse): MockWebServer {
     }
 }
 
+/**
+ * Creates a [MockWebServer] that returns [blobResponses] for download requests of the given blob IDs, independent of
+ * the order in which they arrive. All other requests receive [mockResponses] in order.
+ */
+fun createMockWebServer(blobResponses: Map<String, MockResponse>, vararg mockResponses: MockResponse): MockWebServer {
+    val remainingResponses = mockResponses.toMutableList()
+    return MockWebServer().apply {
+        dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val pathSegments = request.requestUrl?.pathSegments.orEmpty()
+                val downloadIndex = pathSegments.indexOf("download")
+                val blobId = pathSegments.getOrNull(downloadIndex + 2)?.takeIf { downloadIndex != -1 }
+
+                return if (blobId != null) {
+                    blobResponses[blobId] ?: MockResponse().setResponseCode(404)
+                } else {
+                    synchronized(remainingResponses) {
+                        remainingResponses.removeAt(0)
+                    }
+                }
+            }
+        }
+        start()
+    }
+}
+
 fun responseBodyFromResource(name: String): MockResponse {
     return MockResponse().setBody(loadResource(name))
 }
@@ -31,6 +31,7 @@ class Pop3Backend(
     override val supportsUpload = false
     override val supportsTrashFolder = false
     override val supportsSearchByDate = false
+    override val supportsParallelSync = false
     override val isPushCapable = false
     override val isDeleteMoveToTrash = false
 
@@ -128,6 +129,14 @@ class Pop3Backend(
         pop3Store.checkSettings()
     }
 
+    override fun startSendSession() {
+        smtpTransport.startSession()
+    }
+
+    override fun endSendSession() {
+        smtpTransport.endSession()
+    }
+
     override fun sendMessage(message: Message) {
         smtpTransport.sendMessage(message)
     }
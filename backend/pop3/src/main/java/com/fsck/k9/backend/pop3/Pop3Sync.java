@@ -31,6 +31,7 @@ import timber.log.Timber;
 
 class Pop3Sync {
     private static final String EXTRA_LATEST_OLD_MESSAGE_SEEN_TIME = "latestOldMessageSeenTime";
+    private static final int SAVE_BATCH_SIZE = 50;
 
     private final String accountName;
     private final BackendStorage backendStorage;
@@ -268,8 +269,16 @@ class Pop3Sync {
 
         List<Pop3Message> messages = new ArrayList<>(inputMessages);
 
+        List<String> messageServerIds = new ArrayList<>(messages.size());
         for (Pop3Message message : messages) {
-            evaluateMessageForDownload(message, folder, backendFolder, unsyncedMessages, syncFlagMessages, listener);
+            messageServerIds.add(message.getUid());
+        }
+        Map<String, Set<Flag>> localMessageFlags = backendFolder.getMessageFlags(messageServerIds);
+
+        for (Pop3Message message : messages) {
+            Set<Flag> messageFlags = localMessageFlags.get(message.getUid());
+            evaluateMessageForDownload(message, messageFlags, folder, backendFolder, unsyncedMessages,
+                    syncFlagMessages, listener);
         }
 
         final AtomicInteger progress = new AtomicInteger(0);
@@ -349,8 +358,13 @@ class Pop3Sync {
         backendFolder.setFolderExtraNumber(EXTRA_LATEST_OLD_MESSAGE_SEEN_TIME, oldestMessageTime.getTime());
     }
 
+    /**
+     * @param messageFlags The flags of the local copy of the message or {@code null} if the message isn't present
+     *         locally.
+     */
     private void evaluateMessageForDownload(
             final Pop3Message message,
+            final Set<Flag> messageFlags,
             final String folder,
             final BackendFolder backendFolder,
             final List<Pop3Message> unsyncedMessages,
@@ -365,9 +379,7 @@ class Pop3Sync {
             return;
         }
 
-        boolean messagePresentLocally = backendFolder.isMessagePresent(messageServerId);
-
-        if (!messagePresentLocally) {
+        if (messageFlags == null) {
             if (!message.isSet(Flag.X_DOWNLOADED_FULL) && !message.isSet(Flag.X_DOWNLOADED_PARTIAL)) {
                 Timber.v("Message with uid %s has not yet been downloaded", messageServerId);
 
@@ -389,7 +401,6 @@ class Pop3Sync {
             return;
         }
 
-        Set<Flag> messageFlags = backendFolder.getMessageFlags(messageServerId);
         if (!messageFlags.contains(Flag.DELETED)) {
             Timber.v("Message with uid %s is present in the local store", messageServerId);
 
@@ -474,33 +485,16 @@ class Pop3Sync {
 
         Timber.d("SYNC: Fetching %d small messages for folder %s", smallMessages.size(), folder);
 
+        final List<Pop3Message> downloadedMessages = new ArrayList<>();
         remoteFolder.fetch(smallMessages,
                 fp, new MessageRetrievalListener<Pop3Message>() {
                     @Override
                     public void messageFinished(final Pop3Message message, int number, int ofTotal) {
-                        try {
-
-                            // Store the updated message locally
-                            backendFolder.saveMessage(message, MessageDownloadState.FULL);
-                            progress.incrementAndGet();
-
-                            // Increment the number of "new messages" if the newly downloaded message is
-                            // not marked as read.
-                            if (!message.isSet(Flag.SEEN)) {
-                                newMessages.incrementAndGet();
-                            }
-
-                            String messageServerId = message.getUid();
-                            Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
-                                    accountName, folder, messageServerId);
-
-                            // Update the listener with what we've found
-                            listener.syncProgress(folder, progress.get(), todo);
-
-                            boolean isOldMessage = isOldMessage(backendFolder, message);
-                            listener.syncNewMessage(folder, messageServerId, isOldMessage);
-                        } catch (Exception e) {
-                            Timber.e(e, "SYNC: fetch small messages");
+                        downloadedMessages.add(message);
+                        if (downloadedMessages.size() >= SAVE_BATCH_SIZE) {
+                            saveSmallMessages(folder, backendFolder, downloadedMessages, progress, newMessages, todo,
+                                    listener);
+                            downloadedMessages.clear();
                         }
                     }
 
@@ -513,10 +507,57 @@ class Pop3Sync {
                     }
                 },
                 -1);
+        saveSmallMessages(folder, backendFolder, downloadedMessages, progress, newMessages, todo, listener);
 
         Timber.d("SYNC: Done fetching small messages for folder %s", folder);
     }
 
+    private void saveSmallMessages(String folder, BackendFolder backendFolder, List<Pop3Message> messages,
+            AtomicInteger progress, AtomicInteger newMessages, int todo, SyncListener listener) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<Pop3Message> savedMessages;
+        try {
+            // Store the updated messages locally
+            backendFolder.saveMessages(messages, MessageDownloadState.FULL);
+            savedMessages = messages;
+        } catch (Exception e) {
+            Timber.e(e, "SYNC: Error saving small messages, retrying one by one");
+
+            savedMessages = new ArrayList<>();
+            for (Pop3Message message : messages) {
+                try {
+                    backendFolder.saveMessage(message, MessageDownloadState.FULL);
+                    savedMessages.add(message);
+                } catch (Exception exception) {
+                    Timber.e(exception, "SYNC: fetch small messages");
+                }
+            }
+        }
+
+        for (Pop3Message message : savedMessages) {
+            progress.incrementAndGet();
+
+            // Increment the number of "new messages" if the newly downloaded message is
+            // not marked as read.
+            if (!message.isSet(Flag.SEEN)) {
+                newMessages.incrementAndGet();
+            }
+
+            String messageServerId = message.getUid();
+            Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
+                    accountName, folder, messageServerId);
+
+            // Update the listener with what we've found
+            listener.syncProgress(folder, progress.get(), todo);
+
+            boolean isOldMessage = isOldMessage(backendFolder, message);
+            listener.syncNewMessage(folder, messageServerId, isOldMessage);
+        }
+    }
+
     private boolean isOldMessage(BackendFolder backendFolder, Pop3Message message) {
         return message.olderThan(getLatestOldMessageSeenTime(backendFolder));
     }
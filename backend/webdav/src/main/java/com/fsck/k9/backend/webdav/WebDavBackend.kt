@@ -35,6 +35,7 @@ class WebDavBackend(
     override val supportsUpload = true
     override val supportsTrashFolder = true
     override val supportsSearchByDate = false
+    override val supportsParallelSync = false
     override val isPushCapable = false
     override val isDeleteMoveToTrash = true
 
@@ -138,6 +139,10 @@ class WebDavBackend(
         webDavStore.checkSettings()
     }
 
+    override fun startSendSession() = Unit
+
+    override fun endSendSession() = Unit
+
     override fun sendMessage(message: Message) {
         webDavTransport.sendMessage(message)
     }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,9 @@ import timber.log.Timber;
 
 
 class WebDavSync {
+    private static final int SAVE_BATCH_SIZE = 50;
+
+
     private final String accountName;
     private final BackendStorage backendStorage;
     private final WebDavStore remoteStore;
@@ -267,8 +271,11 @@ class WebDavSync {
 
         List<WebDavMessage> messages = new ArrayList<>(inputMessages);
 
+        Map<String, Set<Flag>> localMessageFlags = backendFolder.getMessageFlags(getMessageServerIds(messages));
         for (WebDavMessage message : messages) {
-            evaluateMessageForDownload(message, folder, backendFolder, unsyncedMessages, syncFlagMessages, listener);
+            Set<Flag> messageFlags = localMessageFlags.get(message.getUid());
+            evaluateMessageForDownload(message, messageFlags, folder, backendFolder, unsyncedMessages,
+                    syncFlagMessages, listener);
         }
 
         final AtomicInteger progress = new AtomicInteger(0);
@@ -336,8 +343,13 @@ class WebDavSync {
         return newMessages.get();
     }
 
+    /**
+     * @param messageFlags The flags of the local copy of the message or {@code null} if the message isn't present
+     *         locally.
+     */
     private void evaluateMessageForDownload(
             final WebDavMessage message,
+            final Set<Flag> messageFlags,
             final String folder,
             final BackendFolder backendFolder,
             final List<WebDavMessage> unsyncedMessages,
@@ -352,9 +364,7 @@ class WebDavSync {
             return;
         }
 
-        boolean messagePresentLocally = backendFolder.isMessagePresent(messageServerId);
-
-        if (!messagePresentLocally) {
+        if (messageFlags == null) {
             if (!message.isSet(Flag.X_DOWNLOADED_FULL) && !message.isSet(Flag.X_DOWNLOADED_PARTIAL)) {
                 Timber.v("Message with uid %s has not yet been downloaded", messageServerId);
 
@@ -375,7 +385,6 @@ class WebDavSync {
             return;
         }
 
-        Set<Flag> messageFlags = backendFolder.getMessageFlags(messageServerId);
         if (!messageFlags.contains(Flag.DELETED)) {
             Timber.v("Message with uid %s is present in the local store", messageServerId);
 
@@ -460,32 +469,16 @@ class WebDavSync {
 
         Timber.d("SYNC: Fetching %d small messages for folder %s", smallMessages.size(), folder);
 
+        final List<WebDavMessage> downloadedMessages = new ArrayList<>();
         remoteFolder.fetch(smallMessages,
                 fp, new MessageRetrievalListener<WebDavMessage>() {
                     @Override
                     public void messageFinished(final WebDavMessage message, int number, int ofTotal) {
-                        try {
-
-                            // Store the updated message locally
-                            backendFolder.saveMessage(message, MessageDownloadState.FULL);
-                            progress.incrementAndGet();
-
-                            // Increment the number of "new messages" if the newly downloaded message is
-                            // not marked as read.
-                            if (!message.isSet(Flag.SEEN)) {
-                                newMessages.incrementAndGet();
-                            }
-
-                            String messageServerId = message.getUid();
-                            Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
-                                    accountName, folder, messageServerId);
-
-                            // Update the listener with what we've found
-                            listener.syncProgress(folder, progress.get(), todo);
-
-                            listener.syncNewMessage(folder, messageServerId, false);
-                        } catch (Exception e) {
-                            Timber.e(e, "SYNC: fetch small messages");
+                        downloadedMessages.add(message);
+                        if (downloadedMessages.size() >= SAVE_BATCH_SIZE) {
+                            saveSmallMessages(folder, backendFolder, downloadedMessages, progress, newMessages, todo,
+                                    listener);
+                            downloadedMessages.clear();
                         }
                     }
 
@@ -498,10 +491,56 @@ class WebDavSync {
                     }
                 },
                 -1);
+        saveSmallMessages(folder, backendFolder, downloadedMessages, progress, newMessages, todo, listener);
 
         Timber.d("SYNC: Done fetching small messages for folder %s", folder);
     }
 
+    private void saveSmallMessages(String folder, BackendFolder backendFolder, List<WebDavMessage> messages,
+            AtomicInteger progress, AtomicInteger newMessages, int todo, SyncListener listener) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<WebDavMessage> savedMessages;
+        try {
+            // Store the updated messages locally
+            backendFolder.saveMessages(messages, MessageDownloadState.FULL);
+            savedMessages = messages;
+        } catch (Exception e) {
+            Timber.e(e, "SYNC: Error saving small messages, retrying one by one");
+
+            savedMessages = new ArrayList<>();
+            for (WebDavMessage message : messages) {
+                try {
+                    backendFolder.saveMessage(message, MessageDownloadState.FULL);
+                    savedMessages.add(message);
+                } catch (Exception exception) {
+                    Timber.e(exception, "SYNC: fetch small messages");
+                }
+            }
+        }
+
+        for (WebDavMessage message : savedMessages) {
+            progress.incrementAndGet();
+
+            // Increment the number of "new messages" if the newly downloaded message is
+            // not marked as read.
+            if (!message.isSet(Flag.SEEN)) {
+                newMessages.incrementAndGet();
+            }
+
+            String messageServerId = message.getUid();
+            Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
+                    accountName, folder, messageServerId);
+
+            // Update the listener with what we've found
+            listener.syncProgress(folder, progress.get(), todo);
+
+            listener.syncNewMessage(folder, messageServerId, false);
+        }
+    }
+
     private void downloadLargeMessages(
             final SyncConfig syncConfig,
             final WebDavFolder remoteFolder,
@@ -614,42 +653,66 @@ class WebDavSync {
 
         int maxDownloadSize = syncConfig.getMaximumAutoDownloadMessageSize();
         remoteFolder.fetch(undeletedMessages, fp, null, maxDownloadSize);
-        for (WebDavMessage remoteMessage : syncFlagMessages) {
-            boolean messageChanged = syncFlags(syncConfig, backendFolder, remoteMessage);
-            if (messageChanged) {
-                listener.syncFlagChanged(folder, remoteMessage.getUid());
-            }
-            progress.incrementAndGet();
-            listener.syncProgress(folder, progress.get(), todo);
+
+        for (String messageServerId : syncFlags(syncConfig, backendFolder, syncFlagMessages)) {
+            listener.syncFlagChanged(folder, messageServerId);
         }
+        progress.addAndGet(syncFlagMessages.size());
+        listener.syncProgress(folder, progress.get(), todo);
     }
 
-    private boolean syncFlags(SyncConfig syncConfig, BackendFolder backendFolder, WebDavMessage remoteMessage) {
-        String messageServerId = remoteMessage.getUid();
-
-        if (!backendFolder.isMessagePresent(messageServerId)) {
-            return false;
+    /**
+     * Updates the flags of the local copies of the given messages to match the flags on the server.
+     *
+     * @return The server IDs of messages whose local flags were changed.
+     */
+    private Set<String> syncFlags(SyncConfig syncConfig, BackendFolder backendFolder,
+            List<WebDavMessage> remoteMessages) {
+        if (remoteMessages.isEmpty()) {
+            return Collections.emptySet();
         }
 
-        Set<Flag> localMessageFlags = backendFolder.getMessageFlags(messageServerId);
-        if (localMessageFlags.contains(Flag.DELETED)) {
-            return false;
-        }
+        Map<String, Set<Flag>> localMessageFlags =
+                backendFolder.getMessageFlags(getMessageServerIds(remoteMessages));
 
-        boolean messageChanged = false;
-        if (remoteMessage.isSet(Flag.DELETED)) {
-            if (syncConfig.getSyncRemoteDeletions()) {
-                backendFolder.setMessageFlag(messageServerId, Flag.DELETED, true);
-                messageChanged = true;
+        Map<String, Map<Flag, Boolean>> flagChanges = new LinkedHashMap<>();
+        for (WebDavMessage remoteMessage : remoteMessages) {
+            String messageServerId = remoteMessage.getUid();
+            Set<Flag> localFlags = localMessageFlags.get(messageServerId);
+            if (localFlags == null || localFlags.contains(Flag.DELETED)) {
+                continue;
             }
-        } else {
-            for (Flag flag : syncConfig.getSyncFlags()) {
-                if (remoteMessage.isSet(flag) != localMessageFlags.contains(flag)) {
-                    backendFolder.setMessageFlag(messageServerId, flag, remoteMessage.isSet(flag));
-                    messageChanged = true;
+
+            Map<Flag, Boolean> messageFlagChanges = new HashMap<>();
+            if (remoteMessage.isSet(Flag.DELETED)) {
+                if (syncConfig.getSyncRemoteDeletions()) {
+                    messageFlagChanges.put(Flag.DELETED, true);
+                }
+            } else {
+                for (Flag flag : syncConfig.getSyncFlags()) {
+                    if (remoteMessage.isSet(flag) != localFlags.contains(flag)) {
+                        messageFlagChanges.put(flag, remoteMessage.isSet(flag));
+                    }
                 }
             }
+
+            if (!messageFlagChanges.isEmpty()) {
+                flagChanges.put(messageServerId, messageFlagChanges);
+            }
+        }
+
+        if (!flagChanges.isEmpty()) {
+            backendFolder.setMessageFlags(flagChanges);
+        }
+
+        return flagChanges.keySet();
+    }
+
+    private static List<String> getMessageServerIds(List<WebDavMessage> messages) {
+        List<String> messageServerIds = new ArrayList<>(messages.size());
+        for (WebDavMessage message : messages) {
+            messageServerIds.add(message.getUid());
         }
-        return messageChanged;
+        return messageServerIds;
     }
 }
@@ -0,0 +1,29 @@
+package com.fsck.k9.mail
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AddressBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun parseSingleAddress() = measureParse(Corpus.getHeader(Corpus.multipart, "From"))
+
+    @Test
+    fun parseQuotedAddressList() = measureParse(Corpus.getHeader(Corpus.multipart, "Cc"))
+
+    @Test
+    fun parseEncodedAddressList() = measureParse(Corpus.getHeader(Corpus.encodedWords, "To"))
+
+    private fun measureParse(addressList: String) {
+        benchmarkRule.measure {
+            Address.parse(addressList)
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fsck.k9.mail.benchmarks
+
+import com.fsck.k9.mail.filter.Base64
+import java.io.ByteArrayOutputStream
+import kotlin.random.Random
+
+/**
+ * Messages used as input for the benchmarks.
+ *
+ * The files are located in `src/androidTest/resources/corpus/`. To keep the repository small the message with a large
+ * attachment is created from a header template and random attachment data.
+ */
+object Corpus {
+    const val MULTIPART = "multipart.eml"
+    const val ENCODED_WORDS = "encoded-words.eml"
+    const val ISO_2022_JP = "iso-2022-jp.eml"
+
+    private const val LARGE_ATTACHMENT_HEADER = "large-attachment-header.eml"
+    private const val LARGE_ATTACHMENT_SIZE = 2 * 1024 * 1024
+
+    val multipart: ByteArray by lazy { load(MULTIPART) }
+    val encodedWords: ByteArray by lazy { load(ENCODED_WORDS) }
+    val iso2022Jp: ByteArray by lazy { load(ISO_2022_JP) }
+    val largeAttachment: ByteArray by lazy { createLargeAttachmentMessage() }
+
+    fun load(name: String): ByteArray {
+        val inputStream = requireNotNull(Corpus::class.java.getResourceAsStream("/corpus/$name")) {
+            "Missing corpus file: $name"
+        }
+
+        return inputStream.use { it.readBytes() }
+    }
+
+    /**
+     * Returns the value of the first header field with the given name, including folding whitespace.
+     */
+    fun getHeader(message: ByteArray, name: String): String {
+        val header = String(message, Charsets.ISO_8859_1).substringBefore("\r\n\r\n")
+        val regex = Regex("^$name:[ \t]*(.*(?:\r\n[ \t].*)*)", setOf(RegexOption.MULTILINE, RegexOption.IGNORE_CASE))
+        val match = requireNotNull(regex.find(header)) { "Missing header: $name" }
+
+        return match.groupValues[1]
+    }
+
+    /**
+     * Returns the header section of a message, including the empty line terminating it.
+     */
+    fun getHeaderSection(message: ByteArray): ByteArray {
+        val header = String(message, Charsets.ISO_8859_1).substringBefore("\r\n\r\n") + "\r\n\r\n"
+        return header.toByteArray(Charsets.ISO_8859_1)
+    }
+
+    private fun createLargeAttachmentMessage(): ByteArray {
+        val attachment = Random(42).nextBytes(LARGE_ATTACHMENT_SIZE)
+
+        return ByteArrayOutputStream().apply {
+            write(load(LARGE_ATTACHMENT_HEADER))
+            write(Base64.encodeBase64Chunked(attachment))
+            write("\r\n------=_Part_0_123456.789--\r\n".toByteArray(Charsets.US_ASCII))
+        }.toByteArray()
+    }
+}
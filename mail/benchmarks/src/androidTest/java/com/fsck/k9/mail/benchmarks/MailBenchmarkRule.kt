@@ -0,0 +1,89 @@
+package com.fsck.k9.mail.benchmarks
+
+import android.app.Instrumentation
+import android.os.Bundle
+import android.os.Debug
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.platform.app.InstrumentationRegistry
+import java.util.Locale
+import org.junit.rules.TestRule
+import org.junit.runner.Description
+import org.junit.runners.model.Statement
+
+private const val TAG = "MailBenchmark"
+private const val ALLOCATION_ITERATIONS = 100
+
+/**
+ * Wraps [BenchmarkRule] to report the allocations per operation in addition to the time per operation.
+ *
+ * Allocation counting slows down the runtime. So allocations are counted in a separate run after the timed one.
+ */
+class MailBenchmarkRule : TestRule {
+    private val benchmarkRule = BenchmarkRule()
+    private var testName = ""
+
+    override fun apply(base: Statement, description: Description): Statement {
+        val statement = object : Statement() {
+            override fun evaluate() {
+                testName = "${description.testClass.simpleName}.${description.methodName}"
+                base.evaluate()
+            }
+        }
+
+        return benchmarkRule.apply(statement, description)
+    }
+
+    /**
+     * Measures [block]. [cleanup] is run after every invocation of [block] but isn't included in the results.
+     */
+    fun measure(cleanup: () -> Unit = {}, block: () -> Unit) {
+        benchmarkRule.measureRepeated {
+            block()
+            runWithTimingDisabled(cleanup)
+        }
+
+        measureAllocations(cleanup, block)
+    }
+
+    @Suppress("DEPRECATION")
+    private fun measureAllocations(cleanup: () -> Unit, block: () -> Unit) {
+        Debug.resetThreadAllocCount()
+        Debug.resetThreadAllocSize()
+        repeat(ALLOCATION_ITERATIONS) {
+            Debug.startAllocCounting()
+            try {
+                block()
+            } finally {
+                Debug.stopAllocCounting()
+            }
+            cleanup()
+        }
+
+        val allocationCount = Debug.getThreadAllocCount().toDouble() / ALLOCATION_ITERATIONS
+        val allocationSize = Debug.getThreadAllocSize().toDouble() / ALLOCATION_ITERATIONS
+        report(
+            String.format(
+                Locale.ROOT,
+                "%s: %.1f allocations, %.0f bytes allocated per operation",
+                testName,
+                allocationCount,
+                allocationSize
+            )
+        )
+    }
+
+    private fun report(message: String) {
+        Log.i(TAG, message)
+
+        val status = Bundle().apply {
+            putString(Instrumentation.REPORT_KEY_STREAMRESULT, "$message\n")
+        }
+        InstrumentationRegistry.getInstrumentation().sendStatus(INSTRUMENTATION_STATUS_CODE, status)
+    }
+
+    companion object {
+        private const val INSTRUMENTATION_STATUS_CODE = 2
+    }
+}
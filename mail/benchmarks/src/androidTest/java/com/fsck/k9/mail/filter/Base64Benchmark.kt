@@ -0,0 +1,50 @@
+package com.fsck.k9.mail.filter
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class Base64Benchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun decodeLargeAttachment() {
+        val encoded = getLargeAttachment()
+
+        benchmarkRule.measure {
+            Base64.decodeBase64(encoded)
+        }
+    }
+
+    @Test
+    fun encodeLargeAttachment() {
+        val data = Base64.decodeBase64(getLargeAttachment())
+
+        benchmarkRule.measure {
+            Base64.encodeBase64Chunked(data)
+        }
+    }
+
+    @Test
+    fun decodeString() {
+        benchmarkRule.measure {
+            Base64.decode(ENCODED_CREDENTIALS)
+        }
+    }
+
+    private fun getLargeAttachment(): ByteArray {
+        val message = String(Corpus.largeAttachment, Charsets.ISO_8859_1)
+        val attachment = message.substringAfter("filename=IMG_0001.jpg\r\n\r\n").substringBefore("\r\n\r\n")
+        return attachment.toByteArray(Charsets.ISO_8859_1)
+    }
+
+    companion object {
+        // "\u0000alice@example.org\u0000correct horse battery staple"
+        private const val ENCODED_CREDENTIALS = "AGFsaWNlQGV4YW1wbGUub3JnAGNvcnJlY3QgaG9yc2UgYmF0dGVyeSBzdGFwbGU="
+    }
+}
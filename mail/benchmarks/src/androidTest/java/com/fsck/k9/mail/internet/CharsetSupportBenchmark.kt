@@ -0,0 +1,57 @@
+package com.fsck.k9.mail.internet
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class CharsetSupportBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun readIso2022JpText() {
+        val body = getBody(Corpus.iso2022Jp)
+
+        benchmarkRule.measure {
+            CharsetSupport.readToString(body.inputStream(), "iso-2022-jp")
+        }
+    }
+
+    @Test
+    fun readUtf8Text() {
+        val body = getBody(Corpus.multipart)
+
+        benchmarkRule.measure {
+            CharsetSupport.readToString(body.inputStream(), "utf-8")
+        }
+    }
+
+    @Test
+    fun readUnsupportedCharsetText() {
+        val body = getBody(Corpus.multipart)
+
+        benchmarkRule.measure {
+            CharsetSupport.readToString(body.inputStream(), "x-unknown")
+        }
+    }
+
+    @Test
+    fun fixupCharset() {
+        val message = MimeMessage().apply {
+            setHeader("From", "taro@docomo.ne.jp")
+        }
+
+        benchmarkRule.measure {
+            CharsetSupport.fixupCharset("ISO-2022-JP", message)
+        }
+    }
+
+    private fun getBody(message: ByteArray): ByteArray {
+        val messageText = String(message, Charsets.ISO_8859_1)
+        return messageText.substringAfter("\r\n\r\n").toByteArray(Charsets.ISO_8859_1)
+    }
+}
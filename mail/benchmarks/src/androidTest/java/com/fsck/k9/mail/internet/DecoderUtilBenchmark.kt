@@ -0,0 +1,34 @@
+package com.fsck.k9.mail.internet
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class DecoderUtilBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun decodeUtf8AndLatin1Subject() = measureDecode(Corpus.encodedWords, "Subject")
+
+    @Test
+    fun decodeAddressList() = measureDecode(Corpus.encodedWords, "To")
+
+    @Test
+    fun decodeIso2022JpSubject() = measureDecode(Corpus.iso2022Jp, "Subject")
+
+    @Test
+    fun decodeWithoutEncodedWords() = measureDecode(Corpus.multipart, "Subject")
+
+    private fun measureDecode(message: ByteArray, headerName: String) {
+        val headerValue = Corpus.getHeader(message, headerName)
+
+        benchmarkRule.measure {
+            DecoderUtil.decodeEncodedWords(headerValue, null)
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.fsck.k9.mail.internet
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class FlowedMessageUtilsBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun isFormatFlowed() {
+        benchmarkRule.measure {
+            FlowedMessageUtils.isFormatFlowed(FLOWED_CONTENT_TYPE)
+        }
+    }
+
+    @Test
+    fun isDelSp() {
+        benchmarkRule.measure {
+            FlowedMessageUtils.isDelSp(FLOWED_CONTENT_TYPE)
+        }
+    }
+
+    @Test
+    fun isFormatFlowedWithHtml() {
+        benchmarkRule.measure {
+            FlowedMessageUtils.isFormatFlowed(HTML_CONTENT_TYPE)
+        }
+    }
+
+    companion object {
+        private const val FLOWED_CONTENT_TYPE = "text/plain; charset=utf-8; format=flowed; delsp=yes"
+        private const val HTML_CONTENT_TYPE = "text/html; charset=utf-8"
+    }
+}
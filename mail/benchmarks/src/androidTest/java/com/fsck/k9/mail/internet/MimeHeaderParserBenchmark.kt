@@ -0,0 +1,52 @@
+package com.fsck.k9.mail.internet
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * [MimeHeaderParser] is used by [MimeParameterDecoder] to parse structured header fields.
+ */
+@RunWith(AndroidJUnit4::class)
+class MimeHeaderParserBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun decodeContentType() {
+        val contentType = unfold(Corpus.getHeader(Corpus.multipart, "Content-Type"))
+
+        benchmarkRule.measure {
+            MimeParameterDecoder.decode(contentType)
+        }
+    }
+
+    @Test
+    fun decodeRfc2231ContentDisposition() {
+        val contentDisposition = unfold(Corpus.getHeader(getAttachmentHeader(), "Content-Disposition"))
+
+        benchmarkRule.measure {
+            MimeParameterDecoder.decode(contentDisposition)
+        }
+    }
+
+    @Test
+    fun readHeaderValue() {
+        val contentType = unfold(Corpus.getHeader(Corpus.multipart, "Content-Type"))
+
+        benchmarkRule.measure {
+            MimeHeaderParser(contentType).readHeaderValue()
+        }
+    }
+
+    private fun getAttachmentHeader(): ByteArray {
+        val message = String(Corpus.encodedWords, Charsets.ISO_8859_1)
+        val attachmentPart = message.substringAfter("Content-Type: application/")
+        return "Content-Type: application/$attachmentPart".toByteArray(Charsets.ISO_8859_1)
+    }
+
+    private fun unfold(value: String) = value.replace("\r\n", "")
+}
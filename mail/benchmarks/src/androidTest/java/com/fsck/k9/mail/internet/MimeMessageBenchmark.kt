@@ -0,0 +1,54 @@
+package com.fsck.k9.mail.internet
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import java.io.File
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class MimeMessageBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    private val tempDirectory = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, "benchmark")
+
+    @Before
+    fun setUp() {
+        tempDirectory.mkdirs()
+        BinaryTempFileBody.setTempDirectory(tempDirectory)
+    }
+
+    @After
+    fun tearDown() {
+        tempDirectory.deleteRecursively()
+    }
+
+    @Test
+    fun parseMultipart() = measureParse(Corpus.multipart)
+
+    @Test
+    fun parseEncodedWords() = measureParse(Corpus.encodedWords)
+
+    @Test
+    fun parseLargeAttachment() = measureParse(Corpus.largeAttachment)
+
+    @Test
+    fun parseIso2022Jp() = measureParse(Corpus.iso2022Jp)
+
+    private fun measureParse(message: ByteArray) {
+        benchmarkRule.measure(cleanup = ::deleteTempFiles) {
+            MimeMessage.parseMimeMessage(message.inputStream(), true)
+        }
+    }
+
+    // Bodies are written to temporary files that are only deleted when they are read
+    private fun deleteTempFiles() {
+        tempDirectory.listFiles()?.forEach { it.delete() }
+    }
+}
@@ -0,0 +1,31 @@
+package com.fsck.k9.mail.message
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class MessageHeaderParserBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    @Test
+    fun parseMultipartHeader() = measureParse(Corpus.multipart)
+
+    @Test
+    fun parseEncodedWordsHeader() = measureParse(Corpus.encodedWords)
+
+    @Test
+    fun parseIso2022JpHeader() = measureParse(Corpus.iso2022Jp)
+
+    private fun measureParse(message: ByteArray) {
+        val header = Corpus.getHeaderSection(message)
+
+        benchmarkRule.measure {
+            MessageHeaderParser.parse(header.inputStream()) { _, _ -> }
+        }
+    }
+}
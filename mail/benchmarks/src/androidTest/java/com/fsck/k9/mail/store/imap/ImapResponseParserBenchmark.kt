@@ -0,0 +1,69 @@
+package com.fsck.k9.mail.store.imap
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.fsck.k9.mail.benchmarks.Corpus
+import com.fsck.k9.mail.benchmarks.MailBenchmarkRule
+import com.fsck.k9.mail.filter.PeekableInputStream
+import java.io.ByteArrayOutputStream
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val MESSAGE_COUNT = 100
+
+/**
+ * Compares the generic [ImapResponseParser.readResponse] with [ImapResponseParser.readFetchResponse] for the response
+ * to a `UID FETCH` command like the one used when synchronizing message headers.
+ */
+@RunWith(AndroidJUnit4::class)
+class ImapResponseParserBenchmark {
+    @get:Rule
+    val benchmarkRule = MailBenchmarkRule()
+
+    private val fetchResponses = createFetchResponses()
+
+    @Test
+    fun readResponse() {
+        benchmarkRule.measure {
+            val parser = createParser()
+            do {
+                val response = parser.readResponse()
+            } while (!response.isTagged)
+        }
+    }
+
+    @Test
+    fun readFetchResponse() {
+        val fetchResponse = FetchResponse()
+
+        benchmarkRule.measure {
+            val parser = createParser()
+            do {
+                val response = parser.readFetchResponse(fetchResponse, null)
+            } while (response == null || !response.isTagged)
+        }
+    }
+
+    private fun createParser(): ImapResponseParser {
+        return ImapResponseParser(PeekableInputStream(fetchResponses.inputStream()))
+    }
+
+    private fun createFetchResponses(): ByteArray {
+        val header = Corpus.getHeaderSection(Corpus.multipart)
+
+        val output = ByteArrayOutputStream()
+        for (number in 1..MESSAGE_COUNT) {
+            val uid = 1000 + number
+            output.write(
+                ("* $number FETCH (UID $uid FLAGS (\\Seen \$Forwarded) INTERNALDATE \"01-Jul-2015 12:34:56 +0200\" " +
+                    "RFC822.SIZE 23456 BODY[HEADER.FIELDS (date subject from to cc message-id references)] " +
+                    "{${header.size}}\r\n").toByteArray(Charsets.US_ASCII)
+            )
+            output.write(header)
+            output.write(")\r\n".toByteArray(Charsets.US_ASCII))
+        }
+        output.write("1 OK UID FETCH completed\r\n".toByteArray(Charsets.US_ASCII))
+
+        return output.toByteArray()
+    }
+}
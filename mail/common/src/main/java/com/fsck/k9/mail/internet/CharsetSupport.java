@@ -9,6 +9,8 @@ import timber.log.Timber;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.util.Locale;
@@ -48,22 +50,32 @@ public class CharsetSupport {
 
 
     static String readToString(InputStream in, String charset) throws IOException {
-        boolean isIphoneString = false;
+        boolean isIphoneString = isIphoneCharset(charset);
 
+        /*
+         * Convert and return as new String
+         */
+        String str = IOUtils.toString(createReader(in, charset));
+
+        if (isIphoneString)
+            str = importStringFromIphone(str);
+        return str;
+    }
+
+    /**
+     * Create a {@link Reader} that decodes the data of {@code in} using the given charset (or its fall-back).
+     * <p>
+     * Unlike {@link #readToString(InputStream, String)} this doesn't map the iPhone-specific emoji code points.
+     */
+    static Reader createReader(InputStream in, String charset) throws IOException {
         // iso-2022-jp variants are supported by no versions as of Dec 2010.
-        if (charset.length() > 19 && charset.startsWith("x-") &&
-                charset.endsWith("-iso-2022-jp-2007") && !Charset.isSupported(charset)) {
+        if (isUnsupportedIso2022JpVariant(charset)) {
             in = new Iso2022JpToShiftJisInputStream(in);
-            charset = "x-" + charset.substring(2, charset.length() - 17) + "-shift_jis-2007";
+            charset = getShiftJisVariant(charset);
         }
 
         // shift_jis variants are supported by Eclair and later.
         if (JisSupport.isShiftJis(charset) && !Charset.isSupported(charset)) {
-            // If the JIS variant is iPhone, map the Unicode private use area in iPhone to the one in Android after
-            // converting the character set from the standard Shift JIS to Unicode.
-            if (charset.substring(2, charset.length() - 15).equals("iphone"))
-                isIphoneString = true;
-
             charset = SHIFT_JIS;
         }
 
@@ -94,14 +106,27 @@ public class CharsetSupport {
             }
         }
 
-        /*
-         * Convert and return as new String
-         */
-        String str = IOUtils.toString(in, charset);
+        return new InputStreamReader(in, Charset.forName(charset));
+    }
 
-        if (isIphoneString)
-            str = importStringFromIphone(str);
-        return str;
+    private static boolean isIphoneCharset(String charset) {
+        if (isUnsupportedIso2022JpVariant(charset)) {
+            charset = getShiftJisVariant(charset);
+        }
+
+        // If the JIS variant is iPhone, map the Unicode private use area in iPhone to the one in Android after
+        // converting the character set from the standard Shift JIS to Unicode.
+        return JisSupport.isShiftJis(charset) && !Charset.isSupported(charset) &&
+                charset.substring(2, charset.length() - 15).equals("iphone");
+    }
+
+    private static boolean isUnsupportedIso2022JpVariant(String charset) {
+        return charset.length() > 19 && charset.startsWith("x-") &&
+                charset.endsWith("-iso-2022-jp-2007") && !Charset.isSupported(charset);
+    }
+
+    private static String getShiftJisVariant(String iso2022JpVariant) {
+        return "x-" + iso2022JpVariant.substring(2, iso2022JpVariant.length() - 17) + "-shift_jis-2007";
     }
 
     private static String importStringFromIphone(String str) {
@@ -1,8 +1,11 @@
 package com.fsck.k9.mail.internet;
 
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -74,8 +77,72 @@ public class MessageExtractor {
         return null;
     }
 
+    /**
+     * Returns a {@link Reader} for the decoded text of a text part.
+     * <p>
+     * Unlike {@link #getTextFromPart(Part, long)} this doesn't read the whole text into memory. The caller is
+     * responsible for closing the returned {@code Reader}.
+     *
+     * @return A {@code Reader} for the text, or {@code null} if the part has no body or isn't a text part.
+     */
+    @Nullable
+    public static Reader getTextReaderFromPart(Part part, long textSizeLimit) throws IOException, MessagingException {
+        if (part == null) {
+            throw new IllegalArgumentException("Argument 'part' must not be null");
+        }
+
+        Body body = part.getBody();
+        if (body == null) {
+            Timber.v("No body present for this message part");
+            return null;
+        }
+
+        if (body instanceof TextBody) {
+            TextBody textBody = (TextBody) body;
+            String text = textBody.getRawText();
+            return text != null ? new StringReader(text) : null;
+        }
+
+        String mimeType = part.getMimeType();
+        if (mimeType != null && MimeUtility.mimeTypeMatches(mimeType, "text/*") ||
+                part.isMimeType("application/pgp")) {
+            String charset = getCharsetFromTextPart(part, body, mimeType);
+            final InputStream in = MimeUtility.decodeBody(body);
+            InputStream possiblyLimitedIn =
+                    textSizeLimit != NO_TEXT_SIZE_LIMIT ? new BoundedInputStream(in, textSizeLimit) : in;
+            return CharsetSupport.createReader(new FilterInputStream(possiblyLimitedIn) {
+                @Override
+                public void close() throws IOException {
+                    MimeUtility.closeInputStreamWithoutDeletingTemporaryFiles(in);
+                }
+            }, charset);
+        }
+
+        Timber.w("Provided non-text part: %s", mimeType);
+        return null;
+    }
+
     private static String getTextFromTextPart(Part part, Body body, String mimeType, long textSizeLimit)
             throws IOException, MessagingException {
+        String charset = getCharsetFromTextPart(part, body, mimeType);
+        /*
+         * Now we read the part into a buffer for further processing. Because
+         * the stream is now wrapped we'll remove any transfer encoding at this point.
+         */
+        InputStream in = MimeUtility.decodeBody(body);
+        InputStream possiblyLimitedIn =
+                textSizeLimit != NO_TEXT_SIZE_LIMIT ? new BoundedInputStream(in, textSizeLimit) : in;
+        try {
+            return CharsetSupport.readToString(possiblyLimitedIn, charset);
+        } finally {
+            try {
+                MimeUtility.closeInputStreamWithoutDeletingTemporaryFiles(in);
+            } catch (IOException e) { /* Ignore */ }
+        }
+    }
+
+    private static String getCharsetFromTextPart(Part part, Body body, String mimeType)
+            throws IOException, MessagingException {
         /*
          * We've got a text part, so let's see if it needs to be processed further.
          */
@@ -90,9 +157,6 @@ public class MessageExtractor {
                 in.read(buf, 0, buf.length);
                 String str = new String(buf, "US-ASCII");
 
-                if (str.isEmpty()) {
-                    return "";
-                }
                 Pattern p = Pattern.compile("<meta http-equiv=\"?Content-Type\"? content=\"text/html; charset=(.+?)\">", Pattern.CASE_INSENSITIVE);
                 Matcher m = p.matcher(str);
                 if (m.find()) {
@@ -104,21 +168,7 @@ public class MessageExtractor {
                 } catch (IOException e) { /* ignore */ }
             }
         }
-        charset = fixupCharset(charset, getMessageFromPart(part));
-        /*
-         * Now we read the part into a buffer for further processing. Because
-         * the stream is now wrapped we'll remove any transfer encoding at this point.
-         */
-        InputStream in = MimeUtility.decodeBody(body);
-        InputStream possiblyLimitedIn =
-                textSizeLimit != NO_TEXT_SIZE_LIMIT ? new BoundedInputStream(in, textSizeLimit) : in;
-        try {
-            return CharsetSupport.readToString(possiblyLimitedIn, charset);
-        } finally {
-            try {
-                MimeUtility.closeInputStreamWithoutDeletingTemporaryFiles(in);
-            } catch (IOException e) { /* Ignore */ }
-        }
+        return fixupCharset(charset, getMessageFromPart(part));
     }
 
     public static boolean hasMissingParts(Part part) {
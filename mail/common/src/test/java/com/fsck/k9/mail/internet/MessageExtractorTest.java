@@ -1,9 +1,12 @@
 package com.fsck.k9.mail.internet;
 
 
+import java.io.Reader;
+
 import com.fsck.k9.mail.Body;
 import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mailstore.BinaryMemoryBody;
+import org.apache.commons.io.IOUtils;
 import org.apache.james.mime4j.util.MimeUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -116,4 +119,37 @@ public class MessageExtractorTest {
         assertNotNull(result);
         assertEquals(bodyText, result);
     }
+
+    @Test
+    public void getTextReaderFromPart_withNoBody_shouldReturnNull() throws Exception {
+        part.setBody(null);
+
+        Reader result = MessageExtractor.getTextReaderFromPart(part, MessageExtractor.NO_TEXT_SIZE_LIMIT);
+
+        assertNull(result);
+    }
+
+    @Test
+    public void getTextReaderFromPart_withBase64EncodedText_shouldReturnDecodedText() throws Exception {
+        part.setHeader(MimeHeader.HEADER_CONTENT_TYPE, "text/plain; charset=UTF-8");
+        BinaryMemoryBody body = new BinaryMemoryBody("w4RwZmVs".getBytes(), MimeUtil.ENC_BASE64);
+        part.setBody(body);
+
+        Reader reader = MessageExtractor.getTextReaderFromPart(part, MessageExtractor.NO_TEXT_SIZE_LIMIT);
+
+        assertNotNull(reader);
+        assertEquals("\u00C4pfel", IOUtils.toString(reader));
+    }
+
+    @Test
+    public void getTextReaderFromPart_withTextSizeLimit_shouldReturnTruncatedText() throws Exception {
+        part.setHeader(MimeHeader.HEADER_CONTENT_TYPE, "text/plain; charset=UTF-8");
+        BinaryMemoryBody body = new BinaryMemoryBody("Sample text body".getBytes(), MimeUtil.ENC_8BIT);
+        part.setBody(body);
+
+        Reader reader = MessageExtractor.getTextReaderFromPart(part, 6);
+
+        assertNotNull(reader);
+        assertEquals("Sample", IOUtils.toString(reader));
+    }
 }
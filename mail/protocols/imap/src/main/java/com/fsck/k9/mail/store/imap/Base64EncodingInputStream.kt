@@ -0,0 +1,66 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.filter.Base64
+import java.io.ByteArrayOutputStream
+import java.io.InputStream
+import kotlin.math.min
+import org.apache.commons.io.IOUtils
+
+private const val BYTES_PER_LINE = 57
+private const val LINES_PER_READ = 64
+private val CRLF = byteArrayOf('\r'.toByte(), '\n'.toByte())
+
+/**
+ * Returns the data of [inputStream] base64-encoded, in lines of 76 characters.
+ *
+ * Parts fetched using `BINARY` are already decoded by the server. Encoding them again means they are stored the same
+ * way as parts fetched using `BODY`, i.e. with the transfer encoding found in the part's header.
+ */
+internal class Base64EncodingInputStream(private val inputStream: InputStream) : InputStream() {
+    private val inputBuffer = ByteArray(BYTES_PER_LINE * LINES_PER_READ)
+    private var outputBuffer = ByteArray(0)
+    private var outputPosition = 0
+    private var endOfInput = false
+
+    override fun read(): Int {
+        val buffer = ByteArray(1)
+        return if (read(buffer, 0, 1) == -1) -1 else buffer[0].toInt() and 0xFF
+    }
+
+    override fun read(buffer: ByteArray, offset: Int, length: Int): Int {
+        if (length == 0) return 0
+        if (outputPosition == outputBuffer.size && !fillOutputBuffer()) return -1
+
+        val count = min(length, outputBuffer.size - outputPosition)
+        System.arraycopy(outputBuffer, outputPosition, buffer, offset, count)
+        outputPosition += count
+
+        return count
+    }
+
+    override fun close() {
+        inputStream.close()
+    }
+
+    private fun fillOutputBuffer(): Boolean {
+        if (endOfInput) return false
+
+        val count = IOUtils.read(inputStream, inputBuffer)
+        if (count < inputBuffer.size) {
+            endOfInput = true
+        }
+        if (count == 0) return false
+
+        val output = ByteArrayOutputStream()
+        for (lineStart in 0 until count step BYTES_PER_LINE) {
+            val lineEnd = min(lineStart + BYTES_PER_LINE, count)
+            output.write(Base64.encodeBase64(inputBuffer.copyOfRange(lineStart, lineEnd)))
+            output.write(CRLF)
+        }
+
+        outputBuffer = output.toByteArray()
+        outputPosition = 0
+
+        return true
+    }
+}
@@ -3,6 +3,7 @@ package com.fsck.k9.mail.store.imap;
 
 class Commands {
     public static final String IDLE = "IDLE";
+    public static final String NOTIFY = "NOTIFY";
     public static final String NAMESPACE = "NAMESPACE";
     public static final String CAPABILITY = "CAPABILITY";
     public static final String COMPRESS_DEFLATE = "COMPRESS DEFLATE";
@@ -14,6 +15,7 @@ class Commands {
     public static final String LOGIN = "LOGIN";
     public static final String LIST = "LIST";
     public static final String NOOP = "NOOP";
+    public static final String ENABLE_QRESYNC = "ENABLE QRESYNC";
     public static final String UID_SEARCH = "UID SEARCH";
     public static final String UID_STORE = "UID STORE";
     public static final String UID_FETCH = "UID FETCH";
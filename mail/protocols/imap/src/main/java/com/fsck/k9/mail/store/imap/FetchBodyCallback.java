@@ -8,26 +8,24 @@ import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.filter.FixedLengthInputStream;
 
 
-class FetchBodyCallback implements ImapResponseCallback {
-    private Map<String, ImapMessage> mMessageMap;
+class FetchBodyCallback implements FetchResponse.BodyCallback {
+    private Map<Long, ImapMessage> mMessageMap;
 
-    FetchBodyCallback(Map<String, ImapMessage> messageMap) {
+    FetchBodyCallback(Map<Long, ImapMessage> messageMap) {
         mMessageMap = messageMap;
     }
 
     @Override
-    public Object foundLiteral(ImapResponse response,
-                               FixedLengthInputStream literal) throws MessagingException, IOException {
-        if (response.getTag() == null &&
-                ImapResponseParser.equalsIgnoreCase(response.get(1), "FETCH")) {
-            ImapList fetchList = (ImapList)response.getKeyedValue("FETCH");
-            String uid = fetchList.getKeyedString("UID");
-
-            ImapMessage message = mMessageMap.get(uid);
-            message.parse(literal);
-
-            // Return placeholder object
-            return 1;
+    public Object foundBody(FetchResponse fetchResponse,
+                            FixedLengthInputStream literal) throws MessagingException, IOException {
+        if (fetchResponse.hasUid()) {
+            ImapMessage message = mMessageMap.get(fetchResponse.getUid());
+            if (message != null) {
+                message.parse(literal);
+
+                // Return placeholder object
+                return 1;
+            }
         }
         return null;
     }
@@ -0,0 +1,151 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.fsck.k9.mail.Flag;
+import com.fsck.k9.mail.MessagingException;
+import com.fsck.k9.mail.filter.FixedLengthInputStream;
+
+
+/**
+ * Holds the attributes of a single untagged FETCH response.
+ * <p>
+ * Instances are filled by {@link ImapResponseParser#readFetchResponse(FetchResponse, BodyCallback)} directly from the
+ * input stream, without building an {@link ImapResponse} first. The same instance is meant to be reused for all
+ * responses to a {@code UID FETCH} command; it is reset before each response is parsed.
+ */
+class FetchResponse {
+    private long messageNumber;
+    private long uid;
+    private boolean flagsPresent;
+    private final Set<Flag> flags = EnumSet.noneOf(Flag.class);
+    private final StringBuilder internalDate = new StringBuilder();
+    private boolean internalDatePresent;
+    private int size;
+    private ImapList bodyStructure;
+    private boolean bodyPresent;
+    private Object body;
+
+
+    void reset(long messageNumber) {
+        this.messageNumber = messageNumber;
+        uid = -1;
+        flagsPresent = false;
+        flags.clear();
+        internalDate.setLength(0);
+        internalDatePresent = false;
+        size = -1;
+        bodyStructure = null;
+        bodyPresent = false;
+        body = null;
+    }
+
+    long getMessageNumber() {
+        return messageNumber;
+    }
+
+    boolean hasUid() {
+        return uid != -1;
+    }
+
+    long getUid() {
+        return uid;
+    }
+
+    void setUid(long uid) {
+        this.uid = uid;
+    }
+
+    boolean hasFlags() {
+        return flagsPresent;
+    }
+
+    /**
+     * Returns the system flags and {@code $Forwarded} keyword contained in the FLAGS attribute. Other keywords are
+     * ignored.
+     */
+    Set<Flag> getFlags() {
+        return flags;
+    }
+
+    void setFlagsPresent() {
+        flagsPresent = true;
+    }
+
+    void addFlag(Flag flag) {
+        flags.add(flag);
+    }
+
+    boolean hasInternalDate() {
+        return internalDatePresent;
+    }
+
+    Date getInternalDate() throws MessagingException {
+        return internalDatePresent ? ImapList.getDate(internalDate.toString()) : null;
+    }
+
+    StringBuilder startInternalDate() {
+        internalDatePresent = true;
+        internalDate.setLength(0);
+        return internalDate;
+    }
+
+    boolean hasSize() {
+        return size != -1;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    ImapList getBodyStructure() {
+        return bodyStructure;
+    }
+
+    void setBodyStructure(ImapList bodyStructure) {
+        this.bodyStructure = bodyStructure;
+    }
+
+    boolean hasBody() {
+        return bodyPresent;
+    }
+
+    /**
+     * Returns the value of the {@code BODY[<section>]} attribute.
+     * <p>
+     * This is the object returned by {@link BodyCallback#foundBody(FetchResponse, FixedLengthInputStream)} if the
+     * callback consumed the literal, a {@code String} otherwise, or {@code null} if the server returned NIL.
+     */
+    Object getBody() {
+        return body;
+    }
+
+    void setBody(Object body) {
+        bodyPresent = true;
+        this.body = body;
+    }
+
+
+    interface BodyCallback {
+        /**
+         * Called by the parser when the {@code BODY[<section>]} attribute of a FETCH response contains a literal.
+         *
+         * @param fetchResponse
+         *         The attributes that have been parsed up until now. Servers send UID before the body literal in
+         *         practice, but this isn't guaranteed by the protocol.
+         * @param literal
+         *         Stream that can be used to read the literal.
+         *
+         * @return An object that will be stored as the value of the body attribute, or {@code null} if the callback
+         *         didn't consume the literal and the parser should read it as {@code String}.
+         */
+        Object foundBody(FetchResponse fetchResponse, FixedLengthInputStream literal) throws Exception;
+    }
+}
@@ -0,0 +1,18 @@
+package com.fsck.k9.mail.store.imap
+
+/**
+ * The result of [ImapFolder.fetchFlagChanges].
+ *
+ * [messages] contains all messages whose flags changed, including messages that were added to the folder. Expunged
+ * messages are only reported if [isVanishedAvailable] is `true`, i.e. when QRESYNC is enabled for the connection.
+ */
+class FlagChanges(
+    val messages: List<ImapMessage>,
+    val isVanishedAvailable: Boolean,
+    private val vanishedUidRanges: List<LongRange>
+) {
+    fun isVanished(uid: String): Boolean {
+        val uidLong = uid.toLongOrNull() ?: return false
+        return vanishedUidRanges.any { uidLong in it }
+    }
+}
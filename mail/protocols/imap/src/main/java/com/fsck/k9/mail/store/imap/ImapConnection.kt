@@ -12,6 +12,8 @@ internal interface ImapConnection {
     val outputStream: OutputStream
     val isUidPlusCapable: Boolean
     val isIdleCapable: Boolean
+    val isCondstoreCapable: Boolean
+    val isQresyncEnabled: Boolean
 
     @Throws(IOException::class, MessagingException::class)
     fun open()
@@ -39,6 +41,12 @@ internal interface ImapConnection {
     @Throws(IOException::class)
     fun readResponse(callback: ImapResponseCallback?): ImapResponse
 
+    /**
+     * Reads the next response. Untagged FETCH responses are parsed into [fetchResponse] and `null` is returned.
+     */
+    @Throws(IOException::class)
+    fun readFetchResponse(fetchResponse: FetchResponse, callback: FetchResponse.BodyCallback?): ImapResponse?
+
     @Throws(SocketException::class)
     fun setSocketDefaultReadTimeout()
 
@@ -0,0 +1,194 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.MessagingException
+import java.io.IOException
+import java.util.ArrayDeque
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import timber.log.Timber
+
+private const val DEFAULT_MAX_IDLE_CONNECTIONS = 3
+private const val DEFAULT_VALIDATION_INTERVAL = 30 * 1000L
+private const val DEFAULT_MAX_IDLE_TIME = 5 * 60 * 1000L
+
+/**
+ * Keeps idle connections of an account around so they can be reused.
+ *
+ * - Connections that have been used within [validationInterval] are handed out without checking them with a `NOOP`.
+ * - Connections that have been idle for longer than [maxIdleTime] are closed in the background.
+ * - At most [maxIdleConnections] idle connections are kept. When releasing more connections the ones that have been
+ *   idle the longest are closed.
+ */
+internal class ImapConnectionPool(
+    private val maxIdleConnections: Int = DEFAULT_MAX_IDLE_CONNECTIONS,
+    private val validationInterval: Long = DEFAULT_VALIDATION_INTERVAL,
+    private val maxIdleTime: Long = DEFAULT_MAX_IDLE_TIME,
+    private val clock: () -> Long = { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) },
+    private val executor: ScheduledExecutorService = evictionExecutor
+) {
+    // Most recently released connection first
+    private val idleConnections = ArrayDeque<IdleConnection>()
+    private var evictionTask: ScheduledFuture<*>? = null
+
+    private var hits = 0L
+    private var creations = 0L
+    private var validationFailures = 0L
+    private var evictions = 0L
+
+    val metrics: ImapConnectionPoolMetrics
+        get() = synchronized(idleConnections) {
+            ImapConnectionPoolMetrics(hits, creations, validationFailures, evictions)
+        }
+
+    @Throws(MessagingException::class)
+    fun getConnection(createConnection: () -> ImapConnection): ImapConnection {
+        while (true) {
+            val idleConnection = pollConnection() ?: break
+
+            val connection = idleConnection.connection
+            if (isValid(idleConnection)) {
+                synchronized(idleConnections) { hits++ }
+                return connection
+            }
+
+            synchronized(idleConnections) { validationFailures++ }
+            connection.close()
+        }
+
+        synchronized(idleConnections) { creations++ }
+        return createConnection()
+    }
+
+    fun releaseConnection(connection: ImapConnection) {
+        val connectionsToClose = mutableListOf<ImapConnection>()
+        synchronized(idleConnections) {
+            idleConnections.addFirst(IdleConnection(connection, clock()))
+
+            while (idleConnections.size > maxIdleConnections) {
+                connectionsToClose.add(idleConnections.removeLast().connection)
+                evictions++
+            }
+
+            scheduleEviction()
+        }
+
+        closeConnections(connectionsToClose)
+    }
+
+    /**
+     * Removes all idle connections from the pool and returns them.
+     */
+    fun removeAll(): List<ImapConnection> {
+        synchronized(idleConnections) {
+            val connections = idleConnections.map { it.connection }
+            idleConnections.clear()
+            cancelEviction()
+
+            return connections
+        }
+    }
+
+    private fun pollConnection(): IdleConnection? {
+        val connectionsToClose = mutableListOf<ImapConnection>()
+        try {
+            synchronized(idleConnections) {
+                removeExpiredConnections(connectionsToClose)
+
+                val idleConnection = idleConnections.pollFirst()
+                if (idleConnections.isEmpty()) {
+                    cancelEviction()
+                }
+
+                return idleConnection
+            }
+        } finally {
+            closeConnections(connectionsToClose)
+        }
+    }
+
+    private fun isValid(idleConnection: IdleConnection): Boolean {
+        if (clock() - idleConnection.releaseTime < validationInterval) {
+            return true
+        }
+
+        return try {
+            idleConnection.connection.executeSimpleCommand(Commands.NOOP)
+            true
+        } catch (e: IOException) {
+            Timber.v(e, "Pooled connection failed validation")
+            false
+        }
+    }
+
+    private fun evictExpiredConnections() {
+        val connectionsToClose = mutableListOf<ImapConnection>()
+        synchronized(idleConnections) {
+            evictionTask = null
+            removeExpiredConnections(connectionsToClose)
+            scheduleEviction()
+        }
+
+        closeConnections(connectionsToClose)
+    }
+
+    private fun removeExpiredConnections(connectionsToClose: MutableList<ImapConnection>) {
+        val now = clock()
+        while (idleConnections.isNotEmpty() && now - idleConnections.peekLast().releaseTime >= maxIdleTime) {
+            connectionsToClose.add(idleConnections.removeLast().connection)
+            evictions++
+        }
+    }
+
+    private fun scheduleEviction() {
+        if (evictionTask != null || idleConnections.isEmpty()) return
+
+        val oldestReleaseTime = idleConnections.peekLast().releaseTime
+        val delay = (oldestReleaseTime + maxIdleTime - clock()).coerceAtLeast(0L)
+        evictionTask = executor.schedule(Runnable { evictExpiredConnections() }, delay, TimeUnit.MILLISECONDS)
+    }
+
+    private fun cancelEviction() {
+        evictionTask?.cancel(false)
+        evictionTask = null
+    }
+
+    private fun closeConnections(connections: List<ImapConnection>) {
+        for (connection in connections) {
+            Timber.v("Closing idle connection %s", connection.logId)
+            connection.close()
+        }
+    }
+
+    private class IdleConnection(val connection: ImapConnection, val releaseTime: Long)
+
+    companion object {
+        private val evictionExecutor: ScheduledExecutorService by lazy {
+            ScheduledThreadPoolExecutor(1) { runnable ->
+                Thread(runnable, "ImapConnectionPool").apply { isDaemon = true }
+            }.apply {
+                removeOnCancelPolicy = true
+            }
+        }
+    }
+}
+
+data class ImapConnectionPoolMetrics(
+    /**
+     * Number of times an idle connection was reused.
+     */
+    val hits: Long,
+    /**
+     * Number of times a new connection had to be created.
+     */
+    val creations: Long,
+    /**
+     * Number of idle connections that were closed because they failed the `NOOP` check.
+     */
+    val validationFailures: Long,
+    /**
+     * Number of idle connections that were closed because they were idle for too long or the pool was full.
+     */
+    val evictions: Long
+)
@@ -25,6 +25,14 @@ interface ImapFolder {
 
     fun getUidValidity(): Long?
 
+    /**
+     * Returns the HIGHESTMODSEQ value reported when opening the folder, or `null` if the server doesn't support
+     * CONDSTORE or doesn't maintain mod-sequences for this folder.
+     */
+    fun getHighestModSeq(): Long?
+
+    fun isQresyncEnabled(): Boolean
+
     fun getMessage(uid: String): ImapMessage
 
     @Throws(MessagingException::class)
@@ -49,6 +57,22 @@ interface ImapFolder {
         maxDownloadSize: Int
     )
 
+    /**
+     * Fetches the flags of all messages with a UID of at least [lowestUid] whose mod-sequence is greater than
+     * [changedSince] (`UID FETCH <lowestUid>:* (UID FLAGS) (CHANGEDSINCE <changedSince>)`).
+     *
+     * If QRESYNC is enabled, UIDs of messages that were expunged since [changedSince] are requested as well.
+     */
+    @Throws(MessagingException::class)
+    fun fetchFlagChanges(lowestUid: Long, changedSince: Long): FlagChanges
+
+    /**
+     * Downloads the body of [part].
+     *
+     * The `TEXT` section is fetched with a single command, limited to [maxDownloadSize] bytes. Other sections are
+     * fetched in chunks. Data received so far is kept on disk, so an interrupted download is resumed instead of being
+     * started over. If the server supports `BINARY`, base64-encoded parts are decoded by the server.
+     */
     @Throws(MessagingException::class)
     fun fetchPart(
         message: ImapMessage,
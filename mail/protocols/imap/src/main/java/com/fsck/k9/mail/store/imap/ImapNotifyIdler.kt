@@ -0,0 +1,40 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.power.WakeLock
+
+/**
+ * Waits for changes to multiple folders using a single connection and the IMAP NOTIFY extension (RFC 5465).
+ */
+interface ImapNotifyIdler {
+    fun idle(): NotifyIdleResult
+    fun refresh()
+    fun stop()
+
+    companion object {
+        fun create(
+            idleRefreshManager: IdleRefreshManager,
+            wakeLock: WakeLock,
+            imapStore: ImapStore,
+            folderServerIds: Collection<String>,
+            idleRefreshTimeoutProvider: IdleRefreshTimeoutProvider
+        ): ImapNotifyIdler {
+            require(imapStore is RealImapStore)
+            return RealImapNotifyIdler(
+                idleRefreshManager,
+                wakeLock,
+                imapStore,
+                imapStore,
+                FolderNameCodec.newInstance(),
+                folderServerIds,
+                idleRefreshTimeoutProvider
+            )
+        }
+    }
+}
+
+/**
+ * The result of [ImapNotifyIdler.idle].
+ *
+ * If [idleResult] is [IdleResult.SYNC], [folderServerIds] contains the server IDs of the folders that changed.
+ */
+class NotifyIdleResult(val idleResult: IdleResult, val folderServerIds: Set<String> = emptySet())
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.K9MailLib;
 import com.fsck.k9.mail.filter.FixedLengthInputStream;
 import com.fsck.k9.mail.filter.PeekableInputStream;
@@ -18,6 +19,7 @@ class ImapResponseParser {
     private PeekableInputStream inputStream;
     private ImapResponse response;
     private Exception exception;
+    private final StringBuilder atomBuilder = new StringBuilder();
 
 
     public ImapResponseParser(PeekableInputStream in) {
@@ -53,6 +55,168 @@ class ImapResponseParser {
         }
     }
 
+    /**
+     * Reads the next response available on the stream.
+     * <p>
+     * Untagged FETCH responses are parsed directly into {@code fetchResponse} and {@code null} is returned. Apart from
+     * BODYSTRUCTURE and attributes we don't know about, no {@code ImapList} or intermediate {@code String} objects are
+     * created for them. All other responses are returned as {@code ImapResponse} like {@link #readResponse()} does.
+     */
+    public ImapResponse readFetchResponse(FetchResponse fetchResponse, FetchResponse.BodyCallback bodyCallback)
+            throws IOException {
+        if (inputStream.peek() != '*') {
+            return readResponse(null);
+        }
+
+        try {
+            parseUntaggedResponse();
+            if (!isDigit(inputStream.peek())) {
+                response = ImapResponse.newUntaggedResponse(null);
+                readTokens(response);
+                return response;
+            }
+
+            long number = readNumber();
+            expect(' ');
+            StringBuilder symbol = readAtom();
+            if (contentEqualsIgnoreCase(symbol, Responses.FETCH)) {
+                fetchResponse.reset(number);
+                expect(' ');
+                parseFetchAttributes(fetchResponse, bodyCallback);
+                expect('\r');
+                expect('\n');
+
+                if (exception != null) {
+                    throw new ImapResponseParserException("readFetchResponse(): Exception in callback method",
+                            exception);
+                }
+
+                return null;
+            }
+
+            response = ImapResponse.newUntaggedResponse(null);
+            response.add(Long.toString(number));
+            response.add(symbol.toString());
+
+            Object token;
+            while ((token = readToken(response)) != null) {
+                if (!(token instanceof ImapList)) {
+                    response.add(token);
+                }
+            }
+
+            return response;
+        } finally {
+            response = null;
+            exception = null;
+        }
+    }
+
+    private void parseFetchAttributes(FetchResponse fetchResponse, FetchResponse.BodyCallback bodyCallback)
+            throws IOException {
+        expect('(');
+
+        while (true) {
+            int ch = inputStream.peek();
+            if (ch == ')') {
+                expect(')');
+                return;
+            } else if (ch == ' ') {
+                expect(' ');
+                continue;
+            }
+
+            StringBuilder name = readAtom();
+            boolean hasSection = inputStream.peek() == '[';
+            if (hasSection) {
+                skipSectionAndOrigin();
+            }
+
+            if (hasSection && contentEqualsIgnoreCase(name, "BODY")) {
+                expect(' ');
+                fetchResponse.setBody(parseFetchBody(fetchResponse, bodyCallback));
+            } else if (contentEqualsIgnoreCase(name, "UID")) {
+                expect(' ');
+                fetchResponse.setUid(readNumber());
+            } else if (contentEqualsIgnoreCase(name, "FLAGS")) {
+                expect(' ');
+                parseFetchFlags(fetchResponse);
+            } else if (contentEqualsIgnoreCase(name, "INTERNALDATE")) {
+                expect(' ');
+                readQuoted(fetchResponse.startInternalDate());
+            } else if (contentEqualsIgnoreCase(name, "RFC822.SIZE")) {
+                expect(' ');
+                fetchResponse.setSize((int) readNumber());
+            } else if (contentEqualsIgnoreCase(name, "BODYSTRUCTURE")) {
+                expect(' ');
+                fetchResponse.setBodyStructure(parseList(new ImapList(), '(', ')'));
+            } else {
+                // We didn't ask for this attribute (e.g. MODSEQ). Parse its value the generic way and ignore it.
+                parseToken(new ImapList());
+            }
+        }
+    }
+
+    private void parseFetchFlags(FetchResponse fetchResponse) throws IOException {
+        fetchResponse.setFlagsPresent();
+        expect('(');
+
+        while (true) {
+            int ch = inputStream.peek();
+            if (ch == ')') {
+                expect(')');
+                return;
+            } else if (ch == ' ') {
+                expect(' ');
+            } else {
+                Flag flag = getFlag(readAtom());
+                if (flag != null) {
+                    fetchResponse.addFlag(flag);
+                }
+            }
+        }
+    }
+
+    private Object parseFetchBody(final FetchResponse fetchResponse, final FetchResponse.BodyCallback bodyCallback)
+            throws IOException {
+        int ch = inputStream.peek();
+        if (ch == '{') {
+            if (bodyCallback == null) {
+                return parseLiteral(null);
+            }
+
+            return parseLiteral(new LiteralCallback() {
+                @Override
+                public Object foundLiteral(FixedLengthInputStream literal) throws Exception {
+                    return bodyCallback.foundBody(fetchResponse, literal);
+                }
+            });
+        } else if (ch == '"') {
+            return parseQuoted();
+        } else {
+            parseNil();
+            return null;
+        }
+    }
+
+    private static Flag getFlag(CharSequence flag) {
+        if (contentEqualsIgnoreCase(flag, "\\Deleted")) {
+            return Flag.DELETED;
+        } else if (contentEqualsIgnoreCase(flag, "\\Answered")) {
+            return Flag.ANSWERED;
+        } else if (contentEqualsIgnoreCase(flag, "\\Seen")) {
+            return Flag.SEEN;
+        } else if (contentEqualsIgnoreCase(flag, "\\Flagged")) {
+            return Flag.FLAGGED;
+        } else if (contentEqualsIgnoreCase(flag, "$Forwarded")) {
+            return Flag.FORWARDED;
+        } else if (contentEqualsIgnoreCase(flag, "\\Draft")) {
+            return Flag.DRAFT;
+        }
+
+        return null;
+    }
+
     private void readContinuationRequest(ImapResponseCallback callback) throws IOException {
         parseCommandContinuationRequest();
         response = ImapResponse.newContinuationRequest(callback);
@@ -253,7 +417,13 @@ class ImapResponseParser {
             } else if (ch == '\t') {
                 expect('\t');
             } else {
-                return parseBareString(true);
+                String bareString = parseBareString(true);
+                if (bareString.equals("~") && inputStream.peek() == '{') {
+                    // literal8 as returned by BINARY fetches (RFC 3516)
+                    return parseLiteral();
+                }
+
+                return bareString;
             }
         }
     }
@@ -337,6 +507,21 @@ class ImapResponseParser {
      * {@code InputStream}.
      */
     private Object parseLiteral() throws IOException {
+        final ImapResponse response = this.response;
+        final ImapResponseCallback callback = response != null ? response.getCallback() : null;
+        if (callback == null) {
+            return parseLiteral(null);
+        }
+
+        return parseLiteral(new LiteralCallback() {
+            @Override
+            public Object foundLiteral(FixedLengthInputStream literal) throws Exception {
+                return callback.foundLiteral(response, literal);
+            }
+        });
+    }
+
+    private Object parseLiteral(LiteralCallback callback) throws IOException {
         expect('{');
         int size = Integer.parseInt(readStringUntil('}'));
         expect('\r');
@@ -346,13 +531,13 @@ class ImapResponseParser {
             return "";
         }
 
-        if (response.getCallback() != null) {
+        if (callback != null) {
             FixedLengthInputStream fixed = new FixedLengthInputStream(inputStream, size);
 
             Exception callbackException = null;
             Object result = null;
             try {
-                result = response.getCallback().foundLiteral(response, fixed);
+                result = callback.foundLiteral(fixed);
             } catch (IOException e) {
                 throw e;
             } catch (Exception e) {
@@ -394,9 +579,14 @@ class ImapResponseParser {
     }
 
     private String parseQuoted() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        readQuoted(sb);
+        return sb.toString();
+    }
+
+    private void readQuoted(StringBuilder sb) throws IOException {
         expect('"');
 
-        StringBuilder sb = new StringBuilder();
         int ch;
         boolean escape = false;
         while ((ch = inputStream.read()) != -1) {
@@ -404,7 +594,7 @@ class ImapResponseParser {
                 // Found the escape character
                 escape = true;
             } else if (!escape && ch == '"') {
-                return sb.toString();
+                return;
             } else {
                 sb.append((char) ch);
                 escape = false;
@@ -429,6 +619,67 @@ class ImapResponseParser {
         expect('L');
     }
 
+    /**
+     * Reads an atom into a {@code StringBuilder} that is reused between calls.
+     */
+    private StringBuilder readAtom() throws IOException {
+        StringBuilder sb = atomBuilder;
+        sb.setLength(0);
+
+        while (true) {
+            int ch = inputStream.peek();
+            if (ch == -1) {
+                throw new IOException("readAtom(): end of stream reached");
+            }
+
+            if (ch == '(' || ch == ')' || ch == '[' || ch == ']' || ch == '{' || ch == ' ' || ch == '"' ||
+                    (ch >= 0x00 && ch <= 0x1f) || ch == 0x7f) {
+
+                if (sb.length() == 0) {
+                    throw new IOException(String.format("readAtom(): (%04x %c)", ch, ch));
+                }
+
+                return sb;
+            }
+
+            sb.append((char) inputStream.read());
+        }
+    }
+
+    private long readNumber() throws IOException {
+        long number = 0;
+        int digits = 0;
+
+        int ch;
+        while (isDigit(ch = inputStream.peek())) {
+            inputStream.read();
+            number = number * 10 + (ch - '0');
+            digits++;
+        }
+
+        if (digits == 0) {
+            throw new IOException(String.format("readNumber(): (%04x %c)", ch, ch));
+        }
+
+        return number;
+    }
+
+    private void skipSectionAndOrigin() throws IOException {
+        skipUntil(']');
+        if (inputStream.peek() == '<') {
+            skipUntil('>');
+        }
+    }
+
+    private void skipUntil(char end) throws IOException {
+        int ch;
+        while ((ch = inputStream.read()) != end) {
+            if (ch == -1) {
+                throw new IOException("skipUntil(): end of stream reached while waiting for " + formatChar(end));
+            }
+        }
+    }
+
     private String readStringUntil(char end) throws IOException {
         StringBuilder sb = new StringBuilder();
 
@@ -477,9 +728,35 @@ class ImapResponseParser {
 
     }
 
+    private static boolean isDigit(int ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean contentEqualsIgnoreCase(CharSequence value, String expected) {
+        int length = expected.length();
+        if (value.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char a = value.charAt(i);
+            char b = expected.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private void checkTokenIsString(Object token) throws IOException {
         if (!(token instanceof String)) {
             throw new IOException("Unexpected non-string token: " + token.getClass().getSimpleName() + " - " + token);
         }
     }
+
+
+    private interface LiteralCallback {
+        Object foundLiteral(FixedLengthInputStream literal) throws Exception;
+    }
 }
@@ -17,6 +17,8 @@ interface ImapStore {
 
     fun closeAllConnections()
 
+    fun getConnectionPoolMetrics(): ImapConnectionPoolMetrics
+
     companion object {
         fun create(
             serverSettings: ServerSettings,
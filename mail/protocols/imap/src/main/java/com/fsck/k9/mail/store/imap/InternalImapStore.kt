@@ -5,6 +5,11 @@ import com.fsck.k9.mail.Flag
 internal interface InternalImapStore {
     val logLabel: String
 
+    /**
+     * Identifies the account on the server, e.g. to name files that belong to this account.
+     */
+    val storeId: String
+
     fun getCombinedPrefix(): String
 
     fun getPermanentFlagsIndex(): MutableSet<Flag>
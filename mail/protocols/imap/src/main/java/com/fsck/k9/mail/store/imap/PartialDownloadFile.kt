@@ -0,0 +1,105 @@
+package com.fsck.k9.mail.store.imap
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.security.MessageDigest
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import timber.log.Timber
+
+private const val FILE_NAME_PREFIX = "imap-part-"
+private const val FILE_NAME_SUFFIX = ".partial"
+private val MAX_AGE = TimeUnit.DAYS.toMillis(7)
+
+/**
+ * A file containing the data of a message part that has been downloaded so far.
+ *
+ * The file name is derived from [key]. So when a download is interrupted, e.g. because the connection was lost or the
+ * app was killed, the next attempt to download the same part can continue where the previous one stopped.
+ */
+internal class PartialDownloadFile(directory: File, key: String) {
+    private val file = File(directory, FILE_NAME_PREFIX + sha1(key) + FILE_NAME_SUFFIX)
+
+    val length: Long
+        get() = file.length()
+
+    @Throws(IOException::class)
+    fun openInputStream(): InputStream {
+        file.createNewFile()
+        return FileInputStream(file)
+    }
+
+    @Throws(IOException::class)
+    fun openOutputStream(): OutputStream {
+        return FileOutputStream(file, true)
+    }
+
+    @Throws(IOException::class)
+    fun truncate(length: Long) {
+        RandomAccessFile(file, "rw").use { it.setLength(length) }
+    }
+
+    fun delete() {
+        if (!file.delete() && file.exists()) {
+            Timber.w("Failed to delete partial download: %s", file.name)
+        }
+    }
+
+    companion object {
+        private val locks = mutableMapOf<String, DownloadLock>()
+
+        /**
+         * Runs [block] while holding a lock for [key].
+         *
+         * Downloads of the same part have to be serialized, because they append to the same file.
+         */
+        fun <T> withLock(key: String, block: () -> T): T {
+            val lock = synchronized(locks) {
+                locks.getOrPut(key) { DownloadLock() }.also { it.users++ }
+            }
+
+            lock.lock()
+            try {
+                return block()
+            } finally {
+                lock.unlock()
+                synchronized(locks) {
+                    lock.users--
+                    if (lock.users == 0) {
+                        locks.remove(key)
+                    }
+                }
+            }
+        }
+
+        /**
+         * Deletes partial downloads that haven't been touched in a while, e.g. because the message was deleted before
+         * the download could be completed.
+         */
+        fun deleteStaleFiles(directory: File, now: Long = System.currentTimeMillis()) {
+            val staleFiles = directory.listFiles { file ->
+                file.name.startsWith(FILE_NAME_PREFIX) && file.name.endsWith(FILE_NAME_SUFFIX) &&
+                    now - file.lastModified() > MAX_AGE
+            } ?: return
+
+            for (file in staleFiles) {
+                Timber.v("Deleting stale partial download: %s", file.name)
+                file.delete()
+            }
+        }
+
+        private fun sha1(text: String): String {
+            val digest = MessageDigest.getInstance("SHA-1").digest(text.toByteArray())
+            return digest.joinToString(separator = "") { String.format("%02x", it) }
+        }
+    }
+
+    private class DownloadLock : ReentrantLock() {
+        var users = 0
+    }
+}
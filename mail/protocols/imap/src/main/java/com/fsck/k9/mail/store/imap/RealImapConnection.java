@@ -94,6 +94,7 @@ class RealImapConnection implements ImapConnection {
     private Exception stacktraceForClose;
     private boolean open = false;
     private boolean retryXoauth2WithNewToken = true;
+    private boolean qresyncEnabled = false;
 
 
     public RealImapConnection(ImapSettings settings, TrustedSocketFactory socketFactory,
@@ -152,6 +153,8 @@ class RealImapConnection implements ImapConnection {
 
             enableCompressionIfRequested();
 
+            enableQresyncIfSupported();
+
             retrievePathPrefixIfNecessary();
             retrievePathDelimiterIfNecessary();
 
@@ -627,6 +630,34 @@ class RealImapConnection implements ImapConnection {
         }
     }
 
+    private void enableQresyncIfSupported() throws IOException, MessagingException {
+        if (!hasCapability(Capabilities.QRESYNC) || !hasCapability(Capabilities.ENABLE)) {
+            return;
+        }
+
+        List<ImapResponse> responses;
+        try {
+            responses = executeSimpleCommand(Commands.ENABLE_QRESYNC);
+        } catch (NegativeImapResponseException e) {
+            Timber.d(e, "Unable to enable QRESYNC");
+            return;
+        }
+
+        for (ImapResponse response : responses) {
+            if (!response.isTagged() && response.size() >= 2 && equalsIgnoreCase(response.get(0), Responses.ENABLED)) {
+                for (int i = 1, size = response.size(); i < size; i++) {
+                    if (equalsIgnoreCase(response.get(i), Capabilities.QRESYNC)) {
+                        qresyncEnabled = true;
+                    }
+                }
+            }
+        }
+
+        if (K9MailLib.isDebug()) {
+            Timber.d("QRESYNC enabled: %b for %s", qresyncEnabled, getLogId());
+        }
+    }
+
     private void retrievePathPrefixIfNecessary() throws IOException, MessagingException {
         if (settings.getPathPrefix() != null) {
             return;
@@ -714,8 +745,14 @@ class RealImapConnection implements ImapConnection {
         return capabilities.contains(capability.toUpperCase(Locale.US));
     }
 
-    public boolean isCondstoreCapable() throws IOException, MessagingException {
-        return hasCapability(Capabilities.CONDSTORE);
+    @Override
+    public boolean isCondstoreCapable() {
+        return capabilities.contains(Capabilities.CONDSTORE);
+    }
+
+    @Override
+    public boolean isQresyncEnabled() {
+        return qresyncEnabled;
     }
 
     @Override
@@ -891,6 +928,29 @@ class RealImapConnection implements ImapConnection {
         }
     }
 
+    @Override
+    @Nullable
+    public ImapResponse readFetchResponse(@NotNull FetchResponse fetchResponse,
+            @Nullable FetchResponse.BodyCallback callback) throws IOException {
+        try {
+            ImapResponse response = responseParser.readFetchResponse(fetchResponse, callback);
+
+            if (K9MailLib.isDebug() && DEBUG_PROTOCOL_IMAP) {
+                if (response != null) {
+                    Timber.v("%s<<<%s", getLogId(), response);
+                } else {
+                    Timber.v("%s<<<* %d FETCH (UID %d)", getLogId(), fetchResponse.getMessageNumber(),
+                            fetchResponse.getUid());
+                }
+            }
+
+            return response;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
     private ImapResponse readContinuationResponse(String tag) throws IOException, MessagingException {
         ImapResponse response;
         do {
@@ -911,7 +971,7 @@ class RealImapConnection implements ImapConnection {
     }
 
     int getLineLengthLimit() throws IOException, MessagingException {
-        return isCondstoreCapable() ? LENGTH_LIMIT_WITH_CONDSTORE : LENGTH_LIMIT_WITHOUT_CONDSTORE;
+        return hasCapability(Capabilities.CONDSTORE) ? LENGTH_LIMIT_WITH_CONDSTORE : LENGTH_LIMIT_WITHOUT_CONDSTORE;
     }
 
     @Override
@@ -10,6 +10,7 @@ import com.fsck.k9.mail.MessageRetrievalListener
 import com.fsck.k9.mail.MessagingException
 import com.fsck.k9.mail.Part
 import com.fsck.k9.mail.filter.EOLConvertingOutputStream
+import com.fsck.k9.mail.internet.BinaryTempFileBody
 import com.fsck.k9.mail.internet.MimeBodyPart
 import com.fsck.k9.mail.internet.MimeHeader
 import com.fsck.k9.mail.internet.MimeMessageHelper
@@ -24,6 +25,7 @@ import java.util.LinkedHashSet
 import java.util.Locale
 import kotlin.math.max
 import kotlin.math.min
+import org.apache.commons.io.IOUtils
 import timber.log.Timber
 
 internal class RealImapFolder(
@@ -39,6 +41,7 @@ internal class RealImapFolder(
     private var inSearch = false
     private var canCreateKeywords = false
     private var uidValidity: Long? = null
+    private var highestModSeq: Long? = null
 
     override var messageCount = -1
         private set
@@ -54,6 +57,16 @@ internal class RealImapFolder(
         return uidValidity
     }
 
+    override fun getHighestModSeq(): Long? {
+        check(isOpen) { "ImapFolder needs to be open" }
+        return highestModSeq
+    }
+
+    override fun isQresyncEnabled(): Boolean {
+        check(isOpen) { "ImapFolder needs to be open" }
+        return connection!!.isQresyncEnabled
+    }
+
     @get:Throws(MessagingException::class)
     private val prefixedName: String
         get() {
@@ -114,7 +127,14 @@ internal class RealImapFolder(
             val openCommand = if (mode == OpenMode.READ_WRITE) "SELECT" else "EXAMINE"
             val encodedFolderName = folderNameCodec.encode(prefixedName)
             val escapedFolderName = ImapUtility.encodeString(encodedFolderName)
-            val command = String.format("%s %s", openCommand, escapedFolderName)
+            // QRESYNC implies CONDSTORE. Otherwise we ask for mod-sequences explicitly so the server includes
+            // HIGHESTMODSEQ in its response.
+            val condstoreParameter = if (connection!!.isCondstoreCapable && !connection!!.isQresyncEnabled) {
+                " (CONDSTORE)"
+            } else {
+                ""
+            }
+            val command = String.format("%s %s%s", openCommand, escapedFolderName, condstoreParameter)
             val responses = executeSimpleCommand(command)
 
             /*
@@ -122,9 +142,11 @@ internal class RealImapFolder(
              * are notified otherwise in the responses.
              */
             this.mode = mode
+            highestModSeq = null
 
             for (response in responses) {
                 extractUidValidity(response)
+                extractHighestModSeq(response)
                 handlePermanentFlags(response)
             }
 
@@ -148,6 +170,13 @@ internal class RealImapFolder(
         }
     }
 
+    private fun extractHighestModSeq(response: ImapResponse) {
+        val highestModSeqResponse = HighestModSeqResponse.parse(response)
+        if (highestModSeqResponse != null) {
+            highestModSeq = highestModSeqResponse.highestModSeq
+        }
+    }
+
     private fun handlePermanentFlags(response: ImapResponse) {
         val permanentFlagsResponse = PermanentFlagsResponse.parse(response) ?: return
 
@@ -527,7 +556,11 @@ internal class RealImapFolder(
         checkOpen()
 
         val messageMap = messages.associateBy { it.uid }
+        val messageMapByUid = messages.mapNotNull { message ->
+            message.uid.toLongOrNull()?.let { uid -> uid to message }
+        }.toMap()
         val uids = messages.map { it.uid }
+        val fetchResponse = FetchResponse()
 
         val fetchFields: MutableSet<String> = LinkedHashSet()
         fetchFields.add("UID")
@@ -572,32 +605,33 @@ internal class RealImapFolder(
                 connection!!.sendCommand(command, false)
 
                 var messageNumber = 0
-                var callback: ImapResponseCallback? = null
+                var callback: FetchResponse.BodyCallback? = null
                 if (fetchProfile.contains(FetchProfile.Item.BODY) ||
                     fetchProfile.contains(FetchProfile.Item.BODY_SANE)
                 ) {
-                    callback = FetchBodyCallback(messageMap)
+                    callback = FetchBodyCallback(messageMapByUid)
                 }
 
-                var response: ImapResponse
+                var response: ImapResponse?
                 do {
-                    response = connection!!.readResponse(callback)
-                    if (response.tag == null && ImapResponseParser.equalsIgnoreCase(response[1], "FETCH")) {
-                        val fetchList = response.getKeyedValue("FETCH") as ImapList
-                        val uid = fetchList.getKeyedString("UID")
-
-                        val message = messageMap[uid]
+                    response = connection!!.readFetchResponse(fetchResponse, callback)
+                    if (response == null) {
+                        val message = if (fetchResponse.hasUid()) messageMapByUid[fetchResponse.uid] else null
                         if (message == null) {
                             if (K9MailLib.isDebug()) {
-                                Timber.d("Do not have message in messageMap for UID %s for %s", uid, logId)
+                                Timber.d(
+                                    "Do not have message in messageMap for UID %d for %s",
+                                    fetchResponse.uid,
+                                    logId
+                                )
                             }
-                            handleUntaggedResponse(response)
                             continue
                         }
 
+                        val uid = message.uid
                         listener?.messageStarted(uid, messageNumber++, messageMap.size)
 
-                        val literal = handleFetchResponse(message, fetchList)
+                        val literal = handleFetchResponse(message, fetchResponse)
                         if (literal != null) {
                             when (literal) {
                                 is String -> {
@@ -605,7 +639,7 @@ internal class RealImapFolder(
                                     message.parse(bodyStream)
                                 }
                                 is Int -> {
-                                    // All the work was done in FetchBodyCallback.foundLiteral()
+                                    // All the work was done in FetchBodyCallback.foundBody()
                                 }
                                 else -> {
                                     // This shouldn't happen
@@ -618,7 +652,7 @@ internal class RealImapFolder(
                     } else {
                         handleUntaggedResponse(response)
                     }
-                } while (response.tag == null)
+                } while (response == null || response.tag == null)
             } catch (ioe: IOException) {
                 throw ioExceptionHandler(connection, ioe)
             }
@@ -627,6 +661,46 @@ internal class RealImapFolder(
         }
     }
 
+    @Throws(MessagingException::class)
+    override fun fetchFlagChanges(lowestUid: Long, changedSince: Long): FlagChanges {
+        checkOpen()
+
+        val isQresyncEnabled = connection!!.isQresyncEnabled
+        val vanishedModifier = if (isQresyncEnabled) " VANISHED" else ""
+        val command = String.format(
+            Locale.US, "UID FETCH %d:* (UID FLAGS) (CHANGEDSINCE %d%s)",
+            max(1L, lowestUid),
+            changedSince,
+            vanishedModifier
+        )
+
+        try {
+            val responses = executeSimpleCommand(command)
+
+            val messages = mutableListOf<ImapMessage>()
+            val vanishedUidRanges = mutableListOf<LongRange>()
+            for (response in responses) {
+                if (response.tag == null && ImapResponseParser.equalsIgnoreCase(response[1], "FETCH")) {
+                    val fetchList = response.getKeyedValue("FETCH") as ImapList
+                    val uid = fetchList.getKeyedString("UID") ?: continue
+
+                    val message = ImapMessage(uid)
+                    handleFetchResponse(message, fetchList)
+                    messages.add(message)
+                } else {
+                    val vanishedResponse = VanishedResponse.parse(response)
+                    if (vanishedResponse != null && vanishedResponse.isEarlier) {
+                        vanishedUidRanges.addAll(vanishedResponse.uidRanges)
+                    }
+                }
+            }
+
+            return FlagChanges(messages, isQresyncEnabled, vanishedUidRanges)
+        } catch (ioe: IOException) {
+            throw ioExceptionHandler(connection, ioe)
+        }
+    }
+
     @Throws(MessagingException::class)
     override fun fetchPart(
         message: ImapMessage,
@@ -638,13 +712,22 @@ internal class RealImapFolder(
         checkOpen()
 
         val partId = part.serverExtra
-
-        val fetch = if ("TEXT".equals(partId, ignoreCase = true)) {
-            String.format(Locale.US, "BODY.PEEK[TEXT]<0.%d>", maxDownloadSize)
+        if ("TEXT".equals(partId, ignoreCase = true)) {
+            val fetch = String.format(Locale.US, "BODY.PEEK[TEXT]<0.%d>", maxDownloadSize)
+            fetchPartWithSingleCommand(message, part, listener, bodyFactory, fetch)
         } else {
-            String.format("BODY.PEEK[%s]", partId)
+            fetchPartInChunks(message, part, listener, bodyFactory)
         }
+    }
 
+    @Throws(MessagingException::class)
+    private fun fetchPartWithSingleCommand(
+        message: ImapMessage,
+        part: Part,
+        listener: MessageRetrievalListener<ImapMessage>?,
+        bodyFactory: BodyFactory,
+        fetch: String
+    ) {
         try {
             val command = String.format("UID FETCH %s (UID %s)", message.uid, fetch)
             connection!!.sendCommand(command, false)
@@ -701,6 +784,223 @@ internal class RealImapFolder(
         }
     }
 
+    @Throws(MessagingException::class)
+    private fun fetchPartInChunks(
+        message: ImapMessage,
+        part: Part,
+        listener: MessageRetrievalListener<ImapMessage>?,
+        bodyFactory: BodyFactory
+    ) {
+        val openMode = checkNotNull(mode)
+        val contentTransferEncoding = part.getHeader(MimeHeader.HEADER_CONTENT_TRANSFER_ENCODING).firstOrNull()
+        val contentType = part.getHeader(MimeHeader.HEADER_CONTENT_TYPE).firstOrNull()
+        val tempDirectory = BinaryTempFileBody.getTempDirectory()
+
+        var useBinary = try {
+            isBinaryFetchSupported(contentTransferEncoding, contentType)
+        } catch (ioe: IOException) {
+            throw ioExceptionHandler(connection, ioe)
+        }
+
+        PartialDownloadFile.deleteStaleFiles(tempDirectory)
+        listener?.messageStarted(message.uid, 0, 1)
+
+        // Another connection might be downloading the same part, e.g. when a message is opened while it's being
+        // downloaded in the background. Both appending to the same partial download would corrupt it.
+        val partKey = listOf(internalImapStore.storeId, serverId, uidValidity, message.uid, part.serverExtra)
+        PartialDownloadFile.withLock(partKey.joinToString(separator = "\n")) {
+            var attempt = 1
+            while (true) {
+                val section = String.format("%s[%s]", if (useBinary) "BINARY.PEEK" else "BODY.PEEK", part.serverExtra)
+                val downloadKey = listOf(internalImapStore.storeId, serverId, uidValidity, message.uid, section)
+                val download = PartialDownloadFile(tempDirectory, downloadKey.joinToString(separator = "\n"))
+
+                try {
+                    val body = ChunkedPartInputStream(download, message.uid, section).use { inputStream ->
+                        // The server already decoded the data if we're using BINARY. Encode it again so the body
+                        // matches the Content-Transfer-Encoding header of the part.
+                        val bodyInputStream = if (useBinary) Base64EncodingInputStream(inputStream) else inputStream
+                        bodyFactory.createBody(contentTransferEncoding, contentType, bodyInputStream)
+                    }
+                    download.delete()
+
+                    MimeMessageHelper.setBody(part, body)
+                    break
+                } catch (e: FetchPartFailedException) {
+                    if (!useBinary) {
+                        throw e.messagingException
+                    }
+
+                    // e.g. "NO [UNKNOWN-CTE]" if the server can't decode the part
+                    Timber.d(e.messagingException, "BINARY fetch failed for %s. Falling back to BODY.", logId)
+                    download.delete()
+                    useBinary = false
+                } catch (ioe: IOException) {
+                    val exception = ioExceptionHandler(connection, ioe)
+                    if (attempt == MAX_FETCH_PART_ATTEMPTS) {
+                        throw exception
+                    }
+
+                    attempt++
+                    Timber.d("Resuming download of %s for %s at offset %d", section, logId, download.length)
+                    open(openMode)
+                }
+            }
+        }
+
+        listener?.messageFinished(message, 1, 1)
+    }
+
+    @Throws(IOException::class, MessagingException::class)
+    private fun isBinaryFetchSupported(contentTransferEncoding: String?, contentType: String?): Boolean {
+        val encoding = contentTransferEncoding?.let { MimeUtility.getHeaderParameter(it, null) }
+        if (!ENCODING_BASE64.equals(encoding, ignoreCase = true)) {
+            return false
+        }
+
+        // Keep the encoding of nested messages and multiparts so they can be parsed like before
+        val mimeType = contentType?.let { MimeUtility.getHeaderParameter(it, null) }
+        if (MimeUtility.isMessageType(mimeType) || MimeUtility.isMultipart(mimeType)) {
+            return false
+        }
+
+        return connection!!.hasCapability(Capabilities.BINARY)
+    }
+
+    /**
+     * Returns the data already stored in [download], then fetches the rest of [section] from the server in chunks of
+     * [FETCH_PART_CHUNK_SIZE] bytes using `<offset.length>` partial fetches.
+     *
+     * Fetched data is appended to [download] as it arrives, so if the connection is lost the next attempt only needs
+     * to fetch the data that is still missing. Since the data is passed on as it is received, a [BodyFactory] that
+     * counts the bytes it reads reports accurate progress.
+     */
+    private inner class ChunkedPartInputStream(
+        private val download: PartialDownloadFile,
+        private val uid: String,
+        private val section: String
+    ) : InputStream() {
+        private val inputStream = download.openInputStream()
+        private var complete = false
+
+        override fun read(): Int {
+            val buffer = ByteArray(1)
+            return if (read(buffer, 0, 1) == -1) -1 else buffer[0].toInt() and 0xFF
+        }
+
+        override fun read(buffer: ByteArray, offset: Int, length: Int): Int {
+            while (true) {
+                val count = inputStream.read(buffer, offset, length)
+                if (count != -1 || complete) {
+                    return count
+                }
+
+                complete = fetchNextChunk()
+            }
+        }
+
+        override fun close() {
+            inputStream.close()
+        }
+
+        /**
+         * Appends the next chunk to [download]. Returns `true` if the end of the part was reached.
+         */
+        private fun fetchNextChunk(): Boolean {
+            val chunkOffset = download.length
+            val imapConnection = connection!!
+            try {
+                val command = String.format(
+                    Locale.US, "UID FETCH %s (UID %s<%d.%d>)", uid, section, chunkOffset, FETCH_PART_CHUNK_SIZE
+                )
+                imapConnection.sendCommand(command, false)
+            } catch (e: MessagingException) {
+                throw FetchPartFailedException(e)
+            }
+
+            var bytesReceived = 0L
+            val taggedResponse = download.openOutputStream().use { outputStream ->
+                val callback = ImapResponseCallback { fetchResponse, literal ->
+                    if (fetchResponse.tag == null && ImapResponseParser.equalsIgnoreCase(fetchResponse[1], "FETCH")) {
+                        bytesReceived += IOUtils.copyLarge(literal, outputStream)
+                        bytesReceived
+                    } else {
+                        null
+                    }
+                }
+
+                var response: ImapResponse
+                do {
+                    response = imapConnection.readResponse(callback)
+
+                    if (response.tag == null && ImapResponseParser.equalsIgnoreCase(response[1], "FETCH")) {
+                        val fetchList = response.getKeyedValue("FETCH") as ImapList
+                        if (uid != fetchList.getKeyedString("UID")) {
+                            // Don't keep data that was meant for another message
+                            download.truncate(chunkOffset)
+                            bytesReceived = 0
+                            handleUntaggedResponse(response)
+                        }
+                    } else {
+                        handleUntaggedResponse(response)
+                    }
+                } while (response.tag == null)
+
+                response
+            }
+
+            if (!ImapResponseParser.equalsIgnoreCase(taggedResponse[0], Responses.OK)) {
+                val exception = NegativeImapResponseException("UID FETCH failed", listOf(taggedResponse))
+                throw FetchPartFailedException(exception)
+            }
+
+            return bytesReceived < FETCH_PART_CHUNK_SIZE
+        }
+    }
+
+    /**
+     * Used to get a [MessagingException] out of [ChunkedPartInputStream] without it being mistaken for a connection
+     * problem.
+     */
+    private class FetchPartFailedException(val messagingException: MessagingException) : IOException(messagingException)
+
+    // Returns value of body field
+    @Throws(MessagingException::class)
+    private fun handleFetchResponse(message: ImapMessage, fetchResponse: FetchResponse): Any? {
+        if (fetchResponse.hasFlags()) {
+            for (flag in fetchResponse.flags) {
+                message.setFlag(flag, true)
+            }
+
+            if (Flag.FORWARDED in fetchResponse.flags) {
+                // a message contains FORWARDED FLAG -> so we can also create them
+                internalImapStore.getPermanentFlagsIndex().add(Flag.FORWARDED)
+            }
+        }
+
+        if (fetchResponse.hasInternalDate()) {
+            message.internalDate = fetchResponse.internalDate
+        }
+
+        if (fetchResponse.hasSize()) {
+            message.setSize(fetchResponse.size)
+        }
+
+        val bodyStructure = fetchResponse.bodyStructure
+        if (bodyStructure != null) {
+            try {
+                parseBodyStructure(bodyStructure, message, "TEXT")
+            } catch (e: MessagingException) {
+                if (K9MailLib.isDebug()) {
+                    Timber.d(e, "Error handling message for %s", logId)
+                }
+                message.body = null
+            }
+        }
+
+        return fetchResponse.body
+    }
+
     // Returns value of body field
     @Throws(MessagingException::class)
     private fun handleFetchResponse(message: ImapMessage, fetchList: ImapList): Any? {
@@ -817,6 +1117,15 @@ internal class RealImapFolder(
                     Timber.d("Got untagged EXPUNGE with messageCount %d for %s", messageCount, logId)
                 }
             }
+
+            // With QRESYNC enabled the server sends VANISHED instead of EXPUNGE responses
+            val vanishedResponse = VanishedResponse.parse(response)
+            if (vanishedResponse != null && !vanishedResponse.isEarlier && messageCount > 0) {
+                messageCount = max(0L, messageCount - vanishedResponse.uidCount).toInt()
+                if (K9MailLib.isDebug()) {
+                    Timber.d("Got untagged VANISHED with messageCount %d for %s", messageCount, logId)
+                }
+            }
         }
     }
 
@@ -1201,6 +1510,10 @@ internal class RealImapFolder(
     companion object {
         private const val MORE_MESSAGES_WINDOW_SIZE = 500
         private const val FETCH_WINDOW_SIZE = 100
+        private const val MAX_FETCH_PART_ATTEMPTS = 3
+        private const val ENCODING_BASE64 = "base64"
+
+        internal const val FETCH_PART_CHUNK_SIZE = 1024 * 1024
 
         const val INBOX = "INBOX"
 
@@ -0,0 +1,281 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.MessagingException
+import com.fsck.k9.mail.power.WakeLock
+import java.io.IOException
+import timber.log.Timber
+
+private const val SOCKET_EXTRA_TIMEOUT_MS = 2 * 60 * 1000L
+
+internal class RealImapNotifyIdler(
+    private val idleRefreshManager: IdleRefreshManager,
+    private val wakeLock: WakeLock,
+    private val connectionManager: ImapConnectionManager,
+    private val internalImapStore: InternalImapStore,
+    private val folderNameCodec: FolderNameCodec,
+    private val folderServerIds: Collection<String>,
+    private val idleRefreshTimeoutProvider: IdleRefreshTimeoutProvider
+) : ImapNotifyIdler {
+    private val logTag = "ImapNotifyIdler"
+
+    @Volatile
+    private var connection: ImapConnection? = null
+
+    // Maps the (encoded) mailbox names used on the wire to folder server IDs
+    private var mailboxNames: Map<String, String> = emptyMap()
+
+    @get:Synchronized
+    @set:Synchronized
+    private var idleRefreshTimer: IdleRefreshTimer? = null
+
+    @Volatile
+    private var stopIdle = false
+
+    @Volatile
+    private var stopRequested = false
+
+    private var idleSent = false
+    private var doneSent = false
+    private var notificationsLost = false
+
+    override fun idle(): NotifyIdleResult {
+        Timber.v("%s.idle()", logTag)
+
+        val connection = this.connection?.takeIf { it.isConnected }
+            ?: setUpConnection()
+            ?: return NotifyIdleResult(IdleResult.NOT_SUPPORTED)
+
+        try {
+            return idle(connection).also { result ->
+                Timber.v("%s.idle(): result=%s, folders=%s", logTag, result.idleResult, result.folderServerIds)
+            }
+        } catch (e: Exception) {
+            closeConnection()
+            throw e
+        } finally {
+            if (stopRequested || notificationsLost) {
+                closeConnection()
+            }
+        }
+    }
+
+    @Synchronized
+    override fun refresh() {
+        Timber.v("%s.refresh()", logTag)
+        endIdle()
+    }
+
+    @Synchronized
+    override fun stop() {
+        Timber.v("%s.stop()", logTag)
+        stopRequested = true
+        stopIdle = true
+        endIdle()
+    }
+
+    private fun endIdle() {
+        if (idleSent && !doneSent) {
+            idleRefreshTimer?.cancel()
+
+            try {
+                sendDone()
+            } catch (e: IOException) {
+                Timber.v(e, "%s: IOException while sending DONE", logTag)
+            }
+        }
+    }
+
+    private fun setUpConnection(): ImapConnection? {
+        val connection = connectionManager.getConnection()
+        try {
+            connection.open()
+
+            if (!connection.hasCapability(Capabilities.NOTIFY) || !connection.isIdleCapable) {
+                Timber.w("%s: NOTIFY not supported by server", logTag)
+                connectionManager.releaseConnection(connection)
+                return null
+            }
+
+            mailboxNames = folderServerIds.associateBy { folderServerId -> getMailboxName(folderServerId) }
+
+            val tag = connection.sendCommand(buildNotifyCommand(), false)
+            var response: ImapResponse
+            do {
+                response = connection.readResponse()
+            } while (response.tag != tag)
+
+            if (!response.isOk) {
+                Timber.w("%s: Server rejected NOTIFY command: %s", logTag, response)
+                connectionManager.releaseConnection(connection)
+                return null
+            }
+        } catch (e: Exception) {
+            connection.close()
+            throw e
+        }
+
+        // Once NOTIFY is active the connection mustn't be returned to the pool. It's closed when we're done with it.
+        notificationsLost = false
+        this.connection = connection
+        return connection
+    }
+
+    private fun getMailboxName(folderServerId: String): String {
+        return if (RealImapFolder.INBOX.equals(folderServerId, ignoreCase = true)) {
+            RealImapFolder.INBOX
+        } else {
+            folderNameCodec.encode(internalImapStore.getCombinedPrefix() + folderServerId)
+        }
+    }
+
+    private fun buildNotifyCommand(): String {
+        val mailboxes = mailboxNames.keys.joinToString(separator = " ") { ImapUtility.encodeString(it) }
+        return "${Commands.NOTIFY} SET (mailboxes ($mailboxes) (MessageNew MessageExpunge FlagChange))"
+    }
+
+    private fun idle(connection: ImapConnection): NotifyIdleResult {
+        val changedFolderServerIds = mutableSetOf<String>()
+
+        stopIdle = stopRequested
+        while (!stopIdle) {
+            synchronized(this) {
+                idleSent = false
+                doneSent = false
+            }
+
+            val tag = connection.sendCommand(Commands.IDLE, false)
+
+            synchronized(this) {
+                idleSent = true
+            }
+
+            var initialResponse = connection.readResponse()
+            while (!initialResponse.isContinuationRequested) {
+                if (initialResponse.isTagged) {
+                    throw MessagingException("Received tagged response instead of continuation to IDLE command")
+                }
+
+                collectChangedFolders(initialResponse, changedFolderServerIds)
+                initialResponse = connection.readResponse()
+            }
+
+            if (changedFolderServerIds.isNotEmpty() && !stopIdle) {
+                stopIdle = true
+                sendDone()
+            }
+
+            connection.setSocketIdleReadTimeout()
+
+            var response: ImapResponse
+            do {
+                idleRefreshTimer = idleRefreshManager.startTimer(
+                    timeout = idleRefreshTimeoutProvider.idleRefreshTimeoutMs,
+                    callback = ::idleRefresh
+                )
+
+                wakeLock.release()
+
+                try {
+                    response = connection.readResponse()
+                } finally {
+                    wakeLock.acquire()
+                    idleRefreshTimer?.cancel()
+                }
+
+                if (collectChangedFolders(response, changedFolderServerIds) && !stopIdle) {
+                    Timber.v("%s.idle(): Received a relevant untagged response during IDLE", logTag)
+                    stopIdle = true
+                    sendDone()
+                } else if (!response.isTagged) {
+                    Timber.v("%s.idle(): Ignoring untagged response", logTag)
+                }
+            } while (response.tag != tag)
+
+            if (!response.isOk) {
+                throw MessagingException("Received non-OK response to IDLE command")
+            }
+        }
+
+        return if (changedFolderServerIds.isNotEmpty()) {
+            NotifyIdleResult(IdleResult.SYNC, changedFolderServerIds)
+        } else {
+            NotifyIdleResult(IdleResult.STOPPED)
+        }
+    }
+
+    /**
+     * Adds the folders affected by a NOTIFY event to [changedFolderServerIds].
+     *
+     * Returns `true` if [response] was a relevant event.
+     */
+    private fun collectChangedFolders(response: ImapResponse, changedFolderServerIds: MutableSet<String>): Boolean {
+        if (response.isTagged || response.size < 2) return false
+
+        if (ImapResponseParser.equalsIgnoreCase(response[0], Responses.STATUS) && response.isString(1)) {
+            val folderServerId = findFolderServerId(response.getString(1)) ?: return false
+            changedFolderServerIds.add(folderServerId)
+            return true
+        }
+
+        if (ImapResponseParser.equalsIgnoreCase(response[0], Responses.OK) && response.isList(1) &&
+            ImapResponseParser.equalsIgnoreCase(response.getList(1).firstOrNull(), Responses.NOTIFICATIONOVERFLOW)
+        ) {
+            // The server stopped sending notifications. Sync all folders and set up NOTIFY again.
+            Timber.v("%s: Notification overflow", logTag)
+            notificationsLost = true
+            changedFolderServerIds.addAll(folderServerIds)
+            return true
+        }
+
+        return false
+    }
+
+    private fun findFolderServerId(mailboxName: String): String? {
+        return if (RealImapFolder.INBOX.equals(mailboxName, ignoreCase = true)) {
+            mailboxNames[RealImapFolder.INBOX]
+        } else {
+            mailboxNames[mailboxName]
+        }
+    }
+
+    @Synchronized
+    private fun idleRefresh() {
+        Timber.v("%s.idleRefresh()", logTag)
+
+        if (!idleSent || doneSent) {
+            Timber.v("%s: Connection is not in a state where it can be refreshed.", logTag)
+            return
+        }
+
+        try {
+            sendDone()
+        } catch (e: IOException) {
+            Timber.v(e, "%s: IOException while sending DONE", logTag)
+        }
+    }
+
+    @Synchronized
+    private fun sendDone() {
+        val connection = connection ?: return
+
+        synchronized(connection) {
+            if (connection.isConnected) {
+                doneSent = true
+                connection.setSocketDefaultReadTimeout()
+                connection.sendContinuation("DONE")
+            }
+        }
+    }
+
+    private fun closeConnection() {
+        connection?.close()
+        connection = null
+    }
+
+    private fun ImapConnection.setSocketIdleReadTimeout() {
+        setSocketReadTimeout((idleRefreshTimeoutProvider.idleRefreshTimeoutMs + SOCKET_EXTRA_TIMEOUT_MS).toInt())
+    }
+
+    private val ImapResponse.isOk: Boolean
+        get() = isTagged && size >= 1 && ImapResponseParser.equalsIgnoreCase(get(0), Responses.OK)
+}
@@ -4,11 +4,9 @@ package com.fsck.k9.mail.store.imap;
 import java.io.IOException;
 import java.nio.charset.CharacterCodingException;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,7 +49,7 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
     private String pathPrefix;
     private String combinedPrefix = null;
     private String pathDelimiter = null;
-    private final Deque<ImapConnection> connections = new LinkedList<>();
+    private final ImapConnectionPool connectionPool;
     private FolderNameCodec folderNameCodec;
     private volatile int connectionGeneration = 1;
 
@@ -59,7 +57,15 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
     public RealImapStore(ServerSettings serverSettings, ImapStoreConfig config,
             TrustedSocketFactory trustedSocketFactory, ConnectivityManager connectivityManager,
             OAuth2TokenProvider oauthTokenProvider) {
+        this(serverSettings, config, trustedSocketFactory, connectivityManager, oauthTokenProvider,
+                new ImapConnectionPool());
+    }
+
+    RealImapStore(ServerSettings serverSettings, ImapStoreConfig config,
+            TrustedSocketFactory trustedSocketFactory, ConnectivityManager connectivityManager,
+            OAuth2TokenProvider oauthTokenProvider, ImapConnectionPool connectionPool) {
         this.config = config;
+        this.connectionPool = connectionPool;
         this.trustedSocketFactory = trustedSocketFactory;
 
         host = serverSettings.host;
@@ -271,36 +277,14 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
     @Override
     @NotNull
     public ImapConnection getConnection() throws MessagingException {
-        ImapConnection connection;
-        while ((connection = pollConnection()) != null) {
-            try {
-                connection.executeSimpleCommand(Commands.NOOP);
-                break;
-            } catch (IOException ioe) {
-                connection.close();
-            }
-        }
-
-        if (connection == null) {
-            connection = createImapConnection();
-        }
-
-        return connection;
-    }
-
-    private ImapConnection pollConnection() {
-        synchronized (connections) {
-            return connections.poll();
-        }
+        return connectionPool.getConnection(this::createImapConnection);
     }
 
     @Override
     public void releaseConnection(ImapConnection connection) {
         if (connection != null && connection.isConnected()) {
             if (connection.getConnectionGeneration() == connectionGeneration) {
-                synchronized (connections) {
-                    connections.offer(connection);
-                }
+                connectionPool.releaseConnection(connection);
             } else {
                 connection.close();
             }
@@ -309,13 +293,12 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
 
     @Override
     public void closeAllConnections() {
-        Timber.v("ImapStore.closeAllConnections()");
+        Timber.v("ImapStore.closeAllConnections() - %s", connectionPool.getMetrics());
 
         List<ImapConnection> connectionsToClose;
-        synchronized (connections) {
+        synchronized (connectionPool) {
             connectionGeneration++;
-            connectionsToClose = new ArrayList<>(connections);
-            connections.clear();
+            connectionsToClose = connectionPool.removeAll();
         }
 
         for (ImapConnection connection : connectionsToClose) {
@@ -323,6 +306,12 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
         }
     }
 
+    @Override
+    @NotNull
+    public ImapConnectionPoolMetrics getConnectionPoolMetrics() {
+        return connectionPool.getMetrics();
+    }
+
     ImapConnection createImapConnection() {
         return new RealImapConnection(
                 new StoreImapSettings(),
@@ -338,6 +327,12 @@ class RealImapStore implements ImapStore, ImapConnectionManager, InternalImapSto
         return config.getLogLabel();
     }
 
+    @Override
+    @NotNull
+    public String getStoreId() {
+        return username + "@" + host + ":" + port;
+    }
+
     @Override
     @NotNull
     public Set<Flag> getPermanentFlagsIndex() {
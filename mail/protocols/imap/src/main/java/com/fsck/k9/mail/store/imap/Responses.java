@@ -13,8 +13,15 @@ class Responses {
     public static final String BYE = "BYE";
     public static final String EXISTS = "EXISTS";
     public static final String EXPUNGE = "EXPUNGE";
+    public static final String FETCH = "FETCH";
     public static final String PERMANENTFLAGS = "PERMANENTFLAGS";
     public static final String COPYUID = "COPYUID";
     public static final String SEARCH = "SEARCH";
     public static final String UIDVALIDITY = "UIDVALIDITY";
+    public static final String HIGHESTMODSEQ = "HIGHESTMODSEQ";
+    public static final String VANISHED = "VANISHED";
+    public static final String EARLIER = "EARLIER";
+    public static final String ENABLED = "ENABLED";
+    public static final String STATUS = "STATUS";
+    public static final String NOTIFICATIONOVERFLOW = "NOTIFICATIONOVERFLOW";
 }
@@ -0,0 +1,51 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.store.imap.ImapResponseParser.equalsIgnoreCase
+
+/**
+ * A `VANISHED` response as defined in RFC 7162.
+ *
+ * The UID set is kept as a list of ranges because servers are free to report large ranges of UIDs we never knew
+ * about, e.g. `VANISHED (EARLIER) 1:100000`.
+ */
+internal class VanishedResponse private constructor(
+    val isEarlier: Boolean,
+    val uidRanges: List<LongRange>
+) {
+    val uidCount: Long
+        get() = uidRanges.fold(0L) { count, range -> count + (range.last - range.first + 1) }
+
+    fun contains(uid: Long): Boolean = uidRanges.any { uid in it }
+
+    companion object {
+        @JvmStatic
+        fun parse(response: ImapResponse): VanishedResponse? {
+            if (response.isTagged || response.size < 2 || !equalsIgnoreCase(response[0], Responses.VANISHED)) {
+                return null
+            }
+
+            val isEarlier = response.isList(1) && response.getList(1).size == 1 &&
+                equalsIgnoreCase(response.getList(1)[0], Responses.EARLIER)
+            val uidSetIndex = if (isEarlier) 2 else 1
+            if (response.size <= uidSetIndex || !response.isString(uidSetIndex)) return null
+
+            val uidRanges = parseUidSet(response.getString(uidSetIndex)) ?: return null
+
+            return VanishedResponse(isEarlier, uidRanges)
+        }
+
+        private fun parseUidSet(uidSet: String): List<LongRange>? {
+            return uidSet.split(',').map { item ->
+                val colonIndex = item.indexOf(':')
+                if (colonIndex == -1) {
+                    val uid = item.toLongOrNull() ?: return null
+                    uid..uid
+                } else {
+                    val first = item.substring(0, colonIndex).toLongOrNull() ?: return null
+                    val second = item.substring(colonIndex + 1).toLongOrNull() ?: return null
+                    if (first <= second) first..second else second..first
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.fsck.k9.mail.store.imap
+
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayInputStream
+import java.util.Base64
+import org.junit.Test
+
+class Base64EncodingInputStreamTest {
+    @Test
+    fun `empty input should produce empty output`() {
+        val result = encode(ByteArray(0))
+
+        assertThat(result).isEmpty()
+    }
+
+    @Test
+    fun `short input should produce single line`() {
+        val result = encode(byteArrayOf(0, 1, 2, 3))
+
+        assertThat(result).isEqualTo("AAECAw==\r\n")
+    }
+
+    @Test
+    fun `long input should be split into lines of 76 characters`() {
+        val result = encode(ByteArray(57 * 2 + 3) { 'a'.toByte() })
+
+        val lines = result.split("\r\n")
+        assertThat(lines).hasSize(4)
+        assertThat(lines[0]).hasLength(76)
+        assertThat(lines[1]).hasLength(76)
+        assertThat(lines[2]).isEqualTo("YWFh")
+        assertThat(lines[3]).isEmpty()
+    }
+
+    @Test
+    fun `input larger than internal buffer should be encoded completely`() {
+        val input = ByteArray(57 * 64 * 3 + 1) { it.toByte() }
+
+        val result = encode(input)
+
+        val decoded = Base64.getMimeDecoder().decode(result)
+        assertThat(decoded).isEqualTo(input)
+        assertThat(result.split("\r\n").dropLast(1).all { it.length <= 76 }).isTrue()
+    }
+
+    private fun encode(input: ByteArray): String {
+        return Base64EncodingInputStream(ByteArrayInputStream(input)).use { inputStream ->
+            inputStream.readBytes().toString(Charsets.US_ASCII)
+        }
+    }
+}
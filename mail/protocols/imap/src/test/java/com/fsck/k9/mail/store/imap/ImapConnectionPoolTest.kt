@@ -0,0 +1,158 @@
+package com.fsck.k9.mail.store.imap
+
+import com.google.common.truth.Truth.assertThat
+import java.io.IOException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+
+private const val MAX_IDLE_CONNECTIONS = 2
+private const val VALIDATION_INTERVAL = 30_000L
+private const val MAX_IDLE_TIME = 300_000L
+
+class ImapConnectionPoolTest {
+    private var now = 1_000_000L
+    private val executor = mock<ScheduledExecutorService> {
+        on { schedule(any<Runnable>(), any(), any()) } doReturn mock<ScheduledFuture<*>>()
+    }
+    private val pool = ImapConnectionPool(
+        maxIdleConnections = MAX_IDLE_CONNECTIONS,
+        validationInterval = VALIDATION_INTERVAL,
+        maxIdleTime = MAX_IDLE_TIME,
+        clock = { now },
+        executor = executor
+    )
+
+    @Test
+    fun `empty pool should create connection`() {
+        val newConnection = mock<ImapConnection>()
+
+        val result = pool.getConnection { newConnection }
+
+        assertThat(result).isSameInstanceAs(newConnection)
+        assertThat(pool.metrics).isEqualTo(ImapConnectionPoolMetrics(0, 1, 0, 0))
+    }
+
+    @Test
+    fun `recently used connection should be reused without validation`() {
+        val connection = mock<ImapConnection>()
+        pool.releaseConnection(connection)
+        now += VALIDATION_INTERVAL - 1
+
+        val result = pool.getConnection { throw AssertionError("Unexpected connection creation") }
+
+        assertThat(result).isSameInstanceAs(connection)
+        verify(connection, never()).executeSimpleCommand(any())
+        assertThat(pool.metrics).isEqualTo(ImapConnectionPoolMetrics(1, 0, 0, 0))
+    }
+
+    @Test
+    fun `connection idle for longer than validation interval should be validated`() {
+        val connection = mock<ImapConnection>()
+        pool.releaseConnection(connection)
+        now += VALIDATION_INTERVAL
+
+        val result = pool.getConnection { throw AssertionError("Unexpected connection creation") }
+
+        assertThat(result).isSameInstanceAs(connection)
+        verify(connection).executeSimpleCommand(Commands.NOOP)
+    }
+
+    @Test
+    fun `connection failing validation should be closed and replaced`() {
+        val deadConnection = mock<ImapConnection> {
+            on { executeSimpleCommand(Commands.NOOP) } doThrow IOException()
+        }
+        val newConnection = mock<ImapConnection>()
+        pool.releaseConnection(deadConnection)
+        now += VALIDATION_INTERVAL
+
+        val result = pool.getConnection { newConnection }
+
+        assertThat(result).isSameInstanceAs(newConnection)
+        verify(deadConnection).close()
+        assertThat(pool.metrics).isEqualTo(ImapConnectionPoolMetrics(0, 1, 1, 0))
+    }
+
+    @Test
+    fun `most recently released connection should be reused first`() {
+        val connectionOne = mock<ImapConnection>()
+        val connectionTwo = mock<ImapConnection>()
+        pool.releaseConnection(connectionOne)
+        pool.releaseConnection(connectionTwo)
+
+        val result = pool.getConnection { throw AssertionError("Unexpected connection creation") }
+
+        assertThat(result).isSameInstanceAs(connectionTwo)
+    }
+
+    @Test
+    fun `releasing more than max idle connections should close connection idle the longest`() {
+        val connectionOne = mock<ImapConnection>()
+        val connectionTwo = mock<ImapConnection>()
+        val connectionThree = mock<ImapConnection>()
+
+        pool.releaseConnection(connectionOne)
+        pool.releaseConnection(connectionTwo)
+        pool.releaseConnection(connectionThree)
+
+        verify(connectionOne).close()
+        verify(connectionTwo, never()).close()
+        verify(connectionThree, never()).close()
+        assertThat(pool.metrics.evictions).isEqualTo(1)
+    }
+
+    @Test
+    fun `eviction task should close connections exceeding max idle time`() {
+        val connectionOne = mock<ImapConnection>()
+        val connectionTwo = mock<ImapConnection>()
+        pool.releaseConnection(connectionOne)
+        now += MAX_IDLE_TIME / 2
+        pool.releaseConnection(connectionTwo)
+        val evictionTask = argumentCaptor<Runnable>()
+        verify(executor).schedule(evictionTask.capture(), eq(MAX_IDLE_TIME), eq(TimeUnit.MILLISECONDS))
+
+        now += MAX_IDLE_TIME / 2
+        evictionTask.firstValue.run()
+
+        verify(connectionOne).close()
+        verify(connectionTwo, never()).close()
+        verify(executor).schedule(any<Runnable>(), eq(MAX_IDLE_TIME / 2), eq(TimeUnit.MILLISECONDS))
+    }
+
+    @Test
+    fun `expired connections should not be reused`() {
+        val connection = mock<ImapConnection>()
+        val newConnection = mock<ImapConnection>()
+        pool.releaseConnection(connection)
+        now += MAX_IDLE_TIME
+
+        val result = pool.getConnection { newConnection }
+
+        assertThat(result).isSameInstanceAs(newConnection)
+        verify(connection).close()
+        assertThat(pool.metrics).isEqualTo(ImapConnectionPoolMetrics(0, 1, 0, 1))
+    }
+
+    @Test
+    fun `removeAll should return idle connections and empty the pool`() {
+        val connection = mock<ImapConnection>()
+        val newConnection = mock<ImapConnection>()
+        pool.releaseConnection(connection)
+
+        val removedConnections = pool.removeAll()
+        val result = pool.getConnection { newConnection }
+
+        assertThat(removedConnections).containsExactly(connection)
+        assertThat(result).isSameInstanceAs(newConnection)
+    }
+}
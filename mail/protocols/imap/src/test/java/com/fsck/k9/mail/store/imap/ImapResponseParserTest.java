@@ -4,15 +4,21 @@ package com.fsck.k9.mail.store.imap;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 
+import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.filter.FixedLengthInputStream;
 import com.fsck.k9.mail.filter.PeekableInputStream;
 import org.junit.Test;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -225,6 +231,18 @@ public class ImapResponseParserTest {
         parser.readResponse();
     }
 
+    @Test
+    public void testParseLiteral8() throws Exception {
+        ImapResponseParser parser = createParser("* 1 FETCH (BINARY[1] ~{4}\r\ntest ~atom)\r\n");
+
+        ImapResponse response = parser.readResponse();
+
+        ImapList fetchList = response.getKeyedList("FETCH");
+        assertEquals(4, fetchList.size());
+        assertEquals("test", fetchList.getString(2));
+        assertEquals("~atom", fetchList.getString(3));
+    }
+
     @Test
     public void testParseLiteralWithConsumingCallbackReturningNull() throws Exception {
         ImapResponseParser parser = createParser("* {4}\r\ntest\r\n");
@@ -459,6 +477,93 @@ public class ImapResponseParserTest {
         assertEquals("\\Seen", response.getList(2).getList(10).getString(0));
     }
 
+    @Test
+    public void readFetchResponse_withFetchResponse_shouldFillFetchResponse() throws Exception {
+        ImapResponseParser parser = createParser("* 1 FETCH (" +
+                "UID 23 " +
+                "INTERNALDATE \"01-Jul-2015 12:34:56 +0200\" " +
+                "RFC822.SIZE 3456 " +
+                "BODY[HEADER.FIELDS (date subject from)] \"<headers>\" " +
+                "MODSEQ (12345) " +
+                "FLAGS (\\Seen \\Answered $Forwarded $Junk))\r\n");
+        FetchResponse fetchResponse = new FetchResponse();
+
+        ImapResponse response = parser.readFetchResponse(fetchResponse, null);
+
+        assertNull(response);
+        assertEquals(1, fetchResponse.getMessageNumber());
+        assertEquals(23, fetchResponse.getUid());
+        assertEquals(new Date(1435746896000L), fetchResponse.getInternalDate());
+        assertEquals(3456, fetchResponse.getSize());
+        assertEquals("<headers>", fetchResponse.getBody());
+        assertTrue(fetchResponse.hasFlags());
+        assertEquals(EnumSet.of(Flag.SEEN, Flag.ANSWERED, Flag.FORWARDED), fetchResponse.getFlags());
+        assertNull(fetchResponse.getBodyStructure());
+        assertAllInputConsumed();
+    }
+
+    @Test
+    public void readFetchResponse_withBodyStructure_shouldReturnBodyStructureAsList() throws Exception {
+        ImapResponseParser parser = createParser("* 1 FETCH (BODYSTRUCTURE " +
+                "(\"TEXT\" \"PLAIN\" (\"CHARSET\" \"US-ASCII\") NIL NIL \"7BIT\" 2279 48) UID 1)\r\n");
+        FetchResponse fetchResponse = new FetchResponse();
+
+        parser.readFetchResponse(fetchResponse, null);
+
+        assertEquals(1, fetchResponse.getUid());
+        assertEquals(8, fetchResponse.getBodyStructure().size());
+        assertEquals("TEXT", fetchResponse.getBodyStructure().getString(0));
+        assertFalse(fetchResponse.hasFlags());
+        assertFalse(fetchResponse.hasSize());
+    }
+
+    @Test
+    public void readFetchResponse_withBodyLiteral_shouldPassLiteralToCallback() throws Exception {
+        ImapResponseParser parser = createParser("* 1 FETCH (UID 23 BODY[]<0> {5}\r\nHello)\r\n" +
+                "* 2 FETCH (UID 24 FLAGS ())\r\n");
+        FetchResponse fetchResponse = new FetchResponse();
+        final List<Long> uids = new ArrayList<>();
+
+        parser.readFetchResponse(fetchResponse, new FetchResponse.BodyCallback() {
+            @Override
+            public Object foundBody(FetchResponse fetchResponse, FixedLengthInputStream literal) throws Exception {
+                uids.add(fetchResponse.getUid());
+                literal.skipRemaining();
+                return 42;
+            }
+        });
+
+        assertEquals(singletonList(23L), uids);
+        assertEquals(42, fetchResponse.getBody());
+
+        parser.readFetchResponse(fetchResponse, null);
+
+        assertEquals(24, fetchResponse.getUid());
+        assertTrue(fetchResponse.hasFlags());
+        assertTrue(fetchResponse.getFlags().isEmpty());
+        assertFalse(fetchResponse.hasBody());
+        assertAllInputConsumed();
+    }
+
+    @Test
+    public void readFetchResponse_withOtherResponses_shouldReturnImapResponse() throws Exception {
+        ImapResponseParser parser = createParser("* 23 EXISTS\r\n" +
+                "* OK [UIDNEXT 42] Predicted next UID\r\n" +
+                "1 OK FETCH completed\r\n");
+        FetchResponse fetchResponse = new FetchResponse();
+
+        ImapResponse existsResponse = parser.readFetchResponse(fetchResponse, null);
+        ImapResponse okResponse = parser.readFetchResponse(fetchResponse, null);
+        ImapResponse taggedResponse = parser.readFetchResponse(fetchResponse, null);
+
+        assertEquals(asList("23", "EXISTS"), existsResponse);
+        assertEquals("OK", okResponse.getString(0));
+        assertEquals("UIDNEXT", okResponse.getList(1).getString(0));
+        assertEquals("1", taggedResponse.getTag());
+        assertEquals("OK", taggedResponse.getString(0));
+        assertAllInputConsumed();
+    }
+
     @Test
     public void readStatusResponse_withNoResponse_shouldThrow() throws Exception {
         ImapResponseParser parser = createParser("1 NO\r\n");
@@ -8,6 +8,7 @@ import com.fsck.k9.mail.K9LibRobolectricTestRunner
 import com.fsck.k9.mail.MessageRetrievalListener
 import com.fsck.k9.mail.MessagingException
 import com.fsck.k9.mail.Part
+import com.fsck.k9.mail.filter.PeekableInputStream
 import com.fsck.k9.mail.internet.BinaryTempFileBody
 import com.fsck.k9.mail.internet.MimeHeader
 import com.fsck.k9.mail.store.imap.ImapResponseHelper.createImapResponse
@@ -31,9 +32,11 @@ import org.mockito.ArgumentMatchers.anyString
 import org.mockito.ArgumentMatchers.eq
 import org.mockito.ArgumentMatchers.startsWith
 import org.mockito.Mockito.atLeastOnce
+import org.mockito.Mockito.never
 import org.mockito.Mockito.times
 import org.mockito.Mockito.verify
 import org.mockito.Mockito.verifyNoMoreInteractions
+import org.mockito.kotlin.any
 import org.mockito.kotlin.anyOrNull
 import org.mockito.kotlin.argumentCaptor
 import org.mockito.kotlin.doReturn
@@ -46,6 +49,7 @@ import org.robolectric.RuntimeEnvironment
 class RealImapFolderTest {
     private val internalImapStore = object : InternalImapStore {
         override val logLabel = "Account"
+        override val storeId = "user@imap.example.org:993"
         override fun getCombinedPrefix() = ""
         override fun getPermanentFlagsIndex() = mutableSetOf<Flag>()
     }
@@ -670,7 +674,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.FLAGS)
 
@@ -684,7 +688,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.ENVELOPE)
 
@@ -702,7 +706,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.STRUCTURE)
 
@@ -717,9 +721,7 @@ class RealImapFolderTest {
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
         val bodyStructure = "(\"TEXT\" \"PLAIN\" (\"CHARSET\" \"US-ASCII\") NIL NIL \"7BIT\" 2279 48)"
-        whenever(imapConnection.readResponse(anyOrNull()))
-            .thenReturn(createImapResponse("* 1 FETCH (BODYSTRUCTURE $bodyStructure UID 1)"))
-            .thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("* 1 FETCH (BODYSTRUCTURE $bodyStructure UID 1)", "x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.STRUCTURE)
 
@@ -733,7 +735,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.BODY_SANE)
 
@@ -747,7 +749,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.BODY_SANE)
 
@@ -761,7 +763,7 @@ class RealImapFolderTest {
         val folder = createFolder("Folder")
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
-        whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("x OK")
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.BODY)
 
@@ -777,15 +779,119 @@ class RealImapFolderTest {
         folder.open(OpenMode.READ_ONLY)
         val messages = createImapMessages("1")
         val fetchProfile = createFetchProfile(FetchProfile.Item.FLAGS)
-        whenever(imapConnection.readResponse(anyOrNull()))
-            .thenReturn(createImapResponse("* 1 FETCH (FLAGS (\\Seen) UID 1)"))
-            .thenReturn(createImapResponse("x OK"))
+        setupFetchResponses("* 1 FETCH (FLAGS (\\Seen) UID 1)", "x OK")
 
         folder.fetch(messages, fetchProfile, null, MAX_DOWNLOAD_SIZE)
 
         verify(messages[0]).setFlag(Flag.SEEN, true)
     }
 
+    @Test
+    fun fetch_withEnvelopeFetchProfile_shouldSetInternalDateAndSize() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        val messages = createImapMessages("1")
+        val fetchProfile = createFetchProfile(FetchProfile.Item.ENVELOPE)
+        setupFetchResponses(
+            "* 1 FETCH (UID 1 INTERNALDATE \"17-Jul-1996 02:44:25 -0700\" RFC822.SIZE 4286 " +
+                "BODY[HEADER.FIELDS (SUBJECT)] NIL)",
+            "x OK"
+        )
+
+        folder.fetch(messages, fetchProfile, null, MAX_DOWNLOAD_SIZE)
+
+        verify(messages[0]).setSize(4286)
+        verify(messages[0]).internalDate = Date(837596665000L)
+    }
+
+    @Test
+    fun fetch_withUnknownUid_shouldIgnoreResponse() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        val messages = createImapMessages("1")
+        val fetchProfile = createFetchProfile(FetchProfile.Item.FLAGS)
+        setupFetchResponses(
+            "* 2 FETCH (UID 2 FLAGS (\\Seen))",
+            "* 1 FETCH (UID 1 MODSEQ (12345) FLAGS (\\Flagged))",
+            "x OK"
+        )
+
+        folder.fetch(messages, fetchProfile, null, MAX_DOWNLOAD_SIZE)
+
+        verify(messages[0]).setFlag(Flag.FLAGGED, true)
+        verify(messages[0], never()).setFlag(Flag.SEEN, true)
+    }
+
+    @Test
+    fun open_withCondstoreCapableServer_shouldRequestHighestModSeq() {
+        val folder = createFolder("Folder")
+        whenever(imapConnection.isCondstoreCapable).thenReturn(true)
+        whenever(imapConnection.executeSimpleCommand("EXAMINE \"Folder\" (CONDSTORE)")).thenReturn(
+            listOf(
+                createImapResponse("* 23 EXISTS"),
+                createImapResponse("* OK [HIGHESTMODSEQ 715194045007] Highest"),
+                createImapResponse("2 OK [READ-ONLY] Examine completed.")
+            )
+        )
+
+        folder.open(OpenMode.READ_ONLY)
+
+        assertEquals(715194045007L, folder.getHighestModSeq())
+    }
+
+    @Test
+    fun open_withoutCondstore_shouldNotReturnHighestModSeq() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+
+        folder.open(OpenMode.READ_ONLY)
+
+        assertNull(folder.getHighestModSeq())
+    }
+
+    @Test
+    fun fetchFlagChanges_withQresync_shouldReturnChangedAndVanishedMessages() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        whenever(imapConnection.isQresyncEnabled).thenReturn(true)
+        folder.open(OpenMode.READ_ONLY)
+        whenever(imapConnection.executeSimpleCommand("UID FETCH 1:* (UID FLAGS) (CHANGEDSINCE 12345 VANISHED)"))
+            .thenReturn(
+                listOf(
+                    createImapResponse("* VANISHED (EARLIER) 3:5,8"),
+                    createImapResponse("* 1 FETCH (UID 1 MODSEQ (12350) FLAGS (\\Seen))"),
+                    createImapResponse("* 2 FETCH (UID 7 MODSEQ (12351) FLAGS ())"),
+                    createImapResponse("x OK Fetch completed")
+                )
+            )
+
+        val flagChanges = folder.fetchFlagChanges(1, 12345)
+
+        assertThat(flagChanges.messages.map { it.uid }).containsExactly("1", "7").inOrder()
+        assertTrue(flagChanges.messages[0].isSet(Flag.SEEN))
+        assertFalse(flagChanges.messages[1].isSet(Flag.SEEN))
+        assertTrue(flagChanges.isVanishedAvailable)
+        assertTrue(flagChanges.isVanished("4"))
+        assertTrue(flagChanges.isVanished("8"))
+        assertFalse(flagChanges.isVanished("7"))
+    }
+
+    @Test
+    fun fetchFlagChanges_withoutQresync_shouldNotRequestVanishedMessages() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        whenever(imapConnection.executeSimpleCommand("UID FETCH 10:* (UID FLAGS) (CHANGEDSINCE 12345)"))
+            .thenReturn(listOf(createImapResponse("x OK Fetch completed")))
+
+        val flagChanges = folder.fetchFlagChanges(10, 12345)
+
+        assertThat(flagChanges.messages).isEmpty()
+        assertFalse(flagChanges.isVanishedAvailable)
+    }
+
     @Test
     fun fetchPart_withTextSection_shouldIssueRespectiveCommand() {
         val folder = createFolder("Folder")
@@ -806,12 +912,12 @@ class RealImapFolderTest {
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
         val message = createImapMessage("1")
-        val part = createPart("1.1")
+        val part = createPlainTextPart("1.1")
         whenever(imapConnection.readResponse(anyOrNull())).thenReturn(createImapResponse("x OK"))
 
-        folder.fetchPart(message, part, null, mock(), MAX_DOWNLOAD_SIZE)
+        folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
 
-        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1])", false)
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1]<0.1048576>)", false)
     }
 
     @Test
@@ -820,7 +926,7 @@ class RealImapFolderTest {
         prepareImapFolderForOpen(OpenMode.READ_ONLY)
         folder.open(OpenMode.READ_ONLY)
         val message = createImapMessage("1")
-        val part = createPlainTextPart("1.1")
+        val part = createPlainTextPart("TEXT")
         setupSingleFetchResponseToCallback()
 
         folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
@@ -833,6 +939,99 @@ class RealImapFolderTest {
         assertEquals("text", buffer.readUtf8())
     }
 
+    @Test
+    fun fetchPart_withPartLargerThanChunkSize_shouldFetchInChunks() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        val message = createImapMessage("1")
+        val part = createPlainTextPart("1.1")
+        val firstChunk = "a".repeat(RealImapFolder.FETCH_PART_CHUNK_SIZE)
+        setupFetchPartResponses(
+            "* 1 FETCH (UID 1 BODY[1.1]<0> {${firstChunk.length}}\r\n$firstChunk)",
+            "x OK",
+            "* 1 FETCH (UID 1 BODY[1.1]<1048576> {4}\r\ntail)",
+            "x OK"
+        )
+
+        folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1]<0.1048576>)", false)
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1]<1048576.1048576>)", false)
+        assertThat(readBody(part)).isEqualTo(firstChunk + "tail")
+    }
+
+    @Test
+    fun fetchPart_withConnectionLossDuringDownload_shouldResumeAfterReceivedData() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        val message = createImapMessage("1")
+        val part = createPlainTextPart("1.1")
+        val firstChunk = "a".repeat(RealImapFolder.FETCH_PART_CHUNK_SIZE)
+        val firstConnection = createImapResponseParser(
+            "* 1 FETCH (UID 1 BODY[1.1]<0> {${firstChunk.length}}\r\n$firstChunk)",
+            "x OK"
+        )
+        val secondConnection = createImapResponseParser(
+            "* 1 FETCH (UID 1 BODY[1.1]<1048576> {4}\r\ntail)",
+            "x OK"
+        )
+        whenever(imapConnection.readResponse(anyOrNull()))
+            .thenAnswer { firstConnection.readResponse(it.getArgument(0)) }
+            .thenAnswer { firstConnection.readResponse(it.getArgument(0)) }
+            .thenAnswer { firstConnection.readResponse(it.getArgument(0)) }
+            .thenAnswer { secondConnection.readResponse(it.getArgument(0)) }
+
+        folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1]<0.1048576>)", false)
+        verify(imapConnection, times(2)).sendCommand("UID FETCH 1 (UID BODY.PEEK[1.1]<1048576.1048576>)", false)
+        assertThat(readBody(part)).isEqualTo(firstChunk + "tail")
+    }
+
+    @Test
+    fun fetchPart_withBinaryCapability_shouldLetServerDecodeBase64PartAndStoreItBase64Encoded() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        whenever(imapConnection.hasCapability(Capabilities.BINARY)).thenReturn(true)
+        val message = createImapMessage("1")
+        val part = createBase64Part("2")
+        setupFetchPartResponses(
+            "* 1 FETCH (UID 1 BINARY[2]<0> ~{4}\r\n\u0000\u0001\u0002\u0003)",
+            "x OK"
+        )
+
+        folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BINARY.PEEK[2]<0.1048576>)", false)
+        val body = argumentCaptor<Body>().apply { verify(part).body = capture() }.firstValue
+        assertThat((body as BinaryTempFileBody).encoding).isEqualTo("base64")
+        assertThat(readBody(part)).isEqualTo("AAECAw==\r\n")
+    }
+
+    @Test
+    fun fetchPart_withBinaryFetchRejected_shouldFallBackToBody() {
+        val folder = createFolder("Folder")
+        prepareImapFolderForOpen(OpenMode.READ_ONLY)
+        folder.open(OpenMode.READ_ONLY)
+        whenever(imapConnection.hasCapability(Capabilities.BINARY)).thenReturn(true)
+        val message = createImapMessage("1")
+        val part = createBase64Part("2")
+        setupFetchPartResponses(
+            "x NO [UNKNOWN-CTE] Can't decode part",
+            "* 1 FETCH (UID 1 BODY[2]<0> {8}\r\nAAECAw==)",
+            "x OK"
+        )
+
+        folder.fetchPart(message, part, null, DefaultBodyFactory(), MAX_DOWNLOAD_SIZE)
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BINARY.PEEK[2]<0.1048576>)", false)
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[2]<0.1048576>)", false)
+        assertThat(readBody(part)).isEqualTo("AAECAw==")
+    }
+
     @Test
     fun appendMessages_shouldIssueRespectiveCommand() {
         val folder = createFolder("Folder")
@@ -985,6 +1184,33 @@ class RealImapFolderTest {
         return part
     }
 
+    private fun setupFetchResponses(vararg responses: String) {
+        val input = responses.joinToString(separator = "\r\n", postfix = "\r\n")
+        val parser = ImapResponseParser(PeekableInputStream(input.byteInputStream()))
+        whenever(imapConnection.readFetchResponse(any(), anyOrNull())).thenAnswer { invocation ->
+            parser.readFetchResponse(invocation.getArgument(0), invocation.getArgument(1))
+        }
+    }
+
+    private fun setupFetchPartResponses(vararg responses: String) {
+        val parser = createImapResponseParser(*responses)
+        whenever(imapConnection.readResponse(anyOrNull())).thenAnswer { invocation ->
+            parser.readResponse(invocation.getArgument(0))
+        }
+    }
+
+    private fun createImapResponseParser(vararg responses: String): ImapResponseParser {
+        val input = responses.joinToString(separator = "\r\n", postfix = "\r\n")
+        return ImapResponseParser(PeekableInputStream(input.byteInputStream(Charsets.ISO_8859_1)))
+    }
+
+    private fun readBody(part: Part): String {
+        val body = argumentCaptor<Body>().apply { verify(part).body = capture() }.firstValue
+        val buffer = Buffer()
+        body.writeTo(buffer.outputStream())
+        return buffer.readString(Charsets.ISO_8859_1)
+    }
+
     private fun setupSingleFetchResponseToCallback() {
         whenever(imapConnection.readResponse(anyOrNull()))
             .thenAnswer { invocation ->
@@ -1031,6 +1257,13 @@ class RealImapFolderTest {
         }
     }
 
+    private fun createBase64Part(serverExtra: String): Part {
+        val part = createPart(serverExtra)
+        whenever(part.getHeader(MimeHeader.HEADER_CONTENT_TRANSFER_ENCODING)).thenReturn(arrayOf(MimeUtil.ENC_BASE64))
+        whenever(part.getHeader(MimeHeader.HEADER_CONTENT_TYPE)).thenReturn(arrayOf("application/octet-stream"))
+        return part
+    }
+
     private fun createFetchProfile(vararg items: FetchProfile.Item) = items.toCollection(FetchProfile())
 
     private fun createMessageRetrievalListener() = mock<MessageRetrievalListener<ImapMessage>>()
@@ -0,0 +1,158 @@
+package com.fsck.k9.mail.store.imap
+
+import com.fsck.k9.mail.Flag
+import com.google.common.truth.Truth.assertThat
+import com.google.common.truth.Truth.assertWithMessage
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+import org.junit.Test
+
+private const val TEST_TIMEOUT_SECONDS = 5L
+private const val IDLE_TIMEOUT_MS = 28 * 60 * 1000L
+
+class RealImapNotifyIdlerTest {
+    private val idleRefreshManager = TestIdleRefreshManager()
+    private val wakeLock = TestWakeLock(timeoutSeconds = TEST_TIMEOUT_SECONDS, isHeld = true)
+    private val imapConnection = TestImapConnection(timeout = TEST_TIMEOUT_SECONDS).apply {
+        addCapability(Capabilities.NOTIFY)
+    }
+    private val internalImapStore = object : InternalImapStore {
+        override val logLabel = "Account"
+        override val storeId = "user@imap.example.org:993"
+        override fun getCombinedPrefix() = ""
+        override fun getPermanentFlagsIndex() = mutableSetOf<Flag>()
+    }
+    private val idleRefreshTimeoutProvider = object : IdleRefreshTimeoutProvider {
+        override val idleRefreshTimeoutMs = IDLE_TIMEOUT_MS
+    }
+    private val idler = RealImapNotifyIdler(
+        idleRefreshManager,
+        wakeLock,
+        TestConnectionManager(imapConnection),
+        internalImapStore,
+        FolderNameCodec.newInstance(),
+        listOf("INBOX", "Folder"),
+        idleRefreshTimeoutProvider
+    )
+
+    @Test
+    fun `new message in watched folder`() {
+        val latch = CountDownLatch(1)
+
+        thread {
+            val result = idler.idle()
+
+            assertThat(result.idleResult).isEqualTo(IdleResult.SYNC)
+            assertThat(result.folderServerIds).containsExactly("Folder")
+            latch.countDown()
+        }
+
+        imapConnection.waitForCommand(
+            "NOTIFY SET (mailboxes (\"INBOX\" \"Folder\") (MessageNew MessageExpunge FlagChange))"
+        )
+        imapConnection.enqueueTaggedServerResponse("OK")
+        imapConnection.waitForCommand("IDLE")
+        imapConnection.enqueueContinuationServerResponse()
+        imapConnection.enqueueUntaggedServerResponse("STATUS \"Folder\" (MESSAGES 2 UIDNEXT 3)")
+        imapConnection.waitForCommand("DONE")
+        imapConnection.enqueueUntaggedServerResponse("STATUS \"Unknown\" (MESSAGES 1)")
+        imapConnection.enqueueTaggedServerResponse("OK")
+
+        latch.awaitWithTimeout()
+        assertThat(imapConnection.isConnected).isTrue()
+    }
+
+    @Test
+    fun `notification overflow should return all folders and close connection`() {
+        val latch = CountDownLatch(1)
+
+        thread {
+            val result = idler.idle()
+
+            assertThat(result.idleResult).isEqualTo(IdleResult.SYNC)
+            assertThat(result.folderServerIds).containsExactly("INBOX", "Folder")
+            latch.countDown()
+        }
+
+        imapConnection.waitForCommand(
+            "NOTIFY SET (mailboxes (\"INBOX\" \"Folder\") (MessageNew MessageExpunge FlagChange))"
+        )
+        imapConnection.enqueueTaggedServerResponse("OK")
+        imapConnection.waitForCommand("IDLE")
+        imapConnection.enqueueContinuationServerResponse()
+        imapConnection.enqueueUntaggedServerResponse("OK [NOTIFICATIONOVERFLOW] Too many events")
+        imapConnection.waitForCommand("DONE")
+        imapConnection.enqueueTaggedServerResponse("OK")
+
+        latch.awaitWithTimeout()
+        assertThat(imapConnection.isConnected).isFalse()
+    }
+
+    @Test
+    fun `stop while IDLE`() {
+        val latch = CountDownLatch(1)
+
+        thread {
+            val result = idler.idle()
+
+            assertThat(result.idleResult).isEqualTo(IdleResult.STOPPED)
+            latch.countDown()
+        }
+
+        imapConnection.waitForCommand(
+            "NOTIFY SET (mailboxes (\"INBOX\" \"Folder\") (MessageNew MessageExpunge FlagChange))"
+        )
+        imapConnection.enqueueTaggedServerResponse("OK")
+        imapConnection.waitForCommand("IDLE")
+        imapConnection.enqueueContinuationServerResponse()
+        wakeLock.waitForRelease()
+        idler.stop()
+        imapConnection.waitForCommand("DONE")
+        imapConnection.enqueueTaggedServerResponse("OK")
+
+        latch.awaitWithTimeout()
+        assertThat(imapConnection.isConnected).isFalse()
+    }
+
+    @Test
+    fun `server without NOTIFY support`() {
+        val imapConnection = TestImapConnection(timeout = TEST_TIMEOUT_SECONDS)
+        val idler = RealImapNotifyIdler(
+            idleRefreshManager,
+            wakeLock,
+            TestConnectionManager(imapConnection),
+            internalImapStore,
+            FolderNameCodec.newInstance(),
+            listOf("INBOX"),
+            idleRefreshTimeoutProvider
+        )
+
+        val result = idler.idle()
+
+        assertThat(result.idleResult).isEqualTo(IdleResult.NOT_SUPPORTED)
+    }
+
+    @Test
+    fun `server rejecting NOTIFY command`() {
+        val latch = CountDownLatch(1)
+
+        thread {
+            val result = idler.idle()
+
+            assertThat(result.idleResult).isEqualTo(IdleResult.NOT_SUPPORTED)
+            latch.countDown()
+        }
+
+        imapConnection.waitForCommand(
+            "NOTIFY SET (mailboxes (\"INBOX\" \"Folder\") (MessageNew MessageExpunge FlagChange))"
+        )
+        imapConnection.enqueueTaggedServerResponse("NO [BADEVENT] Unsupported event")
+
+        latch.awaitWithTimeout()
+    }
+}
+
+private fun CountDownLatch.awaitWithTimeout() {
+    assertWithMessage("Test timed out").that(await(TEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue()
+}
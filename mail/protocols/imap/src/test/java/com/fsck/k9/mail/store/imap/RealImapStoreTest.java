@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 
 import android.net.ConnectivityManager;
 
@@ -40,6 +41,9 @@ import static org.mockito.Mockito.when;
 
 
 public class RealImapStoreTest {
+    private static final int MAX_IDLE_CONNECTIONS = 3;
+    private static final long MAX_IDLE_TIME = 300000L;
+
     private ImapStoreConfig config = mock(ImapStoreConfig.class);
     private TestImapStore imapStore;
 
@@ -465,7 +469,14 @@ public class RealImapStoreTest {
         public TestImapStore(ServerSettings serverSettings, ImapStoreConfig config,
                 TrustedSocketFactory trustedSocketFactory, ConnectivityManager connectivityManager,
                 OAuth2TokenProvider oauth2TokenProvider) {
-            super(serverSettings, config, trustedSocketFactory, connectivityManager, oauth2TokenProvider);
+            super(serverSettings, config, trustedSocketFactory, connectivityManager, oauth2TokenProvider,
+                    createConnectionPool());
+        }
+
+        // Validate pooled connections on every checkout
+        private static ImapConnectionPool createConnectionPool() {
+            return new ImapConnectionPool(MAX_IDLE_CONNECTIONS, 0L, MAX_IDLE_TIME, () -> 0L,
+                    mock(ScheduledExecutorService.class));
         }
 
         @Override
@@ -15,6 +15,8 @@ internal open class TestImapConnection(val timeout: Long, override val connectio
     override val isUidPlusCapable: Boolean = true
     override var isIdleCapable: Boolean = true
         protected set
+    override val isCondstoreCapable: Boolean = false
+    override val isQresyncEnabled: Boolean = false
 
     val defaultSocketReadTimeout = 30 * 1000
     var currentSocketReadTimeout = defaultSocketReadTimeout
@@ -23,6 +25,7 @@ internal open class TestImapConnection(val timeout: Long, override val connectio
     @Volatile
     private var tag: Int = 0
 
+    private val capabilities = mutableSetOf<String>()
     private val receivedCommands = LinkedBlockingDeque<String>()
     private val responses = LinkedBlockingDeque<Response>()
 
@@ -38,7 +41,7 @@ internal open class TestImapConnection(val timeout: Long, override val connectio
     }
 
     override fun hasCapability(capability: String): Boolean {
-        throw UnsupportedOperationException("not implemented")
+        return capability in capabilities
     }
 
     override fun executeSimpleCommand(command: String): List<ImapResponse> {
@@ -86,6 +89,13 @@ internal open class TestImapConnection(val timeout: Long, override val connectio
         throw UnsupportedOperationException("not implemented")
     }
 
+    override fun readFetchResponse(
+        fetchResponse: FetchResponse,
+        callback: FetchResponse.BodyCallback?
+    ): ImapResponse? {
+        throw UnsupportedOperationException("not implemented")
+    }
+
     override fun setSocketDefaultReadTimeout() {
         currentSocketReadTimeout = defaultSocketReadTimeout
     }
@@ -125,6 +135,10 @@ internal open class TestImapConnection(val timeout: Long, override val connectio
     fun setIdleNotSupported() {
         isIdleCapable = false
     }
+
+    fun addCapability(capability: String) {
+        capabilities.add(capability)
+    }
 }
 
 private sealed class Response {
@@ -44,6 +44,14 @@ internal open class TestImapFolder(
         throw UnsupportedOperationException("not implemented")
     }
 
+    override fun getHighestModSeq(): Long? {
+        throw UnsupportedOperationException("not implemented")
+    }
+
+    override fun isQresyncEnabled(): Boolean {
+        throw UnsupportedOperationException("not implemented")
+    }
+
     override fun getMessage(uid: String): ImapMessage {
         throw UnsupportedOperationException("not implemented")
     }
@@ -74,6 +82,10 @@ internal open class TestImapFolder(
         throw UnsupportedOperationException("not implemented")
     }
 
+    override fun fetchFlagChanges(lowestUid: Long, changedSince: Long): FlagChanges {
+        throw UnsupportedOperationException("not implemented")
+    }
+
     override fun fetchPart(
         message: ImapMessage,
         part: Part,
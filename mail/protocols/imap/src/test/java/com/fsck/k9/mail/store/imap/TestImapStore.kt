@@ -21,4 +21,8 @@ internal class TestImapStore(private val folder: ImapFolder) : ImapStore, ImapCo
     override fun closeAllConnections() {
         throw UnsupportedOperationException("not implemented")
     }
+
+    override fun getConnectionPoolMetrics(): ImapConnectionPoolMetrics {
+        throw UnsupportedOperationException("not implemented")
+    }
 }
@@ -0,0 +1,66 @@
+package com.fsck.k9.mail.store.imap
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class VanishedResponseTest {
+    @Test
+    fun vanishedEarlier() {
+        val response = ImapResponseHelper.createImapResponse("* VANISHED (EARLIER) 41,43:116,118")
+
+        val result = VanishedResponse.parse(response)
+
+        assertThat(result).isNotNull()
+        assertThat(result!!.isEarlier).isTrue()
+        assertThat(result.uidRanges).containsExactly(41L..41L, 43L..116L, 118L..118L).inOrder()
+        assertThat(result.uidCount).isEqualTo(76L)
+        assertThat(result.contains(100)).isTrue()
+        assertThat(result.contains(42)).isFalse()
+    }
+
+    @Test
+    fun vanishedWithoutEarlier() {
+        val response = ImapResponseHelper.createImapResponse("* VANISHED 405,407")
+
+        val result = VanishedResponse.parse(response)
+
+        assertThat(result).isNotNull()
+        assertThat(result!!.isEarlier).isFalse()
+        assertThat(result.uidCount).isEqualTo(2L)
+    }
+
+    @Test
+    fun reversedRange() {
+        val response = ImapResponseHelper.createImapResponse("* VANISHED 10:5")
+
+        val result = VanishedResponse.parse(response)
+
+        assertThat(result!!.uidRanges).containsExactly(5L..10L)
+    }
+
+    @Test
+    fun taggedResponse_shouldReturnNull() {
+        assertNotValid("1 VANISHED 405")
+    }
+
+    @Test
+    fun missingUidSet_shouldReturnNull() {
+        assertNotValid("* VANISHED (EARLIER)")
+    }
+
+    @Test
+    fun invalidUidSet_shouldReturnNull() {
+        assertNotValid("* VANISHED 1:foo")
+    }
+
+    @Test
+    fun otherResponse_shouldReturnNull() {
+        assertNotValid("* 23 EXPUNGE")
+    }
+
+    private fun assertNotValid(response: String) {
+        val result = VanishedResponse.parse(ImapResponseHelper.createImapResponse(response))
+        assertNull(result)
+    }
+}
@@ -8,15 +8,17 @@ class Pop3Capabilities {
     boolean top;
     boolean uidl;
     boolean external;
+    boolean pipelining;
 
     @Override
     public String toString() {
-        return String.format("CRAM-MD5 %b, PLAIN %b, STLS %b, TOP %b, UIDL %b, EXTERNAL %b",
+        return String.format("CRAM-MD5 %b, PLAIN %b, STLS %b, TOP %b, UIDL %b, EXTERNAL %b, PIPELINING %b",
              cramMD5,
              authPlain,
              stls,
              top,
              uidl,
-             external);
+             external,
+             pipelining);
     }
 }
@@ -223,6 +223,8 @@ class Pop3Connection {
                     capabilities.uidl = true;
                 } else if (response.equals(TOP_CAPABILITY)) {
                     capabilities.top = true;
+                } else if (response.equals(PIPELINING_CAPABILITY)) {
+                    capabilities.pipelining = true;
                 } else if (response.startsWith(SASL_CAPABILITY)) {
                     List<String> saslAuthMechanisms = Arrays.asList(response.split(" "));
                     if (saslAuthMechanisms.contains(AUTH_PLAIN_CAPABILITY)) {
@@ -368,6 +370,37 @@ class Pop3Connection {
         }
     }
 
+    /**
+     * Sends multiple commands without waiting for the responses.
+     * <p>
+     * Only use this if the server supports pipelining. The responses have to be read in order using
+     * {@link #readCommandResponse()}.
+     */
+    void sendCommands(List<String> commands) throws MessagingException {
+        try {
+            for (String command : commands) {
+                if (K9MailLib.isDebug() && DEBUG_PROTOCOL_POP3) {
+                    Timber.d(">>> %s", command);
+                }
+
+                out.write(command.getBytes());
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+        } catch (Exception e) {
+            close();
+            throw new MessagingException("Unable to execute POP3 command", e);
+        }
+    }
+
+    /**
+     * Reads the status line of the response to a command sent using {@link #sendCommands(List)}.
+     */
+    String readCommandResponse() throws MessagingException {
+        return executeSimpleCommand(null);
+    }
+
     String readLine() throws IOException {
         StringBuilder sb = new StringBuilder();
         int d = in.read();
@@ -434,6 +467,10 @@ class Pop3Connection {
         this.topNotAdvertised = topNotAdvertised;
     }
 
+    boolean supportsPipelining() {
+        return capabilities.pipelining;
+    }
+
     boolean supportsUidl() {
         return this.capabilities.uidl;
     }
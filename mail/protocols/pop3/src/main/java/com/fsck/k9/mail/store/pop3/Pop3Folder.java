@@ -29,6 +29,11 @@ import static com.fsck.k9.mail.store.pop3.Pop3Commands.*;
 public class Pop3Folder {
     public static final String INBOX = "INBOX";
 
+    /**
+     * Maximum number of TOP/RETR commands sent to a server supporting pipelining before the first response is read.
+     */
+    private static final int PIPELINING_WINDOW_SIZE = 20;
+
 
     private Pop3Store pop3Store;
     private Map<String, Pop3Message> uidToMsgMap = new HashMap<>();
@@ -317,24 +322,23 @@ public class Pop3Folder {
         } catch (IOException ioe) {
             throw new MessagingException("fetch", ioe);
         }
+        boolean fetchBodies = fp.contains(FetchProfile.Item.BODY) || fp.contains(FetchProfile.Item.BODY_SANE);
+        if (fetchBodies && messages.size() > 1 && connection.supportsPipelining()) {
+            try {
+                fetchBodiesPipelined(messages, getLinesToFetch(fp, maxDownloadSize), fp, listener);
+            } catch (IOException ioe) {
+                throw new MessagingException("Unable to fetch message", ioe);
+            }
+            return;
+        }
         for (int i = 0, count = messages.size(); i < count; i++) {
             Pop3Message pop3Message = messages.get(i);
             try {
                 if (listener != null && !fp.contains(FetchProfile.Item.ENVELOPE)) {
                     listener.messageStarted(pop3Message.getUid(), i, count);
                 }
-                if (fp.contains(FetchProfile.Item.BODY)) {
-                    fetchBody(pop3Message, -1);
-                } else if (fp.contains(FetchProfile.Item.BODY_SANE)) {
-                    /*
-                     * To convert the suggested download size we take the size
-                     * divided by the maximum line size (76).
-                     */
-                    if (maxDownloadSize > 0) {
-                        fetchBody(pop3Message, maxDownloadSize / 76);
-                    } else {
-                        fetchBody(pop3Message, -1);
-                    }
+                if (fetchBodies) {
+                    fetchBody(pop3Message, getLinesToFetch(fp, maxDownloadSize));
                 } else if (fp.contains(FetchProfile.Item.STRUCTURE)) {
                     /*
                      * If the user is requesting STRUCTURE we are required to set the body
@@ -413,6 +417,92 @@ public class Pop3Folder {
         }
     }
 
+    private int getLinesToFetch(FetchProfile fp, int maxDownloadSize) {
+        if (fp.contains(FetchProfile.Item.BODY) || maxDownloadSize <= 0) {
+            return -1;
+        }
+
+        // To convert the suggested download size we take the size divided by the maximum line size (76).
+        return maxDownloadSize / 76;
+    }
+
+    /**
+     * Fetches the bodies of the given messages using pipelining (RFC 2449).
+     *
+     * Up to {@link #PIPELINING_WINDOW_SIZE} commands are sent before the first response is read, so the time spent
+     * waiting for the server is no longer proportional to the number of messages.
+     */
+    private void fetchBodiesPipelined(List<Pop3Message> messages, int lines, FetchProfile fp,
+            MessageRetrievalListener<Pop3Message> listener) throws IOException, MessagingException {
+        int count = messages.size();
+        int sentCount = 0;
+        for (int i = 0; i < count; i++) {
+            // Refill the window when half of it has been processed so commands are sent in batches
+            if (sentCount - i <= PIPELINING_WINDOW_SIZE / 2) {
+                List<String> commands = new ArrayList<>();
+                while (sentCount < count && sentCount - i < PIPELINING_WINDOW_SIZE) {
+                    commands.add(createFetchBodyCommand(messages.get(sentCount), lines));
+                    sentCount++;
+                }
+
+                if (!commands.isEmpty()) {
+                    connection.sendCommands(commands);
+                }
+            }
+
+            Pop3Message pop3Message = messages.get(i);
+            if (listener != null && !fp.contains(FetchProfile.Item.ENVELOPE)) {
+                listener.messageStarted(pop3Message.getUid(), i, count);
+            }
+
+            try {
+                connection.readCommandResponse();
+                parseBody(pop3Message, lines);
+            } catch (MessagingException e) {
+                if (connection.isOpen()) {
+                    // Read the responses to the commands already sent so the connection can still be used
+                    skipResponses(sentCount - i - 1);
+                }
+                throw e;
+            }
+
+            if (listener != null) {
+                listener.messageFinished(pop3Message, i, count);
+            }
+        }
+    }
+
+    private String createFetchBodyCommand(Pop3Message message, int lines) {
+        Integer msgNum = uidToMsgNumMap.get(message.getUid());
+        if (lines != -1 && connection.supportsTop()) {
+            return String.format(Locale.US, TOP_COMMAND + " %d %d", msgNum, lines);
+        }
+
+        return String.format(Locale.US, RETR_COMMAND + " %d", msgNum);
+    }
+
+    private void skipResponses(int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    connection.readCommandResponse();
+                    skipRemainingResponse(new Pop3ResponseInputStream(connection.getInputStream()));
+                } catch (Pop3ErrorResponse ignored) {
+                    // Negative responses consist of only the status line
+                }
+            }
+        } catch (IOException | MessagingException e) {
+            Timber.w(e, "Unable to read responses to pipelined commands");
+            connection.close();
+        }
+    }
+
+    private static void skipRemainingResponse(Pop3ResponseInputStream inputStream) throws IOException {
+        //noinspection StatementWithEmptyBody
+        while (inputStream.read() != -1) {
+        }
+    }
+
     /**
      * Fetches the body of the given message, limiting the downloaded data to the specified
      * number of lines if possible.
@@ -459,14 +549,22 @@ public class Pop3Folder {
                                  uidToMsgNumMap.get(message.getUid())));
         }
 
+        parseBody(message, lines);
+    }
+
+    private void parseBody(Pop3Message message, int lines) throws IOException, MessagingException {
+        Pop3ResponseInputStream inputStream = new Pop3ResponseInputStream(connection.getInputStream());
         try {
-            message.parse(new Pop3ResponseInputStream(connection.getInputStream()));
+            message.parse(inputStream);
 
             // TODO: if we've received fewer lines than requested we also have the complete message.
             if (lines == -1 || !connection.supportsTop()) {
                 message.setFlag(Flag.X_DOWNLOADED_FULL, true);
             }
         } catch (MessagingException me) {
+            // Make sure the next response doesn't start in the middle of this one
+            skipRemainingResponse(inputStream);
+
             /*
              * If we're only downloading headers it's possible
              * we'll get a broken MIME message which we're not
@@ -8,6 +8,7 @@ import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
 
 import com.fsck.k9.mail.AuthType;
 import com.fsck.k9.mail.AuthenticationFailedException;
@@ -23,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -663,17 +665,55 @@ public class Pop3ConnectionTest {
         server.verifyInteractionCompleted();
     }
 
-    private void startServerAndCreateOpenConnection(MockPop3Server server) throws IOException,
+    @Test
+    public void sendCommands_withPipeliningCapability_shouldSendCommandsBeforeReadingResponses() throws Exception {
+        settings.setAuthType(AuthType.PLAIN);
+
+        MockPop3Server server = new MockPop3Server();
+        server.output("+OK POP3 server greeting");
+        server.expect("AUTH");
+        server.output("-ERR");
+        server.expect("CAPA");
+        server.output("+OK Capability list follows");
+        server.output("SASL PLAIN");
+        server.output("PIPELINING");
+        server.output(".");
+        server.expect("AUTH PLAIN");
+        server.output("+OK");
+        server.expect(new String(Base64.encodeBase64(("\000"+username+"\000"+password).getBytes())));
+        server.output("+OK");
+        server.expect("RETR 1");
+        server.expect("RETR 2");
+        server.output("+OK message 1 follows");
+        server.output("-ERR no such message");
+        Pop3Connection connection = startServerAndCreateOpenConnection(server);
+
+        assertTrue(connection.supportsPipelining());
+        connection.sendCommands(Arrays.asList("RETR 1", "RETR 2"));
+        assertEquals("+OK message 1 follows", connection.readCommandResponse());
+        try {
+            connection.readCommandResponse();
+            fail("Expected error response");
+        } catch (Pop3ErrorResponse e) {
+            assertEquals("-ERR no such message", e.getMessage());
+        }
+
+        server.verifyConnectionStillOpen();
+        server.verifyInteractionCompleted();
+    }
+
+    private Pop3Connection startServerAndCreateOpenConnection(MockPop3Server server) throws IOException,
             MessagingException {
         server.start();
         settings.setHost(server.getHost());
         settings.setPort(server.getPort());
-        createAndOpenPop3Connection(settings, socketFactory);
+        return createAndOpenPop3Connection(settings, socketFactory);
     }
 
-    private void createAndOpenPop3Connection(Pop3Settings settings, TrustedSocketFactory socketFactory)
+    private Pop3Connection createAndOpenPop3Connection(Pop3Settings settings, TrustedSocketFactory socketFactory)
             throws MessagingException {
         Pop3Connection connection = new Pop3Connection(settings, socketFactory);
         connection.open();
+        return connection;
     }
 }
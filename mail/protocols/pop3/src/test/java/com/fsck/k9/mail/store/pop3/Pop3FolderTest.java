@@ -9,18 +9,22 @@ import com.fsck.k9.mail.internet.BinaryTempFileBody;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -253,6 +257,68 @@ public class Pop3FolderTest {
         assertEquals("this is some test text.", new String(bodyData.toByteArray(), "UTF-8"));
     }
 
+    @Test
+    public void fetch_withBodyProfileAndPipelining_sendsAllCommandsBeforeReadingResponses() throws Exception {
+        InputStream messageInputStream = new ByteArrayInputStream((
+                "Subject: First\r\n" +
+                "\r\n" +
+                "first message\r\n" +
+                ".\r\n" +
+                "Subject: Second\r\n" +
+                "\r\n" +
+                "second message\r\n" +
+                ".\r\n").getBytes());
+        folder.open();
+        List<Pop3Message> messageList = setupMessagesFromServer();
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(Item.BODY);
+        when(mockConnection.supportsPipelining()).thenReturn(true);
+        when(mockConnection.readCommandResponse()).thenReturn("+OK");
+        when(mockConnection.getInputStream()).thenReturn(messageInputStream);
+
+        folder.fetch(messageList, fetchProfile, mockListener, MAX_DOWNLOAD_SIZE);
+
+        InOrder inOrder = inOrder(mockConnection);
+        inOrder.verify(mockConnection).sendCommands(Arrays.asList("RETR 1", "RETR 2"));
+        inOrder.verify(mockConnection, times(2)).readCommandResponse();
+        assertEquals("First", messageList.get(0).getSubject());
+        assertEquals("Second", messageList.get(1).getSubject());
+    }
+
+    @Test
+    public void fetch_withPipelining_whenCommandFails_shouldReadRemainingResponsesAndThrow() throws Exception {
+        InputStream messageInputStream = new ByteArrayInputStream((
+                "Subject: Second\r\n" +
+                "\r\n" +
+                "second message\r\n" +
+                ".\r\n").getBytes());
+        folder.open();
+        List<Pop3Message> messageList = setupMessagesFromServer();
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(Item.BODY);
+        when(mockConnection.isOpen()).thenReturn(true);
+        when(mockConnection.supportsPipelining()).thenReturn(true);
+        when(mockConnection.readCommandResponse())
+                .thenThrow(new Pop3ErrorResponse("-ERR no such message"))
+                .thenReturn("+OK");
+        when(mockConnection.getInputStream()).thenReturn(messageInputStream);
+
+        try {
+            folder.fetch(messageList, fetchProfile, mockListener, MAX_DOWNLOAD_SIZE);
+            fail("Expected exception");
+        } catch (Pop3ErrorResponse expected) {
+        }
+
+        verify(mockConnection, times(2)).readCommandResponse();
+        assertEquals(-1, messageInputStream.read());
+        verify(mockConnection, never()).close();
+    }
+
+    private List<Pop3Message> setupMessagesFromServer() throws IOException, MessagingException {
+        when(mockConnection.readLine()).thenReturn("1 abcd").thenReturn("2 efgh").thenReturn(".");
+        return folder.getMessages(1, 2, mockListener);
+    }
+
     private List<Pop3Message> setupMessageFromServer() throws IOException, MessagingException {
         when(mockConnection.readLine()).thenReturn("1 abcd").thenReturn(".");
         return folder.getMessages(1, 1, mockListener);
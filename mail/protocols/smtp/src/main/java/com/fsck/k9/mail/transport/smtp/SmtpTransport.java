@@ -56,6 +56,7 @@ import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_SMTP;
 public class SmtpTransport extends Transport {
     private static final int SMTP_CONTINUE_REQUEST = 334;
     private static final int SMTP_AUTHENTICATION_FAILURE_ERROR_CODE = 535;
+    private static final int BDAT_CHUNK_SIZE = 64 * 1024;
 
 
     private final TrustedSocketFactory trustedSocketFactory;
@@ -78,6 +79,8 @@ public class SmtpTransport extends Transport {
     private int largestAcceptableMessage;
     private boolean retryXoauthWithNewToken;
     private boolean isPipeliningSupported;
+    private boolean isChunkingSupported;
+    private boolean isSessionStarted;
 
 
     public SmtpTransport(ServerSettings serverSettings,
@@ -142,6 +145,7 @@ public class SmtpTransport extends Transport {
             is8bitEncodingAllowed = extensions.containsKey("8BITMIME");
             isEnhancedStatusCodesProvided = extensions.containsKey("ENHANCEDSTATUSCODES");
             isPipeliningSupported = extensions.containsKey("PIPELINING");
+            isChunkingSupported = extensions.containsKey("CHUNKING");
 
             if (connectionSecurity == ConnectionSecurity.STARTTLS_REQUIRED) {
                 if (extensions.containsKey("STARTTLS")) {
@@ -161,6 +165,7 @@ public class SmtpTransport extends Transport {
                      * Exim.
                      */
                     extensions = sendHello(hostnameToReportInHelo);
+                    isChunkingSupported = extensions.containsKey("CHUNKING");
                     secureConnection = true;
                 } else {
                     /*
@@ -371,6 +376,20 @@ public class SmtpTransport extends Transport {
         return extensions;
     }
 
+    /**
+     * Keep the connection open after {@link #sendMessage(Message)} so it can be reused for the next message.
+     * <p>
+     * Consecutive messages are separated using {@code RSET}. The connection is closed by {@link #endSession()}.
+     */
+    public void startSession() {
+        isSessionStarted = true;
+    }
+
+    public void endSession() {
+        isSessionStarted = false;
+        close();
+    }
+
     @Override
     public void sendMessage(Message message) throws MessagingException {
         Set<String> addresses = new LinkedHashSet<>();
@@ -389,8 +408,12 @@ public class SmtpTransport extends Transport {
             return;
         }
 
-        close();
-        open();
+        if (isSessionStarted && socket != null) {
+            resetConnection();
+        } else {
+            close();
+            open();
+        }
 
         // If the message has attachments and our server has told us about a limit on
         // the size of messages, count the message's size before sending it
@@ -401,6 +424,7 @@ public class SmtpTransport extends Transport {
         }
 
         boolean entireMessageSent = false;
+        boolean keepConnection = false;
 
         try {
             String mailFrom = constructSmtpMailFromCommand(message.getFrom(), is8bitEncodingAllowed);
@@ -423,26 +447,65 @@ public class SmtpTransport extends Transport {
                 }
             }
 
-            executeCommand("DATA");
+            if (isChunkingSupported) {
+                // BDAT doesn't need dot-stuffing. But unless the message is sent using BODY=BINARYMIME (RFC 3030),
+                // which we never do, it still has to respect the line length limit of 1000 characters.
+                BdatOutputStream bdatOut = new BdatOutputStream();
+                EOLConvertingOutputStream msgOut = new EOLConvertingOutputStream(
+                        new LineWrapOutputStream(bdatOut, 1000));
 
-            EOLConvertingOutputStream msgOut = new EOLConvertingOutputStream(
-                    new LineWrapOutputStream(new SmtpDataStuffing(outputStream), 1000));
+                try {
+                    message.writeTo(msgOut);
+                    msgOut.endWithCrLfAndFlush();
+
+                    entireMessageSent = true; // After the last chunk is attempted, we may have sent the message
+                    bdatOut.finish();
+                } catch (IOException e) {
+                    MessagingException chunkFailure = bdatOut.getChunkFailure();
+                    if (chunkFailure != null) {
+                        throw chunkFailure;
+                    }
+                    throw e;
+                }
+            } else {
+                executeCommand("DATA");
+
+                EOLConvertingOutputStream msgOut = new EOLConvertingOutputStream(
+                        new LineWrapOutputStream(new SmtpDataStuffing(outputStream), 1000));
 
-            message.writeTo(msgOut);
-            msgOut.endWithCrLfAndFlush();
+                message.writeTo(msgOut);
+                msgOut.endWithCrLfAndFlush();
 
-            entireMessageSent = true; // After the "\r\n." is attempted, we may have sent the message
-            executeCommand(".");
+                entireMessageSent = true; // After the "\r\n." is attempted, we may have sent the message
+                executeCommand(".");
+            }
+
+            keepConnection = true;
         } catch (NegativeSmtpReplyException e) {
+            // The connection is still usable. The next message will start with RSET.
+            keepConnection = true;
             throw e;
         } catch (Exception e) {
             throw new MessagingException("Unable to send message", entireMessageSent, e);
         } finally {
-            close();
+            if (!isSessionStarted || !keepConnection) {
+                close();
+            }
         }
 
     }
 
+    private void resetConnection() throws MessagingException {
+        try {
+            executeCommand("RSET");
+        } catch (Exception e) {
+            // The server might have closed the connection while it was idle
+            Timber.d(e, "Failed to reuse SMTP connection. Reconnecting...");
+            close();
+            open();
+        }
+    }
+
     private static String constructSmtpMailFromCommand(Address[] from, boolean is8bitEncodingAllowed) {
         String fromAddress = from[0].getAddress();
         if (is8bitEncodingAllowed) {
@@ -509,6 +572,70 @@ public class SmtpTransport extends Transport {
         outputStream.flush();
     }
 
+    /**
+     * Sends everything written to it using {@code BDAT} commands (RFC 3030).
+     * <p>
+     * Data is sent in chunks of up to {@link #BDAT_CHUNK_SIZE} bytes. {@link #finish()} sends the final chunk.
+     */
+    private class BdatOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[BDAT_CHUNK_SIZE];
+        private int count = 0;
+        private MessagingException chunkFailure;
+
+        @Override
+        public void write(int oneByte) throws IOException {
+            if (count == buffer.length) {
+                sendChunk(false);
+            }
+            buffer[count++] = (byte) oneByte;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    sendChunk(false);
+                }
+
+                int bytesToCopy = Math.min(length, buffer.length - count);
+                System.arraycopy(data, offset, buffer, count, bytesToCopy);
+                count += bytesToCopy;
+                offset += bytesToCopy;
+                length -= bytesToCopy;
+            }
+        }
+
+        void finish() throws IOException {
+            sendChunk(true);
+        }
+
+        /**
+         * Returns the negative reply that caused an {@link IOException} to be thrown, if any.
+         */
+        MessagingException getChunkFailure() {
+            return chunkFailure;
+        }
+
+        private void sendChunk(boolean last) throws IOException {
+            String command = last ? "BDAT " + count + " LAST" : "BDAT " + count;
+            if (K9MailLib.isDebug() && DEBUG_PROTOCOL_SMTP) {
+                Timber.d("SMTP >>> %s", command);
+            }
+
+            outputStream.write(command.concat("\r\n").getBytes());
+            outputStream.write(buffer, 0, count);
+            outputStream.flush();
+            count = 0;
+
+            try {
+                executeCommand(null);
+            } catch (MessagingException e) {
+                chunkFailure = e;
+                throw new IOException("Server rejected BDAT chunk", e);
+            }
+        }
+    }
+
     private static class CommandResponse {
 
         private final int replyCode;
@@ -1,17 +1,11 @@
 package com.fsck.k9.mail.store.webdav;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
-import timber.log.Timber;
-
 /**
  * Maintains WebDAV data
  */
@@ -56,47 +50,6 @@ class DataSet {
         return mData.isEmpty() ? Collections.<String, String>emptyMap() : mData.values().iterator().next();
     }
 
-    /**
-     * Returns a hashmap of Message UID => Message Url
-     */
-    public Map<String, String> getUidToUrl() {
-        Map<String, String> uidToUrl = new HashMap<>();
-
-        for (String uid : mData.keySet()) {
-            Map<String, String> data = mData.get(uid);
-            String value = data.get("href");
-            if (value != null &&
-                    !value.equals("")) {
-                uidToUrl.put(uid, value);
-            }
-        }
-
-        return uidToUrl;
-    }
-
-    /**
-     * Returns a hashmap of Message UID => Read Status
-     */
-    public Map<String, Boolean> getUidToRead() {
-        Map<String, Boolean> uidToRead = new HashMap<>();
-
-        for (String uid : mData.keySet()) {
-            Map<String, String> data = mData.get(uid);
-            String readStatus = data.get("read");
-            if (readStatus != null && !readStatus.equals("")) {
-                Boolean value = !readStatus.equals("0");
-                uidToRead.put(uid, value);
-            } else {
-                // We don't actually want to have null values in our hashmap,
-                // as it causes the calling code to crash with an NPE as it
-                // does a lookup in the map.
-                uidToRead.put(uid, false);
-            }
-        }
-
-        return uidToRead;
-    }
-
     /**
      * Returns an array of all hrefs (urls) that were received
      */
@@ -112,19 +65,6 @@ class DataSet {
         return hrefs.toArray(WebDavConstants.EMPTY_STRING_ARRAY);
     }
 
-    /**
-     * Return an array of all Message UIDs that were received
-     */
-    public String[] getUids() {
-        List<String> uids = new ArrayList<>();
-
-        for (String uid : mData.keySet()) {
-            uids.add(uid);
-        }
-
-        return uids.toArray(WebDavConstants.EMPTY_STRING_ARRAY);
-    }
-
     /**
      * Returns the message count as it was retrieved
      */
@@ -149,55 +89,4 @@ class DataSet {
 
         return messageCount;
     }
-
-    /**
-     * Returns a Map of message UID => ParsedMessageEnvelope
-     */
-    public Map<String, ParsedMessageEnvelope> getMessageEnvelopes() {
-        Map<String, ParsedMessageEnvelope> envelopes = new HashMap<>();
-
-        for (String uid : mData.keySet()) {
-            ParsedMessageEnvelope envelope = new ParsedMessageEnvelope();
-            Map<String, String> data = mData.get(uid);
-
-            if (data != null) {
-                for (Map.Entry<String, String> entry : data.entrySet()) {
-                    String header = entry.getKey();
-                    if (header.equals("read")) {
-                        String read = entry.getValue();
-                        boolean readStatus = !read.equals("0");
-
-                        envelope.setReadStatus(readStatus);
-                    } else if (header.equals("date")) {
-                        /**
-                         * Exchange doesn't give us rfc822 dates like it claims. The date is in the format:
-                         * yyyy-MM-dd'T'HH:mm:ss.SSS<Single digit representation of timezone, so far, all instances
-                         * are Z>
-                         */
-                        String date = entry.getValue();
-                        date = date.substring(0, date.length() - 1);
-
-                        DateFormat dfInput = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
-                        DateFormat dfOutput = new SimpleDateFormat("EEE, d MMM yy HH:mm:ss Z", Locale.US);
-                        String tempDate = "";
-
-                        try {
-                            Date parsedDate = dfInput.parse(date);
-                            tempDate = dfOutput.format(parsedDate);
-                        } catch (java.text.ParseException pe) {
-                            Timber.e(pe, "Error parsing date: %s", date);
-                        }
-                        envelope.addHeader(header, tempDate);
-                    } else {
-                        envelope.addHeader(header, entry.getValue());
-                    }
-                }
-            }
-
-            envelopes.put(uid, envelope);
-        }
-
-        return envelopes;
-    }
 }
-
@@ -0,0 +1,118 @@
+package com.fsck.k9.mail.store.webdav;
+
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import com.fsck.k9.mail.MessagingException;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import timber.log.Timber;
+
+
+/**
+ * Handler for the response to a message SEARCH request that creates a {@link ParsedMessageEnvelope} for every
+ * {@code <response>} element as soon as it has been parsed.
+ * <p>
+ * Unlike {@link WebDavHandler} this doesn't keep the whole response in memory. A {@link MessagingException} thrown by
+ * the callback is rethrown by {@link WebDavStore#processRequest(String, String, String, java.util.Map,
+ * DefaultHandler)}.
+ */
+class MessageEnvelopeHandler extends DefaultHandler {
+    private final Callback callback;
+    private final StringBuilder value = new StringBuilder();
+    /**
+     * Exchange doesn't give us RFC 822 dates like it claims. The date is in the format
+     * yyyy-MM-dd'T'HH:mm:ss.SSS followed by a single character representation of the time zone. So far all instances
+     * were 'Z'.
+     */
+    private final DateFormat inputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+    private final DateFormat outputDateFormat = new SimpleDateFormat("EEE, d MMM yy HH:mm:ss Z", Locale.US);
+    private ParsedMessageEnvelope envelope;
+    private boolean hasValue;
+
+
+    MessageEnvelopeHandler(Callback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName, String qName, Attributes atts) {
+        if (localName.equals("response")) {
+            envelope = new ParsedMessageEnvelope();
+        }
+
+        value.setLength(0);
+        hasValue = false;
+    }
+
+    @Override
+    public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
+        if (envelope == null) {
+            return;
+        }
+
+        if (localName.equals("response")) {
+            try {
+                callback.onMessageEnvelope(envelope);
+            } catch (MessagingException e) {
+                throw new SAXException(e);
+            }
+            envelope = null;
+        } else if (hasValue) {
+            addValue(localName, value.toString());
+        }
+
+        value.setLength(0);
+        hasValue = false;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        value.append(ch, start, length);
+        hasValue = true;
+    }
+
+    private void addValue(String name, String value) {
+        switch (name) {
+            case "uid": {
+                envelope.setUid(value);
+                break;
+            }
+            case "href": {
+                envelope.setUrl(value);
+                break;
+            }
+            case "read": {
+                envelope.setReadStatus(!value.equals("0"));
+                break;
+            }
+            case "date": {
+                envelope.addHeader(name, convertDate(value));
+                break;
+            }
+            default: {
+                envelope.addHeader(name, value);
+            }
+        }
+    }
+
+    private String convertDate(String date) {
+        try {
+            Date parsedDate = inputDateFormat.parse(date.substring(0, date.length() - 1));
+            return outputDateFormat.format(parsedDate);
+        } catch (ParseException | IndexOutOfBoundsException e) {
+            Timber.e(e, "Error parsing date: %s", date);
+            return "";
+        }
+    }
+
+
+    interface Callback {
+        void onMessageEnvelope(ParsedMessageEnvelope envelope) throws MessagingException;
+    }
+}
@@ -28,6 +28,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -40,6 +41,9 @@ import static com.fsck.k9.mail.helper.UrlEncodingHelper.encodeUtf8;
  * A WebDav Folder
  */
 public class WebDavFolder {
+    private static final int ENVELOPE_BATCH_SIZE = 50;
+    private static final int FLAGS_BATCH_SIZE = 100;
+
     private String mName;
     private FolderType type = FolderType.REGULAR;
     private String mFolderUrl;
@@ -204,10 +208,8 @@ public class WebDavFolder {
 
     public List<WebDavMessage> getMessages(int start, int end, MessageRetrievalListener<WebDavMessage> listener)
             throws MessagingException {
-        List<WebDavMessage> messages = new ArrayList<>();
-        String[] uids;
+        final List<WebDavMessage> messages = new ArrayList<>();
         Map<String, String> headers = new HashMap<>();
-        int uidsLength;
 
         String messageBody;
         int prevStart = start;
@@ -229,21 +231,21 @@ public class WebDavFolder {
 
         headers.put("Brief", "t");
         headers.put("Range", "rows=" + start + "-" + end);
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
-        uids = dataset.getUids();
-        Map<String, String> uidToUrl = dataset.getUidToUrl();
-        uidsLength = uids.length;
-
-        for (int i = 0; i < uidsLength; i++) {
-            if (listener != null) {
-                listener.messageStarted(uids[i], i, uidsLength);
-            }
-            WebDavMessage message = new WebDavMessage(uids[i], this);
-            message.setUrl(uidToUrl.get(uids[i]));
-            messages.add(message);
+        store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers, new MessageEnvelopeHandler(
+                new MessageEnvelopeHandler.Callback() {
+                    @Override
+                    public void onMessageEnvelope(ParsedMessageEnvelope envelope) {
+                        WebDavMessage message = new WebDavMessage(envelope.getUid(), WebDavFolder.this);
+                        message.setUrl(envelope.getUrl());
+                        messages.add(message);
+                    }
+                }));
 
-            if (listener != null) {
-                listener.messageFinished(message, i, uidsLength);
+        if (listener != null) {
+            for (int i = 0, count = messages.size(); i < count; i++) {
+                WebDavMessage message = messages.get(i);
+                listener.messageStarted(message.getUid(), i, count);
+                listener.messageFinished(message, i, count);
             }
         }
 
@@ -262,9 +264,19 @@ public class WebDavFolder {
         messageBody = store.getMessageUrlsXml(uids);
         headers.put("Brief", "t");
 
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
+        final Map<String, String> uidToUrl = new HashMap<>();
+        store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers, new MessageEnvelopeHandler(
+                new MessageEnvelopeHandler.Callback() {
+                    @Override
+                    public void onMessageEnvelope(ParsedMessageEnvelope envelope) {
+                        String url = envelope.getUrl();
+                        if (!url.isEmpty()) {
+                            uidToUrl.put(envelope.getUid(), url);
+                        }
+                    }
+                }));
 
-        return dataset.getUidToUrl();
+        return uidToUrl;
     }
 
     public void fetch(List<WebDavMessage> messages, FetchProfile fp, MessageRetrievalListener<WebDavMessage> listener,
@@ -274,16 +286,12 @@ public class WebDavFolder {
         }
 
         /**
-         * Fetch message envelope information for the array
+         * Fetch message envelope information for the array. This includes the flags.
          */
         if (fp.contains(FetchProfile.Item.ENVELOPE)) {
             fetchEnvelope(messages, listener);
-        }
-        /**
-         * Fetch message flag info for the array
-         */
-        if (fp.contains(FetchProfile.Item.FLAGS)) {
-            fetchFlags(messages, listener);
+        } else if (fp.contains(FetchProfile.Item.FLAGS)) {
+            fetchFlags(messages);
         }
 
         if (fp.contains(FetchProfile.Item.BODY_SANE)) {
@@ -411,125 +419,74 @@ public class WebDavFolder {
     }
 
     /**
-     * Fetches and sets the message flags for the supplied messages. The idea is to have this be recursive so that
-     * we do a series of medium calls instead of one large massive call or a large number of smaller calls.
+     * Fetches and sets the message flags for the supplied messages. Messages are requested in batches so we do a
+     * series of medium calls instead of one large massive call or a large number of smaller calls.
      */
-    private void fetchFlags(List<WebDavMessage> startMessages, MessageRetrievalListener<WebDavMessage> listener) throws MessagingException {
-        HashMap<String, String> headers = new HashMap<>();
-        String messageBody;
-        List<WebDavMessage> messages = new ArrayList<>(20);
-        String[] uids;
-
-        if (startMessages == null ||
-                startMessages.isEmpty()) {
-            return;
-        }
-
-        if (startMessages.size() > 20) {
-            List<WebDavMessage> newMessages = new ArrayList<>(startMessages.size() - 20);
-            for (int i = 0, count = startMessages.size(); i < count; i++) {
-                if (i < 20) {
-                    messages.add(startMessages.get(i));
-                } else {
-                    newMessages.add(startMessages.get(i));
-                }
-            }
-
-            fetchFlags(newMessages, listener);
-        } else {
-            messages.addAll(startMessages);
-        }
-
-        uids = new String[messages.size()];
-
-        for (int i = 0, count = messages.size(); i < count; i++) {
-            uids[i] = messages.get(i).getUid();
-        }
-
-        messageBody = store.getMessageFlagsXml(uids);
+    private void fetchFlags(List<WebDavMessage> messages) throws MessagingException {
+        Map<String, String> headers = new HashMap<>();
         headers.put("Brief", "t");
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
-
-        if (dataset == null) {
-            throw new MessagingException("Data Set from request was null");
-        }
-
-        Map<String, Boolean> uidToReadStatus = dataset.getUidToRead();
-
-        for (WebDavMessage message : messages) {
-            try {
-                message.setFlag(Flag.SEEN, uidToReadStatus.get(message.getUid()));
-            } catch (NullPointerException e) {
-                Timber.v(e, "Under some weird circumstances, " +
-                        "setting the read status when syncing from webdav threw an NPE. Skipping.");
-            }
 
+        for (int start = 0, count = messages.size(); start < count; start += FLAGS_BATCH_SIZE) {
+            List<WebDavMessage> batch = messages.subList(start, Math.min(start + FLAGS_BATCH_SIZE, count));
+            final Map<String, WebDavMessage> uidToMessage = createUidToMessageMap(batch);
+
+            String messageBody = store.getMessageFlagsXml(getUids(batch));
+            store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers, new MessageEnvelopeHandler(
+                    new MessageEnvelopeHandler.Callback() {
+                        @Override
+                        public void onMessageEnvelope(ParsedMessageEnvelope envelope) throws MessagingException {
+                            WebDavMessage message = uidToMessage.get(envelope.getUid());
+                            if (message != null) {
+                                message.setFlag(Flag.SEEN, envelope.getReadStatus());
+                            }
+                        }
+                    }));
         }
     }
 
     /**
-     * Fetches and parses the message envelopes for the supplied messages. The idea is to have this be recursive so
-     * that we do a series of medium calls instead of one large massive call or a large number of smaller calls.
-     * Call it a happy balance
+     * Fetches and parses the message envelopes for the supplied messages. Messages are requested in batches so we do
+     * a series of medium calls instead of one large massive call or a large number of smaller calls. Envelopes are
+     * applied while the response is being parsed.
+     * <p>
+     * The envelope includes the read status, so the flags of these messages don't need to be fetched separately.
      */
-    private void fetchEnvelope(List<WebDavMessage> startMessages, MessageRetrievalListener<WebDavMessage> listener)
+    private void fetchEnvelope(List<WebDavMessage> messages, MessageRetrievalListener<WebDavMessage> listener)
             throws MessagingException {
         Map<String, String> headers = new HashMap<>();
-        String messageBody;
-        String[] uids;
-        List<WebDavMessage> messages = new ArrayList<>(10);
+        headers.put("Brief", "t");
 
-        if (startMessages == null ||
-                startMessages.isEmpty()) {
-            return;
-        }
+        int count = messages.size();
+        EnvelopeCallback callback = new EnvelopeCallback(listener, count);
+        for (int start = 0; start < count; start += ENVELOPE_BATCH_SIZE) {
+            List<WebDavMessage> batch = messages.subList(start, Math.min(start + ENVELOPE_BATCH_SIZE, count));
+            callback.uidToMessage = createUidToMessageMap(batch);
 
-        if (startMessages.size() > 10) {
-            List<WebDavMessage> newMessages = new ArrayList<>(startMessages.size() - 10);
-            for (int i = 0, count = startMessages.size(); i < count; i++) {
-                if (i < 10) {
-                    messages.add(i, startMessages.get(i));
-                } else {
-                    newMessages.add(i - 10, startMessages.get(i));
-                }
-            }
+            String messageBody = store.getMessageEnvelopeXml(getUids(batch));
+            store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers,
+                    new MessageEnvelopeHandler(callback));
 
-            fetchEnvelope(newMessages, listener);
-        } else {
-            messages.addAll(startMessages);
+            for (WebDavMessage message : callback.uidToMessage.values()) {
+                Timber.e("Asked to get metadata for a non-existent message: %s", message.getUid());
+                callback.notifyListener(message);
+            }
         }
+    }
 
-        uids = new String[messages.size()];
+    private static Map<String, WebDavMessage> createUidToMessageMap(List<WebDavMessage> messages) {
+        Map<String, WebDavMessage> uidToMessage = new LinkedHashMap<>();
+        for (WebDavMessage message : messages) {
+            uidToMessage.put(message.getUid(), message);
+        }
+        return uidToMessage;
+    }
 
+    private static String[] getUids(List<WebDavMessage> messages) {
+        String[] uids = new String[messages.size()];
         for (int i = 0, count = messages.size(); i < count; i++) {
             uids[i] = messages.get(i).getUid();
         }
-
-        messageBody = store.getMessageEnvelopeXml(uids);
-        headers.put("Brief", "t");
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
-
-        Map<String, ParsedMessageEnvelope> envelopes = dataset.getMessageEnvelopes();
-
-        int count = messages.size();
-        for (int i = messages.size() - 1; i >= 0; i--) {
-            WebDavMessage message = messages.get(i);
-            if (listener != null) {
-                listener.messageStarted(messages.get(i).getUid(), i, count);
-            }
-
-            ParsedMessageEnvelope envelope = envelopes.get(message.getUid());
-            if (envelope != null) {
-                message.setNewHeaders(envelope);
-                message.setFlag(Flag.SEEN, envelope.getReadStatus());
-            } else {
-                Timber.e("Asked to get metadata for a non-existent message: %s", message.getUid());
-            }
-
-            if (listener != null) {
-                listener.messageFinished(messages.get(i), i, count);
-            }
-        }
+        return uids;
     }
 
     public void setFlags(List<WebDavMessage> messages, final Set<Flag> flags, boolean value)
@@ -661,4 +618,37 @@ public class WebDavFolder {
     public String getUrl() {
         return mFolderUrl;
     }
+
+
+    private static class EnvelopeCallback implements MessageEnvelopeHandler.Callback {
+        private final MessageRetrievalListener<WebDavMessage> listener;
+        private final int count;
+        private int position = 0;
+        Map<String, WebDavMessage> uidToMessage;
+
+        EnvelopeCallback(MessageRetrievalListener<WebDavMessage> listener, int count) {
+            this.listener = listener;
+            this.count = count;
+        }
+
+        @Override
+        public void onMessageEnvelope(ParsedMessageEnvelope envelope) throws MessagingException {
+            WebDavMessage message = uidToMessage.remove(envelope.getUid());
+            if (message == null) {
+                return;
+            }
+
+            message.setNewHeaders(envelope);
+            message.setFlag(Flag.SEEN, envelope.getReadStatus());
+            notifyListener(message);
+        }
+
+        void notifyListener(WebDavMessage message) {
+            if (listener != null) {
+                listener.messageStarted(message.getUid(), position, count);
+                listener.messageFinished(message, position, count);
+            }
+            position++;
+        }
+    }
 }
@@ -46,6 +46,7 @@ import org.apache.http.protocol.HttpContext;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 import timber.log.Timber;
 
 import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_WEBDAV;
@@ -877,14 +878,29 @@ public class WebDavStore {
     DataSet processRequest(String url, String method, String messageBody, Map<String, String> headers,
             boolean needsParsing)
             throws MessagingException {
-        DataSet dataset = new DataSet();
+        if (!needsParsing) {
+            processRequest(url, method, messageBody, headers, (DefaultHandler) null);
+            return new DataSet();
+        }
+
+        WebDavHandler handler = new WebDavHandler();
+        processRequest(url, method, messageBody, headers, handler);
+        return handler.getDataSet();
+    }
+
+    /**
+     * Performs an HttpRequest like {@link #processRequest(String, String, String, Map)}, but passes the XML events of
+     * the response directly to {@code handler}. Use this to process large responses while they are being received.
+     */
+    void processRequest(String url, String method, String messageBody, Map<String, String> headers,
+            DefaultHandler handler) throws MessagingException {
         if (K9MailLib.isDebug() && DEBUG_PROTOCOL_WEBDAV) {
             Timber.v("processRequest url = '%s', method = '%s', messageBody = '%s'", url, method, messageBody);
         }
 
         if (url == null ||
                 method == null) {
-            return dataset;
+            return;
         }
 
         getHttpClient();
@@ -897,20 +913,20 @@ public class WebDavStore {
             }
             InputStream istream = sendRequest(url, method, messageEntity, headers, true);
             if (istream != null &&
-                    needsParsing) {
+                    handler != null) {
                 try {
                     SAXParserFactory spf = SAXParserFactory.newInstance();
                     spf.setNamespaceAware(true); //This should be a no-op on Android, but makes the tests work
                     SAXParser sp = spf.newSAXParser();
                     XMLReader xr = sp.getXMLReader();
-                    WebDavHandler myHandler = new WebDavHandler();
 
-                    xr.setContentHandler(myHandler);
+                    xr.setContentHandler(handler);
 
                     xr.parse(new InputSource(istream));
-
-                    dataset = myHandler.getDataSet();
                 } catch (SAXException se) {
+                    if (se.getException() instanceof MessagingException) {
+                        throw (MessagingException) se.getException();
+                    }
                     Timber.e(se, "SAXException in processRequest()");
                     throw new MessagingException("SAXException in processRequest() ", se);
                 } catch (ParserConfigurationException pce) {
@@ -927,8 +943,6 @@ public class WebDavStore {
             Timber.e(ioe, "IOException: ");
             throw new MessagingException("IOException in processRequest() ", ioe);
         }
-
-        return dataset;
     }
 
     public void sendMessages(List<Message> messages) throws MessagingException {
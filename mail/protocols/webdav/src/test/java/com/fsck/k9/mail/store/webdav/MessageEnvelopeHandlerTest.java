@@ -0,0 +1,93 @@
+package com.fsck.k9.mail.store.webdav;
+
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class MessageEnvelopeHandlerTest {
+    private static final String RESPONSE = "<?xml version=\"1.0\"?>" +
+            "<a:multistatus xmlns:a=\"DAV:\" xmlns:b=\"urn:schemas:httpmail:\"" +
+            " xmlns:c=\"urn:schemas:mailheader:\">" +
+            "<a:response>" +
+            "<a:href>http://example.org/Exchange/user/Inbox/message1.EML</a:href>" +
+            "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+            "<a:uid>uid1</a:uid>" +
+            "<a:getcontentlength>1024</a:getcontentlength>" +
+            "<c:subject>First &amp; only</c:subject>" +
+            "<c:date>2020-01-02T03:04:05.000Z</c:date>" +
+            "<b:read>1</b:read>" +
+            "</a:prop></a:propstat>" +
+            "</a:response>" +
+            "<a:response>" +
+            "<a:href>http://example.org/Exchange/user/Inbox/message2.EML</a:href>" +
+            "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+            "<a:uid>uid2</a:uid>" +
+            "<c:cc/>" +
+            "<b:read>0</b:read>" +
+            "</a:prop></a:propstat>" +
+            "</a:response>" +
+            "</a:multistatus>";
+
+
+    @Test
+    public void parse_shouldCreateEnvelopeForEachResponse() throws Exception {
+        List<ParsedMessageEnvelope> envelopes = parse(RESPONSE);
+
+        assertEquals(2, envelopes.size());
+        ParsedMessageEnvelope first = envelopes.get(0);
+        assertEquals("uid1", first.getUid());
+        assertEquals("http://example.org/Exchange/user/Inbox/message1.EML", first.getUrl());
+        assertTrue(first.getReadStatus());
+        assertEquals("First & only", first.getMessageHeaders().get("Subject"));
+        assertEquals("1024", first.getMessageHeaders().get("Content-Length"));
+        assertNotEquals("", first.getMessageHeaders().get("Date"));
+        ParsedMessageEnvelope second = envelopes.get(1);
+        assertEquals("uid2", second.getUid());
+        assertFalse(second.getReadStatus());
+    }
+
+    @Test
+    public void parse_withEmptyElement_shouldNotAddHeader() throws Exception {
+        List<ParsedMessageEnvelope> envelopes = parse(RESPONSE);
+
+        assertFalse(envelopes.get(1).getMessageHeaders().containsKey("Cc"));
+    }
+
+    @Test
+    public void parse_withInvalidDate_shouldAddEmptyDateHeader() throws Exception {
+        List<ParsedMessageEnvelope> envelopes = parse(RESPONSE.replace("2020-01-02T03:04:05.000Z", "invalid"));
+
+        assertEquals("", envelopes.get(0).getMessageHeaders().get("Date"));
+    }
+
+    private List<ParsedMessageEnvelope> parse(String xml) throws Exception {
+        final List<ParsedMessageEnvelope> envelopes = new ArrayList<>();
+        MessageEnvelopeHandler handler = new MessageEnvelopeHandler(new MessageEnvelopeHandler.Callback() {
+            @Override
+            public void onMessageEnvelope(ParsedMessageEnvelope envelope) {
+                envelopes.add(envelope);
+            }
+        });
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XMLReader reader = factory.newSAXParser().getXMLReader();
+        reader.setContentHandler(handler);
+        reader.parse(new InputSource(new StringReader(xml)));
+
+        return envelopes;
+    }
+}
@@ -5,12 +5,15 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.parsers.SAXParserFactory;
+
 import com.fsck.k9.mail.FetchProfile;
 import com.fsck.k9.mail.Message;
 import com.fsck.k9.mail.MessageRetrievalListener;
@@ -26,11 +29,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
@@ -43,8 +48,10 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -128,13 +135,32 @@ public class WebDavFolderTest {
     private void setupGetUrlsRequestResponse(String uid, String url) throws MessagingException {
         String getUrlsXml = "<xml>GetUrls</xml>";
         when(mockStore.getMessageUrlsXml(new String[]{uid})).thenReturn(getUrlsXml);
-        HashMap<String, String> headers = new HashMap<>();
-        headers.put("Brief", "t");
-        when(mockStore.processRequest("https://localhost/webDavStoreUrl/testFolder", "SEARCH", getUrlsXml, headers))
-                .thenReturn(mockDataSet);
-        Map<String, String> urlUids = new HashMap<>();
-        urlUids.put(uid, url);
-        when(mockDataSet.getUidToUrl()).thenReturn(urlUids);
+        answerSearchRequest(getUrlsXml, uid, url);
+    }
+
+    private void answerSearchRequest(String messageBody, String... uidsAndUrls) throws MessagingException {
+        final StringBuilder response = new StringBuilder();
+        response.append("<?xml version=\"1.0\"?><a:multistatus xmlns:a=\"DAV:\">");
+        for (int i = 0; i < uidsAndUrls.length; i += 2) {
+            response.append("<a:response><a:href>").append(uidsAndUrls[i + 1]).append("</a:href>")
+                    .append("<a:propstat><a:prop><a:uid>").append(uidsAndUrls[i]).append("</a:uid></a:prop>")
+                    .append("</a:propstat></a:response>");
+        }
+        response.append("</a:multistatus>");
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                DefaultHandler handler = invocation.getArgument(4);
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(true);
+                XMLReader reader = factory.newSAXParser().getXMLReader();
+                reader.setContentHandler(handler);
+                reader.parse(new InputSource(new StringReader(response.toString())));
+                return null;
+            }
+        }).when(mockStore).processRequest(eq("https://localhost/webDavStoreUrl/testFolder"), eq("SEARCH"),
+                eq(messageBody), anyMapOf(String.class, String.class), any(DefaultHandler.class));
     }
 
     @Test
@@ -202,6 +228,37 @@ public class WebDavFolderTest {
         folder.fetch(messages, profile, listener, MAX_DOWNLOAD_SIZE);
     }
 
+    @Test
+    public void fetch_withEnvelopeAndFlags_shouldNotRequestFlagsSeparately() throws MessagingException {
+        List<WebDavMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(createWebDavMessage(i));
+        }
+
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.FLAGS);
+        folder.fetch(messages, profile, listener, MAX_DOWNLOAD_SIZE);
+
+        verify(mockStore).getMessageEnvelopeXml(any(String[].class));
+        verify(mockStore, never()).getMessageFlagsXml(any(String[].class));
+    }
+
+    @Test
+    public void fetch_withMissingEnvelopes_shouldNotifyListenerForEveryMessage() throws MessagingException {
+        List<WebDavMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            messages.add(createWebDavMessage(i));
+        }
+
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        folder.fetch(messages, profile, listener, MAX_DOWNLOAD_SIZE);
+
+        verify(mockStore, times(2)).getMessageEnvelopeXml(any(String[].class));
+        verify(listener, times(60)).messageFinished(any(WebDavMessage.class), anyInt(), eq(60));
+    }
+
     @Test
     public void folder_can_fetch_sensible_body_data_and_notifies_listener()
             throws MessagingException, IOException, URISyntaxException {
@@ -393,10 +450,9 @@ public class WebDavFolderTest {
         int messageEnd = 11;
         setupFolderWithMessages(totalMessages);
         String messagesXml = "<xml>MessagesXml</xml>";
-        buildSearchResponse(mockDataSet);
         when(mockStore.getMessagesXml()).thenReturn(messagesXml);
-        when(mockStore.processRequest(eq("https://localhost/webDavStoreUrl/testFolder"), eq("SEARCH"),
-                eq(messagesXml), Matchers.<Map<String, String>>any())).thenReturn(mockDataSet);
+        answerSearchRequest(messagesXml,
+                "uid1", "url1", "uid2", "url2", "uid3", "url3", "uid4", "url4", "uid5", "url5");
 
         folder.getMessages(messageStart, messageEnd, listener);
 
@@ -411,32 +467,34 @@ public class WebDavFolderTest {
         int messageEnd = 11;
         setupFolderWithMessages(totalMessages);
         String messagesXml = "<xml>MessagesXml</xml>";
-        buildSearchResponse(mockDataSet);
         when(mockStore.getMessagesXml()).thenReturn(messagesXml);
-        when(mockStore.processRequest(eq("https://localhost/webDavStoreUrl/testFolder"), eq("SEARCH"),
-                eq(messagesXml), Matchers.<Map<String, String>>any())).thenReturn(mockDataSet);
+        answerSearchRequest(messagesXml,
+                "uid1", "url1", "uid2", "url2", "uid3", "url3", "uid4", "url4", "uid5", "url5");
 
         folder.getMessages(messageStart, messageEnd, listener);
 
-        verify(mockStore, times(2)).processRequest(anyString(), anyString(), anyString(),
-                headerCaptor.capture());
+        verify(mockStore).processRequest(anyString(), anyString(), anyString(), headerCaptor.capture(),
+                any(DefaultHandler.class));
         assertEquals(2, headerCaptor.getValue().size());
         assertEquals("t", headerCaptor.getValue().get("Brief"));
         assertEquals("rows=" + (totalMessages - (messageEnd)) + "-" + (totalMessages - messageStart)
                 , headerCaptor.getValue().get("Range"));
     }
 
-    private void buildSearchResponse(DataSet mockDataSet) {
-        String[] uids = new String[]{"uid1", "uid2", "uid3", "uid4", "uid5"};
-        HashMap<String, String> uidToUrls = new HashMap<>();
-        uidToUrls.put("uid1", "url1");
-        uidToUrls.put("uid2", "url2");
-        uidToUrls.put("uid3", "url3");
-        uidToUrls.put("uid4", "url4");
-        uidToUrls.put("uid5", "url5");
+    @Test
+    public void getMessages_shouldReturnMessagesWithUrlsInResponseOrder() throws MessagingException {
+        setupFolderWithMessages(23);
+        String messagesXml = "<xml>MessagesXml</xml>";
+        when(mockStore.getMessagesXml()).thenReturn(messagesXml);
+        answerSearchRequest(messagesXml, "uid2", "url2", "uid1", "url1");
+
+        List<WebDavMessage> result = folder.getMessages(1, 11, null);
 
-        when(mockDataSet.getUids()).thenReturn(uids);
-        when(mockDataSet.getUidToUrl()).thenReturn(uidToUrls);
+        assertEquals(2, result.size());
+        assertEquals("uid2", result.get(0).getUid());
+        assertEquals("url2", result.get(0).getUrl());
+        assertEquals("uid1", result.get(1).getUid());
+        assertEquals("url1", result.get(1).getUrl());
     }
 
     @Test(expected = MessagingException.class)
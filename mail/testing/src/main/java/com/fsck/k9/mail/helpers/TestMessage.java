@@ -16,6 +16,7 @@ class TestMessage extends MimeMessage {
     private final Address[] from;
     private final Address[] to;
     private final boolean hasAttachments;
+    private final String messageData;
 
 
     TestMessage(TestMessageBuilder builder) {
@@ -23,6 +24,7 @@ class TestMessage extends MimeMessage {
         to = toAddressArray(builder.to);
         hasAttachments = builder.hasAttachments;
         messageSize = builder.messageSize;
+        messageData = builder.messageData;
     }
 
     @Override
@@ -57,7 +59,7 @@ class TestMessage extends MimeMessage {
     @Override
     public void writeTo(OutputStream out) throws IOException, MessagingException {
         BufferedSink bufferedSink = Okio.buffer(Okio.sink(out));
-        bufferedSink.writeUtf8("[message data]");
+        bufferedSink.writeUtf8(messageData);
         bufferedSink.emit();
     }
 
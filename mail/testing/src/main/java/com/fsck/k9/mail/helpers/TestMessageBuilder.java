@@ -9,6 +9,7 @@ public class TestMessageBuilder {
     String[] to;
     boolean hasAttachments;
     long messageSize;
+    String messageData = "[message data]";
 
 
     public TestMessageBuilder from(String... email) {
@@ -31,6 +32,11 @@ public class TestMessageBuilder {
         return this;
     }
     
+    public TestMessageBuilder messageData(String messageData) {
+        this.messageData = messageData;
+        return this;
+    }
+
     public Message build() {
         return new TestMessage(this);
     }